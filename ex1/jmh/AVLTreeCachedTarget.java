@@ -0,0 +1,22 @@
+/**
+ * The benchmark operations over an AVLTree with a search cache.
+ * Loaded by name by {@link avltree.jmh.Target#create(String)}.
+ */
+public class AVLTreeCachedTarget extends AVLTreeTarget {
+	/**
+	 * Twice the hot keys of the hotspot distribution
+	 */
+	static final int CACHE_CAPACITY = 1 << 13;
+
+	@Override
+	public void load(int[] sortedKeys, String info) {
+		super.load(sortedKeys, info);
+		tree.enableSearchCache(CACHE_CAPACITY);
+	}
+
+	@Override
+	public void split(int x) {
+		super.split(x);
+		tree.enableSearchCache(CACHE_CAPACITY);
+	}
+}
@@ -0,0 +1,136 @@
+import avltree.jmh.Target;
+import avltree.jmh.TreeFeatures;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The benchmark operations over AVLTree, in the default package with the tree.
+ * Loaded by name by {@link Target#create(String)}.
+ */
+public class AVLTreeTarget implements Target, TreeFeatures {
+	AVLTree tree = new AVLTree();
+	private AVLTree greater;
+	private AVLTree other;
+	private AVLTreeMetrics metrics;
+
+	@Override
+	public void load(int[] sortedKeys, String info) {
+		String[] values = new String[sortedKeys.length];
+		java.util.Arrays.fill(values, info);
+		tree = AVLTree.fromSorted(sortedKeys, values);
+	}
+
+	@Override
+	public void insert(int k, String i) {
+		tree.insert(k, i);
+	}
+
+	@Override
+	public void delete(int k) {
+		tree.delete(k);
+	}
+
+	@Override
+	public String search(int k) {
+		return tree.search(k);
+	}
+
+	@Override
+	public String min() {
+		return tree.min();
+	}
+
+	@Override
+	public String max() {
+		return tree.max();
+	}
+
+	@Override
+	public int[] keysToArray() {
+		return tree.keysToArray();
+	}
+
+	@Override
+	public void split(int x) {
+		AVLTree[] parts = tree.split(x);
+		tree = parts[0];
+		greater = parts[1];
+	}
+
+	@Override
+	public void join(int x, String i) {
+		tree.join(new AVLTree.AVLNode(x, i), greater);
+		greater = null;
+	}
+
+	@Override
+	public void setBalancing(String balancing) {
+		tree.setBalancing(AVLTree.Balancing.valueOf(balancing));
+	}
+
+	@Override
+	public void enableRelaxedBalancing(int fixesPerOperation, double heightFactor) {
+		tree.enableRelaxedBalancing(fixesPerOperation, heightFactor);
+	}
+
+	@Override
+	public int rebalanceNow() {
+		return tree.rebalanceNow();
+	}
+
+	@Override
+	public int insertCounted(int k, String i) {
+		return tree.insert(k, i);
+	}
+
+	@Override
+	public int getHeight() {
+		return tree.getHeight();
+	}
+
+	@Override
+	public void enableMetrics() {
+		metrics = new AVLTreeMetrics();
+		tree.setMetrics(metrics);
+	}
+
+	@Override
+	public long rotations() {
+		return metrics.getLeftRotations() + metrics.getRightRotations();
+	}
+
+	@Override
+	public long demotions() {
+		return metrics.getDemotions();
+	}
+
+	@Override
+	public void prepareUnion(int[] keys, String info) {
+		other = new AVLTree();
+		for (int key : keys) {
+			other.insert(key, info);
+		}
+	}
+
+	@Override
+	public void union() {
+		tree.union(other);
+		other = null;
+	}
+
+	@Override
+	public long streamSum(boolean parallel) {
+		return parallel ? tree.stream().parallel().asLongStream().sum() : tree.stream().asLongStream().sum();
+	}
+
+	@Override
+	public void writeSnapshot(Path path) throws IOException {
+		tree.writeSnapshot(path);
+	}
+
+	@Override
+	public void openSnapshot(Path path) throws IOException {
+		tree = AVLTree.openSnapshot(path);
+	}
+}
@@ -0,0 +1,59 @@
+import avltree.jmh.Target;
+
+/**
+ * The benchmark operations over ConcurrentAVLTree, which threads share.
+ * ConcurrentAVLTree has no min, max, split or join, so these aren't supported.
+ * Loaded by name by {@link Target#create(String)}.
+ */
+public class ConcurrentAVLTreeTarget implements Target {
+	private ConcurrentAVLTree tree = new ConcurrentAVLTree();
+
+	@Override
+	public void load(int[] sortedKeys, String info) {
+		ConcurrentAVLTree loaded = new ConcurrentAVLTree();
+		for (int key : sortedKeys) {
+			loaded.insert(key, info);
+		}
+		tree = loaded;
+	}
+
+	@Override
+	public void insert(int k, String i) {
+		tree.insert(k, i);
+	}
+
+	@Override
+	public void delete(int k) {
+		tree.delete(k);
+	}
+
+	@Override
+	public String search(int k) {
+		return tree.search(k);
+	}
+
+	@Override
+	public String min() {
+		throw new UnsupportedOperationException("ConcurrentAVLTree has no min");
+	}
+
+	@Override
+	public String max() {
+		throw new UnsupportedOperationException("ConcurrentAVLTree has no max");
+	}
+
+	@Override
+	public int[] keysToArray() {
+		return tree.keysToArray();
+	}
+
+	@Override
+	public void split(int x) {
+		throw new UnsupportedOperationException("ConcurrentAVLTree can't be split");
+	}
+
+	@Override
+	public void join(int x, String i) {
+		throw new UnsupportedOperationException("ConcurrentAVLTree can't be joined");
+	}
+}
@@ -0,0 +1,33 @@
+import avltree.jmh.DurableTarget;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The benchmark operations over DurableAVLTree.
+ * Loaded by name by {@link DurableTarget#create()}.
+ */
+public class DurableAVLTreeTarget implements DurableTarget {
+	private DurableAVLTree tree;
+
+	@Override
+	public void open(Path dir, long commitDelayMicros) throws IOException {
+		tree = new DurableAVLTree(dir, commitDelayMicros, TimeUnit.MICROSECONDS);
+	}
+
+	@Override
+	public void insert(int k, String i) {
+		tree.insert(k, i);
+	}
+
+	@Override
+	public long getCommits() {
+		return tree.getCommits();
+	}
+
+	@Override
+	public void close() throws IOException {
+		tree.close();
+	}
+}
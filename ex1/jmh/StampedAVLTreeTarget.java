@@ -0,0 +1,62 @@
+import avltree.jmh.Target;
+
+/**
+ * The benchmark operations over StampedAVLTree, which readers share with a writer.
+ * Loaded by name by {@link Target#create(String)}.
+ */
+public class StampedAVLTreeTarget implements Target {
+	private StampedAVLTree tree = new StampedAVLTree();
+	private StampedAVLTree greater;
+
+	@Override
+	public void load(int[] sortedKeys, String info) {
+		StampedAVLTree loaded = new StampedAVLTree();
+		for (int key : sortedKeys) {
+			loaded.insert(key, info);
+		}
+		tree = loaded;
+	}
+
+	@Override
+	public void insert(int k, String i) {
+		tree.insert(k, i);
+	}
+
+	@Override
+	public void delete(int k) {
+		tree.delete(k);
+	}
+
+	@Override
+	public String search(int k) {
+		return tree.search(k);
+	}
+
+	@Override
+	public String min() {
+		return tree.min();
+	}
+
+	@Override
+	public String max() {
+		return tree.max();
+	}
+
+	@Override
+	public int[] keysToArray() {
+		return tree.keysToArray();
+	}
+
+	@Override
+	public void split(int x) {
+		StampedAVLTree[] parts = tree.split(x);
+		tree = parts[0];
+		greater = parts[1];
+	}
+
+	@Override
+	public void join(int x, String i) {
+		tree.join(x, i, greater);
+		greater = null;
+	}
+}
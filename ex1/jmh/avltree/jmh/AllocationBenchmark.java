@@ -0,0 +1,96 @@
+package avltree.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * search, insert of existing keys and delete, which must not allocate. {@link AllocationCheck} runs these with the
+ * GC profiler and fails if any of them allocates.
+ * <p>
+ * Re-inserting deleted keys would allocate nodes, so delete removes the keys of a tree that is built once per fork,
+ * in random order, in a single batch per iteration. A run with more iterations than the tree has batches deletes
+ * absent keys.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllocationBenchmark {
+	static final int DELETE_BATCH = 100000;
+	static final int DELETE_SIZE = 1 << 20;
+
+	@State(Scope.Thread)
+	public static class SearchState extends TreeState {
+	}
+
+	@State(Scope.Thread)
+	public static class DeleteState {
+		@Param({"AVLTree"})
+		public String target;
+
+		Target tree;
+		/**
+		 * The keys of the tree in random order
+		 */
+		int[] keys;
+		int next;
+
+		@Setup(Level.Trial)
+		public void setUpTree() {
+			tree = Target.create(target);
+			keys = Keys.present(DELETE_SIZE);
+			tree.load(keys, TreeState.INFO);
+			Random rand = new Random(42);
+			for (int i = keys.length - 1; i > 0; i--) {
+				int j = rand.nextInt(i + 1);
+				int key = keys[i];
+				keys[i] = keys[j];
+				keys[j] = key;
+			}
+		}
+
+		int nextKey() {
+			//after the tree is empty, keys are deleted again as absent keys
+			return keys[next++ & (DELETE_SIZE - 1)];
+		}
+	}
+
+	@Benchmark
+	public String search(SearchState state) {
+		return state.tree.search(state.nextPresent());
+	}
+
+	@Benchmark
+	public String searchAbsent(SearchState state) {
+		return state.tree.search(state.nextAbsent());
+	}
+
+	@Benchmark
+	public void insertExisting(SearchState state) {
+		state.tree.insert(state.nextPresent(), TreeState.INFO);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OperationsPerInvocation(DELETE_BATCH)
+	public void delete(DeleteState state) {
+		for (int i = 0; i < DELETE_BATCH; i++) {
+			state.tree.delete(state.nextKey());
+		}
+	}
+}
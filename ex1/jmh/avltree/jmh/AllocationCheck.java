@@ -0,0 +1,53 @@
+package avltree.jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+
+/**
+ * Runs {@link AllocationBenchmark} over AVLTree with the GC profiler, and exits with status 1
+ * if any of its benchmarks allocates, i.e. has a positive gc.alloc.rate.norm:
+ * {@code java -cp target/benchmarks.jar avltree.jmh.AllocationCheck}
+ * <p>
+ * JMH's own per-iteration allocations are spread over millions of operations, so the bytes per operation
+ * are rounded before they are compared with 0. Other JMH options, e.g. {@code -p size=1000}, are passed on.
+ */
+public class AllocationCheck {
+	static final String ALLOCATION = "gc.alloc.rate.norm";
+
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.include(AllocationBenchmark.class.getName())
+				.addProfiler(GCProfiler.class)
+				.param("target", "AVLTree")
+				.param("size", "100000")
+				.param("keys", "random")
+				.build();
+		Collection<RunResult> results = new Runner(options).run();
+		boolean allocates = false;
+		for (RunResult run : results) {
+			Result<?> allocation = run.getSecondaryResults().get(ALLOCATION);
+			String benchmark = run.getParams().getBenchmark();
+			if (allocation == null) {
+				System.err.println(benchmark + ": " + ALLOCATION + " wasn't measured");
+				allocates = true;
+			} else if (Math.round(allocation.getScore()) > 0) {
+				System.err.format("%s allocates %.3f %s%n", benchmark, allocation.getScore(), allocation.getScoreUnit());
+				allocates = true;
+			}
+		}
+		if (allocates) {
+			System.exit(1);
+		}
+		System.out.println("None of the " + results.size() + " benchmarks allocates");
+	}
+}
@@ -0,0 +1,42 @@
+package avltree.jmh;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Runs the benchmarks with the JMH command line options,
+ * and writes the results as JSON to jmh-result.json unless -rf or -rff are given,
+ * so results can be compared between releases.
+ */
+public class BenchmarkMain {
+	static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+		CommandLineOptions options = new CommandLineOptions(args);
+		if (options.shouldHelp()) {
+			options.showHelp();
+			return;
+		}
+		if (options.shouldList() || options.shouldListWithParams() || options.shouldListProfilers()
+				|| options.shouldListResultFormats()) {
+			//listing is handled by the JMH launcher
+			org.openjdk.jmh.Main.main(args);
+			return;
+		}
+		OptionsBuilder builder = new OptionsBuilder();
+		builder.parent(options);
+		if (!options.getResultFormat().hasValue()) {
+			builder.resultFormat(ResultFormatType.JSON);
+		}
+		if (!options.getResult().hasValue()) {
+			builder.result(DEFAULT_RESULT_FILE);
+		}
+		new Runner(builder.build()).run();
+	}
+}
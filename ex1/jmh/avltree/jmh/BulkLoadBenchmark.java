@@ -0,0 +1,78 @@
+package avltree.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building a tree of size keys with inserts of sorted and of shuffled keys, and with load, which is
+ * AVLTree.fromSorted. Each invocation builds a whole tree.
+ * Run with {@code -prof gc} for the memory of the nodes: gc.alloc.rate.norm of insertShuffled divided by size
+ * is the bytes per key, since an insert only allocates its node.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class BulkLoadBenchmark {
+	@Param({"AVLTree", "TreeMap"})
+	public String target;
+
+	@Param({"1000000", "10000000"})
+	public int size;
+
+	private int[] sortedKeys;
+	private int[] shuffledKeys;
+
+	@Setup(Level.Trial)
+	public void setUpKeys() {
+		sortedKeys = Keys.present(size);
+		shuffledKeys = sortedKeys.clone();
+		Random rand = new Random(42);
+		for (int i = shuffledKeys.length - 1; i > 0; i--) {
+			int j = rand.nextInt(i + 1);
+			int key = shuffledKeys[i];
+			shuffledKeys[i] = shuffledKeys[j];
+			shuffledKeys[j] = key;
+		}
+	}
+
+	private Target insertAll(int[] keys) {
+		Target tree = Target.create(target);
+		for (int key : keys) {
+			tree.insert(key, TreeState.INFO);
+		}
+		return tree;
+	}
+
+	@Benchmark
+	public Target insertSorted() {
+		return insertAll(sortedKeys);
+	}
+
+	@Benchmark
+	public Target insertShuffled() {
+		return insertAll(shuffledKeys);
+	}
+
+	@Benchmark
+	public Target load() {
+		Target tree = Target.create(target);
+		tree.load(sortedKeys, TreeState.INFO);
+		return tree;
+	}
+}
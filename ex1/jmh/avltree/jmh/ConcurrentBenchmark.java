@@ -0,0 +1,90 @@
+package avltree.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConcurrentAVLTree and ConcurrentSkipListMap under a mix of searches, inserts and deletes of random keys,
+ * from threads that share the tree. The tree holds about half of the keys in [0, keyRange), and the updates are
+ * half inserts and half deletes, so it keeps its size. Set the threads with e.g. {@code -t 1} ... {@code -t 8}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ConcurrentBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class SharedTree {
+		@Param({"ConcurrentAVLTree", "ConcurrentSkipListMap"})
+		public String target;
+
+		@Param({"1000000"})
+		public int keyRange;
+
+		@Param({"90", "50"})
+		public int searchPercent;
+
+		Target tree;
+
+		@Setup(Level.Trial)
+		public void setUpTree() {
+			tree = Target.create(target);
+			tree.load(Keys.present(keyRange / 2), TreeState.INFO);
+		}
+	}
+
+	/**
+	 * Random keys and operations for each thread, with a different seed per thread
+	 */
+	@State(Scope.Thread)
+	public static class ThreadOperations {
+		int[] keys;
+		int[] operations;
+		int next;
+
+		@Setup(Level.Trial)
+		public void setUpOperations(SharedTree shared, ThreadParams thread) {
+			Random rand = new Random(thread.getThreadIndex());
+			keys = new int[TreeState.SAMPLES];
+			operations = new int[TreeState.SAMPLES];
+			for (int i = 0; i < TreeState.SAMPLES; i++) {
+				keys[i] = rand.nextInt(shared.keyRange);
+				operations[i] = rand.nextInt(100);
+			}
+		}
+	}
+
+	@Benchmark
+	public String mixed(SharedTree shared, ThreadOperations thread) {
+		int index = thread.next++ & (TreeState.SAMPLES - 1);
+		int key = thread.keys[index];
+		int operation = thread.operations[index];
+		if (operation < shared.searchPercent) {
+			return shared.tree.search(key);
+		}
+		if (operation % 2 == 0) {
+			shared.tree.insert(key, TreeState.INFO);
+		} else {
+			shared.tree.delete(key);
+		}
+		return null;
+	}
+}
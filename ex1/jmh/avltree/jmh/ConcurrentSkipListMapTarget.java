@@ -0,0 +1,63 @@
+package avltree.jmh;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The benchmark operations over java.util.concurrent.ConcurrentSkipListMap, the baseline of the concurrent trees.
+ * The benchmarks that share a tree between threads don't split or join it, so split and join aren't supported.
+ */
+class ConcurrentSkipListMapTarget implements Target {
+	private ConcurrentSkipListMap<Integer, String> map = new ConcurrentSkipListMap<>();
+
+	@Override
+	public void load(int[] sortedKeys, String info) {
+		ConcurrentSkipListMap<Integer, String> loaded = new ConcurrentSkipListMap<>();
+		for (int key : sortedKeys) {
+			loaded.put(key, info);
+		}
+		map = loaded;
+	}
+
+	@Override
+	public void insert(int k, String i) {
+		map.putIfAbsent(k, i);
+	}
+
+	@Override
+	public void delete(int k) {
+		map.remove(k);
+	}
+
+	@Override
+	public String search(int k) {
+		return map.get(k);
+	}
+
+	@Override
+	public String min() {
+		Map.Entry<Integer, String> entry = map.firstEntry();
+		return entry != null ? entry.getValue() : null;
+	}
+
+	@Override
+	public String max() {
+		Map.Entry<Integer, String> entry = map.lastEntry();
+		return entry != null ? entry.getValue() : null;
+	}
+
+	@Override
+	public int[] keysToArray() {
+		return map.keySet().stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	@Override
+	public void split(int x) {
+		throw new UnsupportedOperationException("ConcurrentSkipListMap isn't split");
+	}
+
+	@Override
+	public void join(int x, String i) {
+		throw new UnsupportedOperationException("ConcurrentSkipListMap isn't joined");
+	}
+}
@@ -0,0 +1,100 @@
+package avltree.jmh;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * The insert throughput of DurableAVLTree, whose inserts return after they are synced to the log, from threads that
+ * share the tree, with and without a commit delay. Set the threads with e.g. {@code -t 1} ... {@code -t 16}.
+ * Every iteration starts with an empty tree in a new directory. The counters are the inserts and the syncs of the log
+ * of all the iterations, so their ratio is the inserts per sync.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class DurableBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class SharedTree {
+		@Param({"0", "500"})
+		public long commitDelayMicros;
+
+		DurableTarget tree;
+		Path dir;
+
+		@Setup(Level.Iteration)
+		public void openTree() throws IOException {
+			dir = Files.createTempDirectory("avltree-wal");
+			tree = DurableTarget.create();
+			tree.open(dir, commitDelayMicros);
+		}
+
+		@TearDown(Level.Iteration)
+		public void deleteTree() throws IOException {
+			tree.close();
+			try (Stream<Path> files = Files.list(dir)) {
+				for (Path file : (Iterable<Path>) files::iterator) {
+					Files.delete(file);
+				}
+			}
+			Files.delete(dir);
+		}
+	}
+
+	/**
+	 * The keys of each thread, which don't overlap those of the other threads
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class ThreadKeys {
+		public long inserts;
+		public long syncs;
+		int next;
+		int threadIndex;
+		int threadCount;
+
+		@Setup(Level.Iteration)
+		public void setUpKeys(ThreadParams thread) {
+			threadIndex = thread.getThreadIndex();
+			threadCount = thread.getThreadCount();
+			next = 0;
+			inserts = 0;
+			syncs = 0;
+		}
+
+		@TearDown(Level.Iteration)
+		public void countSyncs(SharedTree shared) {
+			//one thread reports the syncs of all threads
+			if (threadIndex == 0) {
+				syncs = shared.tree.getCommits();
+			}
+		}
+	}
+
+	@Benchmark
+	public void insert(SharedTree shared, ThreadKeys keys) {
+		shared.tree.insert(keys.next++ * keys.threadCount + keys.threadIndex, TreeState.INFO);
+		keys.inserts++;
+	}
+}
@@ -0,0 +1,32 @@
+package avltree.jmh;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The operations of DurableAVLTree that its benchmark measures, implemented by a default package class
+ * that is loaded by name, like the AVLTree {@link Target}.
+ */
+public interface DurableTarget extends Closeable {
+	/**
+	 * Open the tree in a directory
+	 *
+	 * @param commitDelayMicros the maximal time a commit waits for more writers before it syncs the log
+	 */
+	void open(Path dir, long commitDelayMicros) throws IOException;
+
+	/**
+	 * Insert, and return after the insert is durable
+	 */
+	void insert(int k, String i);
+
+	/**
+	 * @return the amount of syncs of the log since the tree was opened
+	 */
+	long getCommits();
+
+	static DurableTarget create() {
+		return Target.load("DurableAVLTreeTarget", DurableTarget.class);
+	}
+}
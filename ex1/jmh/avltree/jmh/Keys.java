@@ -0,0 +1,128 @@
+package avltree.jmh;
+
+import java.util.Random;
+
+/**
+ * Key distributions for the benchmarks.
+ * A tree of size n holds the even keys 0, 2, ..., 2(n-1), and the odd keys are absent.
+ * The distributions choose ranks in [0, n), whose keys are then either present or absent.
+ */
+final class Keys {
+	/**
+	 * The exponent of the Zipfian distribution, as in YCSB
+	 */
+	static final double ZIPFIAN_CONSTANT = 0.99;
+	/**
+	 * A prime that scatters Zipfian ranks over the tree, for the sizes that it doesn't divide
+	 */
+	static final long SCRAMBLE = 1_000_003;
+	/**
+	 * The hotspot distribution chooses one of HOT_KEYS scattered ranks for HOT_FRACTION of the operations
+	 */
+	static final int HOT_KEYS = 4096;
+	static final double HOT_FRACTION = 0.8;
+
+	private Keys() {
+	}
+
+	/**
+	 * Get the keys of a tree of size n
+	 */
+	static int[] present(int n) {
+		int[] keys = new int[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = 2 * i;
+		}
+		return keys;
+	}
+
+	/**
+	 * Choose ranks in [0, n)
+	 *
+	 * @param distribution sequential, random, zipfian, scrambledZipfian, where the hot ranks are scattered
+	 *                     instead of being the smallest ones, or hotspot
+	 * @param n            the amount of ranks
+	 * @param count        the amount of chosen ranks
+	 * @param seed         random seed
+	 * @return the chosen ranks
+	 */
+	static int[] ranks(String distribution, int n, int count, long seed) {
+		int[] ranks = new int[count];
+		Random rand = new Random(seed);
+		switch (distribution) {
+			case "sequential": {
+				int start = rand.nextInt(n);
+				for (int i = 0; i < count; i++) {
+					ranks[i] = (start + i) % n;
+				}
+				break;
+			}
+			case "random":
+				for (int i = 0; i < count; i++) {
+					ranks[i] = rand.nextInt(n);
+				}
+				break;
+			case "zipfian": {
+				Zipfian zipfian = new Zipfian(n, ZIPFIAN_CONSTANT);
+				for (int i = 0; i < count; i++) {
+					ranks[i] = zipfian.next(rand);
+				}
+				break;
+			}
+			case "scrambledZipfian": {
+				Zipfian zipfian = new Zipfian(n, ZIPFIAN_CONSTANT);
+				for (int i = 0; i < count; i++) {
+					ranks[i] = (int) (zipfian.next(rand) * SCRAMBLE % n);
+				}
+				break;
+			}
+			case "hotspot":
+				for (int i = 0; i < count; i++) {
+					boolean hot = rand.nextDouble() < HOT_FRACTION;
+					int rank = hot ? rand.nextInt(Math.min(n, HOT_KEYS)) : rand.nextInt(n);
+					ranks[i] = hot ? (int) (rank * SCRAMBLE % n) : rank;
+				}
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown key distribution: " + distribution);
+		}
+		return ranks;
+	}
+
+	/**
+	 * The Zipfian generator of Gray et al., "Quickly Generating Billion-Record Synthetic Databases",
+	 * as used by YCSB. Rank 0 is the most frequent.
+	 */
+	static final class Zipfian {
+		private final int n;
+		private final double theta;
+		private final double zetan;
+		private final double alpha;
+		private final double eta;
+
+		Zipfian(int n, double theta) {
+			this.n = n;
+			this.theta = theta;
+			double zeta2 = 1 + Math.pow(0.5, theta);
+			double sum = 0;
+			for (int i = 1; i <= n; i++) {
+				sum += 1 / Math.pow(i, theta);
+			}
+			this.zetan = sum;
+			this.alpha = 1 / (1 - theta);
+			this.eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta2 / zetan);
+		}
+
+		int next(Random rand) {
+			double u = rand.nextDouble();
+			double uz = u * zetan;
+			if (uz < 1) {
+				return 0;
+			}
+			if (uz < 1 + Math.pow(0.5, theta)) {
+				return Math.min(1, n - 1);
+			}
+			return Math.min((int) (n * Math.pow(eta * u - eta + 1, alpha)), n - 1);
+		}
+	}
+}
@@ -0,0 +1,57 @@
+package avltree.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * search, insert of existing keys, min, max and keysToArray, which don't change the tree.
+ * Run with {@code -prof gc} to check that search and insertExisting don't allocate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReadBenchmark extends TreeState {
+
+	@Benchmark
+	public String search() {
+		return tree.search(nextPresent());
+	}
+
+	@Benchmark
+	public String searchAbsent() {
+		return tree.search(nextAbsent());
+	}
+
+	@Benchmark
+	public void insertExisting() {
+		tree.insert(nextPresent(), INFO);
+	}
+
+	@Benchmark
+	public String min() {
+		return tree.min();
+	}
+
+	@Benchmark
+	public String max() {
+		return tree.max();
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public int[] keysToArray() {
+		return tree.keysToArray();
+	}
+}
@@ -0,0 +1,99 @@
+package avltree.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * search throughput of StampedAVLTree from 1 to 64 reader threads, which share one tree.
+ * search runs readers alone, and scales with the threads of the run: {@code -t 1}, {@code -t 2}, ... {@code -t 64}.
+ * readWrite runs readers next to one writer that inserts and deletes an absent key every writeTokens of
+ * {@link Blackhole#consumeCPU(long)}, with the readers set by the thread groups: {@code -tg 1,1} ... {@code -tg 64,1}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadScalingBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class SharedTree {
+		@Param({"StampedAVLTree"})
+		public String target;
+
+		@Param({"1000000"})
+		public int size;
+
+		/**
+		 * The work between two writes, about a write every 0.1-0.5 ms
+		 */
+		@Param({"100000"})
+		public long writeTokens;
+
+		Target tree;
+
+		@Setup(Level.Trial)
+		public void setUpTree() {
+			tree = Target.create(target);
+			tree.load(Keys.present(size), TreeState.INFO);
+		}
+	}
+
+	/**
+	 * Random ranks of the tree for each thread, with a different seed per thread
+	 */
+	@State(Scope.Thread)
+	public static class ThreadKeys {
+		int[] ranks;
+		int next;
+
+		@Setup(Level.Trial)
+		public void setUpKeys(SharedTree shared, ThreadParams thread) {
+			ranks = Keys.ranks("random", shared.size, TreeState.SAMPLES, thread.getThreadIndex());
+		}
+
+		int nextRank() {
+			return ranks[next++ & (TreeState.SAMPLES - 1)];
+		}
+	}
+
+	@Benchmark
+	@Threads(4)
+	public String search(SharedTree shared, ThreadKeys keys) {
+		return shared.tree.search(2 * keys.nextRank());
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(4)
+	public String reader(SharedTree shared, ThreadKeys keys) {
+		return shared.tree.search(2 * keys.nextRank());
+	}
+
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(1)
+	public void writer(SharedTree shared, ThreadKeys keys) {
+		Blackhole.consumeCPU(shared.writeTokens);
+		int key = 2 * keys.nextRank() + 1;
+		shared.tree.insert(key, TreeState.INFO);
+		shared.tree.delete(key);
+	}
+}
@@ -0,0 +1,143 @@
+package avltree.jmh;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An insert burst into an empty tree with immediate (strict) rebalancing, and with relaxed balancing,
+ * alone and followed by rebalanceNow, for random and for sorted keys.
+ * <p>
+ * insert measures single inserts of a burst that grows a new tree in every iteration, regardless of size,
+ * as a distribution:
+ * JMH reports its percentiles, up to the p99.9 and the max time per insert. Relaxed inserts are cheaper until the
+ * height reaches its bound, and then an insert may fix many violations, so the tail, not the average, is the cost.
+ * Its counters are the inserts, their rebalancing operations, and the inserts that did more than 16 and more than
+ * 256 of them, of all the iterations.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class RelaxedBalancingBenchmark {
+	@Param({"strict", "relaxed"})
+	public String balancing;
+
+	@Param({"random", "sorted"})
+	public String keys;
+
+	@Param({"1000000"})
+	public int size;
+
+	@Param({"0"})
+	public int fixesPerOperation;
+
+	@Param({"2"})
+	public double heightFactor;
+
+	private int[] insertedKeys;
+
+	@Setup(Level.Trial)
+	public void setUpKeys() {
+		insertedKeys = "sorted".equals(keys) ? Keys.present(size) : new Random(42).ints(size).toArray();
+	}
+
+	private Target burst() {
+		Target tree = Target.create("AVLTree");
+		if ("relaxed".equals(balancing)) {
+			TreeFeatures.of(tree).enableRelaxedBalancing(fixesPerOperation, heightFactor);
+		}
+		for (int key : insertedKeys) {
+			tree.insert(key, TreeState.INFO);
+		}
+		return tree;
+	}
+
+	@Benchmark
+	public Target insertBurst() {
+		return burst();
+	}
+
+	@Benchmark
+	public Target insertBurstAndRebalance() {
+		Target tree = burst();
+		TreeFeatures.of(tree).rebalanceNow();
+		return tree;
+	}
+
+	/**
+	 * A tree that grows with unique keys during an iteration, and its rebalancing counters
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class GrowingTree {
+		public long inserts;
+		public long rebalances;
+		public long over16Rebalances;
+		public long over256Rebalances;
+		TreeFeatures tree;
+		boolean sorted;
+		/**
+		 * The last key, which is the next sorted key, or the state of a xorshift generator whose period covers
+		 * all the keys but 0, so random keys don't repeat either
+		 */
+		int key;
+
+		@Setup(Level.Iteration)
+		public void setUpTree(RelaxedBalancingBenchmark benchmark) {
+			tree = TreeFeatures.of(Target.create("AVLTree"));
+			if ("relaxed".equals(benchmark.balancing)) {
+				tree.enableRelaxedBalancing(benchmark.fixesPerOperation, benchmark.heightFactor);
+			}
+			sorted = "sorted".equals(benchmark.keys);
+			key = 42;
+			inserts = 0;
+			rebalances = 0;
+			over16Rebalances = 0;
+			over256Rebalances = 0;
+		}
+
+		int nextKey() {
+			if (sorted) {
+				return key++;
+			}
+			key ^= key << 13;
+			key ^= key >>> 17;
+			key ^= key << 5;
+			return key;
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	@Warmup(iterations = 3, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	public int insert(GrowingTree state) {
+		int amount = state.tree.insertCounted(state.nextKey(), TreeState.INFO);
+		state.inserts++;
+		state.rebalances += amount;
+		if (amount > 16) {
+			state.over16Rebalances++;
+			if (amount > 256) {
+				state.over256Rebalances++;
+			}
+		}
+		return amount;
+	}
+}
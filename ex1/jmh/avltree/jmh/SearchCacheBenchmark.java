@@ -0,0 +1,58 @@
+package avltree.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * search of present keys with and without the search cache, under skewed and uniform loads.
+ * With hotspot keys 80% of the searches go to a few thousand hot keys, which the cache answers without going down
+ * the tree. Zipfian keys (theta 0.99) are less skewed, and with random keys the cache misses and adds its overhead.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchCacheBenchmark {
+	@Param({"AVLTree", "AVLTreeCached"})
+	public String target;
+
+	@Param({"100000", "10000000"})
+	public int size;
+
+	@Param({"hotspot", "zipfian", "scrambledZipfian", "random"})
+	public String keys;
+
+	private Target tree;
+	private int[] searchedKeys;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUpTree() {
+		tree = Target.create(target);
+		tree.load(Keys.present(size), TreeState.INFO);
+		int[] ranks = Keys.ranks(keys, size, TreeState.SAMPLES, 42);
+		searchedKeys = new int[TreeState.SAMPLES];
+		for (int i = 0; i < TreeState.SAMPLES; i++) {
+			searchedKeys[i] = 2 * ranks[i];
+		}
+	}
+
+	@Benchmark
+	public String search() {
+		return tree.search(searchedKeys[next++ & (TreeState.SAMPLES - 1)]);
+	}
+}
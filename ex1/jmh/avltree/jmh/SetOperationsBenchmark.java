@@ -0,0 +1,69 @@
+package avltree.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merging a small tree of m random keys into a large tree of n keys, with union and with inserts of the small tree's
+ * keys. The trees are rebuilt before every invocation, outside the measured time.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class SetOperationsBenchmark {
+	@Param({"5000000"})
+	public int n;
+
+	@Param({"100", "10000", "1000000"})
+	public int m;
+
+	private int[] largeKeys;
+	private int[] smallKeys;
+	private Target tree;
+
+	@Setup(Level.Trial)
+	public void setUpKeys() {
+		largeKeys = Keys.present(n);
+		//the small tree's keys are scattered over the large tree's range
+		Random rand = new Random(42);
+		smallKeys = new int[m];
+		for (int i = 0; i < m; i++) {
+			smallKeys[i] = rand.nextInt(2 * n);
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void setUpTrees() {
+		tree = Target.create("AVLTree");
+		tree.load(largeKeys, TreeState.INFO);
+		TreeFeatures.of(tree).prepareUnion(smallKeys, "b");
+	}
+
+	@Benchmark
+	public void union() {
+		TreeFeatures.of(tree).union();
+	}
+
+	@Benchmark
+	public void inserts() {
+		for (int key : smallKeys) {
+			tree.insert(key, "b");
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package avltree.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Restarting from a snapshot with openSnapshot, compared with replaying the inserts of the items in the order they
+ * were inserted, which is random, and the cost of writing the snapshot.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class SnapshotBenchmark {
+	@Param({"1000000", "10000000"})
+	public int size;
+
+	private int[] keys;
+	private String[] values;
+	private Path path;
+
+	@Setup(Level.Trial)
+	public void setUpSnapshot() throws IOException {
+		Random rand = new Random(42);
+		keys = new int[size];
+		values = new String[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = rand.nextInt(4 * size);
+			values[i] = Integer.toString(i);
+		}
+		path = Files.createTempFile("avltree", ".snapshot");
+		TreeFeatures.of(replay()).writeSnapshot(path);
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteSnapshot() throws IOException {
+		Files.deleteIfExists(path);
+	}
+
+	@Benchmark
+	public Target replay() {
+		Target tree = Target.create("AVLTree");
+		for (int i = 0; i < size; i++) {
+			tree.insert(keys[i], values[i]);
+		}
+		return tree;
+	}
+
+	@Benchmark
+	public Target openSnapshot() throws IOException {
+		Target tree = Target.create("AVLTree");
+		TreeFeatures.of(tree).openSnapshot(path);
+		return tree;
+	}
+
+	@State(Scope.Thread)
+	public static class WriteState {
+		Target tree;
+		Path written;
+
+		@Setup(Level.Trial)
+		public void setUpTree(SnapshotBenchmark benchmark) throws IOException {
+			tree = benchmark.openSnapshot();
+			written = Files.createTempFile("avltree", ".snapshot");
+		}
+
+		@TearDown(Level.Trial)
+		public void deleteSnapshot() throws IOException {
+			Files.deleteIfExists(written);
+		}
+	}
+
+	@Benchmark
+	public void writeSnapshot(WriteState state) throws IOException {
+		TreeFeatures.of(state.tree).writeSnapshot(state.written);
+	}
+}
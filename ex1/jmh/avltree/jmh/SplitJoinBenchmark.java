@@ -0,0 +1,65 @@
+package avltree.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * split by a key chosen by the key distribution, and join of the two parts back.
+ * Every invocation is undone or prepared outside the measured time.
+ * For TreeMap, split and join copy the items, which is what the comparison shows.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SplitJoinBenchmark {
+
+	@State(Scope.Thread)
+	public static class SplitState extends TreeState {
+		int splitKey;
+
+		@Setup(Level.Invocation)
+		public void chooseKey() {
+			splitKey = nextPresent();
+		}
+
+		@TearDown(Level.Invocation)
+		public void joinBack() {
+			tree.join(splitKey, INFO);
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class JoinState extends TreeState {
+		int splitKey;
+
+		@Setup(Level.Invocation)
+		public void splitTree() {
+			splitKey = nextPresent();
+			tree.split(splitKey);
+		}
+	}
+
+	@Benchmark
+	public void split(SplitState state) {
+		state.tree.split(state.splitKey);
+	}
+
+	@Benchmark
+	public void join(JoinState state) {
+		state.tree.join(state.splitKey, TreeState.INFO);
+	}
+}
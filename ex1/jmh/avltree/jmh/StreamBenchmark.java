@@ -0,0 +1,55 @@
+package avltree.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Summing the keys of a tree by copying them with keysToArray, with its stream, and with its parallel stream,
+ * which splits the tree for the common fork-join pool.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class StreamBenchmark {
+	@Param({"1000000", "10000000"})
+	public int size;
+
+	private Target tree;
+
+	@Setup(Level.Trial)
+	public void setUpTree() {
+		tree = Target.create("AVLTree");
+		tree.load(Keys.present(size), TreeState.INFO);
+	}
+
+	@Benchmark
+	public long keysToArray() {
+		return IntStream.of(tree.keysToArray()).asLongStream().sum();
+	}
+
+	@Benchmark
+	public long stream() {
+		return TreeFeatures.of(tree).streamSum(false);
+	}
+
+	@Benchmark
+	public long parallelStream() {
+		return TreeFeatures.of(tree).streamSum(true);
+	}
+}
@@ -0,0 +1,67 @@
+package avltree.jmh;
+
+/**
+ * The operations that the benchmarks measure, implemented over AVLTree and TreeMap.
+ * <p>
+ * JMH benchmarks must be in a named package, which can't refer to the trees in the default package,
+ * so the AVLTree implementation is a default package class that is loaded by name.
+ */
+public interface Target {
+	/**
+	 * Replace the contents with sorted distinct keys, all with the same info
+	 */
+	void load(int[] sortedKeys, String info);
+
+	void insert(int k, String i);
+
+	void delete(int k);
+
+	String search(int k);
+
+	String min();
+
+	String max();
+
+	int[] keysToArray();
+
+	/**
+	 * Split the contents by a key in the contents, keeping both parts
+	 */
+	void split(int x);
+
+	/**
+	 * Join the parts of the last split with the item that it removed
+	 */
+	void join(int x, String i);
+
+	/**
+	 * Create a target by its name
+	 *
+	 * @param name TreeMap, ConcurrentSkipListMap, or the name of a default package class with a Target suffix,
+	 *             e.g. AVLTree, AVLTreeCached, StampedAVLTree or ConcurrentAVLTree
+	 * @return an empty target
+	 */
+	static Target create(String name) {
+		if ("TreeMap".equals(name)) {
+			return new TreeMapTarget();
+		}
+		if ("ConcurrentSkipListMap".equals(name)) {
+			return new ConcurrentSkipListMapTarget();
+		}
+		return load(name + "Target", Target.class);
+	}
+
+	/**
+	 * Create an instance of a default package class by its name
+	 *
+	 * @param className a class with a public no-argument constructor
+	 * @param type      the interface that the class implements
+	 */
+	static <T> T load(String className, Class<T> type) {
+		try {
+			return type.cast(Class.forName(className).getDeclaredConstructor().newInstance());
+		} catch (ReflectiveOperationException | ClassCastException e) {
+			throw new IllegalArgumentException("Unknown " + type.getSimpleName() + ": " + className, e);
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package avltree.jmh;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The operations of AVLTree that the other targets don't have, for the benchmarks of its features.
+ * Implemented by the AVLTree target, next to {@link Target}.
+ */
+public interface TreeFeatures {
+	/**
+	 * Set the rank rule that deletions keep
+	 *
+	 * @param balancing AVL or WAVL
+	 */
+	void setBalancing(String balancing);
+
+	void enableRelaxedBalancing(int fixesPerOperation, double heightFactor);
+
+	/**
+	 * @return the amount of fixed violations
+	 */
+	int rebalanceNow();
+
+	/**
+	 * Insert, and count the rebalancing operations
+	 *
+	 * @return the amount of rebalancing operations, or -1 if the key was in the tree
+	 */
+	int insertCounted(int k, String i);
+
+	int getHeight();
+
+	/**
+	 * Count the rotations and demotions of the tree from now on
+	 */
+	void enableMetrics();
+
+	long rotations();
+
+	long demotions();
+
+	/**
+	 * Build a separate tree for the next union
+	 */
+	void prepareUnion(int[] keys, String info);
+
+	/**
+	 * Move the items of the tree of {@link #prepareUnion(int[], String)} into the contents
+	 */
+	void union();
+
+	/**
+	 * Sum the keys with a stream of the tree
+	 */
+	long streamSum(boolean parallel);
+
+	void writeSnapshot(Path path) throws IOException;
+
+	/**
+	 * Replace the contents with a snapshot
+	 */
+	void openSnapshot(Path path) throws IOException;
+
+	/**
+	 * Get the features of a target
+	 *
+	 * @throws IllegalArgumentException if the target isn't an AVLTree
+	 */
+	static TreeFeatures of(Target target) {
+		if (!(target instanceof TreeFeatures)) {
+			throw new IllegalArgumentException(target.getClass().getSimpleName() + " has no AVLTree features");
+		}
+		return (TreeFeatures) target;
+	}
+}
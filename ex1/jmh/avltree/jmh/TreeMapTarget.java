@@ -0,0 +1,71 @@
+package avltree.jmh;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The benchmark operations over java.util.TreeMap.
+ * TreeMap can't split or join its nodes, so split copies both halves into new maps and join copies one into the other.
+ */
+class TreeMapTarget implements Target {
+	private TreeMap<Integer, String> map = new TreeMap<>();
+	private TreeMap<Integer, String> greater;
+
+	@Override
+	public void load(int[] sortedKeys, String info) {
+		map = new TreeMap<>();
+		for (int key : sortedKeys) {
+			map.put(key, info);
+		}
+	}
+
+	@Override
+	public void insert(int k, String i) {
+		map.putIfAbsent(k, i);
+	}
+
+	@Override
+	public void delete(int k) {
+		map.remove(k);
+	}
+
+	@Override
+	public String search(int k) {
+		return map.get(k);
+	}
+
+	@Override
+	public String min() {
+		Map.Entry<Integer, String> entry = map.firstEntry();
+		return entry != null ? entry.getValue() : null;
+	}
+
+	@Override
+	public String max() {
+		Map.Entry<Integer, String> entry = map.lastEntry();
+		return entry != null ? entry.getValue() : null;
+	}
+
+	@Override
+	public int[] keysToArray() {
+		int[] arr = new int[map.size()];
+		int index = 0;
+		for (int key : map.keySet()) {
+			arr[index++] = key;
+		}
+		return arr;
+	}
+
+	@Override
+	public void split(int x) {
+		greater = new TreeMap<>(map.tailMap(x, false));
+		map = new TreeMap<>(map.headMap(x, false));
+	}
+
+	@Override
+	public void join(int x, String i) {
+		map.put(x, i);
+		map.putAll(greater);
+		greater = null;
+	}
+}
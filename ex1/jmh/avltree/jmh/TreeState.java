@@ -0,0 +1,62 @@
+package avltree.jmh;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The parameters and the tree shared by all benchmarks.
+ * Sizes up to 100M are supported, e.g. {@code -p size=100000000 -jvmArgsAppend -Xmx24g},
+ * but aren't in the defaults, since they need a large heap for TreeMap.
+ */
+@State(Scope.Thread)
+public abstract class TreeState {
+	/**
+	 * The amount of pre-chosen ranks, which the benchmarks cycle through
+	 */
+	static final int SAMPLES = 1 << 16;
+	static final String INFO = "info";
+
+	@Param({"AVLTree", "TreeMap"})
+	public String target;
+
+	@Param({"1000", "100000", "10000000"})
+	public int size;
+
+	@Param({"sequential", "random", "zipfian"})
+	public String keys;
+
+	Target tree;
+	/**
+	 * Keys in the tree, chosen by the key distribution
+	 */
+	int[] presentKeys;
+	/**
+	 * Keys that aren't in the tree, chosen by the key distribution
+	 */
+	int[] absentKeys;
+	int next;
+
+	@Setup(Level.Trial)
+	public void setUpTree() {
+		tree = Target.create(target);
+		tree.load(Keys.present(size), INFO);
+		int[] ranks = Keys.ranks(keys, size, SAMPLES, 42);
+		presentKeys = new int[SAMPLES];
+		absentKeys = new int[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) {
+			presentKeys[i] = 2 * ranks[i];
+			absentKeys[i] = 2 * ranks[i] + 1;
+		}
+	}
+
+	int nextPresent() {
+		return presentKeys[next++ & (SAMPLES - 1)];
+	}
+
+	int nextAbsent() {
+		return absentKeys[next++ & (SAMPLES - 1)];
+	}
+}
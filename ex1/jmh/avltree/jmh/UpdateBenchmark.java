@@ -0,0 +1,71 @@
+package avltree.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * insert and delete, in batches whose changes are undone after every invocation, so the tree keeps its size.
+ * The batches are long enough for the per-invocation undo to be outside the measured time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateBenchmark {
+	static final int BATCH = 10000;
+
+	@State(Scope.Thread)
+	public static class InsertState extends TreeState {
+		int batchStart;
+
+		@TearDown(Level.Invocation)
+		public void undoInserts() {
+			for (int i = 0; i < BATCH; i++) {
+				tree.delete(absentKeys[(batchStart + i) & (SAMPLES - 1)]);
+			}
+			batchStart = next;
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class DeleteState extends TreeState {
+		int batchStart;
+
+		@TearDown(Level.Invocation)
+		public void undoDeletes() {
+			for (int i = 0; i < BATCH; i++) {
+				tree.insert(presentKeys[(batchStart + i) & (SAMPLES - 1)], INFO);
+			}
+			batchStart = next;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void insert(InsertState state) {
+		for (int i = 0; i < BATCH; i++) {
+			state.tree.insert(state.nextAbsent(), TreeState.INFO);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public void delete(DeleteState state) {
+		for (int i = 0; i < BATCH; i++) {
+			state.tree.delete(state.nextPresent());
+		}
+	}
+}
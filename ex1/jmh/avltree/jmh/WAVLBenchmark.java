@@ -0,0 +1,104 @@
+package avltree.jmh;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AVL and WAVL balancing on a delete-heavy workload: random keys are deleted from a tree of random keys, with a
+ * deleted key reinserted for every 4 deletes, until it's empty. The tree is rebuilt before every invocation.
+ * The counters are the updates, rotations and demotions of all the iterations, so the rotations and demotions
+ * per update are their ratios to the updates. AVLTreeMetrics counts them, and adds to the time.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class WAVLBenchmark {
+	@Param({"AVL", "WAVL"})
+	public String balancing;
+
+	@Param({"1000000"})
+	public int size;
+
+	private int[] keys;
+	/**
+	 * The order of the deletes, as indices of keys
+	 */
+	private int[] order;
+	private Target tree;
+	private long updates;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Counters {
+		public long updates;
+		public long rotations;
+		public long demotions;
+	}
+
+	@Setup(Level.Trial)
+	public void setUpKeys() {
+		Random rand = new Random(42);
+		keys = rand.ints(size).toArray();
+		order = new int[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		for (int i = size - 1; i > 0; i--) {
+			int j = rand.nextInt(i + 1);
+			int index = order[i];
+			order[i] = order[j];
+			order[j] = index;
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void setUpTree() {
+		tree = Target.create("AVLTree");
+		TreeFeatures features = TreeFeatures.of(tree);
+		features.setBalancing(balancing);
+		for (int key : keys) {
+			tree.insert(key, TreeState.INFO);
+		}
+		features.enableMetrics();
+		updates = 0;
+	}
+
+	@TearDown(Level.Invocation)
+	public void count(Counters counters) {
+		TreeFeatures features = TreeFeatures.of(tree);
+		counters.updates = updates;
+		counters.rotations = features.rotations();
+		counters.demotions = features.demotions();
+	}
+
+	@Benchmark
+	public void deleteHeavy() {
+		for (int i = 0; i < order.length; i++) {
+			tree.delete(keys[order[i]]);
+			updates++;
+			if (i % 4 == 0) {
+				//reinsert a deleted key for every 4 deletes
+				tree.insert(keys[order[i / 2]], TreeState.INFO);
+				updates++;
+			}
+		}
+	}
+}
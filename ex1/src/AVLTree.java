@@ -4,8 +4,24 @@ Eran Levin, 313474660, eranlevin
 Roy Arad Arditi, 315524694, aradarditi
  */
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractMap;
 import java.util.Arrays;
-import java.util.Optional;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * AVLTree
@@ -16,17 +32,89 @@ import java.util.Optional;
 
 public class AVLTree {
 
+	/**
+	 * Batch operation: insert the key with its info
+	 */
+	public static final byte BATCH_INSERT = 0;
+	/**
+	 * Batch operation: delete the key
+	 */
+	public static final byte BATCH_DELETE = 1;
+	/**
+	 * The combined subtree size below which parallel algorithms continue sequentially
+	 */
+	static final int PARALLEL_CUTOFF = 1 << 13;
+	/**
+	 * Whether the JVM can emit the Java Flight Recorder events of {@link AVLTreeEvents}
+	 */
+	static final boolean EVENTS = eventsAvailable();
+
 	protected IAVLNode root;
 	private Rotations rotations = new Rotations();
-	private InsertionBalancer insertionBalancer = new InsertionBalancer();
-	private DeletionBalancer deletionBalancer = new DeletionBalancer();
+	private Balancer insertionBalancer = new InsertionBalancer();
+	private Balancer deletionBalancer = new DeletionBalancer();
+	private Balancing balancing = Balancing.AVL;
 	protected IAVLNode min;
 	protected IAVLNode max;
+	/**
+	 * Opt-in metrics, null when the tree isn't measured
+	 */
+	private AVLTreeMetrics metrics;
+	/**
+	 * Opt-in cache of hot keys' nodes, null when searches always go down from the root
+	 */
+	private SearchCache searchCache;
+	/**
+	 * Opt-in deferred rebalancing, null when inserts and deletes rebalance immediately
+	 */
+	private RelaxedBalancer relaxedBalancer;
+	/**
+	 * Counts the operations that moved nodes of the tree to other trees, so fingers can tell their node may be gone
+	 */
+	private int detachments;
 
 	//region private methods
 
 	/**
-	 * Find the leftmost or rightmost subtree with a maximum height
+	 * Check if the jdk.jfr module is available, which older and stripped down JVMs may not have
+	 */
+	private static boolean eventsAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Promote a node, and count the promotion in the metrics
+	 * complexity: O(1)
+	 *
+	 * @return time complexity
+	 */
+	private int promote(IAVLNode node) {
+		if (metrics != null) {
+			metrics.promotion();
+		}
+		return node.promote();
+	}
+
+	/**
+	 * Demote a node, and count the demotion in the metrics
+	 * complexity: O(1)
+	 *
+	 * @return time complexity
+	 */
+	private int demote(IAVLNode node) {
+		if (metrics != null) {
+			metrics.demotion();
+		}
+		return node.demote();
+	}
+
+	/**
+	 * Find the parent of the leftmost or rightmost subtree with a maximum height
 	 * <p>
 	 * precondition: a node with height smaller or equal to maxHeight exists
 	 * </p>
@@ -34,19 +122,22 @@ public class AVLTree {
 	 *
 	 * @param left      the side of the tree to go down to
 	 * @param maxHeight the maximum height of the subtree
-	 * @return the root of the subtree
+	 * @return the parent of the subtree's root, or null if the subtree is the whole tree
 	 */
-	private IAVLNode findSubtreeByHeight(boolean left, int maxHeight) {
+	private IAVLNode findSubtreeParentByHeight(boolean left, int maxHeight) {
+		IAVLNode parent = null;
 		IAVLNode node = getRoot();
 		while (node.getHeight() > maxHeight) {
 			//find the first node with height<=maxHeight
+			//the subtree may be a virtual leaf, which doesn't know its parent, so keep track of it
+			parent = node;
 			if (left) {
 				node = node.getLeft();
 			} else {
 				node = node.getRight();
 			}
 		}
-		return node;
+		return parent;
 	}
 
 	/**
@@ -58,31 +149,245 @@ public class AVLTree {
 	 * returns -1 if an item with key k already exists in the tree.
 	 */
 	private int insertNode(IAVLNode node) {
+		IAVLNode parent = findInsertionParent(node.getKey());
+		if (parent != null && parent.getKey() == node.getKey()) {
+			return -1;
+		}
+		return insertNode(node, parent);
+	}
+
+	/**
+	 * Find the node with a key, or the node that a new node with the key should become a child of
+	 * complexity: O(log n)
+	 *
+	 * @param k the key
+	 * @return the node with key k, or the last real node on k's search path, or null if the tree is empty
+	 */
+	private IAVLNode findInsertionParent(int k) {
+		//virtual leaves are shared and have no parent, so track the last real node while going down
+		IAVLNode parent = null;
+		IAVLNode currNode = getRoot();
+		while (currNode != null && currNode.isRealNode()) {
+			parent = currNode;
+			if (k < currNode.getKey()) {
+				currNode = currNode.getLeft();
+			} else if (k > currNode.getKey()) {
+				currNode = currNode.getRight();
+			} else {
+				break;
+			}
+		}
+		return parent;
+	}
+
+	/**
+	 * Like findInsertionParent(k), but climbs from a node until its subtree would contain k, and then goes down.
+	 * complexity: O(h) where h is the height of the node it goes down from, which is O(log d) from min or max,
+	 * where d is the rank distance between start and k
+	 *
+	 * @param start a node of the tree, or null to go down from the root
+	 * @return the node with key k, or the last real node on the search path, or null if the tree is empty
+	 */
+	private IAVLNode findInsertionParent(int k, IAVLNode start) {
+		if (start == null) {
+			return findInsertionParent(k);
+		}
+		//no ancestor bounds a key beyond the tree's keys, so the climb would reach the root
+		if (k > max.getKey()) {
+			return max;
+		}
+		if (k < min.getKey()) {
+			return min;
+		}
+		IAVLNode node = start;
+		//climb until the parent's key is on the other side of k, which bounds the node's subtree
+		while (node.getKey() != k && node.getParent() != null) {
+			int parentKey = node.getParent().getKey();
+			if (k < node.getKey() ? parentKey < k : parentKey > k) {
+				break;
+			}
+			node = node.getParent();
+		}
+		while (node.getKey() != k) {
+			IAVLNode child = k < node.getKey() ? node.getLeft() : node.getRight();
+			if (!child.isRealNode()) {
+				break;
+			}
+			node = child;
+		}
+		return node;
+	}
+
+	/**
+	 * Get the node a finger of this tree is at
+	 * complexity: O(1)
+	 *
+	 * @return the finger's node, or the root if the node was deleted, nodes were moved to another tree since the
+	 * finger was positioned, or the tree was empty when it was positioned
+	 */
+	private IAVLNode fingerNode(Finger finger) {
+		if (finger.tree != this) {
+			throw new IllegalArgumentException("The finger belongs to another tree");
+		}
+		if (finger.detachments != detachments) {
+			//the node may have moved to another tree, where it still looks linked
+			finger.detachments = detachments;
+			finger.node = null;
+		}
+		IAVLNode node = finger.node;
+		if (node == null) {
+			return root;
+		}
+		//a deleted node is no longer its parent's child
+		IAVLNode parent = node.getParent();
+		boolean linked = parent != null ? parent.getLeft() == node || parent.getRight() == node : node == root;
+		return linked ? node : root;
+	}
+
+	/**
+	 * Insert an item, searching for its parent from a node
+	 * complexity: O(log n), or O(log d) for a start node at rank distance d with a low enough subtree
+	 *
+	 * @param start  the node to search from, or null for the root
+	 * @param finger a finger to move to the item, or null
+	 * @return the number of rebalancing operations, or -1 if the key already exists
+	 */
+	private int insertFrom(IAVLNode start, int k, String i, Finger finger) {
+		long startTime = metrics != null ? System.nanoTime() : 0;
+		IAVLNode parent = findInsertionParent(k, start);
+		int amount;
+		if (parent != null && parent.getKey() == k) {
+			amount = -1;
+			if (finger != null) {
+				finger.node = parent;
+			}
+		} else {
+			IAVLNode node = new AVLNode(k, i);
+			amount = insertNode(node, parent);
+			if (finger != null) {
+				finger.node = node;
+			}
+		}
+		if (metrics != null) {
+			metrics.latency(AVLTreeMetrics.Operation.INSERT, startTime);
+		}
+		if (EVENTS && amount >= AVLTreeEvents.REBALANCE_THRESHOLD) {
+			AVLTreeEvents.rebalance("insert", k, amount, size(), getHeight());
+		}
+		return amount;
+	}
+
+	/**
+	 * Delete an item, searching for it from a node
+	 * complexity: O(log n)
+	 *
+	 * @param start  the node to search from, or null for the root
+	 * @param finger a finger to move to the deleted node's parent, or to where the key would be if it's missing
+	 * @return the number of rebalancing operations, or -1 if the key was not found
+	 */
+	private int deleteFrom(IAVLNode start, int k, Finger finger) {
+		long startTime = metrics != null ? System.nanoTime() : 0;
+		IAVLNode node = findInsertionParent(k, start);
+		int amount;
+		if (node == null || node.getKey() != k) {
+			amount = -1;
+			if (finger != null) {
+				finger.node = node;
+			}
+		} else {
+			amount = deleteNode(node, finger);
+		}
+		if (metrics != null) {
+			metrics.latency(AVLTreeMetrics.Operation.DELETE, startTime);
+		}
+		if (EVENTS && amount >= AVLTreeEvents.REBALANCE_THRESHOLD) {
+			AVLTreeEvents.rebalance("delete", k, amount, size(), getHeight());
+		}
+		return amount;
+	}
+
+	/**
+	 * Delete a node of the tree
+	 * complexity: O(log n)
+	 *
+	 * @param finger a finger to move to the parent of the node that was removed, or null
+	 * @return the number of rebalancing operations
+	 */
+	private int deleteNode(IAVLNode deletedNode, Finger finger) {
+		if (searchCache != null) {
+			searchCache.remove(deletedNode.getKey());
+		}
+		final boolean hasTwoChildren = deletedNode.getLeft().isRealNode() && deletedNode.getRight().isRealNode();
+
+		//the parent of the node that was actually deleted
+		//in the case of deletion of a successor, it will be the successor's parent
+		IAVLNode deletedNodeParent;
+		//the successor that replaces a deleted node with two children, when relaxed balancing has to track it
+		IAVLNode successor = hasTwoChildren && relaxedBalancer != null ? findChildSuccessor(deletedNode) : null;
+		if (!hasTwoChildren) {
+			deletedNodeParent = deletedNode.getParent();
+			deleteDirectly(deletedNode);
+		} else {
+			deletedNodeParent = deleteSuccessor(deletedNode);
+		}
+		updateSizeToRoot(deletedNodeParent);
+		int amount;
+		if (relaxedBalancer != null) {
+			amount = relaxedBalancer.rebalanceDeletion(deletedNode, successor, deletedNodeParent);
+		} else {
+			amount = deletionBalancer.rebalance(deletedNodeParent);
+		}
+		if (deletedNode == min) {
+			updateMin();
+		}
+		if (deletedNode == max) {
+			updateMax();
+		}
+		if (finger != null) {
+			finger.node = deletedNodeParent != null ? deletedNodeParent : root;
+		}
+		return amount;
+	}
+
+	/**
+	 * Search for a key from a node
+	 * complexity: O(log n)
+	 *
+	 * @param start  the node to search from, or null for the root
+	 * @param finger a finger to move to the key's node, or to where it would be if it's missing
+	 * @return the info of the key, or null if it isn't in the tree
+	 */
+	private String searchFrom(IAVLNode start, int k, Finger finger) {
+		IAVLNode node = findInsertionParent(k, start);
+		if (finger != null) {
+			finger.node = node;
+		}
+		return node != null && node.getKey() == k ? node.getValue() : null;
+	}
+
+	/**
+	 * Inserts a node as a child of a node found by findInsertionParent
+	 * O(log n)
+	 *
+	 * @param node   the node to insert
+	 * @param parent the node's parent, or null if the tree is empty
+	 * @return the number of rebalancing operations, or 0 if no rebalancing operations were necessary.
+	 */
+	private int insertNode(IAVLNode node, IAVLNode parent) {
 		node.setFakeLeft();
 		node.setFakeRight();
-		int k = node.getKey();
 		int rebalances = 0;
-		if (getRoot() == null) {
+		if (parent == null) {
 			root = node;
 		} else {
-			IAVLNode currNode = getRoot();
-			while (currNode.isRealNode()) {
-				if (k < currNode.getKey()) {
-					currNode = currNode.getLeft();
-				} else if (k > currNode.getKey()) {
-					currNode = currNode.getRight();
-				} else {
-					return -1;
-				}
-			}
-			if (currNode.getParent().getLeft() == currNode) {
-				currNode.getParent().setLeft(node);
+			if (node.getKey() < parent.getKey()) {
+				parent.setLeft(node);
 			} else {
-				currNode.getParent().setRight(node);
+				parent.setRight(node);
 			}
-			node.setParent(currNode.getParent());
-			updateSizeToRoot(node.getParent());
-			rebalances = insertionBalancer.rebalance(node);
+			node.setParent(parent);
+			updateSizeToRoot(parent);
+			rebalances = relaxedBalancer != null ? relaxedBalancer.rebalance(parent) : insertionBalancer.rebalance(node);
 		}
 		//update min and max
 		if (min == null || node.getKey() < min.getKey()) {
@@ -95,23 +400,6 @@ public class AVLTree {
 		return rebalances;
 	}
 
-	/**
-	 * Recursively fill an array with an in-order scan of the tree's nodes
-	 * complexity: O(n)
-	 *
-	 * @param node  the current node (should be the root for the first call)
-	 * @param arr   the array to fill with in-order nodes (should be empty for the first call)
-	 * @param index the current index in the array (should be 0 for the first call)
-	 */
-	private void inorderScan(IAVLNode node, IAVLNode[] arr, int index) {
-		if (node != null && node.isRealNode()) {
-			inorderScan(node.getLeft(), arr, index);
-			index += node.getLeft().getSize();
-			arr[index] = node;
-			inorderScan(node.getRight(), arr, index + 1);
-		}
-	}
-
 	/**
 	 * Find the successor of a node with a right child
 	 * complexity: O(log n)
@@ -187,40 +475,30 @@ public class AVLTree {
 			//the root node was deleted
 			root = replacementNode.isRealNode() ? replacementNode : null;
 		}
-		replacementNode.setParent(parent);
+		if (replacementNode.isRealNode()) {
+			replacementNode.setParent(parent);
+		}
 	}
 
 	/**
-	 * Find a node in the tree by its key
+	 * Find a node in the tree by its key, without allocating
 	 * complexity: O(log n)
 	 *
 	 * @param key the key of the searched node
-	 * @return AVL node
-	 */
-	protected Optional<IAVLNode> findNodeByKey(int key) {
-		return findNodeByKey(key, this.root);
-	}
-
-	/**
-	 * Find a node in a subtree by its key
-	 * complexity: O(log n)
-	 *
-	 * @param key         the key of the searched node
-	 * @param currentNode the parent of the subtree to search
-	 * @return AVL node
+	 * @return AVL node, or null if the key isn't in the tree
 	 */
-	protected Optional<IAVLNode> findNodeByKey(int key, IAVLNode currentNode) {
-		if (currentNode == null)
-			return Optional.empty();
-		if (!currentNode.isRealNode())
-			return Optional.empty();
-		final int currentNodeKey = currentNode.getKey();
-		if (currentNodeKey == key)
-			return Optional.of(currentNode);
-		else if (currentNodeKey > key)
-			return findNodeByKey(key, currentNode.getLeft());
-		else
-			return findNodeByKey(key, currentNode.getRight());
+	protected IAVLNode findNodeByKey(int key) {
+		IAVLNode currentNode = this.root;
+		while (currentNode != null && currentNode.isRealNode()) {
+			final int currentNodeKey = currentNode.getKey();
+			if (currentNodeKey == key)
+				return currentNode;
+			else if (currentNodeKey > key)
+				currentNode = currentNode.getLeft();
+			else
+				currentNode = currentNode.getRight();
+		}
+		return null;
 	}
 
 	/**
@@ -262,123 +540,566 @@ public class AVLTree {
 	 * @param node AVL node
 	 */
 	private void updateSizeToRoot(IAVLNode node) {
-		if (node != null) {
+		while (node != null) {
 			node.setSize(node.getLeft().getSize() + node.getRight().getSize() + 1);
-			updateSizeToRoot(node.getParent());
+			node = node.getParent();
 		}
 	}
 
-	//endregion
-
 	/**
-	 * public boolean empty()
-	 * <p>
-	 * complexity: O(1)
+	 * Find the node with a given rank, using the subtree sizes
+	 * complexity: O(log n)
 	 * <p>
-	 * returns true if and only if the tree is empty
+	 * precondition: 0 <= k < size()
+	 *
+	 * @param k the amount of keys in the tree that are smaller than the node's key
+	 * @return AVL node
 	 */
-	public boolean empty() {
-		return getRoot() == null;
+	protected IAVLNode selectNode(int k) {
+		IAVLNode node = root;
+		while (true) {
+			int leftSize = node.getLeft().getSize();
+			if (k < leftSize) {
+				node = node.getLeft();
+			} else if (k > leftSize) {
+				k -= leftSize + 1;
+				node = node.getRight();
+			} else {
+				return node;
+			}
+		}
 	}
 
 	/**
-	 * public String search(int k)
-	 * <p>
+	 * Count the keys in the tree that are smaller than a key, using the subtree sizes
 	 * complexity: O(log n)
-	 * <p>
-	 * returns the info of an item with key k if it exists in the tree
-	 * otherwise, returns null
+	 *
+	 * @param key       the key to compare to, doesn't have to be in the tree
+	 * @param inclusive whether to count the key itself if it is in the tree
+	 * @return the amount of smaller (or equal) keys
 	 */
-	public String search(int k) {
+	private int countSmaller(int key, boolean inclusive) {
+		int count = 0;
 		IAVLNode node = root;
 		while (node != null && node.isRealNode()) {
-			if (node.getKey() == k) {
-				return node.getValue();
-			} else if (node.getKey() > k) {
+			if (key < node.getKey() || (key == node.getKey() && !inclusive)) {
 				node = node.getLeft();
 			} else {
+				//the node and its left subtree are smaller than key
+				count += node.getLeft().getSize() + 1;
 				node = node.getRight();
 			}
 		}
-
-		return null;
+		return count;
 	}
 
 	/**
-	 * public int insert(int k, String i)
-	 * <p>
+	 * Find the node with the smallest key that is larger or equal to a key
 	 * complexity: O(log n)
-	 * <p>
-	 * inserts an item with key k and info i to the AVL tree.
-	 * the tree must remain valid (keep its invariants).
-	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were necessary.
-	 * returns -1 if an item with key k already exists in the tree.
+	 *
+	 * @param key the key to compare to, doesn't have to be in the tree
+	 * @return AVL node, or null if all keys are smaller than key
 	 */
-	public int insert(int k, String i) {
-		IAVLNode node = new AVLNode(k, i);
-
-		return insertNode(node);
+	private IAVLNode findCeilingNode(int key) {
+		IAVLNode ceiling = null;
+		IAVLNode node = root;
+		while (node != null && node.isRealNode()) {
+			if (node.getKey() == key) {
+				return node;
+			} else if (node.getKey() > key) {
+				ceiling = node;
+				node = node.getLeft();
+			} else {
+				node = node.getRight();
+			}
+		}
+		return ceiling;
 	}
 
 	/**
-	 * public int delete(int k)
-	 * <p>
-	 * complexity: O(log n)
-	 * <p>
-	 * deletes an item with key k from the binary tree, if it is there;
-	 * the tree must remain valid (keep its invariants).
-	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were needed.
-	 * returns -1 if an item with key k was not found in the tree.
+	 * Find the in-order successor of a node using the parent pointers
+	 * complexity: O(log n), amortized O(1) when scanning consecutive nodes
+	 *
+	 * @param node a real AVL node
+	 * @return the successor, or null if node has the largest key in its tree
 	 */
-	public int delete(int k) {
-		final Optional<IAVLNode> placeToDelete = findNodeByKey(k);
-		//return -1 if the key was not found
-		if (!placeToDelete.isPresent())
-			return -1;
-
-		final IAVLNode deletedNode = placeToDelete.get();
-		final boolean hasTwoChildren = deletedNode.getLeft().isRealNode() && deletedNode.getRight().isRealNode();
-
-		//the parent of the node that was actually deleted
-		//in the case of deletion of a successor, it will be the successor's parent
-		IAVLNode deletedNodeParent;
-		if (!hasTwoChildren) {
-			deletedNodeParent = deletedNode.getParent();
-			deleteDirectly(deletedNode);
-		} else {
-			deletedNodeParent = deleteSuccessor(deletedNode);
-		}
-		updateSizeToRoot(deletedNodeParent);
-		int amount = deletionBalancer.rebalance(deletedNodeParent);
-		if (deletedNode == min) {
-			updateMin();
+	private static IAVLNode successor(IAVLNode node) {
+		if (node.getRight().isRealNode()) {
+			node = node.getRight();
+			while (node.getLeft().isRealNode()) {
+				node = node.getLeft();
+			}
+			return node;
 		}
-		if (deletedNode == max) {
-			updateMax();
+		IAVLNode parent = node.getParent();
+		while (parent != null && parent.getRight() == node) {
+			node = parent;
+			parent = node.getParent();
 		}
-		return amount;
+		return parent;
 	}
 
 	/**
-	 * public String min()
-	 * <p>
-	 * Returns the info of the item with the smallest key in the tree,
-	 * or null if the tree is empty
-	 * *complexity: O(1)
+	 * Find the rank of a node using the parent pointers and the subtree sizes
+	 * complexity: O(log n)
+	 *
+	 * @param node a real AVL node
+	 * @return the amount of keys in the node's tree that are smaller than the node's key
 	 */
-	public String min() {
-		return min != null ? this.min.getValue() : null;
+	private static int rankOf(IAVLNode node) {
+		int rank = node.getLeft().getSize();
+		for (IAVLNode parent = node.getParent(); parent != null; node = parent, parent = node.getParent()) {
+			if (parent.getRight() == node) {
+				rank += parent.getLeft().getSize() + 1;
+			}
+		}
+		return rank;
 	}
 
 	/**
-	 * public String max()
-	 * complexity: O(1)
+	 * Check that a range of a buffer is valid, before anything is written to it
 	 *
-	 * <p>
-	 * Returns the info of the item with the largest key in the tree,
-	 * or null if the tree is empty
+	 * @param length the buffer's length
+	 * @param off    the first index of the range
+	 * @param len    the length of the range
 	 */
-	public String max() {
+	private static void checkBounds(int length, int off, int len) {
+		if (off < 0 || len < 0 || off > length - len) {
+			throw new IndexOutOfBoundsException(String.format("Range [%d, %d) is out of bounds for length %d", off, off + len, length));
+		}
+	}
+
+	/**
+	 * Recursively build a perfectly balanced subtree from the next items of sorted iterators
+	 * complexity: O(size), with recursion depth O(log size)
+	 *
+	 * @param size   the amount of items to take
+	 * @param keys   the keys, in ascending order
+	 * @param values the info of the respective keys
+	 * @return the subtree's root, or a virtual node for an empty subtree
+	 */
+	private IAVLNode buildSorted(int size, PrimitiveIterator.OfInt keys, Iterator<String> values) {
+		if (size == 0) {
+			return VIRTUAL_NODE;
+		}
+		int leftSize = (size - 1) / 2;
+		IAVLNode left = buildSorted(leftSize, keys, values);
+		int key = keys.nextInt();
+		//max is the last node that was built
+		if (max != null && key <= max.getKey()) {
+			throw new IllegalArgumentException(String.format("Key %d is not larger than the previous key %d", key, max.getKey()));
+		}
+		IAVLNode node = new AVLNode(key, values.next());
+		if (min == null) {
+			min = node;
+		}
+		max = node;
+		IAVLNode right = buildSorted(size - 1 - leftSize, keys, values);
+
+		node.setLeft(left);
+		left.setParent(node);
+		node.setRight(right);
+		right.setParent(node);
+		node.setHeight(Math.max(left.getHeight(), right.getHeight()) + 1);
+		node.setSize(size);
+		return node;
+	}
+
+	/**
+	 * Move the nodes of another tree to a new tree, and leave the other tree empty
+	 * complexity: O(1)
+	 *
+	 * @param other a tree other than this tree
+	 * @return a tree with the nodes of other
+	 */
+	private AVLTree takeNodes(AVLTree other) {
+		if (other == this) {
+			throw new IllegalArgumentException("Can't combine a tree with itself");
+		}
+		adoptBalancing(other);
+		//the set operations split and join both trees, which needs them to be balanced
+		settle();
+		other.settle();
+		AVLTree tree = new AVLTree();
+		tree.root = other.root;
+		tree.min = other.min;
+		tree.max = other.max;
+		other.root = null;
+		other.min = null;
+		other.max = null;
+		other.clearSearchCache();
+		other.detachments++;
+		return tree;
+	}
+
+	/**
+	 * Count the joins of a split by x, one for every node on x's search path other than x
+	 * complexity: O(log n)
+	 */
+	private int countSplitJoins(int x) {
+		int joins = 0;
+		IAVLNode node = root;
+		while (node != null && node.isRealNode() && node.getKey() != x) {
+			joins++;
+			node = x < node.getKey() ? node.getLeft() : node.getRight();
+		}
+		return joins;
+	}
+
+	/**
+	 * Cut the items with keys in [lo, hi] out of the tree, by splitting it at lo and hi
+	 * and joining the outer parts, which neither bound has to be in the tree for
+	 * complexity: O(log n)
+	 * precondition: lo <= hi
+	 *
+	 * @return the removed items
+	 */
+	private AVLTree cut(int lo, int hi) {
+		settle();
+		SplitJoin algorithm = new SplitJoin();
+		AVLTree smaller = new AVLTree();
+		AVLTree rest = new AVLTree();
+		IAVLNode loNode = algorithm.split(this, lo, smaller, rest);
+		AVLTree removed = new AVLTree();
+		AVLTree greater = new AVLTree();
+		IAVLNode hiNode = algorithm.split(rest, hi, removed, greater);
+
+		//split leaves out the items of the bounds, which are the smallest and largest removed items
+		if (loNode != null) {
+			removed.joinNodes(SplitJoin.resetNode(loNode), new AVLTree());
+		}
+		if (hiNode != null) {
+			removed.joinNodes(SplitJoin.resetNode(hiNode), new AVLTree());
+		}
+
+		//join the outer parts with the smallest item of the greater part between them
+		takeResult(algorithm.concat(smaller, greater));
+		removed.metrics = metrics;
+		removed.useBalancing(balancing);
+		return removed;
+	}
+
+	/**
+	 * Replace this tree's nodes with the result of a split and join algorithm
+	 * complexity: O(log n)
+	 *
+	 * @param result the resulting tree, which may have no valid min and max
+	 */
+	private void takeResult(AVLTree result) {
+		clearSearchCache();
+		detachments++;
+		root = result.root;
+		updateMin();
+		updateMax();
+	}
+
+	/**
+	 * Clear the search cache, after nodes were removed from the tree without delete
+	 * complexity: O(capacity)
+	 */
+	private void clearSearchCache() {
+		if (searchCache != null) {
+			searchCache.clear();
+		}
+	}
+
+	/**
+	 * Fix all deferred rank violations, before an operation that needs a valid AVL tree
+	 * complexity: O(1) if there are no deferred violations
+	 */
+	private void settle() {
+		if (relaxedBalancer != null) {
+			relaxedBalancer.fix(Integer.MAX_VALUE);
+		}
+	}
+
+	/**
+	 * Set the balancing rule of deletions, without checking that the tree satisfies it
+	 * complexity: O(1)
+	 */
+	private void useBalancing(Balancing balancing) {
+		if (balancing != this.balancing) {
+			this.balancing = balancing;
+			deletionBalancer = balancing == Balancing.WAVL ? new WeakDeletionBalancer() : new DeletionBalancer();
+		}
+	}
+
+	/**
+	 * Switch to WAVL balancing before taking the nodes of a WAVL tree, which may not satisfy the AVL rule
+	 * complexity: O(1)
+	 */
+	private void adoptBalancing(AVLTree other) {
+		if (other.balancing == Balancing.WAVL && balancing != Balancing.WAVL) {
+			if (relaxedBalancer != null) {
+				throw new IllegalArgumentException("Can't combine a tree with relaxed balancing and a WAVL tree");
+			}
+			useBalancing(Balancing.WAVL);
+		}
+	}
+
+	/**
+	 * Rebuild the tree perfectly balanced with its own nodes, so it satisfies the AVL rule
+	 * complexity: O(n)
+	 */
+	private void rebuild() {
+		IAVLNode[] nodes = new IAVLNode[size()];
+		int i = 0;
+		for (IAVLNode node = min; node != null; node = successor(node)) {
+			nodes[i++] = node;
+		}
+		root = relink(nodes, 0, nodes.length);
+		root.setParent(null);
+	}
+
+	/**
+	 * Link a range of nodes in order into a perfectly balanced subtree
+	 * complexity: O(to - from)
+	 *
+	 * @param nodes the nodes, in order
+	 * @param from  the index of the subtree's first node
+	 * @param to    the index after the subtree's last node
+	 * @return the subtree's root
+	 */
+	private static IAVLNode relink(IAVLNode[] nodes, int from, int to) {
+		if (from == to) {
+			return VIRTUAL_NODE;
+		}
+		int mid = from + (to - from - 1) / 2;
+		IAVLNode left = relink(nodes, from, mid);
+		IAVLNode right = relink(nodes, mid + 1, to);
+		IAVLNode node = nodes[mid];
+		node.setLeft(left);
+		left.setParent(node);
+		node.setRight(right);
+		right.setParent(node);
+		node.setHeight(Math.max(left.getHeight(), right.getHeight()) + 1);
+		node.setSize(to - from);
+		return node;
+	}
+
+	/**
+	 * Replace this tree's nodes with the result of a parallel set operation with another tree
+	 *
+	 * @param operation the set operation
+	 * @param other     the other tree, which is left empty
+	 * @return the number of rebalancing operations
+	 */
+	private int applyParallel(int operation, AVLTree other) {
+		ParallelSetOperation task = new ParallelSetOperation(operation, this, takeNodes(other));
+		takeResult(task.invoke());
+		return task.rebalances;
+	}
+
+	//endregion
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * complexity: O(1)
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return getRoot() == null;
+	}
+
+	/**
+	 * public String search(int k)
+	 * <p>
+	 * complexity: O(log n)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		long start = metrics != null ? System.nanoTime() : 0;
+		int depth = 0;
+		IAVLNode node = searchCache != null ? searchCache.get(k) : null;
+		if (node == null) {
+			node = root;
+			while (node != null && node.isRealNode()) {
+				depth++;
+				if (node.getKey() == k) {
+					break;
+				} else if (node.getKey() > k) {
+					node = node.getLeft();
+				} else {
+					node = node.getRight();
+				}
+			}
+			if (searchCache != null && node != null && node.isRealNode()) {
+				searchCache.admit(k, node);
+			}
+		}
+		if (metrics != null) {
+			metrics.search(depth, start);
+		}
+		return node != null && node.isRealNode() ? node.getValue() : null;
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 * <p>
+	 * complexity: O(log n)
+	 * <p>
+	 * inserts an item with key k and info i to the AVL tree.
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were necessary.
+	 * returns -1 if an item with key k already exists in the tree, without allocating.
+	 */
+	public int insert(int k, String i) {
+		return insertFrom(null, k, i, null);
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * complexity: O(log n)
+	 * <p>
+	 * deletes an item with key k from the binary tree, if it is there;
+	 * the tree must remain valid (keep its invariants).
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		return deleteFrom(null, k, null);
+	}
+
+	/**
+	 * public Finger fingerAtMin()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns a finger at the item with the smallest key, for finger searches, inserts and deletes
+	 */
+	public Finger fingerAtMin() {
+		return new Finger(this, min);
+	}
+
+	/**
+	 * public Finger fingerAtMax()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns a finger at the item with the largest key, for finger searches, inserts and deletes
+	 */
+	public Finger fingerAtMax() {
+		return new Finger(this, max);
+	}
+
+	/**
+	 * public String search(int k, Finger f)
+	 * <p>
+	 * complexity: O(log d) if the key and the finger are under a low common ancestor, where d is their rank distance,
+	 * and O(log n) at worst
+	 * Like {@link #search(int)}, but climbs from the finger and then goes down,
+	 * and moves the finger to the key's node, or to the last node on its search path if it's missing.
+	 */
+	public String search(int k, Finger f) {
+		return searchFrom(fingerNode(f), k, f);
+	}
+
+	/**
+	 * public String searchFromMin(int k)
+	 * <p>
+	 * complexity: O(log d) where d is the amount of keys smaller than k
+	 * Like {@link #search(int)}, but climbs from the item with the smallest key and then goes down.
+	 */
+	public String searchFromMin(int k) {
+		return searchFrom(min, k, null);
+	}
+
+	/**
+	 * public String searchFromMax(int k)
+	 * <p>
+	 * complexity: O(log d) where d is the amount of keys larger than k
+	 * Like {@link #search(int)}, but climbs from the item with the largest key and then goes down.
+	 */
+	public String searchFromMax(int k) {
+		return searchFrom(max, k, null);
+	}
+
+	/**
+	 * public int insert(int k, String i, Finger f)
+	 * <p>
+	 * complexity: like {@link #search(int, Finger)}, plus O(1) amortized rebalancing
+	 * Like {@link #insert(int, String)}, but searches for the key's parent from the finger,
+	 * and moves the finger to the inserted item, or to the existing item with key k.
+	 */
+	public int insert(int k, String i, Finger f) {
+		return insertFrom(fingerNode(f), k, i, f);
+	}
+
+	/**
+	 * public int insertFromMin(int k, String i)
+	 * <p>
+	 * complexity: O(log d) where d is the amount of keys smaller than k, plus O(1) amortized rebalancing
+	 * Like {@link #insert(int, String)}, but searches for the key's parent from the item with the smallest key.
+	 */
+	public int insertFromMin(int k, String i) {
+		return insertFrom(min, k, i, null);
+	}
+
+	/**
+	 * public int insertFromMax(int k, String i)
+	 * <p>
+	 * complexity: O(log d) where d is the amount of keys larger than k, plus O(1) amortized rebalancing
+	 * Like {@link #insert(int, String)}, but searches for the key's parent from the item with the largest key,
+	 * so appending keys in ascending order takes O(1) amortized time.
+	 */
+	public int insertFromMax(int k, String i) {
+		return insertFrom(max, k, i, null);
+	}
+
+	/**
+	 * public int delete(int k, Finger f)
+	 * <p>
+	 * complexity: like {@link #search(int, Finger)}, plus O(log n) rebalancing at worst
+	 * Like {@link #delete(int)}, but searches for the key from the finger,
+	 * and moves the finger to the parent of the removed node, or to where the key would be if it's missing.
+	 */
+	public int delete(int k, Finger f) {
+		return deleteFrom(fingerNode(f), k, f);
+	}
+
+	/**
+	 * public int deleteFromMin(int k)
+	 * <p>
+	 * complexity: O(log d) search where d is the amount of keys smaller than k, plus O(log n) rebalancing at worst
+	 * Like {@link #delete(int)}, but searches for the key from the item with the smallest key.
+	 */
+	public int deleteFromMin(int k) {
+		return deleteFrom(min, k, null);
+	}
+
+	/**
+	 * public int deleteFromMax(int k)
+	 * <p>
+	 * complexity: O(log d) search where d is the amount of keys larger than k, plus O(log n) rebalancing at worst
+	 * Like {@link #delete(int)}, but searches for the key from the item with the largest key.
+	 */
+	public int deleteFromMax(int k) {
+		return deleteFrom(max, k, null);
+	}
+
+	/**
+	 * public String min()
+	 * <p>
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or null if the tree is empty
+	 * *complexity: O(1)
+	 */
+	public String min() {
+		return min != null ? this.min.getValue() : null;
+	}
+
+	/**
+	 * public String max()
+	 * complexity: O(1)
+	 *
+	 * <p>
+	 * Returns the info of the item with the largest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String max() {
 		return max != null ? this.max.getValue() : null;
 	}
 
@@ -390,9 +1111,9 @@ public class AVLTree {
 	 * or an empty array if the tree is empty.
 	 */
 	public int[] keysToArray() {
-		IAVLNode[] arr = new IAVLNode[size()];
-		inorderScan(getRoot(), arr, 0);
-		return Arrays.stream(arr).mapToInt(n -> n.getKey()).toArray();
+		int[] arr = new int[size()];
+		keysInto(arr, 0);
+		return arr;
 	}
 
 	/**
@@ -404,9 +1125,43 @@ public class AVLTree {
 	 * or an empty array if the tree is empty.
 	 */
 	public String[] infoToArray() {
-		IAVLNode[] arr = new IAVLNode[size()];
-		inorderScan(getRoot(), arr, 0);
-		return Arrays.stream(arr).map(n -> n.getValue()).toArray(String[]::new);
+		String[] arr = new String[size()];
+		infoInto(arr, 0);
+		return arr;
+	}
+
+	/**
+	 * public int keysInto(int[] dst, int off)
+	 * <p>
+	 * complexity: O(n)
+	 * Copies all keys in the tree, in ascending order, into dst starting at index off.
+	 * Returns the amount of copied keys, which is size().
+	 * precondition: 0 <= off, off + size() <= dst.length
+	 */
+	public int keysInto(int[] dst, int off) {
+		checkBounds(dst.length, off, size());
+		int index = off;
+		for (IAVLNode node = min; node != null; node = successor(node)) {
+			dst[index++] = node.getKey();
+		}
+		return index - off;
+	}
+
+	/**
+	 * public int infoInto(String[] dst, int off)
+	 * <p>
+	 * complexity: O(n)
+	 * Copies all info in the tree, sorted by their respective keys, into dst starting at index off.
+	 * Returns the amount of copied items, which is size().
+	 * precondition: 0 <= off, off + size() <= dst.length
+	 */
+	public int infoInto(String[] dst, int off) {
+		checkBounds(dst.length, off, size());
+		int index = off;
+		for (IAVLNode node = min; node != null; node = successor(node)) {
+			dst[index++] = node.getValue();
+		}
+		return index - off;
 	}
 
 	/**
@@ -442,56 +1197,33 @@ public class AVLTree {
 	 * complexity: O(log n)
 	 * splits the tree into 2 trees according to the key x.
 	 * Returns an array [t1, t2] with two AVL trees. keys(t1) < x < keys(t2).
-	 * precondition: search(x) != null
-	 * postcondition: none
+	 * x doesn't have to be in the tree. If it is, its item is in neither tree.
+	 * postcondition: this tree's nodes are moved to t1 and t2, so this tree shouldn't be used anymore
 	 */
 	public AVLTree[] split(int x) {
-		AVLTree greaterTree = new AVLTree();
+		long start = metrics != null ? System.nanoTime() : 0;
+		settle();
+		Object event = EVENTS ? AVLTreeEvents.beginSplit() : null;
+		int size = size();
+		int height = getHeight();
+		int joins = event != null ? countSplitJoins(x) : 0;
 		AVLTree smallerTree = new AVLTree();
-
-		IAVLNode node = findNodeByKey(x).get();
-		greaterTree.root = node.getRight().isRealNode() ? node.getRight() : null;
-		node.getRight().setParent(null);
-
-		smallerTree.root = node.getLeft().isRealNode() ? node.getLeft() : null;
-		node.getLeft().setParent(null);
-
-		node = node.getParent();
-		// travel until we get to the root, while joining the left or right subtrees to the split trees
-		while (node != null) {
-			IAVLNode parent = node.getParent();
-			//disconnect node from tree
-			node.setParent(null);
-			node.setHeight(0);
-			node.setSize(1);
-
-			AVLTree tree = new AVLTree();
-			if (x > node.getKey()) {
-				tree.root = node.getLeft().isRealNode() ? node.getLeft() : null;
-				node.getLeft().setParent(null);
-				node.setFakeLeft();
-				node.setFakeRight();
-				smallerTree.join(node, tree);
-			} else {
-				tree.root = node.getRight().isRealNode() ? node.getRight() : null;
-				node.getRight().setParent(null);
-				node.setFakeLeft();
-				node.setFakeRight();
-				greaterTree.join(node, tree);
-			}
-			node = parent;
-		}
-
-		//set min and max
-		if (x != min.getKey()) {
-			smallerTree.min = min;
+		AVLTree greaterTree = new AVLTree();
+		smallerTree.metrics = metrics;
+		greaterTree.metrics = metrics;
+		smallerTree.useBalancing(balancing);
+		greaterTree.useBalancing(balancing);
+		SplitJoin algorithm = new SplitJoin();
+		algorithm.split(this, x, smallerTree, greaterTree);
+		int rebalances = algorithm.rebalances;
+		clearSearchCache();
+		detachments++;
+		if (metrics != null) {
+			metrics.latency(AVLTreeMetrics.Operation.SPLIT, start);
 		}
-		if (x != max.getKey()) {
-			greaterTree.max = max;
+		if (event != null) {
+			AVLTreeEvents.commitSplit(event, x, size, height, joins, rebalances);
 		}
-		smallerTree.updateMax();
-		greaterTree.updateMin();
-
 		return new AVLTree[]{smallerTree, greaterTree};
 	}
 
@@ -505,45 +1237,77 @@ public class AVLTree {
 	 * postcondition: none
 	 */
 	public int join(IAVLNode x, AVLTree t) {
+		long start = metrics != null ? System.nanoTime() : 0;
+		adoptBalancing(t);
+		settle();
+		t.settle();
+		Object event = EVENTS ? AVLTreeEvents.beginJoin() : null;
 		int complexity = Math.abs(getHeight() - t.getHeight()) + 1;
-		if (empty() || t.empty()) {
-			if (empty()) {
-				root = t.getRoot();
-				//update min and max
-				min = t.min;
-				max = t.max;
+		int rebalances = joinNodes(x, t);
+		t.clearSearchCache();
+		t.detachments++;
+		if (metrics != null) {
+			metrics.join(complexity, start);
+		}
+		if (event != null) {
+			AVLTreeEvents.commitJoin(event, size(), getHeight(), complexity, rebalances);
+		}
+		return complexity;
+	}
+
+	/**
+	 * Joins t and x with the tree
+	 * complexity: O(delta-h) - rank difference between the tree and t
+	 * <p>
+	 * precondition: keys(x,t) < keys() or keys(x,t) > keys()
+	 *
+	 * @param x a node with no children, height 0 and size 1
+	 * @param t the tree to join
+	 * @return the number of rebalancing operations
+	 */
+	private int joinNodes(IAVLNode x, AVLTree t) {
+		int rebalances;
+		if (empty() || t.empty()) {
+			if (empty()) {
+				root = t.getRoot();
+				//update min and max
+				min = t.min;
+				max = t.max;
 			}
-			insertNode(x);
+			rebalances = insertNode(x);
 		} else {
 			//both trees have a root node
 			boolean isLarger = getRoot().getHeight() > t.getRoot().getHeight();
 			AVLTree largerTree = isLarger ? this : t;
 			AVLTree smallerTree = isLarger ? t : this;
 			IAVLNode joinNode; //the first large tree's node with height<=small tree's height
+			IAVLNode joinParent; //the parent of joinNode, which will become the parent of x
 			if (x.getKey() < largerTree.getRoot().getKey()) {
 				//the key of x is smaller than the large tree's keys
-				joinNode = largerTree.findSubtreeByHeight(true, smallerTree.getHeight());
+				joinParent = largerTree.findSubtreeParentByHeight(true, smallerTree.getHeight());
+				joinNode = joinParent != null ? joinParent.getLeft() : largerTree.getRoot();
 				x.setLeft(smallerTree.getRoot());
 				x.setRight(joinNode);
-				if (joinNode.getParent() != null) {
-					joinNode.getParent().setLeft(x);
+				if (joinParent != null) {
+					joinParent.setLeft(x);
 				}
 				//update min and max
 				min = smallerTree.min;
 				max = largerTree.max;
 			} else {
 				//the key of x is bigger than the large tree's keys
-				joinNode = largerTree.findSubtreeByHeight(false, smallerTree.getHeight());
+				joinParent = largerTree.findSubtreeParentByHeight(false, smallerTree.getHeight());
+				joinNode = joinParent != null ? joinParent.getRight() : largerTree.getRoot();
 				x.setRight(smallerTree.getRoot());
 				x.setLeft(joinNode);
-				if (joinNode.getParent() != null) {
-					joinNode.getParent().setRight(x);
+				if (joinParent != null) {
+					joinParent.setRight(x);
 				}
 				//update min and max
 				min = largerTree.min;
 				max = smallerTree.max;
 			}
-			x.setParent(joinNode.getParent());
+			x.setParent(joinParent);
 			updateSizeToRoot(x);
 			joinNode.setParent(x);
 			smallerTree.root.setParent(x);
@@ -555,9 +1319,43 @@ public class AVLTree {
 				//if this tree's height is smaller than t's height, its root should change to be t's root
 				root = largerTree.root;
 			}
-			insertionBalancer.rebalance(x);
+			rebalances = insertionBalancer.rebalance(x);
 		}
-		return complexity;
+		return rebalances;
+	}
+
+	/**
+	 * public AVLTree deleteRange(int lo, int hi)
+	 * <p>
+	 * complexity: O(log n)
+	 * deletes the items with lo <= key <= hi from the tree, which lo and hi don't have to be in,
+	 * and returns them as a new tree. Nothing is deleted if lo > hi.
+	 * The removed items keep their nodes, so the tree's fingers start from the root afterwards.
+	 */
+	public AVLTree deleteRange(int lo, int hi) {
+		return lo <= hi ? cut(lo, hi) : new AVLTree();
+	}
+
+	/**
+	 * public AVLTree truncateBelow(int k)
+	 * <p>
+	 * complexity: O(log n)
+	 * deletes the items with keys smaller than k from the tree, and returns them as a new tree.
+	 * k doesn't have to be in the tree, and if it is, its item stays in it.
+	 */
+	public AVLTree truncateBelow(int k) {
+		return k != Integer.MIN_VALUE ? cut(Integer.MIN_VALUE, k - 1) : new AVLTree();
+	}
+
+	/**
+	 * public AVLTree truncateAbove(int k)
+	 * <p>
+	 * complexity: O(log n)
+	 * deletes the items with keys larger than k from the tree, and returns them as a new tree.
+	 * k doesn't have to be in the tree, and if it is, its item stays in it.
+	 */
+	public AVLTree truncateAbove(int k) {
+		return k != Integer.MAX_VALUE ? cut(k + 1, Integer.MAX_VALUE) : new AVLTree();
 	}
 
 	/**
@@ -574,6 +1372,482 @@ public class AVLTree {
 		}
 	}
 
+	/**
+	 * public int select(int k)
+	 * <p>
+	 * complexity: O(log n)
+	 * Returns the key with rank k, meaning the k-th smallest key counting from 0,
+	 * so select(k) == keysToArray()[k].
+	 * precondition: 0 <= k < size()
+	 */
+	public int select(int k) {
+		if (k < 0 || k >= size()) {
+			throw new IndexOutOfBoundsException(String.format("Rank %d is out of range for a tree of size %d", k, size()));
+		}
+		return selectNode(k).getKey();
+	}
+
+	/**
+	 * public int rank(int key)
+	 * <p>
+	 * complexity: O(log n)
+	 * Returns the amount of keys in the tree that are smaller than key.
+	 * The key doesn't have to be in the tree, and if it is, select(rank(key)) == key.
+	 */
+	public int rank(int key) {
+		return countSmaller(key, false);
+	}
+
+	/**
+	 * public int countInRange(int lo, int hi)
+	 * <p>
+	 * complexity: O(log n)
+	 * Returns the amount of keys k in the tree with lo <= k <= hi,
+	 * or 0 if lo > hi.
+	 */
+	public int countInRange(int lo, int hi) {
+		if (lo > hi) {
+			return 0;
+		}
+		return countSmaller(hi, true) - countSmaller(lo, false);
+	}
+
+	/**
+	 * public Cursor cursorFrom(int key)
+	 * <p>
+	 * complexity: O(log n) to create, O(1) amortized per item
+	 * Returns a cursor over the items with keys larger or equal to key, in ascending order.
+	 */
+	public Cursor cursorFrom(int key) {
+		return new Cursor(findCeilingNode(key), Integer.MAX_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * public Cursor range(int lo, int hi)
+	 * <p>
+	 * complexity: O(log n + k) for k items in the range
+	 * Returns a cursor over the items with lo <= key <= hi, in ascending order.
+	 */
+	public Cursor range(int lo, int hi) {
+		return new Cursor(lo <= hi ? findCeilingNode(lo) : null, hi, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * public Cursor page(int offset, int limit)
+	 * <p>
+	 * complexity: O(log n + limit)
+	 * Returns a cursor over at most limit items, starting from the item with rank offset (counting from 0).
+	 * precondition: offset >= 0, limit >= 0
+	 */
+	public Cursor page(int offset, int limit) {
+		if (offset < 0 || limit < 0) {
+			throw new IllegalArgumentException(String.format("Invalid page offset %d and limit %d", offset, limit));
+		}
+		return new Cursor(offset < size() ? selectNode(offset) : null, Integer.MAX_VALUE, limit);
+	}
+
+	/**
+	 * public IntStream stream()
+	 * <p>
+	 * complexity: O(1) to create, O(1) amortized per key, O(log n) per split of a parallel stream
+	 * Returns a stream of the keys in ascending order, which reads the tree without copying it.
+	 * The stream is SIZED and splits into exact halves by rank using the subtree sizes,
+	 * so parallel streams divide the work evenly. The tree must not be modified while the stream runs.
+	 */
+	public IntStream stream() {
+		return StreamSupport.intStream(new KeySpliterator(this, min, size()), false);
+	}
+
+	/**
+	 * public Stream&lt;Map.Entry&lt;Integer, String&gt;&gt; entryStream()
+	 * <p>
+	 * complexity: O(1) to create, O(1) amortized per item, O(log n) per split of a parallel stream
+	 * Returns a stream of immutable (key, info) entries in ascending key order, like {@link #stream()}.
+	 * The tree must not be modified while the stream runs.
+	 */
+	public Stream<Map.Entry<Integer, String>> entryStream() {
+		return StreamSupport.stream(new EntrySpliterator(this, min, size()), false);
+	}
+
+	/**
+	 * public static AVLTree fromSorted(int[] keys, String[] values)
+	 * <p>
+	 * complexity: O(n)
+	 * Builds a perfectly balanced tree from keys in ascending order and their respective info,
+	 * without rebalancing.
+	 * precondition: keys are sorted in ascending order without duplicates, keys.length == values.length
+	 */
+	public static AVLTree fromSorted(int[] keys, String[] values) {
+		if (keys.length != values.length) {
+			throw new IllegalArgumentException(String.format("Got %d keys but %d values", keys.length, values.length));
+		}
+		return fromSorted(keys.length, Arrays.stream(keys).iterator(), Arrays.asList(values).iterator());
+	}
+
+	/**
+	 * public static AVLTree fromSorted(int size, IntStream keys, Stream&lt;String&gt; values)
+	 * <p>
+	 * complexity: O(n)
+	 * Builds a perfectly balanced tree from streams of keys in ascending order and their respective info.
+	 * The streams are consumed once, and are not copied.
+	 * precondition: both streams have exactly size items, and keys are sorted in ascending order without duplicates
+	 */
+	public static AVLTree fromSorted(int size, IntStream keys, Stream<String> values) {
+		return fromSorted(size, keys.iterator(), values.iterator());
+	}
+
+	/**
+	 * public static AVLTree fromSorted(int size, PrimitiveIterator.OfInt keys, Iterator&lt;String&gt; values)
+	 * <p>
+	 * complexity: O(n)
+	 * Builds a perfectly balanced tree from iterators of keys in ascending order and their respective info.
+	 * The size is needed up front to choose the tree's shape, so the items are consumed once, and are not copied.
+	 * precondition: both iterators have exactly size items, and keys are sorted in ascending order without duplicates
+	 */
+	public static AVLTree fromSorted(int size, PrimitiveIterator.OfInt keys, Iterator<String> values) {
+		if (size < 0) {
+			throw new IllegalArgumentException(String.format("Invalid size %d", size));
+		}
+		Object event = EVENTS ? AVLTreeEvents.beginBulk() : null;
+		AVLTree tree = new AVLTree();
+		IAVLNode root;
+		try {
+			root = tree.buildSorted(size, keys, values);
+		} catch (NoSuchElementException e) {
+			throw new IllegalArgumentException(String.format("The input has less than %d items", size), e);
+		}
+		if (keys.hasNext() || values.hasNext()) {
+			throw new IllegalArgumentException(String.format("The input has more than %d items", size));
+		}
+		tree.root = root.isRealNode() ? root : null;
+		if (event != null) {
+			AVLTreeEvents.commitBulk(event, "fromSorted", size, size, tree.getHeight(), 0);
+		}
+		return tree;
+	}
+
+	/**
+	 * public int applyBatch(int[] sortedKeys, String[] values, byte[] ops)
+	 * <p>
+	 * complexity: O(m log(n/m + 1)) for a batch of m operations
+	 * Applies a batch of insertions ({@link #BATCH_INSERT}) and deletions ({@link #BATCH_DELETE}) to the tree.
+	 * The result is the same as applying them one by one with insert and delete: inserting an existing key
+	 * keeps its info, and deleting a missing key does nothing.
+	 * Instead of a search per key, the tree is split by the batch's middle key, both halves of the batch are applied
+	 * recursively to the matching subtrees, and the results are joined.
+	 * Returns the number of rebalancing operations of the splits and joins.
+	 * precondition: sortedKeys is sorted in ascending order without duplicates, all arrays have the same length
+	 * (values[i] is ignored for deletions)
+	 */
+	public int applyBatch(int[] sortedKeys, String[] values, byte[] ops) {
+		if (sortedKeys.length != values.length || sortedKeys.length != ops.length) {
+			throw new IllegalArgumentException(String.format("Got %d keys, %d values and %d operations",
+				sortedKeys.length, values.length, ops.length));
+		}
+		for (int i = 0; i < sortedKeys.length; i++) {
+			if (i > 0 && sortedKeys[i] <= sortedKeys[i - 1]) {
+				throw new IllegalArgumentException(String.format("Key %d is not larger than the previous key %d",
+					sortedKeys[i], sortedKeys[i - 1]));
+			}
+			if (ops[i] != BATCH_INSERT && ops[i] != BATCH_DELETE) {
+				throw new IllegalArgumentException(String.format("Unknown operation %d for key %d", ops[i], sortedKeys[i]));
+			}
+		}
+		settle();
+		Object event = EVENTS ? AVLTreeEvents.beginBulk() : null;
+		BatchApplier applier = new BatchApplier(sortedKeys, values, ops);
+		takeResult(applier.apply(this, 0, sortedKeys.length));
+		if (event != null) {
+			AVLTreeEvents.commitBulk(event, "applyBatch", sortedKeys.length, size(), getHeight(), applier.rebalances);
+		}
+		return applier.rebalances;
+	}
+
+	/**
+	 * public int union(AVLTree other)
+	 * <p>
+	 * complexity: O(m log(n/m + 1)) for trees of sizes m <= n
+	 * Adds the items of other to the tree, by splitting and joining instead of inserting one by one.
+	 * The info of a key that is in both trees is kept from this tree.
+	 * Returns the number of rebalancing operations of the splits and joins.
+	 * postcondition: other is empty, since its nodes are moved to this tree
+	 */
+	public int union(AVLTree other) {
+		SplitJoin algorithm = new SplitJoin();
+		takeResult(algorithm.union(this, takeNodes(other)));
+		return algorithm.rebalances;
+	}
+
+	/**
+	 * public int intersect(AVLTree other)
+	 * <p>
+	 * complexity: O(m log(n/m + 1)) for trees of sizes m <= n
+	 * Keeps only the items of the tree whose keys are also in other.
+	 * Returns the number of rebalancing operations of the splits and joins.
+	 * postcondition: other is empty
+	 */
+	public int intersect(AVLTree other) {
+		SplitJoin algorithm = new SplitJoin();
+		takeResult(algorithm.intersect(this, takeNodes(other)));
+		return algorithm.rebalances;
+	}
+
+	/**
+	 * public int difference(AVLTree other)
+	 * <p>
+	 * complexity: O(m log(n/m + 1)) for trees of sizes m <= n
+	 * Removes the items of the tree whose keys are in other.
+	 * Returns the number of rebalancing operations of the splits and joins.
+	 * postcondition: other is empty
+	 */
+	public int difference(AVLTree other) {
+		SplitJoin algorithm = new SplitJoin();
+		takeResult(algorithm.difference(this, takeNodes(other)));
+		return algorithm.rebalances;
+	}
+
+	/**
+	 * public static AVLTree parallelFromSorted(int[] keys, String[] values)
+	 * <p>
+	 * complexity: O(n) work, O(log n) span
+	 * Like {@link #fromSorted(int[], String[])}, but builds the left and right subtrees of large ranges in parallel
+	 * on the common fork-join pool.
+	 * precondition: keys are sorted in ascending order without duplicates, keys.length == values.length
+	 */
+	public static AVLTree parallelFromSorted(int[] keys, String[] values) {
+		if (keys.length != values.length) {
+			throw new IllegalArgumentException(String.format("Got %d keys but %d values", keys.length, values.length));
+		}
+		Object event = EVENTS ? AVLTreeEvents.beginBulk() : null;
+		AVLTree tree = new AVLTree();
+		IAVLNode root = new SortedBuilder(keys, values, 0, keys.length).invoke();
+		if (root.isRealNode()) {
+			tree.root = root;
+			tree.updateMin();
+			tree.updateMax();
+		}
+		if (event != null) {
+			AVLTreeEvents.commitBulk(event, "parallelFromSorted", keys.length, tree.size(), tree.getHeight(), 0);
+		}
+		return tree;
+	}
+
+	/**
+	 * public int parallelUnion(AVLTree other)
+	 * <p>
+	 * complexity: O(m log(n/m + 1)) work, O(log^2 n) span
+	 * Like {@link #union(AVLTree)}, but recurses into both sides of large subtrees in parallel
+	 * on the common fork-join pool.
+	 * postcondition: other is empty
+	 */
+	public int parallelUnion(AVLTree other) {
+		return applyParallel(ParallelSetOperation.UNION, other);
+	}
+
+	/**
+	 * public int parallelIntersect(AVLTree other)
+	 * <p>
+	 * complexity: O(m log(n/m + 1)) work, O(log^2 n) span
+	 * Like {@link #intersect(AVLTree)}, but recurses into both sides of large subtrees in parallel
+	 * on the common fork-join pool.
+	 * postcondition: other is empty
+	 */
+	public int parallelIntersect(AVLTree other) {
+		return applyParallel(ParallelSetOperation.INTERSECT, other);
+	}
+
+	/**
+	 * public int parallelDifference(AVLTree other)
+	 * <p>
+	 * complexity: O(m log(n/m + 1)) work, O(log^2 n) span
+	 * Like {@link #difference(AVLTree)}, but recurses into both sides of large subtrees in parallel
+	 * on the common fork-join pool.
+	 * postcondition: other is empty
+	 */
+	public int parallelDifference(AVLTree other) {
+		return applyParallel(ParallelSetOperation.DIFFERENCE, other);
+	}
+
+	/**
+	 * public void setMetrics(AVLTreeMetrics metrics)
+	 * <p>
+	 * complexity: O(1)
+	 * Records the structural operations and latencies of this tree in metrics, or stops recording them if it's null.
+	 * The trees returned by split record in the same metrics.
+	 */
+	public void setMetrics(AVLTreeMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * public AVLTreeMetrics getMetrics()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the metrics this tree records in, or null if it isn't measured
+	 */
+	public AVLTreeMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * public void enableSearchCache(int capacity)
+	 * <p>
+	 * complexity: O(capacity)
+	 * Caches the nodes of up to capacity found keys, so searches of hot keys take O(1) time.
+	 * The cache is replaced if it's already enabled.
+	 */
+	public void enableSearchCache(int capacity) {
+		searchCache = new SearchCache(capacity);
+	}
+
+	/**
+	 * public void disableSearchCache()
+	 * <p>
+	 * complexity: O(1)
+	 * Removes the search cache, if it's enabled
+	 */
+	public void disableSearchCache() {
+		searchCache = null;
+	}
+
+	/**
+	 * public Balancing getBalancing()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the rank rule that the tree keeps, AVL by default
+	 */
+	public Balancing getBalancing() {
+		return balancing;
+	}
+
+	/**
+	 * public void setBalancing(Balancing balancing)
+	 * <p>
+	 * complexity: O(1), or O(n) when a non-empty WAVL tree switches to AVL
+	 * Sets the rank rule that deletions keep. Every AVL tree is a WAVL tree, so switching to WAVL is free,
+	 * but a WAVL tree is rebuilt perfectly balanced, with the same nodes, to switch to AVL.
+	 * The parts of a split and the items that deleteRange and truncate remove use the tree's balancing,
+	 * and a tree becomes a WAVL tree when join or a set operation gives it the nodes of a WAVL tree.
+	 * precondition: relaxed balancing isn't enabled when switching to WAVL
+	 */
+	public void setBalancing(Balancing balancing) {
+		if (balancing == null) {
+			throw new IllegalArgumentException("Balancing can't be null");
+		}
+		if (balancing == Balancing.WAVL && relaxedBalancer != null) {
+			throw new IllegalStateException("Relaxed balancing needs AVL balancing");
+		}
+		if (balancing == Balancing.AVL && this.balancing == Balancing.WAVL && !empty()) {
+			rebuild();
+		}
+		useBalancing(balancing);
+	}
+
+	/**
+	 * public void enableRelaxedBalancing(int fixesPerOperation, double heightFactor)
+	 * <p>
+	 * complexity: O(1)
+	 * Defers rebalancing for write bursts, like relaxed AVL trees: insert and delete only update the heights on
+	 * their path and record the nodes that violate the rank rule, and then fix at most fixesPerOperation of the
+	 * recorded violations, the lowest first. More violations are fixed if the height exceeds
+	 * heightFactor * log2(n + 2), so searches stay O(log n). {@link #rebalanceNow()} fixes the rest.
+	 * The work of an operation isn't bounded by fixesPerOperation then: an operation that finds the height over
+	 * its bound keeps fixing violations until it's back within it, which after a long burst, e.g. of sorted keys,
+	 * can be many fixes in a single operation.
+	 * A violation is fixed by joining the node's subtrees with it, in O(1 + the height difference of the subtrees).
+	 * split, join and the batch and set operations fix all violations first.
+	 * precondition: fixesPerOperation >= 0, 1.45 <= heightFactor <= 4, which bounds a valid AVL tree's height,
+	 * and the tree uses {@link Balancing#AVL}
+	 */
+	public void enableRelaxedBalancing(int fixesPerOperation, double heightFactor) {
+		if (balancing != Balancing.AVL) {
+			throw new IllegalStateException("Relaxed balancing needs AVL balancing");
+		}
+		if (fixesPerOperation < 0) {
+			throw new IllegalArgumentException(String.format("Invalid amount of fixes per operation %d", fixesPerOperation));
+		}
+		if (!(heightFactor >= RelaxedBalancer.MIN_HEIGHT_FACTOR && heightFactor <= RelaxedBalancer.MAX_HEIGHT_FACTOR)) {
+			throw new IllegalArgumentException(String.format("Height factor %s isn't between %s and %s", heightFactor,
+				RelaxedBalancer.MIN_HEIGHT_FACTOR, RelaxedBalancer.MAX_HEIGHT_FACTOR));
+		}
+		RelaxedBalancer balancer = new RelaxedBalancer(fixesPerOperation, heightFactor);
+		if (relaxedBalancer != null) {
+			balancer.violations.putAll(relaxedBalancer.violations);
+			balancer.queue.addAll(relaxedBalancer.queue);
+		}
+		relaxedBalancer = balancer;
+	}
+
+	/**
+	 * public int disableRelaxedBalancing()
+	 * <p>
+	 * complexity: O(v log n) for v deferred violations
+	 * Fixes all deferred violations, and rebalances immediately from now on.
+	 * Returns the number of rebalancing operations.
+	 */
+	public int disableRelaxedBalancing() {
+		int amount = rebalanceNow();
+		relaxedBalancer = null;
+		return amount;
+	}
+
+	/**
+	 * public int rebalanceNow()
+	 * <p>
+	 * complexity: O(v log n) for v deferred violations
+	 * Fixes all the violations that relaxed balancing deferred, so the tree is a valid AVL tree.
+	 * Returns the number of rebalancing operations.
+	 */
+	public int rebalanceNow() {
+		return relaxedBalancer != null ? relaxedBalancer.fix(Integer.MAX_VALUE) : 0;
+	}
+
+	/**
+	 * public int pendingViolations()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the amount of nodes that relaxed balancing recorded as violating the rank rule and didn't fix yet,
+	 * including nodes that later operations balanced without fixing them.
+	 */
+	public int pendingViolations() {
+		return relaxedBalancer != null ? relaxedBalancer.violations.size() : 0;
+	}
+
+	/**
+	 * public SearchCache getSearchCache()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the search cache with its hit and miss statistics, or null if it isn't enabled
+	 */
+	public SearchCache getSearchCache() {
+		return searchCache;
+	}
+
+	/**
+	 * public void writeSnapshot(Path path)
+	 * <p>
+	 * complexity: O(n)
+	 * Writes the items of the tree to a compact snapshot file, which replaces path once it's complete.
+	 * The keys are stored as varint differences and the info as length-prefixed UTF-8, with a CRC32 checksum.
+	 * See {@link AVLTreeSnapshot} for the format.
+	 */
+	public void writeSnapshot(Path path) throws IOException {
+		AVLTreeSnapshot.write(this, path);
+	}
+
+	/**
+	 * public static AVLTree openSnapshot(Path path)
+	 * <p>
+	 * complexity: O(n)
+	 * Loads a tree from a snapshot file written by {@link #writeSnapshot(Path)}.
+	 * The file is memory-mapped and the tree is built in one pass like {@link #fromSorted(int[], String[])},
+	 * without rebalancing, so it's perfectly balanced.
+	 * Throws IOException if the file can't be read, or if it's corrupt or its checksum doesn't match.
+	 */
+	public static AVLTree openSnapshot(Path path) throws IOException {
+		return AVLTreeSnapshot.read(path);
+	}
+
 	/**
 	 * public interface IAVLNode
 	 * ! Do not delete or modify this - otherwise all tests will fail !
@@ -634,6 +1908,11 @@ public class AVLTree {
 		int demote();
 	}
 
+	/**
+	 * The virtual leaf shared by all nodes of all trees
+	 */
+	static final IAVLNode VIRTUAL_NODE = new VirtualNode();
+
 	/**
 	 * public class AVLNode
 	 * <p>
@@ -642,35 +1921,27 @@ public class AVLTree {
 	 * another file.
 	 * This class can and must be modified.
 	 * (It must implement IAVLNode)
+	 * <p>
+	 * The node is static and keeps its height in a byte, since the height of an AVL tree
+	 * with at most 2^31 nodes is below 45. Virtual children are all the shared {@link #VIRTUAL_NODE}.
 	 */
-	public class AVLNode implements IAVLNode {
+	public static class AVLNode implements IAVLNode {
 		private int key;
+		private byte height;
+		private int size = 1;
 		private String value;
-		private IAVLNode left;
-		private IAVLNode right;
+		private IAVLNode left = VIRTUAL_NODE;
+		private IAVLNode right = VIRTUAL_NODE;
 		private IAVLNode parent;
-		private boolean realNode;
-		private int height;
-		private int size = 1;
 
 		public AVLNode(int key, String value) {
-			this(key, value, null, true);
+			this(key, value, null);
 		}
 
-		public AVLNode(int key, String value, IAVLNode parent, boolean realNode) {
+		public AVLNode(int key, String value, IAVLNode parent) {
 			this.key = key;
 			this.value = value;
 			this.parent = parent;
-			this.realNode = realNode;
-			if (!realNode) {
-				height = -1;
-				size = 0;
-				this.key = -1;
-			}
-		}
-
-		private IAVLNode createFakeChild() {
-			return new AVLNode(0, "", this, false);
 		}
 
 		public int getKey() {
@@ -681,70 +1952,874 @@ public class AVLTree {
 			return value;
 		}
 
-		public void setLeft(IAVLNode node) {
-			left = node;
+		public void setLeft(IAVLNode node) {
+			left = node;
+		}
+
+		public void setFakeLeft() {
+			setLeft(VIRTUAL_NODE);
+		}
+
+		public IAVLNode getLeft() {
+			return left;
+		}
+
+		public void setRight(IAVLNode node) {
+			right = node;
+		}
+
+		public void setFakeRight() {
+			setRight(VIRTUAL_NODE);
+		}
+
+		public IAVLNode getRight() {
+			return right;
+		}
+
+		public void setParent(IAVLNode node) {
+			parent = node;
+		}
+
+		public IAVLNode getParent() {
+			return parent;
+		}
+
+		// Returns True if this is a non-virtual AVL node
+		public boolean isRealNode() {
+			return true;
+		}
+
+		public void setHeight(int height) {
+			this.height = (byte) height;
+		}
+
+		public int getHeight() {
+			return height;
+		}
+
+		public int getSize() {
+			return size;
+		}
+
+		public void setSize(int size) {
+			this.size = size;
+		}
+
+		public int promote() {
+			setHeight(getHeight() + 1);
+			return 1;
+		}
+
+		public int demote() {
+			setHeight(getHeight() - 1);
+			return 1;
+		}
+	}
+
+	/**
+	 * An immutable virtual leaf.
+	 * A single instance is shared as the child of every leaf, so it has no parent and no children.
+	 * Setting its parent is ignored, since the tree code reconnects a virtual child the same way as a real one.
+	 */
+	private static final class VirtualNode implements IAVLNode {
+		public int getKey() {
+			return -1;
+		}
+
+		public String getValue() {
+			return null;
+		}
+
+		public void setLeft(IAVLNode node) {
+			throw new UnsupportedOperationException("A virtual node has no children");
+		}
+
+		public void setFakeLeft() {
+			throw new UnsupportedOperationException("A virtual node has no children");
+		}
+
+		public IAVLNode getLeft() {
+			return null;
+		}
+
+		public void setRight(IAVLNode node) {
+			throw new UnsupportedOperationException("A virtual node has no children");
+		}
+
+		public void setFakeRight() {
+			throw new UnsupportedOperationException("A virtual node has no children");
+		}
+
+		public IAVLNode getRight() {
+			return null;
+		}
+
+		public void setParent(IAVLNode node) {
+			//shared between all leaves, so there is no single parent to keep
+		}
+
+		public IAVLNode getParent() {
+			return null;
+		}
+
+		public boolean isRealNode() {
+			return false;
+		}
+
+		public void setHeight(int height) {
+			throw new UnsupportedOperationException("The height of a virtual node is always -1");
+		}
+
+		public int getHeight() {
+			return -1;
+		}
+
+		public int getSize() {
+			return 0;
+		}
+
+		public void setSize(int size) {
+			throw new UnsupportedOperationException("The size of a virtual node is always 0");
+		}
+
+		public int promote() {
+			throw new UnsupportedOperationException("The height of a virtual node is always -1");
+		}
+
+		public int demote() {
+			throw new UnsupportedOperationException("The height of a virtual node is always -1");
+		}
+	}
+
+	/**
+	 * public class Cursor
+	 * <p>
+	 * An in-order cursor that walks the tree's parent pointers, without copying the items.
+	 * The cursor starts before its first item, and each call to {@link #next()} moves it to the following item:
+	 * <pre>
+	 * Cursor cursor = tree.range(lo, hi);
+	 * while (cursor.next()) {
+	 *     use(cursor.getKey(), cursor.getValue());
+	 * }
+	 * </pre>
+	 * A cursor is invalid after the tree is modified.
+	 */
+	public static class Cursor {
+		private IAVLNode nextNode;
+		private IAVLNode current;
+		private final int hi;
+		private int remaining;
+
+		/**
+		 * @param first the first node, or null for an empty cursor
+		 * @param hi    the largest key to return
+		 * @param limit the maximal amount of items to return
+		 */
+		private Cursor(IAVLNode first, int hi, int limit) {
+			this.nextNode = first;
+			this.hi = hi;
+			this.remaining = limit;
+		}
+
+		/**
+		 * Move to the next item
+		 * complexity: O(1) amortized
+		 *
+		 * @return true if the cursor moved to an item, false if there are no more items
+		 */
+		public boolean next() {
+			if (nextNode == null || remaining == 0 || nextNode.getKey() > hi) {
+				nextNode = null;
+				current = null;
+				return false;
+			}
+			current = nextNode;
+			nextNode = successor(nextNode);
+			remaining--;
+			return true;
+		}
+
+		/**
+		 * Copy the following items into caller-owned buffers, and move to the last copied item
+		 * complexity: O(len) amortized
+		 *
+		 * @param keys   the buffer for the keys, or null to skip the keys
+		 * @param values the buffer for the info, or null to skip the info
+		 * @param off    the first index to write to in both buffers
+		 * @param len    the maximal amount of items to copy
+		 * @return the amount of copied items, 0 if there are no more items
+		 */
+		public int nextEntries(int[] keys, String[] values, int off, int len) {
+			if (keys != null) {
+				checkBounds(keys.length, off, len);
+			}
+			if (values != null) {
+				checkBounds(values.length, off, len);
+			}
+			int count = 0;
+			while (count < len && next()) {
+				if (keys != null) {
+					keys[off + count] = current.getKey();
+				}
+				if (values != null) {
+					values[off + count] = current.getValue();
+				}
+				count++;
+			}
+			return count;
+		}
+
+		/**
+		 * Copy the keys of the following items into a caller-owned buffer, and move to the last copied item
+		 * complexity: O(len) amortized
+		 *
+		 * @param dst the buffer for the keys
+		 * @param off the first index to write to
+		 * @param len the maximal amount of keys to copy
+		 * @return the amount of copied keys, 0 if there are no more items
+		 */
+		public int nextKeys(int[] dst, int off, int len) {
+			return nextEntries(dst, null, off, len);
+		}
+
+		/**
+		 * Copy the info of the following items into a caller-owned buffer, and move to the last copied item
+		 * complexity: O(len) amortized
+		 *
+		 * @param dst the buffer for the info
+		 * @param off the first index to write to
+		 * @param len the maximal amount of items to copy
+		 * @return the amount of copied items, 0 if there are no more items
+		 */
+		public int nextValues(String[] dst, int off, int len) {
+			return nextEntries(null, dst, off, len);
+		}
+
+		/**
+		 * precondition: the last call to next() returned true
+		 *
+		 * @return the key of the current item
+		 */
+		public int getKey() {
+			return current.getKey();
+		}
+
+		/**
+		 * precondition: the last call to next() returned true
+		 *
+		 * @return the info of the current item
+		 */
+		public String getValue() {
+			return current.getValue();
+		}
+	}
+
+	/**
+	 * A spliterator over consecutive items of a tree, from a first node and with an exact size.
+	 * Items are visited with the parent pointers like {@link Cursor}, and a split finds the middle item
+	 * by rank with the subtree sizes, so both halves are SIZED and a split takes O(log n).
+	 */
+	private abstract static class NodeSpliterator<S extends NodeSpliterator<S>> {
+		static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT
+			| Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+
+		final AVLTree tree;
+		IAVLNode next;
+		int remaining;
+
+		/**
+		 * @param tree  the tree of the nodes
+		 * @param first the first node, or null if size is 0
+		 * @param size  the amount of items
+		 */
+		NodeSpliterator(AVLTree tree, IAVLNode first, int size) {
+			this.tree = tree;
+			this.next = first;
+			this.remaining = size;
+		}
+
+		abstract S create(IAVLNode first, int size);
+
+		/**
+		 * Move to the next item
+		 * complexity: O(1) amortized
+		 *
+		 * @return the current item's node, or null if there are no more items
+		 */
+		IAVLNode advance() {
+			if (remaining == 0) {
+				return null;
+			}
+			IAVLNode node = next;
+			next = --remaining > 0 ? successor(node) : null;
+			return node;
+		}
+
+		/**
+		 * Split off the first half of the items
+		 * complexity: O(log n)
+		 */
+		public S trySplit() {
+			if (remaining < 2) {
+				return null;
+			}
+			int half = remaining >>> 1;
+			S prefix = create(next, half);
+			next = tree.selectNode(rankOf(next) + half);
+			remaining -= half;
+			return prefix;
+		}
+
+		public long estimateSize() {
+			return remaining;
+		}
+
+		public int characteristics() {
+			return CHARACTERISTICS;
+		}
+	}
+
+	private static final class KeySpliterator extends NodeSpliterator<KeySpliterator> implements Spliterator.OfInt {
+
+		KeySpliterator(AVLTree tree, IAVLNode first, int size) {
+			super(tree, first, size);
+		}
+
+		@Override
+		KeySpliterator create(IAVLNode first, int size) {
+			return new KeySpliterator(tree, first, size);
+		}
+
+		@Override
+		public boolean tryAdvance(IntConsumer action) {
+			IAVLNode node = advance();
+			if (node == null) {
+				return false;
+			}
+			action.accept(node.getKey());
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(IntConsumer action) {
+			for (IAVLNode node = advance(); node != null; node = advance()) {
+				action.accept(node.getKey());
+			}
+		}
+
+		/**
+		 * @return null, since the keys are in their natural order
+		 */
+		@Override
+		public Comparator<? super Integer> getComparator() {
+			return null;
+		}
+	}
+
+	private static final class EntrySpliterator extends NodeSpliterator<EntrySpliterator>
+		implements Spliterator<Map.Entry<Integer, String>> {
+
+		EntrySpliterator(AVLTree tree, IAVLNode first, int size) {
+			super(tree, first, size);
+		}
+
+		@Override
+		EntrySpliterator create(IAVLNode first, int size) {
+			return new EntrySpliterator(tree, first, size);
+		}
+
+		private static Map.Entry<Integer, String> entry(IAVLNode node) {
+			return new AbstractMap.SimpleImmutableEntry<>(node.getKey(), node.getValue());
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Map.Entry<Integer, String>> action) {
+			IAVLNode node = advance();
+			if (node == null) {
+				return false;
+			}
+			action.accept(entry(node));
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super Map.Entry<Integer, String>> action) {
+			for (IAVLNode node = advance(); node != null; node = advance()) {
+				action.accept(entry(node));
+			}
+		}
+
+		@Override
+		public Comparator<? super Map.Entry<Integer, String>> getComparator() {
+			return Map.Entry.comparingByKey();
+		}
+	}
+
+	/**
+	 * public class Finger
+	 * <p>
+	 * A position in a tree that finger searches, inserts and deletes start from instead of the root.
+	 * They climb from the finger's node until its subtree would contain the key, go down from there,
+	 * and move the finger close to the key, so a sequence of nearby keys is cheap.
+	 * A finger stays valid while its tree is updated. If its node is deleted by another operation, or moved to another
+	 * tree by split, join, deleteRange, truncate, or the set and batch operations, the next operation starts from
+	 * the root.
+	 */
+	public static class Finger {
+		private final AVLTree tree;
+		private IAVLNode node;
+		/**
+		 * The tree's detachments when the finger was last checked
+		 */
+		private int detachments;
+
+		/**
+		 * @param tree the tree of the finger
+		 * @param node the node of the finger, or null if the tree is empty
+		 */
+		private Finger(AVLTree tree, IAVLNode node) {
+			this.tree = tree;
+			this.node = node;
+			this.detachments = tree.detachments;
+		}
+
+		/**
+		 * Get the key of the node the finger is at, which is the root if its node was deleted or moved to another tree
+		 * complexity: O(1)
+		 *
+		 * @throws NoSuchElementException if the tree is empty
+		 */
+		public int getKey() {
+			IAVLNode current = tree.fingerNode(this);
+			if (current == null) {
+				throw new NoSuchElementException("The finger's tree is empty");
+			}
+			return current.getKey();
+		}
+	}
+
+	/**
+	 * Algorithms that are built from splits and joins, and count their rebalancing operations.
+	 * The trees they work on have no valid min and max until the algorithm ends.
+	 */
+	private static class SplitJoin {
+		/**
+		 * The number of rebalancing operations so far
+		 */
+		int rebalances;
+
+		/**
+		 * Recursively compute the union of two trees.
+		 * The info of a key in both trees is taken from a.
+		 * complexity: O(m log(n/m + 1)) for trees of sizes m <= n
+		 *
+		 * @param a a tree, which shouldn't be used afterwards
+		 * @param b a tree, which shouldn't be used afterwards
+		 * @return a tree with the keys of both trees
+		 */
+		AVLTree union(AVLTree a, AVLTree b) {
+			if (a.empty()) {
+				return b;
+			}
+			if (b.empty()) {
+				return a;
+			}
+			IAVLNode pivot = a.root;
+			AVLTree smallerA = subtree(pivot.getLeft());
+			AVLTree greaterA = subtree(pivot.getRight());
+			AVLTree smallerB = new AVLTree();
+			AVLTree greaterB = new AVLTree();
+			split(b, pivot.getKey(), smallerB, greaterB);
+
+			AVLTree smallerTree = union(smallerA, smallerB);
+			AVLTree greaterTree = union(greaterA, greaterB);
+			rebalances += smallerTree.joinNodes(resetNode(pivot), greaterTree);
+			return smallerTree;
+		}
+
+		/**
+		 * Recursively compute the intersection of two trees.
+		 * The info of the keys is taken from a.
+		 * complexity: O(m log(n/m + 1)) for trees of sizes m <= n
+		 *
+		 * @param a a tree, which shouldn't be used afterwards
+		 * @param b a tree, which shouldn't be used afterwards
+		 * @return a tree with the keys that are in both trees
+		 */
+		AVLTree intersect(AVLTree a, AVLTree b) {
+			if (a.empty() || b.empty()) {
+				return new AVLTree();
+			}
+			IAVLNode pivot = a.root;
+			AVLTree smallerA = subtree(pivot.getLeft());
+			AVLTree greaterA = subtree(pivot.getRight());
+			AVLTree smallerB = new AVLTree();
+			AVLTree greaterB = new AVLTree();
+			boolean inB = split(b, pivot.getKey(), smallerB, greaterB) != null;
+
+			AVLTree smallerTree = intersect(smallerA, smallerB);
+			AVLTree greaterTree = intersect(greaterA, greaterB);
+			if (inB) {
+				rebalances += smallerTree.joinNodes(resetNode(pivot), greaterTree);
+				return smallerTree;
+			}
+			return concat(smallerTree, greaterTree);
+		}
+
+		/**
+		 * Recursively compute the difference of two trees
+		 * complexity: O(m log(n/m + 1)) for trees of sizes m <= n
+		 *
+		 * @param a a tree, which shouldn't be used afterwards
+		 * @param b a tree, which shouldn't be used afterwards
+		 * @return a tree with the keys of a that are not in b
+		 */
+		AVLTree difference(AVLTree a, AVLTree b) {
+			if (a.empty() || b.empty()) {
+				return a;
+			}
+			IAVLNode pivot = b.root;
+			AVLTree smallerB = subtree(pivot.getLeft());
+			AVLTree greaterB = subtree(pivot.getRight());
+			AVLTree smallerA = new AVLTree();
+			AVLTree greaterA = new AVLTree();
+			split(a, pivot.getKey(), smallerA, greaterA);
+
+			return concat(difference(smallerA, smallerB), difference(greaterA, greaterB));
+		}
+
+		/**
+		 * Join two trees without a middle node, by moving the minimum of the greater tree between them
+		 * complexity: O(log n)
+		 *
+		 * @param smallerTree a tree with keys smaller than greaterTree's keys
+		 * @param greaterTree a tree with keys larger than smallerTree's keys
+		 * @return the joined tree
+		 */
+		AVLTree concat(AVLTree smallerTree, AVLTree greaterTree) {
+			if (greaterTree.empty()) {
+				return smallerTree;
+			}
+			if (smallerTree.empty()) {
+				return greaterTree;
+			}
+			greaterTree.updateMin();
+			greaterTree.updateMax();
+			//split off the middle rather than delete it, since a temporary tree doesn't know the balancing rule
+			IAVLNode middle = greaterTree.min;
+			AVLTree rest = new AVLTree();
+			split(greaterTree, middle.getKey(), new AVLTree(), rest);
+			rebalances += smallerTree.joinNodes(resetNode(middle), rest);
+			return smallerTree;
+		}
+
+		/**
+		 * Split a tree into two empty trees according to the key x, which doesn't have to be in the tree.
+		 * The node with key x is in neither tree, and is still linked to its old children.
+		 * complexity: O(log n)
+		 *
+		 * @param tree        the tree to split, which shouldn't be used afterwards
+		 * @param x           the key to split by
+		 * @param smallerTree an empty tree that receives the keys smaller than x
+		 * @param greaterTree an empty tree that receives the keys larger than x
+		 * @return the node with key x, to be reset before it's joined again, or null if x isn't in the tree
+		 */
+		IAVLNode split(AVLTree tree, int x, AVLTree smallerTree, AVLTree greaterTree) {
+			//go down to x, or to the last node on its search path if it isn't in the tree
+			IAVLNode lastNode = null;
+			IAVLNode node = tree.root;
+			while (node != null && node.isRealNode() && node.getKey() != x) {
+				lastNode = node;
+				node = x < node.getKey() ? node.getLeft() : node.getRight();
+			}
+			IAVLNode found = null;
+			if (node != null && node.isRealNode()) {
+				found = node;
+				greaterTree.root = node.getRight().isRealNode() ? node.getRight() : null;
+				node.getRight().setParent(null);
+
+				smallerTree.root = node.getLeft().isRealNode() ? node.getLeft() : null;
+				node.getLeft().setParent(null);
+
+				node = node.getParent();
+			} else {
+				//x would be a child of the last node, so it's where the split starts
+				node = lastNode;
+			}
+
+			//travel until we get to the root, while joining the left or right subtrees to the split trees
+			while (node != null) {
+				IAVLNode parent = node.getParent();
+				if (x > node.getKey()) {
+					AVLTree side = subtree(node.getLeft());
+					rebalances += smallerTree.joinNodes(resetNode(node), side);
+				} else {
+					AVLTree side = subtree(node.getRight());
+					rebalances += greaterTree.joinNodes(resetNode(node), side);
+				}
+				node = parent;
+			}
+
+			//set min and max
+			smallerTree.min = tree.min != null && tree.min.getKey() < x ? tree.min : null;
+			greaterTree.max = tree.max != null && tree.max.getKey() > x ? tree.max : null;
+			smallerTree.updateMax();
+			greaterTree.updateMin();
+			return found;
 		}
 
-		public void setFakeLeft() {
-			setLeft(createFakeChild());
+		/**
+		 * Detach a subtree from its parent and wrap it with a tree
+		 * complexity: O(1)
+		 *
+		 * @param node the subtree's root, possibly a virtual node
+		 * @return a tree without min and max
+		 */
+		static AVLTree subtree(IAVLNode node) {
+			AVLTree tree = new AVLTree();
+			if (node.isRealNode()) {
+				tree.root = node;
+				node.setParent(null);
+			}
+			return tree;
 		}
 
-		public IAVLNode getLeft() {
-			return left;
+		/**
+		 * Detach a node that was removed from its tree, so it can be joined as a new node
+		 *
+		 * @param node the node to reset
+		 * @return the node
+		 */
+		static IAVLNode resetNode(IAVLNode node) {
+			node.setParent(null);
+			node.setFakeLeft();
+			node.setFakeRight();
+			node.setHeight(0);
+			node.setSize(1);
+			return node;
 		}
+	}
 
-		public void setRight(IAVLNode node) {
-			right = node;
+	/**
+	 * Applies a sorted batch of operations with splits and joins
+	 */
+	private static class BatchApplier extends SplitJoin {
+		private final int[] keys;
+		private final String[] values;
+		private final byte[] ops;
+
+		BatchApplier(int[] keys, String[] values, byte[] ops) {
+			this.keys = keys;
+			this.values = values;
+			this.ops = ops;
 		}
 
-		public void setFakeRight() {
-			setRight(createFakeChild());
+		/**
+		 * Recursively apply a range of the batch to a tree
+		 * complexity: O(m log(n/m + 1)) for m operations and n nodes
+		 *
+		 * @param tree the tree to apply to, which shouldn't be used afterwards
+		 * @param from the first operation's index
+		 * @param to   the index after the last operation
+		 * @return the resulting tree
+		 */
+		AVLTree apply(AVLTree tree, int from, int to) {
+			if (from == to) {
+				return tree;
+			}
+			int mid = (from + to) >>> 1;
+			int key = keys[mid];
+			AVLTree smallerTree = new AVLTree();
+			AVLTree greaterTree = new AVLTree();
+			IAVLNode existing = split(tree, key, smallerTree, greaterTree);
+
+			smallerTree = apply(smallerTree, from, mid);
+			greaterTree = apply(greaterTree, mid + 1, to);
+
+			if (ops[mid] == BATCH_INSERT) {
+				IAVLNode node = existing != null ? resetNode(existing) : new AVLNode(key, values[mid]);
+				rebalances += smallerTree.joinNodes(node, greaterTree);
+				return smallerTree;
+			}
+			return concat(smallerTree, greaterTree);
 		}
+	}
 
-		public IAVLNode getRight() {
-			return right;
-		}
+	/**
+	 * A set operation that splits the work between fork-join tasks.
+	 * The trees of both recursive calls have no common nodes, so they can be split and joined concurrently.
+	 */
+	private static class ParallelSetOperation extends RecursiveTask<AVLTree> {
+		private static final long serialVersionUID = 1L;
 
-		public void setParent(IAVLNode node) {
-			parent = node;
-		}
+		static final int UNION = 0;
+		static final int INTERSECT = 1;
+		static final int DIFFERENCE = 2;
 
-		public IAVLNode getParent() {
-			return parent;
-		}
+		private final int operation;
+		private final AVLTree a;
+		private final AVLTree b;
+		/**
+		 * The number of rebalancing operations, valid after the task is done
+		 */
+		int rebalances;
 
-		// Returns True if this is a non-virtual AVL node
-		public boolean isRealNode() {
-			return realNode;
+		ParallelSetOperation(int operation, AVLTree a, AVLTree b) {
+			this.operation = operation;
+			this.a = a;
+			this.b = b;
 		}
 
-		public void setHeight(int height) {
-			this.height = height;
+		@Override
+		protected AVLTree compute() {
+			SplitJoin algorithm = new SplitJoin();
+			AVLTree result;
+			if (a.empty() || b.empty() || a.size() + b.size() <= PARALLEL_CUTOFF) {
+				if (operation == UNION) {
+					result = algorithm.union(a, b);
+				} else if (operation == INTERSECT) {
+					result = algorithm.intersect(a, b);
+				} else {
+					result = algorithm.difference(a, b);
+				}
+			} else {
+				//the same step as the sequential algorithms: split one tree by the root of the other
+				boolean pivotFromA = operation != DIFFERENCE;
+				AVLTree pivotTree = pivotFromA ? a : b;
+				AVLTree splitTree = pivotFromA ? b : a;
+				IAVLNode pivot = pivotTree.root;
+				AVLTree smallerPivotSide = SplitJoin.subtree(pivot.getLeft());
+				AVLTree greaterPivotSide = SplitJoin.subtree(pivot.getRight());
+				AVLTree smallerSplitSide = new AVLTree();
+				AVLTree greaterSplitSide = new AVLTree();
+				IAVLNode found = algorithm.split(splitTree, pivot.getKey(), smallerSplitSide, greaterSplitSide);
+				boolean keepPivot = operation == UNION || (operation == INTERSECT && found != null);
+
+				ParallelSetOperation smallerTask = pivotFromA
+					? new ParallelSetOperation(operation, smallerPivotSide, smallerSplitSide)
+					: new ParallelSetOperation(operation, smallerSplitSide, smallerPivotSide);
+				ParallelSetOperation greaterTask = pivotFromA
+					? new ParallelSetOperation(operation, greaterPivotSide, greaterSplitSide)
+					: new ParallelSetOperation(operation, greaterSplitSide, greaterPivotSide);
+				greaterTask.fork();
+				AVLTree smallerTree = smallerTask.compute();
+				AVLTree greaterTree = greaterTask.join();
+				algorithm.rebalances += smallerTask.rebalances + greaterTask.rebalances;
+
+				if (keepPivot) {
+					algorithm.rebalances += smallerTree.joinNodes(SplitJoin.resetNode(pivot), greaterTree);
+					result = smallerTree;
+				} else {
+					result = algorithm.concat(smallerTree, greaterTree);
+				}
+			}
+			rebalances = algorithm.rebalances;
+			return result;
 		}
+	}
 
-		public int getHeight() {
-			return height;
-		}
+	/**
+	 * Builds a perfectly balanced subtree from a range of sorted arrays,
+	 * with the left and right subtrees of large ranges built in parallel
+	 */
+	private static class SortedBuilder extends RecursiveTask<IAVLNode> {
+		private static final long serialVersionUID = 1L;
 
-		public int getSize() {
-			return size;
+		private final int[] keys;
+		private final String[] values;
+		private final int from;
+		private final int to;
+
+		/**
+		 * @param keys   the keys, in ascending order
+		 * @param values the info of the respective keys
+		 * @param from   the index of the subtree's first item
+		 * @param to     the index after the subtree's last item
+		 */
+		SortedBuilder(int[] keys, String[] values, int from, int to) {
+			this.keys = keys;
+			this.values = values;
+			this.from = from;
+			this.to = to;
 		}
 
-		public void setSize(int size) {
-			this.size = size;
+		@Override
+		protected IAVLNode compute() {
+			if (to - from <= PARALLEL_CUTOFF) {
+				return build(from, to);
+			}
+			int mid = from + (to - from - 1) / 2;
+			SortedBuilder rightTask = new SortedBuilder(keys, values, mid + 1, to);
+			rightTask.fork();
+			IAVLNode left = new SortedBuilder(keys, values, from, mid).compute();
+			IAVLNode right = rightTask.join();
+			return connect(mid, left, right);
 		}
 
-		public int promote() {
-			setHeight(getHeight() + 1);
-			return 1;
+		/**
+		 * Recursively build a subtree in the current thread
+		 * complexity: O(to - from)
+		 */
+		private IAVLNode build(int from, int to) {
+			if (from == to) {
+				return VIRTUAL_NODE;
+			}
+			int mid = from + (to - from - 1) / 2;
+			return connect(mid, build(from, mid), build(mid + 1, to));
 		}
 
-		public int demote() {
-			setHeight(getHeight() - 1);
-			return 1;
+		/**
+		 * Create the root of a subtree and connect it to its already built children
+		 *
+		 * @param index the root's index in the arrays
+		 * @param left  the left subtree
+		 * @param right the right subtree
+		 * @return the root
+		 */
+		private IAVLNode connect(int index, IAVLNode left, IAVLNode right) {
+			if (index > 0 && keys[index] <= keys[index - 1]) {
+				throw new IllegalArgumentException(String.format("Key %d is not larger than the previous key %d",
+					keys[index], keys[index - 1]));
+			}
+			IAVLNode node = new AVLNode(keys[index], values[index]);
+			node.setLeft(left);
+			left.setParent(node);
+			node.setRight(right);
+			right.setParent(node);
+			node.setHeight(Math.max(left.getHeight(), right.getHeight()) + 1);
+			node.setSize(left.getSize() + right.getSize() + 1);
+			return node;
 		}
 	}
 
+	/**
+	 * public enum Balancing
+	 * <p>
+	 * The rank rule of a tree. Both rules rebalance insertions, split and join the same way.
+	 * AVL: every node's rank is its height, and its rank differences are (1,1), (1,2) or (2,1).
+	 * Deletions may demote and rotate up to the root.
+	 * WAVL: weak AVL, which also allows (2,2), but not in leaves, whose rank is 0.
+	 * A node's rank is at least its height and at most twice it, so the height is at most 2 log n,
+	 * and at most 1.44 log n without deletions, as in AVL. Deletions rotate at most twice,
+	 * and their demotions are O(1) amortized, so delete-heavy workloads do less rebalancing.
+	 * The tree's height, see getHeight(), is then the root's rank.
+	 */
+	public enum Balancing {
+		AVL,
+		WAVL
+	}
+
+	/**
+	 * A rebalancing algorithm, which restores the rank rule of the tree from a node upwards
+	 */
+	interface Balancer {
+		/**
+		 * @param node the node to start from
+		 * @return the number of rebalances that occurred
+		 */
+		int rebalance(IAVLNode node);
+	}
+
 	class Rotations {
 
 		/**
@@ -770,6 +2845,9 @@ public class AVLTree {
 			}
 			node.setLeft(parent);
 			parent.setRight(leftChild);
+			if (metrics != null) {
+				metrics.leftRotation();
+			}
 
 			//update parents
 			updateParents(parent, node, leftChild);
@@ -801,6 +2879,9 @@ public class AVLTree {
 			}
 			node.setRight(parent);
 			parent.setLeft(rightChild);
+			if (metrics != null) {
+				metrics.rightRotation();
+			}
 
 			//update parents
 			updateParents(parent, node, rightChild);
@@ -865,7 +2946,7 @@ public class AVLTree {
 		}
 	}
 
-	class InsertionBalancer {
+	class InsertionBalancer implements Balancer {
 		/**
 		 * Rebalances a node after insertion to the tree.
 		 * complexity: O(log n)
@@ -875,8 +2956,9 @@ public class AVLTree {
 		 */
 		public int rebalance(IAVLNode node) {
 			int amount = 0;
-			IAVLNode parent = node.getParent();
-			if (parent != null) {
+			//go up while promotions leave the parent with a rank difference of 0
+			while (node.getParent() != null) {
+				IAVLNode parent = node.getParent();
 				IAVLNode otherChild = parent.getLeft() == node ? parent.getRight() : parent.getLeft();
 				int parentDif = parent.getHeight() - node.getHeight(); //height difference from parent
 				int parentOtherDif = parent.getHeight() - otherChild.getHeight(); //height difference of other child from parent
@@ -884,14 +2966,20 @@ public class AVLTree {
 				int rightDif = node.getHeight() - node.getRight().getHeight(); //height difference from right child
 				if (parentDif == 0) {
 					if (parentOtherDif == 1) {
-						//case 1: promote
+						//case 1: promote and rebalance the parent
 						amount += handleInsertionCase1(parent);
+						node = parent;
+						continue;
 					} else if (parentOtherDif == 2) {
 						if ((parent.getLeft() == node && leftDif == 1 && rightDif == 2) ||
 							(parent.getRight() == node && leftDif == 2 && rightDif == 1) ||
 							(leftDif == 1 && rightDif == 1)) {
 							//case 2
 							amount += handleInsertionCase2(parent, node, leftDif, rightDif);
+							if (leftDif == rightDif) {
+								//the rotated node was promoted, so it is rebalanced like case 1
+								continue;
+							}
 						} else {
 							//case 3
 							amount += handleInsertionCase3(parent, node, leftDif, rightDif);
@@ -899,26 +2987,28 @@ public class AVLTree {
 					} else {
 						throw new IllegalStateException("Unsupported rebalance state");
 					}
-				} else if (parentDif != 1 || parentOtherDif != 1) {
+				} else if (parentDif != 1 || (parentOtherDif != 1 && parentOtherDif != 2)) {
+					//(1,2) is possible when a join puts x below a WAVL tree's (2,2) node
 					throw new IllegalStateException("Unsupported rebalance state");
 				}
 				//otherwise, parent was not a leaf and no rebalancing is needed
+				break;
 			}
 			return amount;
 		}
 
 		/**
-		 * Handle case 1 of insertion, which requires promotion and additional rebalancing
-		 * complexity: O(log n)
+		 * Handle case 1 of insertion, which requires promotion, after which rebalance continues with the parent
+		 * complexity: O(1)
 		 *
 		 * @param parent the rebalanced node's parent
 		 * @return time complexity of the operation
 		 */
 		private int handleInsertionCase1(IAVLNode parent) {
-			int amount = 0;
-			amount += parent.promote();
-			amount += rebalance(parent);
-			return amount;
+			if (metrics != null) {
+				metrics.insertionCase(1);
+			}
+			return promote(parent);
 		}
 
 		/**
@@ -932,6 +3022,9 @@ public class AVLTree {
 		 * @return time complexity of the operation
 		 */
 		private int handleInsertionCase2(IAVLNode parent, IAVLNode node, int leftDif, int rightDif) {
+			if (metrics != null) {
+				metrics.insertionCase(2);
+			}
 			int amount = 0;
 			if (parent.getLeft() == node) {
 				//case 2 of left child: rotate right
@@ -941,12 +3034,11 @@ public class AVLTree {
 				amount += rotations.rotateLeft(node);
 			}
 			if (leftDif != rightDif) {
-				amount += parent.demote();
+				amount += demote(parent);
 			} else {
 				//this is a case that may happen in join where leftDif=rightDif=1
-				//after the rotation, it becomes case 1 and more rebalancing is needed
-				amount += node.promote();
-				amount += rebalance(node);
+				//after the rotation, it becomes case 1 and rebalance continues with the node
+				amount += promote(node);
 			}
 			return amount;
 		}
@@ -962,6 +3054,9 @@ public class AVLTree {
 		 * @return time complexity of the operation
 		 */
 		private int handleInsertionCase3(IAVLNode parent, IAVLNode node, int leftDif, int rightDif) {
+			if (metrics != null) {
+				metrics.insertionCase(3);
+			}
 			int amount = 0;
 			IAVLNode rotatedChild;
 			if (parent.getLeft() == node && leftDif == 2 && rightDif == 1) {
@@ -975,14 +3070,14 @@ public class AVLTree {
 			} else {
 				throw new IllegalStateException("Unsupported rebalance state");
 			}
-			amount += rotatedChild.promote();
-			amount += rotatedChild.getLeft().demote();
-			amount += rotatedChild.getRight().demote();
+			amount += promote(rotatedChild);
+			amount += demote(rotatedChild.getLeft());
+			amount += demote(rotatedChild.getRight());
 			return amount;
 		}
 	}
 
-	class DeletionBalancer {
+	class DeletionBalancer implements Balancer {
 		/**
 		 * Rebalances a node after deletion from the tree.
 		 * complexity: O(log n)
@@ -991,64 +3086,67 @@ public class AVLTree {
 		 * @return the number of rebalances that occurred
 		 */
 		public int rebalance(IAVLNode node) {
-			if (node == null) {
-				return 0;
-			}
 			int amount = 0;
-			IAVLNode rightChild = node.getRight();
-			IAVLNode leftChild = node.getLeft();
-
-			int nodeHeight = node.getHeight();
-			int leftDif = nodeHeight - leftChild.getHeight();
-			int rightDif = nodeHeight - rightChild.getHeight();
-
-			if ((leftDif == 2 && rightDif == 1) || (leftDif == 1 && rightDif == 2) || (leftDif == 1 && rightDif == 1)) {
-				//no rebalancing is needed
-				amount = 0;
-			} else if (leftDif == 2 && rightDif == 2) {
-				//case 1: demote and rebalance parent
-				amount += handleDeletionCase1(node);
-			} else if ((rightDif == 3 && leftDif == 1) || (rightDif == 1 && leftDif == 3)) {
-				//decides the side of the symmetric cases
-				boolean leftDifLarger = leftDif == 3;
-				//height difference of grandchildren from their parent
-				IAVLNode grandchildA = leftDifLarger ? rightChild.getLeft() : leftChild.getRight();
-				IAVLNode grandchildB = leftDifLarger ? rightChild.getRight() : leftChild.getLeft();
-				IAVLNode grandchildrenParent = grandchildA.getParent();
-				int grandchildDifA = grandchildrenParent.getHeight() - grandchildA.getHeight();
-				int grandchildDifB = grandchildrenParent.getHeight() - grandchildB.getHeight();
-
-				if (grandchildDifA == 1 && grandchildDifB == 1) {
-					//case 2: single rotation
-					amount += handleDeletionCase2(leftDifLarger, node, grandchildrenParent);
-				} else if (grandchildDifA == 2 && grandchildDifB == 1) {
-					//case 3: single rotation and rebalance parent
-					amount += handleDeletionCase3(leftDifLarger, node, grandchildrenParent);
-				} else if (grandchildDifA == 1 && grandchildDifB == 2) {
-					//case 4: double rotation and rebalance parent
-					amount += handleDeletionCase4(leftDifLarger, node, grandchildrenParent, grandchildA);
+			//go up while demotions and rotations leave the parent unbalanced
+			while (node != null) {
+				IAVLNode rightChild = node.getRight();
+				IAVLNode leftChild = node.getLeft();
+
+				int nodeHeight = node.getHeight();
+				int leftDif = nodeHeight - leftChild.getHeight();
+				int rightDif = nodeHeight - rightChild.getHeight();
+
+				if ((leftDif == 2 && rightDif == 1) || (leftDif == 1 && rightDif == 2) || (leftDif == 1 && rightDif == 1)) {
+					//no rebalancing is needed
+					break;
+				} else if (leftDif == 2 && rightDif == 2) {
+					//case 1: demote and rebalance parent
+					amount += handleDeletionCase1(node);
+					node = node.getParent();
+				} else if ((rightDif == 3 && leftDif == 1) || (rightDif == 1 && leftDif == 3)) {
+					//decides the side of the symmetric cases
+					boolean leftDifLarger = leftDif == 3;
+					//height difference of grandchildren from their parent
+					IAVLNode grandchildA = leftDifLarger ? rightChild.getLeft() : leftChild.getRight();
+					IAVLNode grandchildB = leftDifLarger ? rightChild.getRight() : leftChild.getLeft();
+					IAVLNode grandchildrenParent = leftDifLarger ? rightChild : leftChild;
+					int grandchildDifA = grandchildrenParent.getHeight() - grandchildA.getHeight();
+					int grandchildDifB = grandchildrenParent.getHeight() - grandchildB.getHeight();
+
+					if (grandchildDifA == 1 && grandchildDifB == 1) {
+						//case 2: single rotation
+						amount += handleDeletionCase2(leftDifLarger, node, grandchildrenParent);
+						break;
+					} else if (grandchildDifA == 2 && grandchildDifB == 1) {
+						//case 3: single rotation and rebalance parent
+						amount += handleDeletionCase3(leftDifLarger, node, grandchildrenParent);
+						node = grandchildrenParent.getParent();
+					} else if (grandchildDifA == 1 && grandchildDifB == 2) {
+						//case 4: double rotation and rebalance parent
+						amount += handleDeletionCase4(leftDifLarger, node, grandchildrenParent, grandchildA);
+						node = grandchildA.getParent();
+					} else {
+						throw new IllegalStateException("Unsupported rebalance state");
+					}
 				} else {
 					throw new IllegalStateException("Unsupported rebalance state");
 				}
-			} else {
-				throw new IllegalStateException("Unsupported rebalance state");
 			}
-
 			return amount;
 		}
 
 		/**
-		 * Handle case 1 of deletion, which requires demotion and more rebalancing
-		 * complexity: O(log n)
+		 * Handle case 1 of deletion, which requires demotion, after which rebalance continues with the parent
+		 * complexity: O(1)
 		 *
 		 * @param node the rebalanced node
 		 * @return time complexity
 		 */
 		private int handleDeletionCase1(IAVLNode node) {
-			int amount = 0;
-			amount += node.demote();
-			amount += rebalance(node.getParent());
-			return amount;
+			if (metrics != null) {
+				metrics.deletionCase(1);
+			}
+			return demote(node);
 		}
 
 		/**
@@ -1061,20 +3159,23 @@ public class AVLTree {
 		 * @return time complexity
 		 */
 		private int handleDeletionCase2(boolean leftDifLarger, IAVLNode node, IAVLNode grandchildrenParent) {
+			if (metrics != null) {
+				metrics.deletionCase(2);
+			}
 			int amount = 0;
 			if (leftDifLarger) {
 				amount += rotations.rotateLeft(grandchildrenParent);
 			} else {
 				amount += rotations.rotateRight(grandchildrenParent);
 			}
-			amount += node.demote();
-			amount += grandchildrenParent.promote();
+			amount += demote(node);
+			amount += promote(grandchildrenParent);
 			return amount;
 		}
 
 		/**
-		 * Handle case 3 of deletion, which requires rotation and more rebalancing
-		 * complexity: O(log n)
+		 * Handle case 3 of deletion, which requires rotation, after which rebalance continues with the parent
+		 * complexity: O(1)
 		 *
 		 * @param leftDifLarger       is the left height difference larger (decides the symmetric case side)
 		 * @param node                the rebalanced node
@@ -1082,21 +3183,23 @@ public class AVLTree {
 		 * @return time complexity
 		 */
 		private int handleDeletionCase3(boolean leftDifLarger, IAVLNode node, IAVLNode grandchildrenParent) {
+			if (metrics != null) {
+				metrics.deletionCase(3);
+			}
 			int amount = 0;
 			if (leftDifLarger) {
 				amount += rotations.rotateLeft(grandchildrenParent);
 			} else {
 				amount += rotations.rotateRight(grandchildrenParent);
 			}
-			amount += node.demote();
-			amount += node.demote();
-			amount += rebalance(grandchildrenParent.getParent());
+			amount += demote(node);
+			amount += demote(node);
 			return amount;
 		}
 
 		/**
-		 * Handle case 4 of deletion, which requires double rotation and more rebalancing
-		 * complexity: O(log n)
+		 * Handle case 4 of deletion, which requires double rotation, after which rebalance continues with the parent
+		 * complexity: O(1)
 		 *
 		 * @param leftDifLarger       is the left height difference larger (decides the symmetric case side)
 		 * @param node                the rebalanced node
@@ -1105,20 +3208,360 @@ public class AVLTree {
 		 * @return time complexity
 		 */
 		private int handleDeletionCase4(boolean leftDifLarger, IAVLNode node, IAVLNode grandchildrenParent, IAVLNode grandchild) {
+			if (metrics != null) {
+				metrics.deletionCase(4);
+			}
 			int amount = 0;
 			if (leftDifLarger) {
 				amount += rotations.rotateRightNLeft(grandchild);
 			} else {
 				amount += rotations.rotateLeftNRight(grandchild);
 			}
-			amount += node.demote();
-			amount += node.demote();
-			amount += grandchildrenParent.demote();
-			amount += grandchild.promote();
-			amount += rebalance(grandchild.getParent());
+			amount += demote(node);
+			amount += demote(node);
+			amount += demote(grandchildrenParent);
+			amount += promote(grandchild);
 			return amount;
 		}
 	}
-}
 
+	/**
+	 * Rebalances after deletion with the WAVL rule, by the algorithm of Haeupler, Sen and Tarjan.
+	 * A node whose rank difference became 3, or a leaf with (2,2), is demoted while its sibling is a 2-child
+	 * (case 1) or a (2,2) 1-child, which is demoted too (case 2). Otherwise a single (case 3) or double (case 4)
+	 * rotation ends the rebalancing.
+	 */
+	class WeakDeletionBalancer implements Balancer {
+		/**
+		 * Rebalances a node after deletion from the tree.
+		 * complexity: O(log n), O(1) amortized
+		 *
+		 * @param node the parent of the deleted node
+		 * @return the number of rebalances that occurred
+		 */
+		public int rebalance(IAVLNode node) {
+			int amount = 0;
+			//go up while demotions leave a rank difference of 3
+			while (node != null) {
+				IAVLNode leftChild = node.getLeft();
+				IAVLNode rightChild = node.getRight();
+				int leftDif = node.getHeight() - leftChild.getHeight();
+				int rightDif = node.getHeight() - rightChild.getHeight();
+
+				if (leftDif == 2 && rightDif == 2 && !leftChild.isRealNode() && !rightChild.isRealNode()) {
+					//a (2,2) leaf: demote and rebalance the parent
+					amount += handleDeletionCase1(node);
+				} else if (leftDif <= 2 && rightDif <= 2) {
+					//no rebalancing is needed
+					break;
+				} else if ((leftDif == 3 && rightDif == 2) || (leftDif == 2 && rightDif == 3)) {
+					//case 1: demote and rebalance the parent
+					amount += handleDeletionCase1(node);
+				} else if ((leftDif == 3 && rightDif == 1) || (leftDif == 1 && rightDif == 3)) {
+					boolean leftDifLarger = leftDif == 3;
+					IAVLNode sibling = leftDifLarger ? rightChild : leftChild;
+					//the sibling's children, towards the deleted node and away from it
+					IAVLNode inner = leftDifLarger ? sibling.getLeft() : sibling.getRight();
+					IAVLNode outer = leftDifLarger ? sibling.getRight() : sibling.getLeft();
+					int innerDif = sibling.getHeight() - inner.getHeight();
+					int outerDif = sibling.getHeight() - outer.getHeight();
+
+					if (innerDif == 2 && outerDif == 2) {
+						//case 2: demote both and rebalance the parent
+						amount += handleDeletionCase2(node, sibling);
+					} else if (outerDif == 1) {
+						//case 3: single rotation
+						amount += handleDeletionCase3(leftDifLarger, node, sibling);
+						break;
+					} else if (innerDif == 1) {
+						//case 4: double rotation
+						amount += handleDeletionCase4(leftDifLarger, node, sibling, inner);
+						break;
+					} else {
+						throw new IllegalStateException("Unsupported rebalance state");
+					}
+				} else {
+					throw new IllegalStateException("Unsupported rebalance state");
+				}
+				node = node.getParent();
+			}
+			return amount;
+		}
+
+		/**
+		 * Handle case 1 of deletion, which requires demotion, after which rebalance continues with the parent
+		 * complexity: O(1)
+		 *
+		 * @param node the rebalanced node
+		 * @return time complexity
+		 */
+		private int handleDeletionCase1(IAVLNode node) {
+			if (metrics != null) {
+				metrics.deletionCase(1);
+			}
+			return demote(node);
+		}
+
+		/**
+		 * Handle case 2 of deletion, which requires demotion of the node and its sibling,
+		 * after which rebalance continues with the parent
+		 * complexity: O(1)
+		 *
+		 * @param node    the rebalanced node
+		 * @param sibling the node's (2,2) child
+		 * @return time complexity
+		 */
+		private int handleDeletionCase2(IAVLNode node, IAVLNode sibling) {
+			if (metrics != null) {
+				metrics.deletionCase(2);
+			}
+			return demote(node) + demote(sibling);
+		}
+
+		/**
+		 * Handle case 3 of deletion, which requires rotation
+		 * complexity: O(1)
+		 *
+		 * @param leftDifLarger is the left rank difference larger (decides the symmetric case side)
+		 * @param node          the rebalanced node
+		 * @param sibling       the node's child to rotate
+		 * @return time complexity
+		 */
+		private int handleDeletionCase3(boolean leftDifLarger, IAVLNode node, IAVLNode sibling) {
+			if (metrics != null) {
+				metrics.deletionCase(3);
+			}
+			int amount = 0;
+			if (leftDifLarger) {
+				amount += rotations.rotateLeft(sibling);
+			} else {
+				amount += rotations.rotateRight(sibling);
+			}
+			amount += promote(sibling);
+			amount += demote(node);
+			if (!node.getLeft().isRealNode() && !node.getRight().isRealNode()) {
+				//a leaf can't be (2,2)
+				amount += demote(node);
+			}
+			return amount;
+		}
+
+		/**
+		 * Handle case 4 of deletion, which requires double rotation
+		 * complexity: O(1)
+		 *
+		 * @param leftDifLarger is the left rank difference larger (decides the symmetric case side)
+		 * @param node          the rebalanced node
+		 * @param sibling       the node's child
+		 * @param inner         the sibling's child to rotate
+		 * @return time complexity
+		 */
+		private int handleDeletionCase4(boolean leftDifLarger, IAVLNode node, IAVLNode sibling, IAVLNode inner) {
+			if (metrics != null) {
+				metrics.deletionCase(4);
+			}
+			int amount = 0;
+			if (leftDifLarger) {
+				amount += rotations.rotateRightNLeft(inner);
+			} else {
+				amount += rotations.rotateLeftNRight(inner);
+			}
+			amount += promote(inner);
+			amount += promote(inner);
+			amount += demote(node);
+			amount += demote(node);
+			amount += demote(sibling);
+			return amount;
+		}
+	}
+
+	/**
+	 * Deferred rebalancing for {@link #enableRelaxedBalancing(int, double)}.
+	 * The heights stay exact, so a node violates the rank rule when its children's heights differ by 2 or more.
+	 * Violations are fixed lowest first, so the subtrees of a fixed node are valid AVL trees,
+	 * and the node is rebalanced by joining them with it.
+	 * To find the lowest violation, the recorded nodes are queued by height. A node is queued again right away
+	 * when its height decreases, but only when it's polled after its height increased, so an insert burst doesn't
+	 * queue its whole path again. Queued heights never exceed the actual heights, so a polled node whose height
+	 * is its queued height is the lowest violation.
+	 */
+	class RelaxedBalancer {
+		static final double MIN_HEIGHT_FACTOR = 1.45;
+		static final double MAX_HEIGHT_FACTOR = 4;
+
+		private final int fixesPerOperation;
+		private final double heightFactor;
+		/**
+		 * The recorded violations, with their heights when they were last queued, and the queued entries
+		 */
+		final Map<IAVLNode, Integer> violations = new IdentityHashMap<>();
+		final PriorityQueue<Violation> queue = new PriorityQueue<>();
+
+		RelaxedBalancer(int fixesPerOperation, double heightFactor) {
+			this.fixesPerOperation = fixesPerOperation;
+			this.heightFactor = heightFactor;
+		}
+
+		/**
+		 * Update the heights after an insertion or deletion, and fix the allowed amount of violations
+		 * complexity: O(log n) plus the fixes
+		 *
+		 * @param node the parent of the inserted or removed node
+		 * @return the number of rebalancing operations
+		 */
+		int rebalance(IAVLNode node) {
+			updateHeights(node);
+			return fix(fixesPerOperation);
+		}
+
+		/**
+		 * Update the heights after a deletion, and fix the allowed amount of violations
+		 * complexity: O(log n) plus the fixes
+		 *
+		 * @param deleted   the deleted node
+		 * @param successor the successor that took the place of the deleted node, or null
+		 * @param parent    the parent of the removed node
+		 * @return the number of rebalancing operations
+		 */
+		int rebalanceDeletion(IAVLNode deleted, IAVLNode successor, IAVLNode parent) {
+			violations.remove(deleted);
+			if (successor != null) {
+				//the successor moved, and the height walk may not reach its new place
+				violations.remove(successor);
+			}
+			updateHeights(parent);
+			if (successor != null && !isBalanced(successor)) {
+				record(successor);
+			}
+			return fix(fixesPerOperation);
+		}
+
+		private boolean isBalanced(IAVLNode node) {
+			return Math.abs(node.getLeft().getHeight() - node.getRight().getHeight()) <= 1;
+		}
+
+		/**
+		 * Update the heights from a node up to the first node whose height didn't change,
+		 * and record the nodes that violate the rank rule
+		 * complexity: O(log n)
+		 */
+		private void updateHeights(IAVLNode node) {
+			while (node != null) {
+				int leftHeight = node.getLeft().getHeight();
+				int rightHeight = node.getRight().getHeight();
+				int height = Math.max(leftHeight, rightHeight) + 1;
+				int oldHeight = node.getHeight();
+				node.setHeight(height);
+				if (!isBalanced(node) || height < oldHeight) {
+					record(node);
+				}
+				if (height == oldHeight) {
+					break;
+				}
+				node = node.getParent();
+			}
+		}
+
+		/**
+		 * Record a violation, or queue a recorded node again if its height is below its queued height
+		 * complexity: O(log v) for v queued entries
+		 */
+		private void record(IAVLNode node) {
+			Integer queued = violations.get(node);
+			if (queued == null ? !isBalanced(node) : queued > node.getHeight()) {
+				violations.put(node, node.getHeight());
+				queue.add(new Violation(node));
+			}
+		}
+
+		private int maxHeight() {
+			return (int) (heightFactor * Math.log(size() + 2) / Math.log(2));
+		}
+
+		/**
+		 * Fix violations, the lowest first, until the amount of fixes is reached and the height is within its bound.
+		 * The amount of fixes isn't bounded while the height is over its bound, so a single call may fix many
+		 * violations, up to all of them.
+		 * complexity: O(log n) amortized per fix, plus the height difference of the fixed node's subtrees
+		 *
+		 * @param maxFixes the amount of violations to fix, unless the height is over its bound
+		 * @return the number of rebalancing operations
+		 */
+		int fix(int maxFixes) {
+			int amount = 0;
+			int fixes = 0;
+			while (!queue.isEmpty() && (fixes < maxFixes || getHeight() > maxHeight())) {
+				Violation violation = queue.poll();
+				IAVLNode node = violation.node;
+				Integer queued = violations.get(node);
+				if (queued == null || queued != violation.height) {
+					//outdated, the node was queued again or removed
+					continue;
+				}
+				if (node.getHeight() > violation.height) {
+					//the node grew since it was queued
+					violations.put(node, node.getHeight());
+					queue.add(new Violation(node));
+					continue;
+				}
+				violations.remove(node);
+				if (isBalanced(node)) {
+					//a later operation balanced the node
+					continue;
+				}
+				amount += fixNode(node);
+				fixes++;
+			}
+			return amount;
+		}
+
+		/**
+		 * Rebalance a node by joining its subtrees with it, and update the heights above it
+		 * complexity: O(1 + the height difference of the subtrees) plus O(log n) to update the heights
+		 * precondition: the node's subtrees are valid AVL trees
+		 *
+		 * @return the number of rebalancing operations
+		 */
+		private int fixNode(IAVLNode node) {
+			IAVLNode parent = node.getParent();
+			boolean isLeftChild = parent != null && parent.getLeft() == node;
+			AVLTree smaller = new AVLTree();
+			AVLTree greater = new AVLTree();
+			smaller.root = node.getLeft().isRealNode() ? node.getLeft() : null;
+			greater.root = node.getRight().isRealNode() ? node.getRight() : null;
+			node.getLeft().setParent(null);
+			node.getRight().setParent(null);
+			int amount = smaller.joinNodes(SplitJoin.resetNode(node), greater);
+
+			IAVLNode fixed = smaller.root;
+			fixed.setParent(parent);
+			if (parent == null) {
+				root = fixed;
+			} else if (isLeftChild) {
+				parent.setLeft(fixed);
+			} else {
+				parent.setRight(fixed);
+			}
+			updateHeights(parent);
+			return amount;
+		}
+	}
+
+	/**
+	 * A node recorded by {@link RelaxedBalancer}, with its height when it was queued
+	 */
+	static final class Violation implements Comparable<Violation> {
+		final IAVLNode node;
+		final int height;
+
+		Violation(IAVLNode node) {
+			this.node = node;
+			this.height = node.getHeight();
+		}
 
+		@Override
+		public int compareTo(Violation other) {
+			return Integer.compare(height, other.height);
+		}
+	}
+}
@@ -0,0 +1,201 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * AVLTreeEvents
+ * <p>
+ * Java Flight Recorder events of {@link AVLTree}, so latency spikes in a recording can be matched with
+ * splits, joins, bulk operations and long rebalancing cascades.
+ * The events are enabled in recordings like any other event, e.g. with
+ * {@code jfr configure mavnat.AVLTreeSplit#enabled=true} or a custom .jfc file.
+ * <p>
+ * AVLTree calls this class only if the JVM has the jdk.jfr module ({@link AVLTree#EVENTS}),
+ * and passes events as Objects, so it still loads on JVMs without it.
+ * The begin methods return null if the event isn't enabled, so nothing is measured or allocated unless it's recorded.
+ */
+final class AVLTreeEvents {
+	/**
+	 * The minimal amount of rebalancing operations of an insert or delete that emits a {@link RebalanceEvent}.
+	 * Inserts and deletes rebalance O(1) times on average, but a cascade up a tree with n items takes O(log n).
+	 */
+	static final int REBALANCE_THRESHOLD = Integer.getInteger("avltree.rebalanceEventThreshold", 16);
+
+	private static final EventType SPLIT = EventType.getEventType(SplitEvent.class);
+	private static final EventType JOIN = EventType.getEventType(JoinEvent.class);
+	private static final EventType BULK = EventType.getEventType(BulkEvent.class);
+	private static final EventType REBALANCE = EventType.getEventType(RebalanceEvent.class);
+
+	private AVLTreeEvents() {
+	}
+
+	@Name("mavnat.AVLTreeSplit")
+	@Label("AVL Tree Split")
+	@Category("AVL Tree")
+	@Description("A split of an AVL tree by a key, which joins the subtrees on the key's search path")
+	static final class SplitEvent extends Event {
+		@Label("Key")
+		int key;
+		@Label("Tree Size")
+		int size;
+		@Label("Tree Height")
+		int height;
+		@Label("Joins")
+		@Description("The amount of joins, one per node on the key's search path")
+		int joins;
+		@Label("Rebalances")
+		@Description("The rebalancing operations of all joins")
+		int rebalances;
+	}
+
+	@Name("mavnat.AVLTreeJoin")
+	@Label("AVL Tree Join")
+	@Category("AVL Tree")
+	static final class JoinEvent extends Event {
+		@Label("Tree Size")
+		@Description("The size of the joined tree")
+		int size;
+		@Label("Tree Height")
+		@Description("The height of the joined tree")
+		int height;
+		@Label("Complexity")
+		@Description("The rank difference between the trees, plus 1")
+		int complexity;
+		@Label("Rebalances")
+		int rebalances;
+	}
+
+	@Name("mavnat.AVLTreeBulk")
+	@Label("AVL Tree Bulk Operation")
+	@Category("AVL Tree")
+	@Description("A bulk load or a batch of updates")
+	static final class BulkEvent extends Event {
+		@Label("Operation")
+		String operation;
+		@Label("Items")
+		@Description("The amount of loaded items or batch operations")
+		int items;
+		@Label("Tree Size")
+		int size;
+		@Label("Tree Height")
+		int height;
+		@Label("Rebalances")
+		int rebalances;
+	}
+
+	@Name("mavnat.AVLTreeRebalance")
+	@Label("AVL Tree Rebalancing Cascade")
+	@Category("AVL Tree")
+	@Description("An insert or delete whose rebalancing took at least avltree.rebalanceEventThreshold operations")
+	static final class RebalanceEvent extends Event {
+		@Label("Operation")
+		String operation;
+		@Label("Key")
+		int key;
+		@Label("Rebalances")
+		int rebalances;
+		@Label("Tree Size")
+		int size;
+		@Label("Tree Height")
+		int height;
+	}
+
+	/**
+	 * Begin a split event
+	 *
+	 * @return the event, or null if it isn't enabled
+	 */
+	static Object beginSplit() {
+		if (!SPLIT.isEnabled()) {
+			return null;
+		}
+		SplitEvent event = new SplitEvent();
+		event.begin();
+		return event;
+	}
+
+	static void commitSplit(Object split, int key, int size, int height, int joins, int rebalances) {
+		SplitEvent event = (SplitEvent) split;
+		event.end();
+		if (event.shouldCommit()) {
+			event.key = key;
+			event.size = size;
+			event.height = height;
+			event.joins = joins;
+			event.rebalances = rebalances;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Begin a join event
+	 *
+	 * @return the event, or null if it isn't enabled
+	 */
+	static Object beginJoin() {
+		if (!JOIN.isEnabled()) {
+			return null;
+		}
+		JoinEvent event = new JoinEvent();
+		event.begin();
+		return event;
+	}
+
+	static void commitJoin(Object join, int size, int height, int complexity, int rebalances) {
+		JoinEvent event = (JoinEvent) join;
+		event.end();
+		if (event.shouldCommit()) {
+			event.size = size;
+			event.height = height;
+			event.complexity = complexity;
+			event.rebalances = rebalances;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Begin a bulk operation event
+	 *
+	 * @return the event, or null if it isn't enabled
+	 */
+	static Object beginBulk() {
+		if (!BULK.isEnabled()) {
+			return null;
+		}
+		BulkEvent event = new BulkEvent();
+		event.begin();
+		return event;
+	}
+
+	static void commitBulk(Object bulk, String operation, int items, int size, int height, int rebalances) {
+		BulkEvent event = (BulkEvent) bulk;
+		event.end();
+		if (event.shouldCommit()) {
+			event.operation = operation;
+			event.items = items;
+			event.size = size;
+			event.height = height;
+			event.rebalances = rebalances;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Emit a rebalance event of an insert or delete that already took place,
+	 * since the length of a cascade is only known after it
+	 */
+	static void rebalance(String operation, int key, int rebalances, int size, int height) {
+		if (REBALANCE.isEnabled()) {
+			RebalanceEvent event = new RebalanceEvent();
+			event.operation = operation;
+			event.key = key;
+			event.rebalances = rebalances;
+			event.size = size;
+			event.height = height;
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,312 @@
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * AVLTreeMetrics
+ * <p>
+ * Opt-in structural metrics of {@link AVLTree}: rotations, promotions and demotions,
+ * the rebalancing cases of insertion and deletion, search path depths and per-operation latencies.
+ * A tree records into its metrics only after {@link AVLTree#setMetrics(AVLTreeMetrics)}, so trees without metrics pay
+ * a null check per operation. The counters are {@link LongAdder}s, so one instance can be shared by trees that are
+ * updated from different threads, and can be read over JMX after {@link #register(String)}.
+ * <p>
+ * Latencies are kept in histograms with power of 2 nanosecond buckets: bucket 0 counts operations that took 0ns,
+ * and bucket b counts operations that took [2^(b-1), 2^b) ns.
+ */
+public class AVLTreeMetrics implements AVLTreeMetricsMBean {
+	/**
+	 * The amount of latency histogram buckets, enough for any long duration
+	 */
+	static final int BUCKETS = 64;
+
+	/**
+	 * The operations whose latency is measured
+	 */
+	public enum Operation {
+		SEARCH, INSERT, DELETE, SPLIT, JOIN
+	}
+
+	private final LongAdder leftRotations = new LongAdder();
+	private final LongAdder rightRotations = new LongAdder();
+	private final LongAdder promotions = new LongAdder();
+	private final LongAdder demotions = new LongAdder();
+	private final LongAdder[] insertionCases = adders(3);
+	private final LongAdder[] deletionCases = adders(4);
+	private final LongAdder searchDepth = new LongAdder();
+	private final LongAccumulator maxSearchDepth = new LongAccumulator(Math::max, 0);
+	private final LongAdder joinComplexity = new LongAdder();
+	private final LongAdder[][] latencies = new LongAdder[Operation.values().length][];
+	private ObjectName name;
+
+	public AVLTreeMetrics() {
+		for (int op = 0; op < latencies.length; op++) {
+			latencies[op] = adders(BUCKETS);
+		}
+	}
+
+	private static LongAdder[] adders(int length) {
+		LongAdder[] adders = new LongAdder[length];
+		for (int i = 0; i < length; i++) {
+			adders[i] = new LongAdder();
+		}
+		return adders;
+	}
+
+	private static long[] sums(LongAdder[] adders) {
+		long[] sums = new long[adders.length];
+		for (int i = 0; i < adders.length; i++) {
+			sums[i] = adders[i].sum();
+		}
+		return sums;
+	}
+
+	private static Operation operation(String name) {
+		return Operation.valueOf(name.toUpperCase(Locale.ROOT));
+	}
+
+	//region recording, called by the tree
+
+	void leftRotation() {
+		leftRotations.increment();
+	}
+
+	void rightRotation() {
+		rightRotations.increment();
+	}
+
+	void promotion() {
+		promotions.increment();
+	}
+
+	void demotion() {
+		demotions.increment();
+	}
+
+	/**
+	 * @param rebalanceCase the insertion case, 1 to 3
+	 */
+	void insertionCase(int rebalanceCase) {
+		insertionCases[rebalanceCase - 1].increment();
+	}
+
+	/**
+	 * @param rebalanceCase the deletion case, 1 to 4
+	 */
+	void deletionCase(int rebalanceCase) {
+		deletionCases[rebalanceCase - 1].increment();
+	}
+
+	/**
+	 * Record a search
+	 *
+	 * @param depth the amount of real nodes on the search path
+	 * @param start the value of System.nanoTime() when the search started
+	 */
+	void search(int depth, long start) {
+		searchDepth.add(depth);
+		maxSearchDepth.accumulate(depth);
+		latency(Operation.SEARCH, start);
+	}
+
+	/**
+	 * Record a join
+	 *
+	 * @param complexity the complexity returned by join
+	 * @param start      the value of System.nanoTime() when the join started
+	 */
+	void join(int complexity, long start) {
+		joinComplexity.add(complexity);
+		latency(Operation.JOIN, start);
+	}
+
+	/**
+	 * Record the latency of an operation
+	 *
+	 * @param start the value of System.nanoTime() when the operation started
+	 */
+	void latency(Operation operation, long start) {
+		long nanos = Math.max(0, System.nanoTime() - start);
+		latencies[operation.ordinal()][BUCKETS - Long.numberOfLeadingZeros(nanos)].increment();
+	}
+
+	//endregion
+
+	public long getLeftRotations() {
+		return leftRotations.sum();
+	}
+
+	public long getRightRotations() {
+		return rightRotations.sum();
+	}
+
+	public long getPromotions() {
+		return promotions.sum();
+	}
+
+	public long getDemotions() {
+		return demotions.sum();
+	}
+
+	public long[] getInsertionCases() {
+		return sums(insertionCases);
+	}
+
+	public long[] getDeletionCases() {
+		return sums(deletionCases);
+	}
+
+	public long getSearches() {
+		return operations(Operation.SEARCH);
+	}
+
+	public double getAverageSearchDepth() {
+		long searches = getSearches();
+		return searches == 0 ? 0 : (double) searchDepth.sum() / searches;
+	}
+
+	public long getMaxSearchDepth() {
+		return maxSearchDepth.get();
+	}
+
+	public long getJoinComplexity() {
+		return joinComplexity.sum();
+	}
+
+	/**
+	 * public long operations(Operation operation)
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the amount of measured operations of a kind
+	 */
+	public long operations(Operation operation) {
+		long count = 0;
+		for (LongAdder bucket : latencies[operation.ordinal()]) {
+			count += bucket.sum();
+		}
+		return count;
+	}
+
+	public long operations(String operation) {
+		return operations(operation(operation));
+	}
+
+	/**
+	 * public long[] latencyHistogram(Operation operation)
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the latency histogram of an operation, where bucket b counts the operations that took [2^(b-1), 2^b) ns
+	 */
+	public long[] latencyHistogram(Operation operation) {
+		return sums(latencies[operation.ordinal()]);
+	}
+
+	public long[] latencyHistogram(String operation) {
+		return latencyHistogram(operation(operation));
+	}
+
+	/**
+	 * public long latencyPercentile(Operation operation, double percentile)
+	 * <p>
+	 * complexity: O(1)
+	 * Returns an upper bound of the latency in ns of the given percentile (0 to 100) of an operation,
+	 * which is the upper bound of the histogram bucket it falls in, or 0 if the operation wasn't measured
+	 */
+	public long latencyPercentile(Operation operation, double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("percentile must be between 0 and 100: " + percentile);
+		}
+		long[] histogram = latencyHistogram(operation);
+		long count = 0;
+		for (long bucket : histogram) {
+			count += bucket;
+		}
+		long rank = (long) Math.ceil(count * percentile / 100);
+		long seen = 0;
+		for (int b = 0; b < BUCKETS; b++) {
+			seen += histogram[b];
+			if (seen >= rank && seen > 0) {
+				return b == 0 ? 0 : b == BUCKETS - 1 ? Long.MAX_VALUE : (1L << b) - 1;
+			}
+		}
+		return 0;
+	}
+
+	public long latencyPercentile(String operation, double percentile) {
+		return latencyPercentile(operation(operation), percentile);
+	}
+
+	/**
+	 * public void reset()
+	 * <p>
+	 * complexity: O(1)
+	 * Resets all counters. Operations that run concurrently may be partially counted.
+	 */
+	public void reset() {
+		leftRotations.reset();
+		rightRotations.reset();
+		promotions.reset();
+		demotions.reset();
+		for (LongAdder adder : insertionCases) {
+			adder.reset();
+		}
+		for (LongAdder adder : deletionCases) {
+			adder.reset();
+		}
+		searchDepth.reset();
+		maxSearchDepth.reset();
+		joinComplexity.reset();
+		for (LongAdder[] histogram : latencies) {
+			for (LongAdder bucket : histogram) {
+				bucket.reset();
+			}
+		}
+	}
+
+	/**
+	 * public synchronized ObjectName register(String name)
+	 * <p>
+	 * Registers the metrics in the platform MBean server as mavnat:type=AVLTreeMetrics,name=[name]
+	 *
+	 * @return the object name of the MBean
+	 * @throws IllegalStateException if the metrics are already registered, or their name is taken
+	 */
+	public synchronized ObjectName register(String name) {
+		if (this.name != null) {
+			throw new IllegalStateException("The metrics are already registered as " + this.name);
+		}
+		try {
+			ObjectName objectName = new ObjectName("mavnat:type=AVLTreeMetrics,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+			this.name = objectName;
+			return objectName;
+		} catch (JMException e) {
+			throw new IllegalStateException("Can't register the metrics as " + name, e);
+		}
+	}
+
+	/**
+	 * public synchronized void unregister()
+	 * <p>
+	 * Unregisters the metrics from the platform MBean server, if they are registered
+	 */
+	public synchronized void unregister() {
+		if (name == null) {
+			return;
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+		} catch (JMException e) {
+			throw new IllegalStateException("Can't unregister the metrics " + name, e);
+		} finally {
+			name = null;
+		}
+	}
+}
@@ -0,0 +1,44 @@
+/**
+ * AVLTreeMetricsMBean
+ * <p>
+ * The JMX management interface of {@link AVLTreeMetrics}.
+ * Latency operations take an operation name (search, insert, delete, split or join).
+ */
+public interface AVLTreeMetricsMBean {
+	long getLeftRotations();
+
+	long getRightRotations();
+
+	long getPromotions();
+
+	long getDemotions();
+
+	/**
+	 * @return the amount of insertion rebalances of cases 1 to 3, indexed from 0
+	 */
+	long[] getInsertionCases();
+
+	/**
+	 * @return the amount of deletion rebalances of cases 1 to 4, indexed from 0
+	 */
+	long[] getDeletionCases();
+
+	long getSearches();
+
+	double getAverageSearchDepth();
+
+	long getMaxSearchDepth();
+
+	/**
+	 * @return the sum of the complexities returned by join
+	 */
+	long getJoinComplexity();
+
+	long operations(String operation);
+
+	long[] latencyHistogram(String operation);
+
+	long latencyPercentile(String operation, double percentile);
+
+	void reset();
+}
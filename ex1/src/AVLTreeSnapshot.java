@@ -0,0 +1,339 @@
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.zip.CRC32;
+
+/**
+ * AVLTreeSnapshot
+ * <p>
+ * The on-disk snapshot format of {@link AVLTree#writeSnapshot(Path)} and {@link AVLTree#openSnapshot(Path)}.
+ * A snapshot is a fixed header followed by two columns of the items in ascending key order:
+ * <pre>
+ * header:  magic (4) | version (4) | size (4) | CRC32 of both columns (4) | keys bytes (8) | values bytes (8)
+ * keys:    the first key as a zig-zag varint, then the difference from the previous key as a varint
+ * values:  per item, the UTF-8 length plus 1 as a varint (0 for null info), then the UTF-8 bytes
+ * </pre>
+ * Consecutive keys are usually close, so most keys take 1 or 2 bytes.
+ * A snapshot is written to a temporary file that replaces the target only once it's complete and synced,
+ * so a crash leaves either the old snapshot or the new one.
+ * <p>
+ * Loading maps the file and decodes both columns straight into
+ * {@link AVLTree#fromSorted(int, PrimitiveIterator.OfInt, Iterator)}, which builds the tree in one pass,
+ * without searching for the place of each key.
+ */
+final class AVLTreeSnapshot {
+	static final int MAGIC = 0x41564C53; //"AVLS"
+	static final int VERSION = 1;
+	static final int HEADER_BYTES = 32;
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	private AVLTreeSnapshot() {
+	}
+
+	/*
+	 * The Buffer casts keep the calls binary compatible with Java 8,
+	 * where ByteBuffer doesn't override flip, clear, position and limit
+	 */
+
+	//region private methods
+
+	/**
+	 * Buffered sequential output to a channel, which updates a checksum with everything it writes
+	 */
+	static final class Output {
+		private final WritableByteChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+		private final CRC32 crc = new CRC32();
+		private long written;
+
+		Output(WritableByteChannel channel) {
+			this.channel = channel;
+		}
+
+		int checksum() {
+			return (int) crc.getValue();
+		}
+
+		void writeVarint(long value) throws IOException {
+			if (buffer.remaining() < 10) {
+				flush();
+			}
+			while ((value & ~0x7FL) != 0) {
+				buffer.put((byte) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			buffer.put((byte) value);
+		}
+
+		void write(byte[] bytes) throws IOException {
+			if (buffer.remaining() < bytes.length) {
+				flush();
+			}
+			if (bytes.length <= buffer.capacity()) {
+				buffer.put(bytes);
+				return;
+			}
+			//larger than the buffer, so it's written directly
+			crc.update(bytes, 0, bytes.length);
+			written += bytes.length;
+			writeFully(channel, ByteBuffer.wrap(bytes));
+		}
+
+		/**
+		 * Write the buffered bytes, and return the amount of bytes written so far
+		 */
+		long flush() throws IOException {
+			((Buffer) buffer).flip();
+			crc.update(buffer.array(), 0, buffer.limit());
+			written += buffer.limit();
+			writeFully(channel, buffer);
+			((Buffer) buffer).clear();
+			return written;
+		}
+	}
+
+	/**
+	 * Decodes the key column of a mapped snapshot
+	 */
+	private static final class KeyDecoder implements PrimitiveIterator.OfInt {
+		private final ByteBuffer keys;
+		private boolean first = true;
+		private long previous;
+
+		KeyDecoder(ByteBuffer keys) {
+			this.keys = keys;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return keys.hasRemaining();
+		}
+
+		@Override
+		public int nextInt() {
+			if (!keys.hasRemaining()) {
+				throw new NoSuchElementException();
+			}
+			long varint = readVarint(keys);
+			long key;
+			if (first) {
+				key = (varint >>> 1) ^ -(varint & 1);
+				first = false;
+			} else {
+				key = previous + varint;
+				if (varint == 0 || key > Integer.MAX_VALUE) {
+					throw new IllegalStateException(String.format("Invalid key difference %d after %d", varint, previous));
+				}
+			}
+			previous = key;
+			return (int) key;
+		}
+	}
+
+	/**
+	 * Decodes the value column of a mapped snapshot
+	 */
+	private static final class ValueDecoder implements Iterator<String> {
+		private final ByteBuffer values;
+
+		ValueDecoder(ByteBuffer values) {
+			this.values = values;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return values.hasRemaining();
+		}
+
+		@Override
+		public String next() {
+			if (!values.hasRemaining()) {
+				throw new NoSuchElementException();
+			}
+			long length = readVarint(values) - 1;
+			if (length < 0) {
+				return null;
+			}
+			if (length > values.remaining()) {
+				throw new IllegalStateException(String.format("Invalid value length %d", length));
+			}
+			byte[] bytes = new byte[(int) length];
+			values.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+
+	private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Read an unsigned varint of at most 10 bytes
+	 * complexity: O(1)
+	 */
+	private static long readVarint(ByteBuffer buffer) {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalStateException("Invalid varint");
+	}
+
+	/**
+	 * Get a slice of a buffer, with the given offset and length
+	 */
+	private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+		ByteBuffer duplicate = buffer.duplicate();
+		((Buffer) duplicate).position(offset);
+		((Buffer) duplicate).limit(offset + length);
+		return duplicate.slice();
+	}
+
+	//endregion
+
+	/**
+	 * Write the key and value columns of a tree, and flush them
+	 * complexity: O(n)
+	 *
+	 * @param tree   the tree, which isn't modified
+	 * @param output the output
+	 * @return the size of the key column in bytes, the value column takes the rest of the written bytes
+	 */
+	static long writeColumns(AVLTree tree, Output output) throws IOException {
+		AVLTree.Cursor cursor = tree.cursorFrom(Integer.MIN_VALUE);
+		long previous = 0;
+		boolean first = true;
+		while (cursor.next()) {
+			int key = cursor.getKey();
+			output.writeVarint(first ? ((key << 1) ^ (key >> 31)) & 0xFFFFFFFFL : key - previous);
+			previous = key;
+			first = false;
+		}
+		long keysBytes = output.flush();
+		cursor = tree.cursorFrom(Integer.MIN_VALUE);
+		while (cursor.next()) {
+			String value = cursor.getValue();
+			if (value == null) {
+				output.writeVarint(0);
+			} else {
+				byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				output.writeVarint(bytes.length + 1L);
+				output.write(bytes);
+			}
+		}
+		output.flush();
+		return keysBytes;
+	}
+
+	/**
+	 * Build a tree from its key and value columns
+	 * complexity: O(n)
+	 *
+	 * @param size   the amount of items
+	 * @param keys   the key column, which is consumed
+	 * @param values the value column, which is consumed
+	 * @return a balanced tree with the items
+	 * @throws RuntimeException an IllegalArgumentException, IllegalStateException or BufferUnderflowException
+	 *                          if the columns are corrupt
+	 */
+	static AVLTree readColumns(int size, ByteBuffer keys, ByteBuffer values) {
+		return AVLTree.fromSorted(size, new KeyDecoder(keys), new ValueDecoder(values));
+	}
+
+	/**
+	 * Write a snapshot of a tree
+	 * complexity: O(n)
+	 *
+	 * @param tree the tree, which isn't modified
+	 * @param path the snapshot's file, which is replaced if it exists
+	 */
+	static void write(AVLTree tree, Path path) throws IOException {
+		Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING)) {
+			channel.position(HEADER_BYTES);
+			Output output = new Output(channel);
+			long keysBytes = writeColumns(tree, output);
+			long valuesBytes = output.flush() - keysBytes;
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(MAGIC).putInt(VERSION).putInt(tree.size()).putInt(output.checksum());
+			header.putLong(keysBytes).putLong(valuesBytes);
+			((Buffer) header).flip();
+			channel.position(0);
+			writeFully(channel, header);
+			channel.force(true);
+		}
+		Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Load a tree from a snapshot
+	 * complexity: O(n)
+	 *
+	 * @param path the snapshot's file
+	 * @return a balanced tree with the snapshot's items
+	 * @throws IOException if the file can't be read, or isn't a valid snapshot
+	 */
+	static AVLTree read(Path path) throws IOException {
+		MappedByteBuffer file;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long fileBytes = channel.size();
+			if (fileBytes > Integer.MAX_VALUE) {
+				throw new IOException(String.format("Snapshot %s is larger than 2 GB", path));
+			}
+			if (fileBytes < HEADER_BYTES) {
+				throw new IOException(String.format("Snapshot %s is truncated", path));
+			}
+			//the mapping stays valid after the channel is closed
+			file = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileBytes);
+		}
+		file.order(ByteOrder.LITTLE_ENDIAN);
+		if (file.getInt() != MAGIC) {
+			throw new IOException(String.format("%s isn't a snapshot", path));
+		}
+		int version = file.getInt();
+		if (version != VERSION) {
+			throw new IOException(String.format("Unsupported snapshot version %d", version));
+		}
+		int size = file.getInt();
+		int checksum = file.getInt();
+		long keysBytes = file.getLong();
+		long valuesBytes = file.getLong();
+		if (size < 0 || keysBytes < 0 || valuesBytes < 0 || HEADER_BYTES + keysBytes + valuesBytes != file.capacity()) {
+			throw new IOException(String.format("Snapshot %s is truncated or corrupt", path));
+		}
+		CRC32 crc = new CRC32();
+		crc.update(slice(file, HEADER_BYTES, (int) (keysBytes + valuesBytes)));
+		if ((int) crc.getValue() != checksum) {
+			throw new IOException(String.format("Checksum mismatch in snapshot %s", path));
+		}
+
+		ByteBuffer keys = slice(file, HEADER_BYTES, (int) keysBytes);
+		ByteBuffer values = slice(file, HEADER_BYTES + (int) keysBytes, (int) valuesBytes);
+		try {
+			return readColumns(size, keys, values);
+		} catch (IllegalArgumentException | IllegalStateException | BufferUnderflowException e) {
+			throw new IOException(String.format("Snapshot %s is corrupt", path), e);
+		}
+	}
+}
@@ -0,0 +1,906 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ConcurrentAVLTree
+ * <p>
+ * A thread-safe AVL tree with distinct integer keys and info, following the optimistic concurrency design of
+ * Bronson, Casper, Chafi and Olukotun, "A Practical Concurrent Binary Search Tree" (PPoPP 2010).
+ * <ul>
+ * <li>search takes no locks. Every node has a version that changes when a rotation shrinks its key range,
+ * and readers validate the version of a node after reading its child, hand over hand.</li>
+ * <li>insert and delete lock only the node they change, and rebalancing locks only the nodes it rotates:
+ * the parent, the node and one or two of its children.</li>
+ * <li>A deleted node with two children stays in the tree as a routing node without info,
+ * and is unlinked once it has less than two children.</li>
+ * </ul>
+ * Rebalancing is Bronson's relaxed height repair rather than the rank-difference cases of
+ * {@link AVLTree.InsertionBalancer} and {@link AVLTree.DeletionBalancer}: after each change, a node's height is
+ * recomputed as 1 + the maximum of its children's heights, which promotes or demotes it,
+ * and a node whose children's heights differ by more than 1 is rotated once or twice, according to its child's
+ * children. Heights read from concurrently changing children may be stale, so the repairs continue up the tree
+ * until a node needs nothing, and the tree is a valid AVL tree once the updates stop.
+ */
+public class ConcurrentAVLTree {
+	/**
+	 * Version flag: a rotation that shrinks the node's key range is in progress
+	 */
+	private static final long SHRINKING = 1L;
+	/**
+	 * Version flag: the node was removed from the tree
+	 */
+	private static final long UNLINKED = 2L;
+	/**
+	 * The amount of times to spin while waiting for a rotation to end
+	 */
+	private static final int SPIN_COUNT = 100;
+	/**
+	 * The amount of times to yield after spinning, before blocking, so the rotating thread can run on a busy core
+	 */
+	private static final int YIELD_COUNT = 10;
+
+	/**
+	 * Node condition: the node is a routing node with less than two children
+	 */
+	private static final int UNLINK_REQUIRED = -1;
+	/**
+	 * Node condition: the node has a rank difference of 0 and 2, or 1 and 3
+	 */
+	private static final int REBALANCE_REQUIRED = -2;
+	/**
+	 * Node condition: the node is valid
+	 */
+	private static final int NOTHING_REQUIRED = -3;
+
+	/**
+	 * Returned by attempts that were invalidated by a concurrent rotation, and should be retried from the parent
+	 */
+	private static final Object RETRY = new Object();
+
+	/**
+	 * A node without a key, whose right child is the root
+	 */
+	private final Node rootHolder = new Node(0, null, null);
+	private final LongAdder size = new LongAdder();
+
+	//region versions
+
+	private static boolean isShrinking(long version) {
+		return (version & SHRINKING) != 0;
+	}
+
+	private static boolean isUnlinked(long version) {
+		return (version & UNLINKED) != 0;
+	}
+
+	private static boolean isShrinkingOrUnlinked(long version) {
+		return (version & (SHRINKING | UNLINKED)) != 0;
+	}
+
+	private static long beginChange(long version) {
+		return version | SHRINKING;
+	}
+
+	private static long endChange(long version) {
+		return (version | SHRINKING | UNLINKED) + 1;
+	}
+
+	//endregion
+
+	//region search
+
+	/**
+	 * public String search(int k)
+	 * <p>
+	 * complexity: O(log n), without locks
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		while (true) {
+			Node root = rootHolder.right;
+			if (root == null) {
+				return null;
+			}
+			if (k == root.key) {
+				return root.value;
+			}
+			long version = root.version;
+			if (isShrinkingOrUnlinked(version)) {
+				root.waitUntilChangeCompleted(version);
+			} else if (root == rootHolder.right) {
+				//the reads of the root and its version were consistent
+				Object result = attemptSearch(k, root, k < root.key, version);
+				if (result != RETRY) {
+					return (String) result;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Search a key below a node whose version was validated
+	 *
+	 * @param k       the searched key
+	 * @param node    the current node
+	 * @param left    the direction of the key from the node
+	 * @param version the node's version when it was reached
+	 * @return the info, null if the key is not in the tree, or RETRY if the node's key range shrank
+	 */
+	private Object attemptSearch(int k, Node node, boolean left, long version) {
+		while (true) {
+			Node child = node.child(left);
+			if (child == null) {
+				if (node.version != version) {
+					return RETRY;
+				}
+				//the child was read while the node's key range still covered k
+				return null;
+			}
+			if (k == child.key) {
+				return child.value;
+			}
+			long childVersion = child.version;
+			if (isShrinkingOrUnlinked(childVersion)) {
+				child.waitUntilChangeCompleted(childVersion);
+				if (node.version != version) {
+					return RETRY;
+				}
+			} else if (child != node.child(left)) {
+				//the child that is protected by childVersion is no longer the child
+				if (node.version != version) {
+					return RETRY;
+				}
+			} else {
+				if (node.version != version) {
+					return RETRY;
+				}
+				//the way to the node was valid when the child was reached, so only the child has to be validated from now on
+				Object result = attemptSearch(k, child, k < child.key, childVersion);
+				if (result != RETRY) {
+					return result;
+				}
+			}
+		}
+	}
+
+	//endregion
+
+	//region insert and delete
+
+	/**
+	 * public int insert(int k, String i)
+	 * <p>
+	 * complexity: O(log n)
+	 * <p>
+	 * inserts an item with key k and info i to the tree.
+	 * returns 0, or -1 if an item with key k already exists in the tree.
+	 * Rebalancing may be completed by other threads, so unlike {@link AVLTree#insert(int, String)}
+	 * the number of rebalancing operations isn't returned.
+	 */
+	public int insert(int k, String i) {
+		if (i == null) {
+			throw new IllegalArgumentException("A routing node is marked by null info, so the info can't be null");
+		}
+		return update(k, i) == null ? 0 : -1;
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * complexity: O(log n)
+	 * <p>
+	 * deletes an item with key k from the tree, if it is there.
+	 * returns 0, or -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		return update(k, null) != null ? 0 : -1;
+	}
+
+	/**
+	 * Insert an item if its key is absent, or delete an item if it is present
+	 *
+	 * @param k     the item's key
+	 * @param value the info to insert, or null to delete
+	 * @return the info of k before the update, or null if it was absent
+	 */
+	private String update(int k, String value) {
+		while (true) {
+			Node root = rootHolder.right;
+			if (root == null) {
+				if (value == null || attemptInsertIntoEmpty(k, value)) {
+					if (value != null) {
+						size.increment();
+					}
+					return null;
+				}
+			} else {
+				long version = root.version;
+				if (isShrinkingOrUnlinked(version)) {
+					root.waitUntilChangeCompleted(version);
+				} else if (root == rootHolder.right) {
+					Object result = attemptUpdate(k, value, rootHolder, root, version);
+					if (result != RETRY) {
+						if (result == null && value != null) {
+							size.increment();
+						} else if (result != null && value == null) {
+							size.decrement();
+						}
+						return (String) result;
+					}
+				}
+			}
+		}
+	}
+
+	private boolean attemptInsertIntoEmpty(int k, String value) {
+		synchronized (rootHolder) {
+			if (rootHolder.right == null) {
+				rootHolder.right = new Node(k, value, rootHolder);
+				return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Update a key below a node whose version was validated
+	 *
+	 * @param k       the key to update
+	 * @param value   the info to insert, or null to delete
+	 * @param parent  the node's parent
+	 * @param node    the current node
+	 * @param version the node's version when it was reached
+	 * @return the info of k before the update, or RETRY if the node's key range shrank
+	 */
+	private Object attemptUpdate(int k, String value, Node parent, Node node, long version) {
+		if (k == node.key) {
+			return attemptNodeUpdate(value, parent, node);
+		}
+		boolean left = k < node.key;
+		while (true) {
+			Node child = node.child(left);
+			if (node.version != version) {
+				return RETRY;
+			}
+			if (child == null) {
+				if (value == null) {
+					//the key is not in the tree
+					return null;
+				}
+				Node damaged;
+				synchronized (node) {
+					//no rotation can change the node while it is locked
+					if (node.version != version) {
+						return RETRY;
+					}
+					if (node.child(left) != null) {
+						//lost a race with a concurrent insert, retry from this node
+						continue;
+					}
+					node.setChild(left, new Node(k, value, node));
+					damaged = fixHeight(node);
+				}
+				fixHeightAndRebalance(damaged);
+				return null;
+			}
+			long childVersion = child.version;
+			if (isShrinkingOrUnlinked(childVersion)) {
+				child.waitUntilChangeCompleted(childVersion);
+			} else if (child == node.child(left)) {
+				if (node.version != version) {
+					return RETRY;
+				}
+				Object result = attemptUpdate(k, value, node, child, childVersion);
+				if (result != RETRY) {
+					return result;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Update the node with the key, by setting its info or unlinking it
+	 *
+	 * @param value  the info to insert, or null to delete
+	 * @param parent the node's parent, only used for unlinking
+	 * @param node   the node with the updated key
+	 * @return the node's info before the update, or RETRY
+	 */
+	private Object attemptNodeUpdate(String value, Node parent, Node node) {
+		if (value == null) {
+			if (node.value == null) {
+				//already deleted, only a routing node is left
+				return null;
+			}
+			if (node.left == null || node.right == null) {
+				//the node can be unlinked, which requires locking its parent
+				String previousValue;
+				Node damaged;
+				synchronized (parent) {
+					if (isUnlinked(parent.version) || node.parent != parent) {
+						return RETRY;
+					}
+					synchronized (node) {
+						previousValue = node.value;
+						if (previousValue == null) {
+							return null;
+						}
+						if (!attemptUnlink(parent, node)) {
+							return RETRY;
+						}
+					}
+					damaged = fixHeight(parent);
+				}
+				fixHeightAndRebalance(damaged);
+				return previousValue;
+			}
+		}
+		synchronized (node) {
+			if (isUnlinked(node.version)) {
+				return RETRY;
+			}
+			String previousValue = node.value;
+			if (value != null) {
+				if (previousValue == null) {
+					//insert into a routing node
+					node.value = value;
+				}
+				return previousValue;
+			}
+			if (node.left == null || node.right == null) {
+				//the node can be unlinked now, retry with its parent locked
+				return RETRY;
+			}
+			//keep the node as a routing node
+			node.value = null;
+			return previousValue;
+		}
+	}
+
+	/**
+	 * Unlink a node with less than two children
+	 * precondition: the parent and the node are locked, and the parent is linked
+	 *
+	 * @return true if the node was unlinked, false if it can't be unlinked anymore
+	 */
+	private boolean attemptUnlink(Node parent, Node node) {
+		Node parentLeft = parent.left;
+		Node parentRight = parent.right;
+		if (parentLeft != node && parentRight != node) {
+			return false;
+		}
+		Node left = node.left;
+		Node right = node.right;
+		if (left != null && right != null) {
+			return false;
+		}
+		Node splice = left != null ? left : right;
+		if (parentLeft == node) {
+			parent.left = splice;
+		} else {
+			parent.right = splice;
+		}
+		if (splice != null) {
+			splice.parent = parent;
+		}
+		node.version = UNLINKED;
+		node.value = null;
+		return true;
+	}
+
+	//endregion
+
+	//region rebalancing
+
+	private static int height(Node node) {
+		return node == null ? -1 : node.height;
+	}
+
+	/**
+	 * Classify a node according to its rank differences
+	 *
+	 * @param node a node
+	 * @return the node's correct height if only its height is wrong,
+	 * or UNLINK_REQUIRED, REBALANCE_REQUIRED or NOTHING_REQUIRED
+	 */
+	private static int nodeCondition(Node node) {
+		Node left = node.left;
+		Node right = node.right;
+		if ((left == null || right == null) && node.value == null) {
+			return UNLINK_REQUIRED;
+		}
+		int height = node.height;
+		int leftHeight = height(left);
+		int rightHeight = height(right);
+		int newHeight = 1 + Math.max(leftHeight, rightHeight);
+		if (Math.abs(leftHeight - rightHeight) > 1) {
+			//rank differences (0,2) after an insertion or (1,3) after a deletion
+			return REBALANCE_REQUIRED;
+		}
+		//a rank difference of 0 requires a promotion, and (2,2) requires a demotion
+		return height != newHeight ? newHeight : NOTHING_REQUIRED;
+	}
+
+	/**
+	 * Repair nodes up the tree until there is nothing to repair
+	 *
+	 * @param node the lowest damaged node, or null
+	 */
+	private void fixHeightAndRebalance(Node node) {
+		while (node != null && node.parent != null) {
+			int condition = nodeCondition(node);
+			if (condition == NOTHING_REQUIRED || isUnlinked(node.version)) {
+				return;
+			}
+			if (condition != UNLINK_REQUIRED && condition != REBALANCE_REQUIRED) {
+				synchronized (node) {
+					node = fixHeight(node);
+				}
+			} else {
+				Node parent = node.parent;
+				synchronized (parent) {
+					if (!isUnlinked(parent.version) && node.parent == parent) {
+						synchronized (node) {
+							node = rebalance(parent, node);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Promote or demote a node if only its height is wrong
+	 * precondition: the node is locked
+	 *
+	 * @return the next node to repair, or null if there is nothing to repair
+	 */
+	private static Node fixHeight(Node node) {
+		int condition = nodeCondition(node);
+		switch (condition) {
+			case REBALANCE_REQUIRED:
+			case UNLINK_REQUIRED:
+				return node;
+			case NOTHING_REQUIRED:
+				return null;
+			default:
+				node.height = condition;
+				return node.parent;
+		}
+	}
+
+	/**
+	 * Repair a node by unlinking, rotating, promoting or demoting it
+	 * precondition: the parent and the node are locked
+	 *
+	 * @return the next node to repair, or null if there is nothing to repair
+	 */
+	private Node rebalance(Node parent, Node node) {
+		Node left = node.left;
+		Node right = node.right;
+		if ((left == null || right == null) && node.value == null) {
+			if (attemptUnlink(parent, node)) {
+				return fixHeight(parent);
+			}
+			return node;
+		}
+		int height = node.height;
+		int leftHeight = height(left);
+		int rightHeight = height(right);
+		int newHeight = 1 + Math.max(leftHeight, rightHeight);
+		if (leftHeight - rightHeight > 1) {
+			return rebalanceToRight(parent, node, left, rightHeight);
+		} else if (rightHeight - leftHeight > 1) {
+			return rebalanceToLeft(parent, node, right, leftHeight);
+		} else if (newHeight != height) {
+			node.height = newHeight;
+			return fixHeight(parent);
+		}
+		return null;
+	}
+
+	/**
+	 * Rotate a node whose left child is too high
+	 * precondition: the parent and the node are locked
+	 *
+	 * @return the next node to repair
+	 */
+	private Node rebalanceToRight(Node parent, Node node, Node left, int rightHeight) {
+		synchronized (left) {
+			int leftHeight = left.height;
+			if (leftHeight - rightHeight <= 1) {
+				return node;
+			}
+			Node leftRight = left.right;
+			int leftLeftHeight = height(left.left);
+			int leftRightHeight = height(leftRight);
+			if (leftLeftHeight >= leftRightHeight) {
+				//the outer grandchild is at least as high: single rotation
+				return rotateRight(parent, node, left, rightHeight, leftLeftHeight, leftRight, leftRightHeight);
+			}
+			synchronized (leftRight) {
+				leftRightHeight = leftRight.height;
+				if (leftLeftHeight >= leftRightHeight) {
+					return rotateRight(parent, node, left, rightHeight, leftLeftHeight, leftRight, leftRightHeight);
+				}
+				//the inner grandchild is higher: double rotation, unless it would leave the left child damaged
+				int leftRightLeftHeight = height(leftRight.left);
+				int balance = leftLeftHeight - leftRightLeftHeight;
+				if (balance >= -1 && balance <= 1 && !((leftLeftHeight == -1 || leftRightLeftHeight == -1) && left.value == null)) {
+					return rotateRightOverLeft(parent, node, left, rightHeight, leftLeftHeight, leftRight, leftRightLeftHeight);
+				}
+			}
+			//fix the left child first, the node is repaired afterwards if needed
+			return rebalanceToLeft(node, left, leftRight, leftLeftHeight);
+		}
+	}
+
+	/**
+	 * Rotate a node whose right child is too high
+	 * precondition: the parent and the node are locked
+	 *
+	 * @return the next node to repair
+	 */
+	private Node rebalanceToLeft(Node parent, Node node, Node right, int leftHeight) {
+		synchronized (right) {
+			int rightHeight = right.height;
+			if (rightHeight - leftHeight <= 1) {
+				return node;
+			}
+			Node rightLeft = right.left;
+			int rightLeftHeight = height(rightLeft);
+			int rightRightHeight = height(right.right);
+			if (rightRightHeight >= rightLeftHeight) {
+				return rotateLeft(parent, node, right, leftHeight, rightRightHeight, rightLeft, rightLeftHeight);
+			}
+			synchronized (rightLeft) {
+				rightLeftHeight = rightLeft.height;
+				if (rightRightHeight >= rightLeftHeight) {
+					return rotateLeft(parent, node, right, leftHeight, rightRightHeight, rightLeft, rightLeftHeight);
+				}
+				int rightLeftRightHeight = height(rightLeft.right);
+				int balance = rightRightHeight - rightLeftRightHeight;
+				if (balance >= -1 && balance <= 1 && !((rightRightHeight == -1 || rightLeftRightHeight == -1) && right.value == null)) {
+					return rotateLeftOverRight(parent, node, right, leftHeight, rightRightHeight, rightLeft, rightLeftRightHeight);
+				}
+			}
+			return rebalanceToRight(node, right, rightLeft, rightRightHeight);
+		}
+	}
+
+	/**
+	 * Perform a right rotation of the node's left child
+	 * precondition: the parent, the node and its left child are locked
+	 *
+	 * @return the next node to repair
+	 */
+	private Node rotateRight(Node parent, Node node, Node left, int rightHeight, int leftLeftHeight,
+							 Node leftRight, int leftRightHeight) {
+		long version = node.version;
+		Node parentLeft = parent.left;
+		node.version = beginChange(version);
+
+		//the order keeps the tree searchable for everything but the node
+		node.left = leftRight;
+		if (leftRight != null) {
+			leftRight.parent = node;
+		}
+		left.right = node;
+		node.parent = left;
+		if (parentLeft == node) {
+			parent.left = left;
+		} else {
+			parent.right = left;
+		}
+		left.parent = parent;
+
+		int nodeHeight = 1 + Math.max(leftRightHeight, rightHeight);
+		node.height = nodeHeight;
+		left.height = 1 + Math.max(leftLeftHeight, nodeHeight);
+
+		node.version = endChange(version);
+
+		//the node is the deepest damaged node
+		if (Math.abs(leftRightHeight - rightHeight) > 1) {
+			return node;
+		}
+		if ((leftRight == null || rightHeight == -1) && node.value == null) {
+			return node;
+		}
+		if (Math.abs(leftLeftHeight - nodeHeight) > 1) {
+			return left;
+		}
+		if (leftLeftHeight == -1 && left.value == null) {
+			return left;
+		}
+		return fixHeight(parent);
+	}
+
+	/**
+	 * Perform a left rotation of the node's right child
+	 * precondition: the parent, the node and its right child are locked
+	 *
+	 * @return the next node to repair
+	 */
+	private Node rotateLeft(Node parent, Node node, Node right, int leftHeight, int rightRightHeight,
+							Node rightLeft, int rightLeftHeight) {
+		long version = node.version;
+		Node parentLeft = parent.left;
+		node.version = beginChange(version);
+
+		node.right = rightLeft;
+		if (rightLeft != null) {
+			rightLeft.parent = node;
+		}
+		right.left = node;
+		node.parent = right;
+		if (parentLeft == node) {
+			parent.left = right;
+		} else {
+			parent.right = right;
+		}
+		right.parent = parent;
+
+		int nodeHeight = 1 + Math.max(leftHeight, rightLeftHeight);
+		node.height = nodeHeight;
+		right.height = 1 + Math.max(nodeHeight, rightRightHeight);
+
+		node.version = endChange(version);
+
+		if (Math.abs(rightLeftHeight - leftHeight) > 1) {
+			return node;
+		}
+		if ((rightLeft == null || leftHeight == -1) && node.value == null) {
+			return node;
+		}
+		if (Math.abs(rightRightHeight - nodeHeight) > 1) {
+			return right;
+		}
+		if (rightRightHeight == -1 && right.value == null) {
+			return right;
+		}
+		return fixHeight(parent);
+	}
+
+	/**
+	 * Perform a left then right rotation of the node's left-right grandchild
+	 * precondition: the parent, the node, its left child and the grandchild are locked
+	 *
+	 * @return the next node to repair
+	 */
+	private Node rotateRightOverLeft(Node parent, Node node, Node left, int rightHeight, int leftLeftHeight,
+									 Node leftRight, int leftRightLeftHeight) {
+		long version = node.version;
+		long leftVersion = left.version;
+		Node parentLeft = parent.left;
+		Node leftRightLeft = leftRight.left;
+		Node leftRightRight = leftRight.right;
+		int leftRightRightHeight = height(leftRightRight);
+
+		node.version = beginChange(version);
+		left.version = beginChange(leftVersion);
+
+		node.left = leftRightRight;
+		if (leftRightRight != null) {
+			leftRightRight.parent = node;
+		}
+		left.right = leftRightLeft;
+		if (leftRightLeft != null) {
+			leftRightLeft.parent = left;
+		}
+		leftRight.left = left;
+		left.parent = leftRight;
+		leftRight.right = node;
+		node.parent = leftRight;
+		if (parentLeft == node) {
+			parent.left = leftRight;
+		} else {
+			parent.right = leftRight;
+		}
+		leftRight.parent = parent;
+
+		int nodeHeight = 1 + Math.max(leftRightRightHeight, rightHeight);
+		node.height = nodeHeight;
+		int leftNewHeight = 1 + Math.max(leftLeftHeight, leftRightLeftHeight);
+		left.height = leftNewHeight;
+		leftRight.height = 1 + Math.max(leftNewHeight, nodeHeight);
+
+		node.version = endChange(version);
+		left.version = endChange(leftVersion);
+
+		if (Math.abs(leftRightRightHeight - rightHeight) > 1) {
+			return node;
+		}
+		if ((leftRightRight == null || rightHeight == -1) && node.value == null) {
+			return node;
+		}
+		if (Math.abs(leftNewHeight - nodeHeight) > 1) {
+			return leftRight;
+		}
+		return fixHeight(parent);
+	}
+
+	/**
+	 * Perform a right then left rotation of the node's right-left grandchild
+	 * precondition: the parent, the node, its right child and the grandchild are locked
+	 *
+	 * @return the next node to repair
+	 */
+	private Node rotateLeftOverRight(Node parent, Node node, Node right, int leftHeight, int rightRightHeight,
+									 Node rightLeft, int rightLeftRightHeight) {
+		long version = node.version;
+		long rightVersion = right.version;
+		Node parentLeft = parent.left;
+		Node rightLeftLeft = rightLeft.left;
+		Node rightLeftRight = rightLeft.right;
+		int rightLeftLeftHeight = height(rightLeftLeft);
+
+		node.version = beginChange(version);
+		right.version = beginChange(rightVersion);
+
+		node.right = rightLeftLeft;
+		if (rightLeftLeft != null) {
+			rightLeftLeft.parent = node;
+		}
+		right.left = rightLeftRight;
+		if (rightLeftRight != null) {
+			rightLeftRight.parent = right;
+		}
+		rightLeft.right = right;
+		right.parent = rightLeft;
+		rightLeft.left = node;
+		node.parent = rightLeft;
+		if (parentLeft == node) {
+			parent.left = rightLeft;
+		} else {
+			parent.right = rightLeft;
+		}
+		rightLeft.parent = parent;
+
+		int nodeHeight = 1 + Math.max(leftHeight, rightLeftLeftHeight);
+		node.height = nodeHeight;
+		int rightNewHeight = 1 + Math.max(rightLeftRightHeight, rightRightHeight);
+		right.height = rightNewHeight;
+		rightLeft.height = 1 + Math.max(nodeHeight, rightNewHeight);
+
+		node.version = endChange(version);
+		right.version = endChange(rightVersion);
+
+		if (Math.abs(rightLeftLeftHeight - leftHeight) > 1) {
+			return node;
+		}
+		if ((rightLeftLeft == null || leftHeight == -1) && node.value == null) {
+			return node;
+		}
+		if (Math.abs(rightNewHeight - nodeHeight) > 1) {
+			return rightLeft;
+		}
+		return fixHeight(parent);
+	}
+
+	//endregion
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * complexity: O(1)
+	 * <p>
+	 * returns true if the tree had no items at the moment of the call
+	 */
+	public boolean empty() {
+		return size() == 0;
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * complexity: O(number of threads)
+	 * Returns the number of items in the tree. It is exact only when no update is running concurrently.
+	 */
+	public int size() {
+		return size.intValue();
+	}
+
+	/**
+	 * Get the height of the tree, including routing nodes
+	 * complexity: O(1)
+	 *
+	 * @return height
+	 */
+	public int getHeight() {
+		return height(rootHolder.right);
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * complexity: O(n)
+	 * Returns a sorted array which contains all keys in the tree.
+	 * The scan takes no locks, so it is exact only when no update is running concurrently.
+	 */
+	public int[] keysToArray() {
+		List<Node> nodes = new ArrayList<>();
+		inorderScan(rootHolder.right, nodes);
+		int[] keys = new int[nodes.size()];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = nodes.get(i).key;
+		}
+		return keys;
+	}
+
+	/**
+	 * Recursively collect the nodes with info of a subtree in order
+	 * complexity: O(n)
+	 */
+	private void inorderScan(Node node, List<Node> nodes) {
+		if (node != null) {
+			inorderScan(node.left, nodes);
+			if (node.value != null) {
+				nodes.add(node);
+			}
+			inorderScan(node.right, nodes);
+		}
+	}
+
+	/**
+	 * A tree node, whose monitor is its lock
+	 */
+	private static final class Node {
+		final int key;
+		/**
+		 * The info, or null for a routing node
+		 */
+		volatile String value;
+		volatile int height;
+		volatile long version;
+		volatile Node parent;
+		volatile Node left;
+		volatile Node right;
+
+		Node(int key, String value, Node parent) {
+			this.key = key;
+			this.value = value;
+			this.parent = parent;
+		}
+
+		Node child(boolean left) {
+			return left ? this.left : this.right;
+		}
+
+		void setChild(boolean left, Node child) {
+			if (left) {
+				this.left = child;
+			} else {
+				this.right = child;
+			}
+		}
+
+		/**
+		 * Wait until a rotation that shrinks the node's key range has ended
+		 *
+		 * @param version the version that showed the rotation
+		 */
+		void waitUntilChangeCompleted(long version) {
+			if (!isShrinking(version)) {
+				return;
+			}
+			for (int tries = 0; tries < SPIN_COUNT; tries++) {
+				if (this.version != version) {
+					return;
+				}
+			}
+			for (int tries = 0; tries < YIELD_COUNT; tries++) {
+				Thread.yield();
+				if (this.version != version) {
+					return;
+				}
+			}
+			//rotations hold the node's lock, so once it is acquired the rotation has ended
+			synchronized (this) {
+			}
+		}
+	}
+}
@@ -0,0 +1,807 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * DurableAVLTree
+ * <p>
+ * A thread-safe {@link AVLTree} whose mutations survive crashes. Every insert, delete, split and join appends a
+ * binary record to a write-ahead log in a directory, and returns only once the record is synced to the disk.
+ * split and join are logged as single records, so they stay O(log n) and O(|t|) instead of a record per key.
+ * <p>
+ * Syncing each record would limit the tree to one mutation per fsync, so mutations use group commit:
+ * the first writer to wait becomes the commit leader, waits up to the commit delay for more writers,
+ * and then writes and syncs all the pending records at once, while the following writers wait for the next leader.
+ * A longer commit delay trades latency for fewer syncs under concurrent writes.
+ * Reads take a read lock, and may see mutations whose commit is still in progress.
+ * <p>
+ * The directory holds numbered logs and snapshots: snapshot-g has the items before the records of wal-g.
+ * {@link #checkpoint()} starts the next log, writes its snapshot with {@link AVLTree#writeSnapshot(Path)},
+ * and deletes the older files. On startup the tree loads the latest snapshot and replays the following logs.
+ * Each record has a length and a CRC32 checksum, so a torn record at the end of the last log,
+ * from a crash in the middle of a commit, is discarded, since none of its writers returned.
+ * <pre>
+ * record:  body length (4) | CRC32 of the body (4) | type (1) | fields
+ * insert:  key (4) | info
+ * delete:  key (4)
+ * split:   key (4)
+ * join:    key (4) | info | size of t (4) | keys bytes of t (4) | the columns of t as in {@link AVLTreeSnapshot}
+ * info:    UTF-8 length (4), or -1 for null | UTF-8 bytes
+ * </pre>
+ * After an I/O error of the log, the tree can't tell which mutations are durable,
+ * so every following mutation throws an UncheckedIOException and the tree should be reopened.
+ */
+public class DurableAVLTree implements Closeable {
+	static final byte INSERT = 1;
+	static final byte DELETE = 2;
+	static final byte SPLIT = 3;
+	static final byte JOIN = 4;
+	static final String SNAPSHOT_PREFIX = "snapshot-";
+	static final String LOG_PREFIX = "wal-";
+	private static final int RECORD_HEADER_BYTES = 8;
+	private static final int INITIAL_BUFFER_BYTES = 1 << 12;
+
+	private final Path dir;
+	private final long commitDelayNanos;
+	/**
+	 * Guards the tree and the pending records: reads take the read lock, and mutations take the write lock
+	 */
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	/**
+	 * The tree, replaced when split moves its nodes
+	 */
+	private AVLTree tree;
+	/**
+	 * The records that weren't written to the log yet, and the buffer that the next commit swaps in
+	 */
+	private ByteBuffer pending = newBuffer(INITIAL_BUFFER_BYTES);
+	private ByteBuffer spare = newBuffer(INITIAL_BUFFER_BYTES);
+	private final CRC32 crc = new CRC32();
+	private int recordStart;
+	private long appendedRecords;
+	private boolean closed;
+
+	/**
+	 * Guards the commit state: only the thread that set committing writes to the log
+	 */
+	private final Object commitMonitor = new Object();
+	private boolean committing;
+	private long durableRecords;
+	private long commits;
+	private volatile IOException failure;
+	private FileChannel log;
+	private long generation;
+
+	/**
+	 * Opens the tree in dir without a commit delay, so a commit includes the writers that arrived during the previous one
+	 */
+	public DurableAVLTree(Path dir) throws IOException {
+		this(dir, 0, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Opens the tree in dir, creating it if it doesn't exist, and recovers its items from the snapshot and the logs
+	 *
+	 * @param commitDelay the maximal time a commit waits for more writers before it syncs the log
+	 * @throws IOException if the directory can't be read, or if a snapshot or a log that isn't the last is corrupt
+	 */
+	public DurableAVLTree(Path dir, long commitDelay, TimeUnit unit) throws IOException {
+		if (commitDelay < 0) {
+			throw new IllegalArgumentException(String.format("Invalid commit delay %d", commitDelay));
+		}
+		this.dir = dir;
+		this.commitDelayNanos = unit.toNanos(commitDelay);
+		Files.createDirectories(dir);
+		List<Long> snapshots = generations(SNAPSHOT_PREFIX);
+		List<Long> logs = generations(LOG_PREFIX);
+		long snapshotGeneration = snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1);
+		tree = snapshots.isEmpty() ? new AVLTree() : AVLTree.openSnapshot(path(SNAPSHOT_PREFIX, snapshotGeneration));
+		generation = snapshotGeneration;
+		long validBytes = 0;
+		for (long logGeneration : logs) {
+			if (logGeneration >= snapshotGeneration) {
+				generation = logGeneration;
+				validBytes = replay(path(LOG_PREFIX, logGeneration), logGeneration == logs.get(logs.size() - 1));
+			}
+		}
+		log = FileChannel.open(path(LOG_PREFIX, generation), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		//drop a torn record at the end, so new records follow the last complete one
+		log.truncate(validBytes);
+		log.position(validBytes);
+		log.force(true);
+		deleteBefore(snapshotGeneration);
+	}
+
+	//region log
+
+	private static ByteBuffer newBuffer(int capacity) {
+		return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private Path path(String prefix, long generation) {
+		return dir.resolve(prefix + generation);
+	}
+
+	/**
+	 * Find the generations of the files with a prefix
+	 * complexity: O(f log f) for f files in the directory
+	 *
+	 * @return the generations in ascending order
+	 */
+	private List<Long> generations(String prefix) throws IOException {
+		List<Long> generations = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, prefix + "*")) {
+			for (Path file : files) {
+				try {
+					generations.add(Long.parseLong(file.getFileName().toString().substring(prefix.length())));
+				} catch (NumberFormatException e) {
+					//a temporary file of a snapshot that wasn't completed
+				}
+			}
+		}
+		Collections.sort(generations);
+		return generations;
+	}
+
+	/**
+	 * Delete the snapshots and logs before a generation, which the snapshot of the generation replaces,
+	 * and incomplete snapshots
+	 */
+	private void deleteBefore(long generation) throws IOException {
+		for (String prefix : new String[]{SNAPSHOT_PREFIX, LOG_PREFIX}) {
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, prefix + "*")) {
+				for (Path file : files) {
+					String name = file.getFileName().toString();
+					if (name.endsWith(".tmp")) {
+						Files.delete(file);
+						continue;
+					}
+					try {
+						if (Long.parseLong(name.substring(prefix.length())) < generation) {
+							Files.delete(file);
+						}
+					} catch (NumberFormatException e) {
+						//not one of the tree's files
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Apply the complete records of a log to the tree
+	 * complexity: O(the size of the log + r log n) for r records
+	 *
+	 * @param last whether the log is the last one, which may end with a torn record
+	 * @return the size of the complete records
+	 */
+	private long replay(Path path, boolean last) throws IOException {
+		MappedByteBuffer file;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(String.format("Log %s is larger than 2 GB", path));
+			}
+			file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		file.order(ByteOrder.LITTLE_ENDIAN);
+		int end = 0;
+		while (file.capacity() - end >= RECORD_HEADER_BYTES) {
+			int bodyBytes = file.getInt(end);
+			int checksum = file.getInt(end + 4);
+			if (bodyBytes <= 0 || bodyBytes > file.capacity() - end - RECORD_HEADER_BYTES) {
+				break;
+			}
+			ByteBuffer body = slice(file, end + RECORD_HEADER_BYTES, bodyBytes);
+			crc.reset();
+			crc.update(body.duplicate());
+			if ((int) crc.getValue() != checksum) {
+				break;
+			}
+			try {
+				apply(body);
+			} catch (IllegalArgumentException | IllegalStateException | BufferUnderflowException e) {
+				throw new IOException(String.format("Invalid record at byte %d of log %s", end, path), e);
+			}
+			end += RECORD_HEADER_BYTES + bodyBytes;
+		}
+		if (end != file.capacity() && !last) {
+			throw new IOException(String.format("Log %s is corrupt at byte %d", path, end));
+		}
+		return end;
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+		ByteBuffer duplicate = buffer.duplicate();
+		((Buffer) duplicate).position(offset);
+		((Buffer) duplicate).limit(offset + length);
+		return duplicate.slice().order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static String readInfo(ByteBuffer body) {
+		int length = body.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		body.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Apply a record to the tree
+	 * complexity: O(log n), or O(|t| + log n) for a join with t
+	 */
+	private void apply(ByteBuffer body) {
+		byte type = body.get();
+		switch (type) {
+			case INSERT: {
+				int key = body.getInt();
+				tree.insert(key, readInfo(body));
+				break;
+			}
+			case DELETE:
+				tree.delete(body.getInt());
+				break;
+			case SPLIT:
+				tree = tree.split(body.getInt())[0];
+				break;
+			case JOIN: {
+				int key = body.getInt();
+				String info = readInfo(body);
+				int size = body.getInt();
+				int keysBytes = body.getInt();
+				ByteBuffer keys = slice(body, body.position(), keysBytes);
+				ByteBuffer values = slice(body, body.position() + keysBytes, body.remaining() - keysBytes);
+				tree.join(new AVLTree.AVLNode(key, info), AVLTreeSnapshot.readColumns(size, keys, values));
+				break;
+			}
+			default:
+				throw new IllegalStateException(String.format("Unknown record type %d", type));
+		}
+	}
+
+	/**
+	 * Make room for a record in the pending buffer, and start it
+	 * complexity: O(1) amortized
+	 */
+	private void beginRecord(byte type, int maxBodyBytes) {
+		int needed = RECORD_HEADER_BYTES + maxBodyBytes;
+		if (pending.remaining() < needed) {
+			ByteBuffer larger = newBuffer(Math.max(2 * pending.capacity(), pending.position() + needed));
+			((Buffer) pending).flip();
+			larger.put(pending);
+			pending = larger;
+		}
+		recordStart = pending.position();
+		((Buffer) pending).position(recordStart + RECORD_HEADER_BYTES);
+		pending.put(type);
+	}
+
+	/**
+	 * Write the length and checksum of the current record
+	 *
+	 * @return the record's sequence number, which is durable once {@link #durableRecords} reaches it
+	 */
+	private long endRecord() {
+		int bodyStart = recordStart + RECORD_HEADER_BYTES;
+		int bodyBytes = pending.position() - bodyStart;
+		crc.reset();
+		crc.update(pending.array(), bodyStart, bodyBytes);
+		pending.putInt(recordStart, bodyBytes);
+		pending.putInt(recordStart + 4, (int) crc.getValue());
+		return ++appendedRecords;
+	}
+
+	private void putInfo(byte[] info) {
+		if (info == null) {
+			pending.putInt(-1);
+		} else {
+			pending.putInt(info.length);
+			pending.put(info);
+		}
+	}
+
+	private static byte[] encode(String info) {
+		return info != null ? info.getBytes(StandardCharsets.UTF_8) : null;
+	}
+
+	private static int encodedBytes(byte[] info) {
+		return 4 + (info != null ? info.length : 0);
+	}
+
+	/**
+	 * Check that mutations can be logged
+	 * precondition: the write lock is held
+	 */
+	private void checkWritable() {
+		if (closed) {
+			throw new IllegalStateException("The tree is closed");
+		}
+		if (failure != null) {
+			throw new UncheckedIOException("The log failed, and the tree should be reopened", failure);
+		}
+	}
+
+	/**
+	 * Wait until the commit monitor is free and take it, so the caller can write to the log
+	 *
+	 * @param record the record to wait for, or 0 to take the monitor anyway, even after a failure
+	 * @return false if the record became durable while waiting
+	 */
+	private boolean takeCommit(long record) {
+		boolean interrupted = false;
+		try {
+			synchronized (commitMonitor) {
+				while (true) {
+					if (record != 0 && durableRecords >= record) {
+						return false;
+					}
+					if (record != 0 && failure != null) {
+						throw new UncheckedIOException("The log failed, and the tree should be reopened", failure);
+					}
+					if (!committing) {
+						committing = true;
+						return true;
+					}
+					try {
+						commitMonitor.wait();
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Write and sync the pending records
+	 * precondition: the caller took the commit monitor and holds the write lock
+	 *
+	 * @return the amount of records that are durable
+	 */
+	private long writePending() throws IOException {
+		((Buffer) pending).flip();
+		while (pending.hasRemaining()) {
+			log.write(pending);
+		}
+		((Buffer) pending).clear();
+		log.force(false);
+		return appendedRecords;
+	}
+
+	/**
+	 * Release the commit monitor, and wake the waiting writers
+	 *
+	 * @param durable the amount of durable records
+	 * @param error   the error of the commit, or null if it succeeded
+	 */
+	private void releaseCommit(long durable, IOException error) {
+		synchronized (commitMonitor) {
+			committing = false;
+			if (error != null) {
+				failure = error;
+			} else if (durable > durableRecords) {
+				durableRecords = durable;
+				commits++;
+			}
+			commitMonitor.notifyAll();
+		}
+	}
+
+	/**
+	 * Return once a record is durable, committing it and the records of other writers if no commit is in progress
+	 * complexity: one write and sync of the log per group of writers
+	 */
+	private void awaitDurable(long record) {
+		if (!takeCommit(record)) {
+			return;
+		}
+		if (commitDelayNanos > 0) {
+			//let more writers add their records to this commit
+			LockSupport.parkNanos(commitDelayNanos);
+		}
+		ByteBuffer batch;
+		long durable;
+		lock.writeLock().lock();
+		try {
+			batch = pending;
+			pending = spare;
+			spare = batch;
+			durable = appendedRecords;
+		} finally {
+			lock.writeLock().unlock();
+		}
+		IOException error = null;
+		try {
+			((Buffer) batch).flip();
+			while (batch.hasRemaining()) {
+				log.write(batch);
+			}
+			log.force(false);
+		} catch (IOException e) {
+			error = e;
+		} finally {
+			((Buffer) batch).clear();
+			releaseCommit(durable, error);
+		}
+		if (error != null) {
+			throw new UncheckedIOException("The log failed, and the tree should be reopened", error);
+		}
+	}
+
+	//endregion
+
+	/**
+	 * public String search(int k)
+	 * <p>
+	 * complexity: O(log n)
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		lock.readLock().lock();
+		try {
+			return tree.search(k);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * complexity: O(1)
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return size() == 0;
+	}
+
+	/**
+	 * public String min()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the info of the item with the smallest key in the tree, or null if the tree is empty
+	 */
+	public String min() {
+		lock.readLock().lock();
+		try {
+			return tree.min();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * public String max()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the info of the item with the largest key in the tree, or null if the tree is empty
+	 */
+	public String max() {
+		lock.readLock().lock();
+		try {
+			return tree.max();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the number of items in the tree.
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return tree.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * complexity: O(n)
+	 * Returns a sorted array which contains all keys in the tree.
+	 */
+	public int[] keysToArray() {
+		lock.readLock().lock();
+		try {
+			return tree.keysToArray();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 * <p>
+	 * complexity: O(n)
+	 * Returns an array which contains all info in the tree, sorted by their respective keys.
+	 */
+	public String[] infoToArray() {
+		lock.readLock().lock();
+		try {
+			return tree.infoToArray();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 * <p>
+	 * complexity: O(log n), plus waiting for the commit
+	 * inserts an item with key k and info i to the tree, and returns once the insertion is durable.
+	 * returns the number of rebalancing operations, or -1 if an item with key k already exists in the tree.
+	 */
+	public int insert(int k, String i) {
+		byte[] info = encode(i);
+		int rebalances;
+		long record;
+		lock.writeLock().lock();
+		try {
+			checkWritable();
+			rebalances = tree.insert(k, i);
+			if (rebalances < 0) {
+				return rebalances;
+			}
+			beginRecord(INSERT, 4 + encodedBytes(info));
+			pending.putInt(k);
+			putInfo(info);
+			record = endRecord();
+		} finally {
+			lock.writeLock().unlock();
+		}
+		awaitDurable(record);
+		return rebalances;
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * complexity: O(log n), plus waiting for the commit
+	 * deletes an item with key k from the tree if it is there, and returns once the deletion is durable.
+	 * returns the number of rebalancing operations, or -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		int rebalances;
+		long record;
+		lock.writeLock().lock();
+		try {
+			checkWritable();
+			rebalances = tree.delete(k);
+			if (rebalances < 0) {
+				return rebalances;
+			}
+			beginRecord(DELETE, 4);
+			pending.putInt(k);
+			record = endRecord();
+		} finally {
+			lock.writeLock().unlock();
+		}
+		awaitDurable(record);
+		return rebalances;
+	}
+
+	/**
+	 * public AVLTree split(int x)
+	 * <p>
+	 * complexity: O(log n), plus waiting for the commit
+	 * splits the tree according to the key x with a single log record, and returns once the split is durable.
+	 * The tree keeps the items with keys smaller than x, and the items with keys larger than x are returned
+	 * as a new in-memory tree, which isn't durable. The item with key x, if there is one, is removed.
+	 */
+	public AVLTree split(int x) {
+		AVLTree[] parts;
+		long record;
+		lock.writeLock().lock();
+		try {
+			checkWritable();
+			parts = tree.split(x);
+			tree = parts[0];
+			beginRecord(SPLIT, 4);
+			pending.putInt(x);
+			record = endRecord();
+		} finally {
+			lock.writeLock().unlock();
+		}
+		awaitDurable(record);
+		return parts[1];
+	}
+
+	/**
+	 * public int join(int k, String i, AVLTree t)
+	 * <p>
+	 * complexity: O(|t| + log n), plus waiting for the commit
+	 * joins t and a new item (k, i) with the tree, and returns once the join is durable.
+	 * The items of t are logged in a single record in the compact columns of {@link AVLTreeSnapshot},
+	 * and t must not be used afterwards, like with {@link AVLTree#join(AVLTree.IAVLNode, AVLTree)}.
+	 * Returns the complexity of the operation (rank difference between the tree and t, plus 1)
+	 * precondition: keys(t) < k < keys() or keys(t) > k > keys()
+	 */
+	public int join(int k, String i, AVLTree t) {
+		byte[] info = encode(i);
+		ByteArrayOutputStream columns = new ByteArrayOutputStream();
+		//the join consumes t, whose root may then hold both trees
+		int joinedSize = t.size();
+		long keysBytes;
+		try {
+			keysBytes = AVLTreeSnapshot.writeColumns(t, new AVLTreeSnapshot.Output(Channels.newChannel(columns)));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (columns.size() > Integer.MAX_VALUE - 64 - encodedBytes(info)) {
+			throw new IllegalArgumentException("The joined tree is too large for a log record");
+		}
+		int complexity;
+		long record;
+		lock.writeLock().lock();
+		try {
+			checkWritable();
+			if (!canJoin(k, t)) {
+				throw new IllegalArgumentException(String.format("Key %d doesn't separate the keys of the trees", k));
+			}
+			complexity = tree.join(new AVLTree.AVLNode(k, i), t);
+			beginRecord(JOIN, 4 + encodedBytes(info) + 8 + columns.size());
+			pending.putInt(k);
+			putInfo(info);
+			pending.putInt(joinedSize);
+			pending.putInt((int) keysBytes);
+			pending.put(columns.toByteArray());
+			record = endRecord();
+		} finally {
+			lock.writeLock().unlock();
+		}
+		awaitDurable(record);
+		return complexity;
+	}
+
+	/**
+	 * Check the precondition of join
+	 * complexity: O(log n + log |t|)
+	 *
+	 * @return true if keys(t) < k < keys() or keys(t) > k > keys()
+	 */
+	private boolean canJoin(int k, AVLTree t) {
+		boolean treeAbove = tree.empty() || tree.select(0) > k;
+		boolean treeBelow = tree.empty() || tree.select(tree.size() - 1) < k;
+		boolean joinedBelow = t.empty() || t.select(t.size() - 1) < k;
+		boolean joinedAbove = t.empty() || t.select(0) > k;
+		return treeAbove && joinedBelow || treeBelow && joinedAbove;
+	}
+
+	/**
+	 * public void checkpoint()
+	 * <p>
+	 * complexity: O(n)
+	 * Starts a new log and writes a snapshot of the tree before it, so the older logs are deleted and the next
+	 * startup replays only the records after the checkpoint. Reads continue while the snapshot is written,
+	 * and mutations wait for it.
+	 */
+	public void checkpoint() throws IOException {
+		takeCommit(0);
+		long durable = 0;
+		IOException error = null;
+		boolean readLocked = false;
+		lock.writeLock().lock();
+		try {
+			checkWritable();
+			try {
+				durable = writePending();
+				FileChannel next = FileChannel.open(path(LOG_PREFIX, generation + 1),
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+				log.close();
+				log = next;
+				generation++;
+			} catch (IOException e) {
+				error = e;
+				throw e;
+			}
+			long snapshotGeneration = generation;
+			//keep the tree unchanged while it's written, without blocking reads
+			lock.readLock().lock();
+			lock.writeLock().unlock();
+			readLocked = true;
+			tree.writeSnapshot(path(SNAPSHOT_PREFIX, snapshotGeneration));
+			lock.readLock().unlock();
+			readLocked = false;
+			//the files aren't needed for recovery anymore, and no other checkpoint runs until the commit is released
+			deleteBefore(snapshotGeneration);
+		} finally {
+			if (readLocked) {
+				lock.readLock().unlock();
+			} else if (lock.isWriteLockedByCurrentThread()) {
+				lock.writeLock().unlock();
+			}
+			releaseCommit(durable, error);
+		}
+	}
+
+	/**
+	 * public long getCommits()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the amount of syncs of the log, each of which made a group of records durable
+	 */
+	public long getCommits() {
+		synchronized (commitMonitor) {
+			return commits;
+		}
+	}
+
+	/**
+	 * public long getRecords()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the amount of records logged since the tree was opened
+	 */
+	public long getRecords() {
+		lock.readLock().lock();
+		try {
+			return appendedRecords;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * public void close()
+	 * <p>
+	 * Commits the pending records and closes the log. The tree can still be read, but not modified.
+	 */
+	@Override
+	public void close() throws IOException {
+		takeCommit(0);
+		long durable = 0;
+		IOException error = null;
+		lock.writeLock().lock();
+		try {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			try {
+				if (failure == null) {
+					durable = writePending();
+				}
+			} catch (IOException e) {
+				error = e;
+				throw e;
+			} finally {
+				log.close();
+			}
+		} finally {
+			lock.writeLock().unlock();
+			releaseCommit(durable, error);
+		}
+	}
+}
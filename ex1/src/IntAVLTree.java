@@ -0,0 +1,963 @@
+import java.util.Arrays;
+
+/**
+ * IntAVLTree
+ * <p>
+ * An AVL tree with distinct integer keys and info, with the same operations and rebalancing cases as {@link AVLTree}.
+ * Instead of linked node objects, the nodes are stored in parallel primitive arrays and referenced by their index.
+ * Index 0 ({@link #NIL}) is the virtual leaf, with height -1 and size 0.
+ * <p>
+ * Trees created by {@link #split(int)} share the node storage of the split tree, so split and join don't copy nodes.
+ */
+public class IntAVLTree {
+	/**
+	 * The index of the virtual leaf
+	 */
+	static final int NIL = 0;
+
+	private final NodeStore nodes;
+	private int root = NIL;
+	private int min = NIL;
+	private int max = NIL;
+
+	public IntAVLTree() {
+		this(new NodeStore());
+	}
+
+	private IntAVLTree(NodeStore nodes) {
+		this.nodes = nodes;
+	}
+
+	//region private methods
+
+	private int key(int node) {
+		return nodes.keys[node];
+	}
+
+	private int left(int node) {
+		return nodes.left[node];
+	}
+
+	private int right(int node) {
+		return nodes.right[node];
+	}
+
+	private int parent(int node) {
+		return nodes.parent[node];
+	}
+
+	private int height(int node) {
+		return nodes.heights[node];
+	}
+
+	private int size(int node) {
+		return nodes.sizes[node];
+	}
+
+	private void setLeft(int node, int child) {
+		nodes.left[node] = child;
+	}
+
+	private void setRight(int node, int child) {
+		nodes.right[node] = child;
+	}
+
+	/**
+	 * Set the parent of a node
+	 * the virtual leaf is shared and doesn't keep a parent, so setting it is ignored
+	 *
+	 * @param node   the node to update
+	 * @param parent the new parent
+	 */
+	private void setParent(int node, int parent) {
+		if (node != NIL) {
+			nodes.parent[node] = parent;
+		}
+	}
+
+	private void setHeight(int node, int height) {
+		nodes.heights[node] = (byte) height;
+	}
+
+	private int promote(int node) {
+		nodes.heights[node]++;
+		return 1;
+	}
+
+	private int demote(int node) {
+		nodes.heights[node]--;
+		return 1;
+	}
+
+	/**
+	 * Find a node in the tree by its key
+	 * complexity: O(log n)
+	 *
+	 * @param key the key of the searched node
+	 * @return the node, or NIL if it doesn't exist
+	 */
+	private int findNodeByKey(int key) {
+		int node = root;
+		while (node != NIL) {
+			int nodeKey = key(node);
+			if (nodeKey == key) {
+				return node;
+			} else if (nodeKey > key) {
+				node = left(node);
+			} else {
+				node = right(node);
+			}
+		}
+		return NIL;
+	}
+
+	/**
+	 * Find the node with a key, or the node that a new node with the key should become a child of
+	 * complexity: O(log n)
+	 *
+	 * @param key the key
+	 * @return the node with the key, or the last node on the key's search path, or NIL if the tree is empty
+	 */
+	private int findInsertionParent(int key) {
+		int parent = NIL;
+		int node = root;
+		while (node != NIL) {
+			parent = node;
+			int nodeKey = key(node);
+			if (key < nodeKey) {
+				node = left(node);
+			} else if (key > nodeKey) {
+				node = right(node);
+			} else {
+				break;
+			}
+		}
+		return parent;
+	}
+
+	/**
+	 * Inserts an allocated node to the tree
+	 * complexity: O(log n)
+	 *
+	 * @param node a detached node with no children
+	 * @return the number of rebalancing operations, or -1 if its key already exists in the tree
+	 */
+	private int insertNode(int node) {
+		int parent = findInsertionParent(key(node));
+		if (parent != NIL && key(parent) == key(node)) {
+			return -1;
+		}
+		return insertNode(node, parent);
+	}
+
+	/**
+	 * Inserts an allocated node under the parent that findInsertionParent found for its key
+	 * complexity: O(log n)
+	 *
+	 * @param node   a detached node with no children, whose key isn't in the tree
+	 * @param parent the last node on the key's search path, or NIL if the tree is empty
+	 * @return the number of rebalancing operations
+	 */
+	private int insertNode(int node, int parent) {
+		int k = key(node);
+		int rebalances = 0;
+		if (parent == NIL) {
+			root = node;
+		} else {
+			if (k < key(parent)) {
+				setLeft(parent, node);
+			} else {
+				setRight(parent, node);
+			}
+			setParent(node, parent);
+			updateSizeToRoot(parent);
+			rebalances = rebalanceInsertion(node);
+		}
+		//update min and max
+		if (min == NIL || k < key(min)) {
+			min = node;
+		}
+		if (max == NIL || k > key(max)) {
+			max = node;
+		}
+		return rebalances;
+	}
+
+	/**
+	 * Delete a node with one or zero children
+	 * complexity: O(1)
+	 *
+	 * @param node the node to remove from the tree
+	 */
+	private void deleteDirectly(int node) {
+		int replacementNode = left(node) != NIL ? left(node) : right(node);
+		int parent = parent(node);
+		if (parent != NIL) {
+			if (right(parent) == node) {
+				setRight(parent, replacementNode);
+			} else {
+				setLeft(parent, replacementNode);
+			}
+		} else {
+			root = replacementNode;
+		}
+		setParent(replacementNode, parent);
+	}
+
+	/**
+	 * Update the size of this node and its ancestors after a change in size happened to a child
+	 * complexity: O(log n)
+	 *
+	 * @param node the lowest node to update
+	 */
+	private void updateSizeToRoot(int node) {
+		while (node != NIL) {
+			nodes.sizes[node] = size(left(node)) + size(right(node)) + 1;
+			node = parent(node);
+		}
+	}
+
+	/**
+	 * Find the parent of the leftmost or rightmost subtree with a maximum height
+	 * complexity: O(log n-maxHeight)
+	 *
+	 * @param left      the side of the tree to go down to
+	 * @param maxHeight the maximum height of the subtree
+	 * @return the parent of the subtree's root, or NIL if the subtree is the whole tree
+	 */
+	private int findSubtreeParentByHeight(boolean left, int maxHeight) {
+		int parent = NIL;
+		int node = root;
+		while (height(node) > maxHeight) {
+			parent = node;
+			node = left ? left(node) : right(node);
+		}
+		return parent;
+	}
+
+	/**
+	 * Find the leftmost node of a subtree
+	 * complexity: O(log n)
+	 */
+	private int leftmost(int node) {
+		while (left(node) != NIL) {
+			node = left(node);
+		}
+		return node;
+	}
+
+	/**
+	 * Find the rightmost node of a subtree
+	 * complexity: O(log n)
+	 */
+	private int rightmost(int node) {
+		while (right(node) != NIL) {
+			node = right(node);
+		}
+		return node;
+	}
+
+	/**
+	 * Find the in-order successor of a node
+	 * complexity: O(log n), amortized O(1) over a full scan
+	 *
+	 * @param node a node of the tree
+	 * @return the successor, or NIL for the maximum
+	 */
+	private int successor(int node) {
+		if (right(node) != NIL) {
+			return leftmost(right(node));
+		}
+		int parent = parent(node);
+		while (parent != NIL && right(parent) == node) {
+			node = parent;
+			parent = parent(node);
+		}
+		return parent;
+	}
+
+	/**
+	 * Set the tree's root, detaching it from its former parent
+	 *
+	 * @param node the new root, or NIL for an empty tree
+	 */
+	private void setRoot(int node) {
+		root = node;
+		setParent(node, NIL);
+	}
+
+	/**
+	 * Joins the nodes of t and the node x with the tree
+	 * complexity: O(delta-h)
+	 *
+	 * @param x a detached node with no children, height 0 and size 1
+	 * @param t a tree of the same node storage
+	 * @return the rank difference between the tree and t, plus 1
+	 */
+	private int joinNode(int x, IntAVLTree t) {
+		int complexity = Math.abs(getHeight() - t.getHeight()) + 1;
+		if (empty() || t.empty()) {
+			if (empty()) {
+				root = t.root;
+				min = t.min;
+				max = t.max;
+			}
+			insertNode(x);
+		} else {
+			boolean isLarger = height(root) > height(t.root);
+			IntAVLTree largerTree = isLarger ? this : t;
+			IntAVLTree smallerTree = isLarger ? t : this;
+			int joinNode; //the first large tree's node with height<=small tree's height
+			int joinParent; //the parent of joinNode, which will become the parent of x
+			if (key(x) < key(largerTree.root)) {
+				joinParent = largerTree.findSubtreeParentByHeight(true, smallerTree.getHeight());
+				joinNode = joinParent != NIL ? left(joinParent) : largerTree.root;
+				setLeft(x, smallerTree.root);
+				setRight(x, joinNode);
+				if (joinParent != NIL) {
+					setLeft(joinParent, x);
+				}
+				min = smallerTree.min;
+				max = largerTree.max;
+			} else {
+				joinParent = largerTree.findSubtreeParentByHeight(false, smallerTree.getHeight());
+				joinNode = joinParent != NIL ? right(joinParent) : largerTree.root;
+				setRight(x, smallerTree.root);
+				setLeft(x, joinNode);
+				if (joinParent != NIL) {
+					setRight(joinParent, x);
+				}
+				min = largerTree.min;
+				max = smallerTree.max;
+			}
+			setParent(x, joinParent);
+			updateSizeToRoot(x);
+			setParent(joinNode, x);
+			setParent(smallerTree.root, x);
+			setHeight(x, smallerTree.getHeight() + 1);
+			if (joinNode == largerTree.root) {
+				//if the heights of both tree are identical, x will become their new root
+				root = x;
+			} else if (!isLarger) {
+				root = largerTree.root;
+			}
+			rebalanceInsertion(x);
+		}
+		if (t != this) {
+			//the nodes of t now belong to this tree
+			t.root = NIL;
+			t.min = NIL;
+			t.max = NIL;
+		}
+		return complexity;
+	}
+
+	/**
+	 * Copy a tree from another node storage into this tree's storage, keeping its shape
+	 * complexity: O(n)
+	 *
+	 * @param t the tree to copy
+	 * @return a tree with the same keys, info and shape, sharing this tree's storage
+	 */
+	private IntAVLTree copyToStore(IntAVLTree t) {
+		IntAVLTree copy = new IntAVLTree(nodes);
+		copy.setRoot(copySubtree(t, t.root));
+		copy.min = copy.root == NIL ? NIL : copy.leftmost(copy.root);
+		copy.max = copy.root == NIL ? NIL : copy.rightmost(copy.root);
+		return copy;
+	}
+
+	/**
+	 * Recursively return the slots of a subtree to this tree's storage
+	 * complexity: O(n), with recursion depth bounded by the subtree's height
+	 *
+	 * @param node the subtree's root
+	 */
+	private void freeSubtree(int node) {
+		if (node == NIL) {
+			return;
+		}
+		//freeing a slot links it through its left child, so read both children first
+		int leftChild = left(node);
+		int rightChild = right(node);
+		freeSubtree(leftChild);
+		freeSubtree(rightChild);
+		nodes.free(node);
+	}
+
+	/**
+	 * Recursively copy a subtree of t into this tree's storage
+	 * complexity: O(n), with recursion depth bounded by the subtree's height
+	 *
+	 * @param t    the tree that holds the subtree
+	 * @param node the subtree's root in t's storage
+	 * @return the copied subtree's root
+	 */
+	private int copySubtree(IntAVLTree t, int node) {
+		if (node == NIL) {
+			return NIL;
+		}
+		int copy = nodes.allocate(t.key(node), t.nodes.values[node]);
+		int leftCopy = copySubtree(t, t.left(node));
+		int rightCopy = copySubtree(t, t.right(node));
+		setLeft(copy, leftCopy);
+		setRight(copy, rightCopy);
+		setParent(leftCopy, copy);
+		setParent(rightCopy, copy);
+		setHeight(copy, t.height(node));
+		nodes.sizes[copy] = t.size(node);
+		return copy;
+	}
+
+	/**
+	 * Get the root node, for tests
+	 */
+	int getRootNode() {
+		return root;
+	}
+
+	/**
+	 * Get the node storage, for tests
+	 */
+	NodeStore getNodes() {
+		return nodes;
+	}
+
+	//endregion
+
+	//region rebalancing
+
+	/**
+	 * Perform a left rotation
+	 * complexity: O(1)
+	 *
+	 * @param node the node to rotate
+	 * @return time complexity
+	 */
+	private int rotateLeft(int node) {
+		int parent = parent(node);
+		int leftChild = left(node);
+		replaceChild(parent, node);
+		setLeft(node, parent);
+		setRight(parent, leftChild);
+		updateRotated(parent, node, leftChild);
+		return 1;
+	}
+
+	/**
+	 * Perform a right rotation
+	 * complexity: O(1)
+	 *
+	 * @param node the node to rotate
+	 * @return time complexity
+	 */
+	private int rotateRight(int node) {
+		int parent = parent(node);
+		int rightChild = right(node);
+		replaceChild(parent, node);
+		setRight(node, parent);
+		setLeft(parent, rightChild);
+		updateRotated(parent, node, rightChild);
+		return 1;
+	}
+
+	/**
+	 * Put a rotated node in its parent's place
+	 *
+	 * @param parent the parent of the rotated node
+	 * @param node   the rotated node
+	 */
+	private void replaceChild(int parent, int node) {
+		if (parent == root) {
+			root = node;
+		} else {
+			int parentParent = parent(parent);
+			if (left(parentParent) == parent) {
+				setLeft(parentParent, node);
+			} else {
+				setRight(parentParent, node);
+			}
+		}
+	}
+
+	/**
+	 * Update the parents and sizes of the nodes involved in a rotation
+	 *
+	 * @param parent     the parent of the rotated node
+	 * @param node       the rotated node
+	 * @param nodesChild the child that moved from the rotated node to its parent
+	 */
+	private void updateRotated(int parent, int node, int nodesChild) {
+		setParent(node, parent(parent));
+		setParent(parent, node);
+		setParent(nodesChild, parent);
+		nodes.sizes[node] = size(parent);
+		nodes.sizes[parent] = size(left(parent)) + size(right(parent)) + 1;
+	}
+
+	/**
+	 * Rebalances a node after insertion, with the same cases as {@link AVLTree.InsertionBalancer}
+	 * complexity: O(log n)
+	 *
+	 * @param node the node to rebalance
+	 * @return the number of rebalances that occurred
+	 */
+	private int rebalanceInsertion(int node) {
+		int amount = 0;
+		int parent;
+		while ((parent = parent(node)) != NIL) {
+			int otherChild = left(parent) == node ? right(parent) : left(parent);
+			int parentDif = height(parent) - height(node);
+			int parentOtherDif = height(parent) - height(otherChild);
+			int leftDif = height(node) - height(left(node));
+			int rightDif = height(node) - height(right(node));
+			if (parentDif == 0) {
+				if (parentOtherDif == 1) {
+					//case 1: promote and rebalance the parent
+					amount += promote(parent);
+					node = parent;
+					continue;
+				} else if (parentOtherDif == 2) {
+					if ((left(parent) == node && leftDif == 1 && rightDif == 2) ||
+						(right(parent) == node && leftDif == 2 && rightDif == 1) ||
+						(leftDif == 1 && rightDif == 1)) {
+						//case 2: rotate
+						amount += left(parent) == node ? rotateRight(node) : rotateLeft(node);
+						if (leftDif != rightDif) {
+							amount += demote(parent);
+						} else {
+							//may happen in join, the node becomes case 1 after the rotation
+							amount += promote(node);
+							continue;
+						}
+					} else {
+						//case 3: double rotate
+						int rotatedChild;
+						if (left(parent) == node && leftDif == 2 && rightDif == 1) {
+							rotatedChild = right(node);
+							amount += rotateLeft(rotatedChild);
+							amount += rotateRight(rotatedChild);
+						} else if (right(parent) == node && leftDif == 1 && rightDif == 2) {
+							rotatedChild = left(node);
+							amount += rotateRight(rotatedChild);
+							amount += rotateLeft(rotatedChild);
+						} else {
+							throw new IllegalStateException("Unsupported rebalance state");
+						}
+						amount += promote(rotatedChild);
+						amount += demote(left(rotatedChild));
+						amount += demote(right(rotatedChild));
+					}
+				} else {
+					throw new IllegalStateException("Unsupported rebalance state");
+				}
+			} else if (parentDif != 1 || parentOtherDif != 1) {
+				throw new IllegalStateException("Unsupported rebalance state");
+			}
+			break;
+		}
+		return amount;
+	}
+
+	/**
+	 * Rebalances a node after deletion, with the same cases as {@link AVLTree.DeletionBalancer}
+	 * complexity: O(log n)
+	 *
+	 * @param node the parent of the deleted node
+	 * @return the number of rebalances that occurred
+	 */
+	private int rebalanceDeletion(int node) {
+		int amount = 0;
+		while (node != NIL) {
+			int leftChild = left(node);
+			int rightChild = right(node);
+			int leftDif = height(node) - height(leftChild);
+			int rightDif = height(node) - height(rightChild);
+
+			if ((leftDif == 2 && rightDif == 1) || (leftDif == 1 && rightDif == 2) || (leftDif == 1 && rightDif == 1)) {
+				//no rebalancing is needed
+				break;
+			} else if (leftDif == 2 && rightDif == 2) {
+				//case 1: demote and rebalance parent
+				amount += demote(node);
+				node = parent(node);
+			} else if ((rightDif == 3 && leftDif == 1) || (rightDif == 1 && leftDif == 3)) {
+				boolean leftDifLarger = leftDif == 3;
+				int grandchildrenParent = leftDifLarger ? rightChild : leftChild;
+				int grandchildA = leftDifLarger ? left(rightChild) : right(leftChild);
+				int grandchildB = leftDifLarger ? right(rightChild) : left(leftChild);
+				int grandchildDifA = height(grandchildrenParent) - height(grandchildA);
+				int grandchildDifB = height(grandchildrenParent) - height(grandchildB);
+
+				if (grandchildDifA == 1 && grandchildDifB == 1) {
+					//case 2: single rotation
+					amount += leftDifLarger ? rotateLeft(grandchildrenParent) : rotateRight(grandchildrenParent);
+					amount += demote(node);
+					amount += promote(grandchildrenParent);
+					break;
+				} else if (grandchildDifA == 2 && grandchildDifB == 1) {
+					//case 3: single rotation and rebalance parent
+					amount += leftDifLarger ? rotateLeft(grandchildrenParent) : rotateRight(grandchildrenParent);
+					amount += demote(node);
+					amount += demote(node);
+					node = parent(grandchildrenParent);
+				} else if (grandchildDifA == 1 && grandchildDifB == 2) {
+					//case 4: double rotation and rebalance parent
+					if (leftDifLarger) {
+						amount += rotateRight(grandchildA);
+						amount += rotateLeft(grandchildA);
+					} else {
+						amount += rotateLeft(grandchildA);
+						amount += rotateRight(grandchildA);
+					}
+					amount += demote(node);
+					amount += demote(node);
+					amount += demote(grandchildrenParent);
+					amount += promote(grandchildA);
+					node = parent(grandchildA);
+				} else {
+					throw new IllegalStateException("Unsupported rebalance state");
+				}
+			} else {
+				throw new IllegalStateException("Unsupported rebalance state");
+			}
+		}
+		return amount;
+	}
+
+	//endregion
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * complexity: O(1)
+	 * <p>
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return root == NIL;
+	}
+
+	/**
+	 * public String search(int k)
+	 * <p>
+	 * complexity: O(log n)
+	 * <p>
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		int node = findNodeByKey(k);
+		return node != NIL ? nodes.values[node] : null;
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 * <p>
+	 * complexity: O(log n)
+	 * <p>
+	 * inserts an item with key k and info i to the AVL tree.
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were necessary.
+	 * returns -1 if an item with key k already exists in the tree.
+	 */
+	public int insert(int k, String i) {
+		//a single descent finds both an existing key and the new node's parent
+		int parent = findInsertionParent(k);
+		if (parent != NIL && key(parent) == k) {
+			return -1;
+		}
+		return insertNode(nodes.allocate(k, i), parent);
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * complexity: O(log n)
+	 * <p>
+	 * deletes an item with key k from the binary tree, if it is there.
+	 * returns the number of rebalancing operations, or 0 if no rebalancing operations were needed.
+	 * returns -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		int deletedNode = findNodeByKey(k);
+		if (deletedNode == NIL) {
+			return -1;
+		}
+		if (left(deletedNode) != NIL && right(deletedNode) != NIL) {
+			//nodes have no identity outside the tree, so move the successor's item and delete the successor instead
+			int successor = leftmost(right(deletedNode));
+			nodes.keys[deletedNode] = key(successor);
+			nodes.values[deletedNode] = nodes.values[successor];
+			deletedNode = successor;
+		}
+		int deletedNodeParent = parent(deletedNode);
+		deleteDirectly(deletedNode);
+		updateSizeToRoot(deletedNodeParent);
+		int amount = rebalanceDeletion(deletedNodeParent);
+		if (deletedNode == min) {
+			min = root == NIL ? NIL : leftmost(root);
+		}
+		if (deletedNode == max) {
+			max = root == NIL ? NIL : rightmost(root);
+		}
+		nodes.free(deletedNode);
+		return amount;
+	}
+
+	/**
+	 * public String min()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the info of the item with the smallest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String min() {
+		return min != NIL ? nodes.values[min] : null;
+	}
+
+	/**
+	 * public String max()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the info of the item with the largest key in the tree,
+	 * or null if the tree is empty
+	 */
+	public String max() {
+		return max != NIL ? nodes.values[max] : null;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * complexity: O(n)
+	 * Returns a sorted array which contains all keys in the tree,
+	 * or an empty array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		int[] arr = new int[size()];
+		int index = 0;
+		for (int node = min; node != NIL; node = successor(node)) {
+			arr[index++] = key(node);
+		}
+		return arr;
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 * <p>
+	 * complexity: O(n)
+	 * Returns an array which contains all info in the tree,
+	 * sorted by their respective keys,
+	 * or an empty array if the tree is empty.
+	 */
+	public String[] infoToArray() {
+		String[] arr = new String[size()];
+		int index = 0;
+		for (int node = min; node != NIL; node = successor(node)) {
+			arr[index++] = nodes.values[node];
+		}
+		return arr;
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the number of nodes in the tree.
+	 */
+	public int size() {
+		return size(root);
+	}
+
+	/**
+	 * Get the height of the tree
+	 * complexity: O(1)
+	 *
+	 * @return height, or -1 for an empty tree
+	 */
+	public int getHeight() {
+		return height(root);
+	}
+
+	/**
+	 * public IntAVLTree[] split(int x)
+	 * <p>
+	 * complexity: O(log n)
+	 * splits the tree into 2 trees according to the key x.
+	 * Returns an array [t1, t2] with two AVL trees. keys(t1) < x < keys(t2).
+	 * x doesn't have to be in the tree. If it is, its item is in neither tree.
+	 * Both trees share this tree's node storage, and this tree is left empty.
+	 */
+	public IntAVLTree[] split(int x) {
+		IntAVLTree smallerTree = new IntAVLTree(nodes);
+		IntAVLTree greaterTree = new IntAVLTree(nodes);
+
+		//go down to x, or to the last node on its search path if it isn't in the tree
+		int lastNode = NIL;
+		int node = root;
+		while (node != NIL && key(node) != x) {
+			lastNode = node;
+			node = x < key(node) ? left(node) : right(node);
+		}
+		int splitNode = node;
+		if (splitNode != NIL) {
+			smallerTree.setRoot(left(splitNode));
+			greaterTree.setRoot(right(splitNode));
+			node = parent(splitNode);
+		} else {
+			//x would be a child of the last node, so it's where the split starts
+			node = lastNode;
+		}
+
+		// travel until we get to the root, while joining the left or right subtrees to the split trees
+		while (node != NIL) {
+			int parent = parent(node);
+			IntAVLTree tree = new IntAVLTree(nodes);
+			if (x > key(node)) {
+				tree.setRoot(left(node));
+				resetNode(node);
+				smallerTree.joinNode(node, tree);
+			} else {
+				tree.setRoot(right(node));
+				resetNode(node);
+				greaterTree.joinNode(node, tree);
+			}
+			node = parent;
+		}
+
+		smallerTree.min = min != NIL && key(min) < x ? min : NIL;
+		smallerTree.max = smallerTree.empty() ? NIL : smallerTree.rightmost(smallerTree.root);
+		greaterTree.max = max != NIL && key(max) > x ? max : NIL;
+		greaterTree.min = greaterTree.empty() ? NIL : greaterTree.leftmost(greaterTree.root);
+
+		//the virtual leaf isn't a node, so only a found node is freed
+		if (splitNode != NIL) {
+			nodes.free(splitNode);
+		}
+		root = NIL;
+		min = NIL;
+		max = NIL;
+		return new IntAVLTree[]{smallerTree, greaterTree};
+	}
+
+	/**
+	 * Detach a node from its parent and children, so it can be joined as a new node
+	 *
+	 * @param node the node to reset
+	 */
+	private void resetNode(int node) {
+		setParent(node, NIL);
+		setLeft(node, NIL);
+		setRight(node, NIL);
+		setHeight(node, 0);
+		nodes.sizes[node] = 1;
+	}
+
+	/**
+	 * public int join(int k, String i, IntAVLTree t)
+	 * <p>
+	 * joins t and a new item (k, i) with the tree, and leaves t empty.
+	 * complexity: O(delta-h) - rank difference between the tree and t,
+	 * or O(|t|) if t doesn't share this tree's node storage, since its nodes are copied first.
+	 * Returns the complexity of the operation (rank difference between the tree and t, plus 1)
+	 * precondition: keys(k,t) < keys() or keys(k,t) > keys()
+	 */
+	public int join(int k, String i, IntAVLTree t) {
+		IntAVLTree other = t.nodes == nodes ? t : copyToStore(t);
+		int complexity = joinNode(nodes.allocate(k, i), other);
+		if (other != t) {
+			//t's storage may be shared with the other parts of a split, which can reuse the copied slots
+			t.freeSubtree(t.root);
+			t.root = NIL;
+			t.min = NIL;
+			t.max = NIL;
+		}
+		return complexity;
+	}
+
+	/**
+	 * The node storage of one or more trees.
+	 * Nodes are allocated from chunks that grow with the storage, and freed slots are reused before growing.
+	 */
+	static final class NodeStore {
+		/**
+		 * The minimal amount of slots added when the storage grows
+		 */
+		static final int CHUNK_SIZE = 1024;
+
+		int[] keys = new int[CHUNK_SIZE];
+		String[] values = new String[CHUNK_SIZE];
+		int[] left = new int[CHUNK_SIZE];
+		int[] right = new int[CHUNK_SIZE];
+		int[] parent = new int[CHUNK_SIZE];
+		byte[] heights = new byte[CHUNK_SIZE];
+		int[] sizes = new int[CHUNK_SIZE];
+		/**
+		 * The amount of slots that were ever used, including the virtual leaf
+		 */
+		int used = 1;
+		/**
+		 * The first freed slot, freed slots are linked through the left array
+		 */
+		int freeHead = NIL;
+
+		NodeStore() {
+			heights[NIL] = -1;
+		}
+
+		/**
+		 * Allocate a detached node with no children
+		 * complexity: amortized O(1)
+		 *
+		 * @param key   the node's key
+		 * @param value the node's info
+		 * @return the node's index
+		 */
+		int allocate(int key, String value) {
+			int node;
+			if (freeHead != NIL) {
+				node = freeHead;
+				freeHead = left[node];
+			} else {
+				if (used == keys.length) {
+					grow();
+				}
+				node = used++;
+			}
+			keys[node] = key;
+			values[node] = value;
+			left[node] = NIL;
+			right[node] = NIL;
+			parent[node] = NIL;
+			heights[node] = 0;
+			sizes[node] = 1;
+			return node;
+		}
+
+		/**
+		 * Return a node's slot for reuse
+		 * complexity: O(1)
+		 *
+		 * @param node the node's index
+		 */
+		void free(int node) {
+			values[node] = null;
+			left[node] = freeHead;
+			freeHead = node;
+		}
+
+		/**
+		 * Grow all arrays by half their capacity, and at least by a chunk
+		 */
+		private void grow() {
+			int capacity = keys.length + Math.max(CHUNK_SIZE, keys.length >> 1);
+			keys = Arrays.copyOf(keys, capacity);
+			values = Arrays.copyOf(values, capacity);
+			left = Arrays.copyOf(left, capacity);
+			right = Arrays.copyOf(right, capacity);
+			parent = Arrays.copyOf(parent, capacity);
+			heights = Arrays.copyOf(heights, capacity);
+			sizes = Arrays.copyOf(sizes, capacity);
+		}
+	}
+}
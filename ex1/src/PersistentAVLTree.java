@@ -0,0 +1,430 @@
+/**
+ * PersistentAVLTree
+ * <p>
+ * An AVL tree with distinct integer keys and info, whose nodes are immutable and have no parent pointers.
+ * insert, delete, split and join copy only the nodes on the changed path, O(log n) nodes, and share all the others,
+ * so {@link #snapshot()} is O(1) and a snapshot never changes, while the tree keeps being updated.
+ * <p>
+ * Updates are serialized by the tree's lock, and reads take no lock,
+ * since every read works on the root that was current when it started.
+ */
+public class PersistentAVLTree {
+	/**
+	 * The root, or null if the tree is empty
+	 */
+	private volatile Node root;
+	private final boolean readOnly;
+
+	public PersistentAVLTree() {
+		this(null, false);
+	}
+
+	private PersistentAVLTree(Node root, boolean readOnly) {
+		this.root = root;
+		this.readOnly = readOnly;
+	}
+
+	//region private methods
+
+	private static int height(Node node) {
+		return node == null ? -1 : node.height;
+	}
+
+	private static int size(Node node) {
+		return node == null ? 0 : node.size;
+	}
+
+	/**
+	 * Create a node from balanced children, and rotate it once or twice if it is unbalanced
+	 * complexity: O(1)
+	 *
+	 * @return the root of the balanced subtree
+	 */
+	private static Node balance(int key, String value, Node left, Node right) {
+		int leftHeight = height(left);
+		int rightHeight = height(right);
+		if (leftHeight > rightHeight + 1) {
+			if (height(left.left) >= height(left.right)) {
+				//right rotation
+				return new Node(left.key, left.value, left.left, new Node(key, value, left.right, right));
+			}
+			//left then right rotation
+			Node leftRight = left.right;
+			return new Node(leftRight.key, leftRight.value,
+					new Node(left.key, left.value, left.left, leftRight.left),
+					new Node(key, value, leftRight.right, right));
+		}
+		if (rightHeight > leftHeight + 1) {
+			if (height(right.right) >= height(right.left)) {
+				//left rotation
+				return new Node(right.key, right.value, new Node(key, value, left, right.left), right.right);
+			}
+			//right then left rotation
+			Node rightLeft = right.left;
+			return new Node(rightLeft.key, rightLeft.value,
+					new Node(key, value, left, rightLeft.left),
+					new Node(right.key, right.value, rightLeft.right, right.right));
+		}
+		return new Node(key, value, left, right);
+	}
+
+	/**
+	 * Recursively insert an item into a subtree
+	 * complexity: O(log n)
+	 *
+	 * @return the new subtree, or the same subtree if the key is already in it
+	 */
+	private static Node insert(Node node, int k, String i) {
+		if (node == null) {
+			return new Node(k, i, null, null);
+		}
+		if (k < node.key) {
+			Node left = insert(node.left, k, i);
+			return left == node.left ? node : balance(node.key, node.value, left, node.right);
+		} else if (k > node.key) {
+			Node right = insert(node.right, k, i);
+			return right == node.right ? node : balance(node.key, node.value, node.left, right);
+		}
+		return node;
+	}
+
+	/**
+	 * Recursively delete a key from a subtree
+	 * complexity: O(log n)
+	 *
+	 * @return the new subtree, or the same subtree if the key isn't in it
+	 */
+	private static Node delete(Node node, int k) {
+		if (node == null) {
+			return null;
+		}
+		if (k < node.key) {
+			Node left = delete(node.left, k);
+			return left == node.left ? node : balance(node.key, node.value, left, node.right);
+		} else if (k > node.key) {
+			Node right = delete(node.right, k);
+			return right == node.right ? node : balance(node.key, node.value, node.left, right);
+		}
+		if (node.left == null) {
+			return node.right;
+		}
+		if (node.right == null) {
+			return node.left;
+		}
+		//replace the node by its successor
+		Node successor = minNode(node.right);
+		return balance(successor.key, successor.value, node.left, deleteMin(node.right));
+	}
+
+	/**
+	 * Recursively delete the minimal node of a non-empty subtree
+	 * complexity: O(log n)
+	 */
+	private static Node deleteMin(Node node) {
+		if (node.left == null) {
+			return node.right;
+		}
+		return balance(node.key, node.value, deleteMin(node.left), node.right);
+	}
+
+	private static Node minNode(Node node) {
+		while (node.left != null) {
+			node = node.left;
+		}
+		return node;
+	}
+
+	private static Node maxNode(Node node) {
+		while (node.right != null) {
+			node = node.right;
+		}
+		return node;
+	}
+
+	/**
+	 * Join two subtrees and an item between them
+	 * complexity: O(|height(left) - height(right)| + 1)
+	 * precondition: keys(left) < k < keys(right)
+	 *
+	 * @return the joined subtree
+	 */
+	private static Node join(Node left, int k, String i, Node right) {
+		//go down the higher subtree's inner spine, to a subtree as high as the other one
+		if (height(left) > height(right) + 1) {
+			return balance(left.key, left.value, left.left, join(left.right, k, i, right));
+		}
+		if (height(right) > height(left) + 1) {
+			return balance(right.key, right.value, join(left, k, i, right.left), right.right);
+		}
+		return new Node(k, i, left, right);
+	}
+
+	/**
+	 * Recursively split a subtree by a key, which doesn't have to be in it
+	 * complexity: O(log n)
+	 *
+	 * @return the subtrees of the keys smaller and larger than x
+	 */
+	private static Node[] split(Node node, int x) {
+		if (node == null) {
+			return new Node[2];
+		}
+		if (x == node.key) {
+			return new Node[]{node.left, node.right};
+		}
+		if (x < node.key) {
+			Node[] parts = split(node.left, x);
+			parts[1] = join(parts[1], node.key, node.value, node.right);
+			return parts;
+		}
+		Node[] parts = split(node.right, x);
+		parts[0] = join(node.left, node.key, node.value, parts[0]);
+		return parts;
+	}
+
+	/**
+	 * Recursively copy the keys and info of a subtree in order
+	 * complexity: O(n)
+	 *
+	 * @return the index after the last copied item
+	 */
+	private static int inorder(Node node, int[] keys, String[] info, int index) {
+		if (node == null) {
+			return index;
+		}
+		index = inorder(node.left, keys, info, index);
+		if (keys != null) {
+			keys[index] = node.key;
+		}
+		if (info != null) {
+			info[index] = node.value;
+		}
+		return inorder(node.right, keys, info, index + 1);
+	}
+
+	private void checkWritable() {
+		if (readOnly) {
+			throw new UnsupportedOperationException("A snapshot is read-only");
+		}
+	}
+
+	/**
+	 * Get the root node, for tests
+	 */
+	Node getRootNode() {
+		return root;
+	}
+
+	//endregion
+
+	/**
+	 * public PersistentAVLTree snapshot()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns a read-only tree with the items of this tree at the moment of the call.
+	 * Later updates of this tree don't change it.
+	 */
+	public PersistentAVLTree snapshot() {
+		return readOnly ? this : new PersistentAVLTree(root, true);
+	}
+
+	/**
+	 * public boolean isReadOnly()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns true if this tree is a snapshot, whose update methods throw UnsupportedOperationException
+	 */
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * complexity: O(1)
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return root == null;
+	}
+
+	/**
+	 * public String search(int k)
+	 * <p>
+	 * complexity: O(log n)
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		Node node = root;
+		while (node != null) {
+			if (k == node.key) {
+				return node.value;
+			}
+			node = k < node.key ? node.left : node.right;
+		}
+		return null;
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 * <p>
+	 * complexity: O(log n)
+	 * inserts an item with key k and info i to the tree, by copying the nodes on its path.
+	 * returns 0, or -1 if an item with key k already exists in the tree.
+	 * Since nodes are copied rather than changed, rebalancing operations aren't counted.
+	 */
+	public synchronized int insert(int k, String i) {
+		checkWritable();
+		Node current = root;
+		Node updated = insert(current, k, i);
+		if (updated == current) {
+			return -1;
+		}
+		root = updated;
+		return 0;
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * complexity: O(log n)
+	 * deletes an item with key k from the tree if it is there, by copying the nodes on its path.
+	 * returns 0, or -1 if an item with key k was not found in the tree.
+	 */
+	public synchronized int delete(int k) {
+		checkWritable();
+		Node current = root;
+		Node updated = delete(current, k);
+		if (updated == current) {
+			return -1;
+		}
+		root = updated;
+		return 0;
+	}
+
+	/**
+	 * public String min()
+	 * <p>
+	 * complexity: O(log n)
+	 * Returns the info of the item with the smallest key in the tree, or null if the tree is empty
+	 */
+	public String min() {
+		Node node = root;
+		return node != null ? minNode(node).value : null;
+	}
+
+	/**
+	 * public String max()
+	 * <p>
+	 * complexity: O(log n)
+	 * Returns the info of the item with the largest key in the tree, or null if the tree is empty
+	 */
+	public String max() {
+		Node node = root;
+		return node != null ? maxNode(node).value : null;
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * complexity: O(n)
+	 * Returns a sorted array which contains all keys in the tree, or an empty array if the tree is empty.
+	 */
+	public int[] keysToArray() {
+		Node node = root;
+		int[] arr = new int[size(node)];
+		inorder(node, arr, null, 0);
+		return arr;
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 * <p>
+	 * complexity: O(n)
+	 * Returns an array which contains all info in the tree, sorted by their respective keys.
+	 */
+	public String[] infoToArray() {
+		Node node = root;
+		String[] arr = new String[size(node)];
+		inorder(node, null, arr, 0);
+		return arr;
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the number of items in the tree.
+	 */
+	public int size() {
+		return size(root);
+	}
+
+	/**
+	 * Get the height of the tree
+	 * complexity: O(1)
+	 *
+	 * @return height, or -1 if the tree is empty
+	 */
+	public int getHeight() {
+		return height(root);
+	}
+
+	/**
+	 * public PersistentAVLTree[] split(int x)
+	 * <p>
+	 * complexity: O(log n)
+	 * Returns an array [t1, t2] with two trees. keys(t1) < x < keys(t2).
+	 * x doesn't have to be in the tree. If it is, its item is in neither tree.
+	 * Unlike {@link AVLTree#split(int)}, this tree doesn't change, and shares all nodes that are off x's path.
+	 */
+	public PersistentAVLTree[] split(int x) {
+		Node[] parts = split(root, x);
+		return new PersistentAVLTree[]{new PersistentAVLTree(parts[0], false), new PersistentAVLTree(parts[1], false)};
+	}
+
+	/**
+	 * public int join(int k, String i, PersistentAVLTree t)
+	 * <p>
+	 * joins t and a new item (k, i) with the tree.
+	 * Unlike {@link AVLTree#join(AVLTree.IAVLNode, AVLTree)}, t doesn't change, and its nodes are shared.
+	 * complexity: O(delta-h) - rank difference between the tree and t
+	 * Returns the complexity of the operation (rank difference between the tree and t, plus 1)
+	 * precondition: keys(t) < k < keys() or keys(t) > k > keys()
+	 */
+	public synchronized int join(int k, String i, PersistentAVLTree t) {
+		checkWritable();
+		Node current = root;
+		Node other = t.root;
+		int complexity = Math.abs(height(current) - height(other)) + 1;
+		boolean otherIsSmaller = other != null ? other.key < k : current != null && current.key > k;
+		if (otherIsSmaller) {
+			root = join(other, k, i, current);
+		} else {
+			root = join(current, k, i, other);
+		}
+		return complexity;
+	}
+
+	/**
+	 * An immutable tree node
+	 */
+	static final class Node {
+		final int key;
+		final String value;
+		final Node left;
+		final Node right;
+		final int height;
+		final int size;
+
+		Node(int key, String value, Node left, Node right) {
+			this.key = key;
+			this.value = value;
+			this.left = left;
+			this.right = right;
+			this.height = 1 + Math.max(PersistentAVLTree.height(left), PersistentAVLTree.height(right));
+			this.size = 1 + PersistentAVLTree.size(left) + PersistentAVLTree.size(right);
+		}
+	}
+}
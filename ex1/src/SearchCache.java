@@ -0,0 +1,284 @@
+import java.util.Arrays;
+
+/**
+ * SearchCache
+ * <p>
+ * A bounded cache from keys to the nodes of an {@link AVLTree}, which answers searches of hot keys in O(1)
+ * instead of going down from the root. It's enabled with {@link AVLTree#enableSearchCache(int)}.
+ * <p>
+ * Items are evicted with the CLOCK algorithm: a hit sets the item's reference bit, and the clock hand clears the bits
+ * it passes until it finds an item without one, so items that are searched again survive a full turn of the hand.
+ * As in TinyLFU, a found key is admitted only on its second miss within a window of recent misses,
+ * which a doorkeeper bit set remembers, so keys that are searched once don't evict hot keys nor pay for an insertion.
+ * Missing keys aren't cached, so inserts don't invalidate anything,
+ * and the tree removes deleted keys and clears the cache when its nodes are moved by split, join or set operations.
+ * <p>
+ * The keys are indexed by an open addressing hash table with linear probing, in arrays that are allocated once.
+ * Like the tree, the cache isn't thread-safe, and searches update it.
+ */
+public class SearchCache {
+	private final int capacity;
+	private final int[] keys;
+	private final AVLTree.IAVLNode[] nodes;
+	private final boolean[] referenced;
+	/**
+	 * The hash table, with the slot of each key plus 1, and 0 for an empty bucket
+	 */
+	private final int[] table;
+	private final int mask;
+	/**
+	 * The doorkeeper bits of keys that missed once in the current window
+	 */
+	private final long[] doorkeeper;
+	private final int doorkeeperMask;
+	/**
+	 * The amount of misses in a window, after which the doorkeeper is cleared
+	 */
+	private final int window;
+	private int windowMisses;
+	private int hand;
+	private int size;
+	private long hits;
+	private long misses;
+
+	/**
+	 * @param capacity the maximal amount of cached keys
+	 */
+	SearchCache(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException(String.format("Invalid capacity %d", capacity));
+		}
+		if (capacity > 1 << 28) {
+			throw new IllegalArgumentException(String.format("Capacity %d is larger than %d", capacity, 1 << 28));
+		}
+		this.capacity = capacity;
+		keys = new int[capacity];
+		nodes = new AVLTree.IAVLNode[capacity];
+		referenced = new boolean[capacity];
+		//at most half full, so probe sequences stay short
+		table = new int[Integer.highestOneBit(capacity) << 2];
+		mask = table.length - 1;
+		//8 bits per cached key
+		doorkeeper = new long[Math.max(1, table.length >>> 5)];
+		doorkeeperMask = (doorkeeper.length << 6) - 1;
+		window = 10 * capacity;
+	}
+
+	//region private methods
+
+	private int home(int key) {
+		int hash = key * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	/**
+	 * Check the doorkeeper bit of a missed key, and set it
+	 * complexity: O(1) amortized
+	 *
+	 * @return true if the key already missed in the current window
+	 */
+	private boolean missedBefore(int key) {
+		if (++windowMisses > window) {
+			Arrays.fill(doorkeeper, 0);
+			windowMisses = 0;
+		}
+		int hash = key * 0x85EBCA6B;
+		int bit = (hash ^ (hash >>> 15)) & doorkeeperMask;
+		long word = doorkeeper[bit >>> 6];
+		doorkeeper[bit >>> 6] = word | 1L << bit;
+		return (word & 1L << bit) != 0;
+	}
+
+	/**
+	 * Find the bucket of a key
+	 * complexity: O(1) expected
+	 *
+	 * @return the bucket, or -1 if the key isn't cached
+	 */
+	private int bucket(int key) {
+		for (int bucket = home(key); table[bucket] != 0; bucket = (bucket + 1) & mask) {
+			if (keys[table[bucket] - 1] == key) {
+				return bucket;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Remove the item of a bucket, and shift the following items of its probe sequence back into the hole
+	 * complexity: O(1) expected
+	 */
+	private void removeBucket(int bucket) {
+		int slot = table[bucket] - 1;
+		nodes[slot] = null;
+		size--;
+		int hole = bucket;
+		for (int next = (hole + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+			int home = home(keys[table[next] - 1]);
+			//the item can fill the hole if the hole is between its home bucket and its bucket
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				table[hole] = table[next];
+				hole = next;
+			}
+		}
+		table[hole] = 0;
+	}
+
+	/**
+	 * Advance the clock hand to a free slot, evicting the first item without a reference bit if the cache is full
+	 * complexity: O(1) amortized
+	 */
+	private int freeSlot() {
+		while (true) {
+			int slot = hand;
+			hand = hand + 1 == capacity ? 0 : hand + 1;
+			if (nodes[slot] == null) {
+				return slot;
+			}
+			if (referenced[slot]) {
+				referenced[slot] = false;
+			} else {
+				removeBucket(bucket(keys[slot]));
+				return slot;
+			}
+		}
+	}
+
+	//endregion
+
+	/**
+	 * Get the node of a key, and count a hit or a miss
+	 * complexity: O(1) expected
+	 *
+	 * @return the node, or null if the key isn't cached
+	 */
+	AVLTree.IAVLNode get(int key) {
+		int bucket = bucket(key);
+		if (bucket < 0) {
+			misses++;
+			return null;
+		}
+		hits++;
+		int slot = table[bucket] - 1;
+		referenced[slot] = true;
+		return nodes[slot];
+	}
+
+	/**
+	 * Cache the node of a key that was missed and then found, if it was missed before in the current window,
+	 * evicting another key if the cache is full
+	 * complexity: O(1) amortized
+	 * precondition: the key isn't cached
+	 */
+	void admit(int key, AVLTree.IAVLNode node) {
+		if (missedBefore(key)) {
+			put(key, node);
+		}
+	}
+
+	/**
+	 * Cache the node of a key, evicting another key if the cache is full
+	 * complexity: O(1) amortized
+	 * precondition: the key isn't cached
+	 */
+	void put(int key, AVLTree.IAVLNode node) {
+		int slot = freeSlot();
+		keys[slot] = key;
+		nodes[slot] = node;
+		referenced[slot] = false;
+		size++;
+		int bucket = home(key);
+		while (table[bucket] != 0) {
+			bucket = (bucket + 1) & mask;
+		}
+		table[bucket] = slot + 1;
+	}
+
+	/**
+	 * Remove a key, if it's cached
+	 * complexity: O(1) expected
+	 */
+	void remove(int key) {
+		int bucket = bucket(key);
+		if (bucket >= 0) {
+			removeBucket(bucket);
+		}
+	}
+
+	/**
+	 * Remove all keys
+	 * complexity: O(capacity)
+	 */
+	void clear() {
+		if (size == 0) {
+			return;
+		}
+		Arrays.fill(nodes, null);
+		Arrays.fill(referenced, false);
+		Arrays.fill(table, 0);
+		size = 0;
+		hand = 0;
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the amount of cached keys
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * public int capacity()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the maximal amount of cached keys
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * public long getHits()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the amount of searches that were answered by the cache
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * public long getMisses()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the amount of searches that went down the tree, including searches of missing keys
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * public double getHitRate()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the fraction of searches that were answered by the cache, or 0 if there were no searches
+	 */
+	public double getHitRate() {
+		long searches = hits + misses;
+		return searches == 0 ? 0 : (double) hits / searches;
+	}
+
+	/**
+	 * public void resetStatistics()
+	 * <p>
+	 * complexity: O(1)
+	 * Resets the hit and miss counts
+	 */
+	public void resetStatistics() {
+		hits = 0;
+		misses = 0;
+	}
+}
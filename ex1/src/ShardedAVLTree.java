@@ -0,0 +1,487 @@
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ShardedAVLTree
+ * <p>
+ * A thread-safe tree with distinct integer keys and info, made of AVLTree shards.
+ * Every shard holds the keys of a range and has its own lock, so updates to different ranges don't contend.
+ * A shard that grows too large is split in O(log n) with {@link AVLTree#split(int)},
+ * and a shard that becomes empty is joined with a neighbour with {@link AVLTree#join(AVLTree.IAVLNode, AVLTree)},
+ * so nodes are never copied between shards.
+ * {@link #rebalanceShards()} also splits shards that receive many updates and joins small neighbours that receive few.
+ */
+public class ShardedAVLTree {
+	/**
+	 * The default maximal amount of items in a shard
+	 */
+	public static final int DEFAULT_MAX_SHARD_SIZE = 1 << 16;
+	/**
+	 * A hot shard isn't split if it has less items than this
+	 */
+	private static final int MIN_SPLIT_SIZE = 64;
+
+	private final int maxShardSize;
+	/**
+	 * The shards, sorted by their lower bounds. The array is replaced, never changed, when shards are split or joined.
+	 */
+	private volatile Shard[] shards;
+	/**
+	 * Locked after the shards that are split or joined, while the shards array is replaced
+	 */
+	private final Object directoryLock = new Object();
+
+	/**
+	 * Create an empty tree with the default maximal shard size
+	 */
+	public ShardedAVLTree() {
+		this(DEFAULT_MAX_SHARD_SIZE);
+	}
+
+	/**
+	 * Create an empty tree
+	 *
+	 * @param maxShardSize a shard with more items than this is split into two
+	 */
+	public ShardedAVLTree(int maxShardSize) {
+		if (maxShardSize < 2) {
+			throw new IllegalArgumentException("maxShardSize must be at least 2: " + maxShardSize);
+		}
+		this.maxShardSize = maxShardSize;
+		this.shards = new Shard[]{new Shard(Integer.MIN_VALUE, new AVLTree())};
+	}
+
+	//region shards
+
+	/**
+	 * Find the index of the shard whose range contains a key
+	 * complexity: O(log number of shards)
+	 */
+	private static int shardIndex(Shard[] shards, int key) {
+		int lo = 0;
+		int hi = shards.length - 1;
+		//find the last shard whose lower bound is at most key
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (shards[mid].lowerBound <= key) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Lock the shard whose range contains a key
+	 * complexity: O(log number of shards)
+	 *
+	 * @return the locked shard, which the caller has to unlock
+	 */
+	private Shard lockShard(int key) {
+		while (true) {
+			Shard[] current = shards;
+			Shard shard = current[shardIndex(current, key)];
+			shard.lock.lock();
+			if (!shard.retired) {
+				return shard;
+			}
+			//the shard was split or joined after it was found
+			shard.lock.unlock();
+		}
+	}
+
+	/**
+	 * Lock all shards in ascending order
+	 * complexity: O(number of shards)
+	 *
+	 * @return the locked shards, which the caller has to unlock
+	 */
+	private Shard[] lockAll() {
+		while (true) {
+			Shard[] current = shards;
+			int locked = 0;
+			while (locked < current.length && !current[locked].retired) {
+				current[locked].lock.lock();
+				if (current[locked].retired) {
+					current[locked].lock.unlock();
+					break;
+				}
+				locked++;
+			}
+			if (locked == current.length) {
+				return current;
+			}
+			unlock(current, locked);
+		}
+	}
+
+	private static void unlock(Shard[] shards, int count) {
+		for (int i = count - 1; i >= 0; i--) {
+			shards[i].lock.unlock();
+		}
+	}
+
+	/**
+	 * Replace a range of shards in the shards array
+	 * precondition: the directory lock is held, and the replaced shards are locked
+	 *
+	 * @param from        the index of the first replaced shard
+	 * @param count       the amount of replaced shards
+	 * @param replacement the new shards
+	 */
+	private void replaceShards(int from, int count, Shard... replacement) {
+		Shard[] current = shards;
+		Shard[] next = new Shard[current.length - count + replacement.length];
+		System.arraycopy(current, 0, next, 0, from);
+		System.arraycopy(replacement, 0, next, from, replacement.length);
+		System.arraycopy(current, from + count, next, from + replacement.length, current.length - from - count);
+		for (int i = from; i < from + count; i++) {
+			current[i].retired = true;
+		}
+		shards = next;
+	}
+
+	/**
+	 * Split a shard at its median key
+	 * complexity: O(log n)
+	 * precondition: the shard is locked, and has at least two items
+	 */
+	private void splitShard(Shard shard) {
+		AVLTree tree = shard.tree;
+		int median = tree.select(tree.size() / 2);
+		String info = tree.search(median);
+		AVLTree[] parts = tree.split(median);
+		//split doesn't keep the median in either tree
+		parts[1].insert(median, info);
+		synchronized (directoryLock) {
+			int index = Arrays.asList(shards).indexOf(shard);
+			replaceShards(index, 1, new Shard(shard.lowerBound, parts[0]), new Shard(median, parts[1]));
+		}
+	}
+
+	/**
+	 * Join a shard with the next one, if they are both still in the tree
+	 * complexity: O(log n)
+	 *
+	 * @param left  a shard
+	 * @param right the shard after it
+	 * @return true if the shards were joined
+	 */
+	private boolean joinShards(Shard left, Shard right) {
+		left.lock.lock();
+		try {
+			right.lock.lock();
+			try {
+				if (left.retired || right.retired) {
+					return false;
+				}
+				AVLTree tree = left.tree;
+				AVLTree greater = right.tree;
+				if (tree.empty()) {
+					tree = greater;
+				} else if (!greater.empty()) {
+					//join requires a node between the trees, so the right shard's minimum is taken out of it
+					int separator = greater.select(0);
+					String info = greater.min();
+					greater.delete(separator);
+					tree.join(new AVLTree.AVLNode(separator, info), greater);
+				}
+				synchronized (directoryLock) {
+					int index = Arrays.asList(shards).indexOf(left);
+					replaceShards(index, 2, new Shard(left.lowerBound, tree));
+				}
+				return true;
+			} finally {
+				right.lock.unlock();
+			}
+		} finally {
+			left.lock.unlock();
+		}
+	}
+
+	/**
+	 * Join an empty shard with its smaller neighbour
+	 */
+	private void joinWithNeighbour(int key) {
+		Shard[] current = shards;
+		int index = shardIndex(current, key);
+		if (current.length == 1) {
+			return;
+		}
+		int leftIndex = index > 0 && (index == current.length - 1
+				|| current[index - 1].size() <= current[index + 1].size()) ? index - 1 : index;
+		joinShards(current[leftIndex], current[leftIndex + 1]);
+	}
+
+	/**
+	 * public void rebalanceShards()
+	 * <p>
+	 * complexity: O(number of shards * log n)
+	 * Splits every shard that received more than twice the average amount of updates since the last call,
+	 * and joins neighbouring shards that both received at most the average,
+	 * as long as the joined shard isn't larger than half the maximal shard size.
+	 * Split shards are hot, so they aren't joined back until their updates cool down.
+	 */
+	public void rebalanceShards() {
+		Shard[] current = shards;
+		//the counters are read without the locks, which is precise enough for choosing shards
+		int[] writes = new int[current.length];
+		long total = 0;
+		for (int i = 0; i < current.length; i++) {
+			writes[i] = current[i].writes;
+			total += writes[i];
+		}
+		double average = total / (double) current.length;
+		for (int i = 0; i < current.length; i++) {
+			Shard shard = current[i];
+			shard.lock.lock();
+			try {
+				if (!shard.retired && writes[i] > 2 * average && shard.tree.size() >= MIN_SPLIT_SIZE) {
+					splitShard(shard);
+				}
+			} finally {
+				shard.lock.unlock();
+			}
+		}
+		for (int i = 0; i + 1 < current.length; i++) {
+			if (writes[i] <= average && writes[i + 1] <= average
+					&& current[i].size() + current[i + 1].size() <= maxShardSize / 2 && joinShards(current[i], current[i + 1])) {
+				i++;
+			}
+		}
+		for (Shard shard : lockAll()) {
+			shard.writes = 0;
+			shard.lock.unlock();
+		}
+	}
+
+	/**
+	 * Get the amount of shards
+	 * complexity: O(1)
+	 */
+	public int shardCount() {
+		return shards.length;
+	}
+
+	//endregion
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * complexity: O(number of shards)
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return size() == 0;
+	}
+
+	/**
+	 * public String search(int k)
+	 * <p>
+	 * complexity: O(log n)
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		Shard shard = lockShard(k);
+		try {
+			return shard.tree.search(k);
+		} finally {
+			shard.lock.unlock();
+		}
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 * <p>
+	 * complexity: O(log n)
+	 * inserts an item with key k and info i to the tree, and splits its shard if it is too large.
+	 * returns the number of rebalancing operations in the shard, or -1 if an item with key k already exists.
+	 */
+	public int insert(int k, String i) {
+		Shard shard = lockShard(k);
+		try {
+			int rebalances = shard.tree.insert(k, i);
+			if (rebalances != -1) {
+				shard.writes++;
+				if (shard.tree.size() > maxShardSize) {
+					splitShard(shard);
+				}
+			}
+			return rebalances;
+		} finally {
+			shard.lock.unlock();
+		}
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * complexity: O(log n)
+	 * deletes an item with key k from the tree if it is there, and joins its shard with a neighbour if it became empty.
+	 * returns the number of rebalancing operations in the shard, or -1 if an item with key k was not found.
+	 */
+	public int delete(int k) {
+		int rebalances;
+		boolean empty;
+		Shard shard = lockShard(k);
+		try {
+			rebalances = shard.tree.delete(k);
+			if (rebalances == -1) {
+				return -1;
+			}
+			shard.writes++;
+			empty = shard.tree.empty();
+		} finally {
+			shard.lock.unlock();
+		}
+		if (empty) {
+			//the neighbour is locked before or after the shard, so the shard's lock was released first
+			joinWithNeighbour(k);
+		}
+		return rebalances;
+	}
+
+	/**
+	 * public String min()
+	 * <p>
+	 * complexity: O(number of shards)
+	 * Returns the info of the item with the smallest key in the tree, or null if the tree is empty
+	 */
+	public String min() {
+		Shard[] locked = lockAll();
+		try {
+			for (Shard shard : locked) {
+				if (!shard.tree.empty()) {
+					return shard.tree.min();
+				}
+			}
+			return null;
+		} finally {
+			unlock(locked, locked.length);
+		}
+	}
+
+	/**
+	 * public String max()
+	 * <p>
+	 * complexity: O(number of shards)
+	 * Returns the info of the item with the largest key in the tree, or null if the tree is empty
+	 */
+	public String max() {
+		Shard[] locked = lockAll();
+		try {
+			for (int i = locked.length - 1; i >= 0; i--) {
+				if (!locked[i].tree.empty()) {
+					return locked[i].tree.max();
+				}
+			}
+			return null;
+		} finally {
+			unlock(locked, locked.length);
+		}
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * complexity: O(number of shards)
+	 * Returns the number of items in the tree
+	 */
+	public int size() {
+		Shard[] locked = lockAll();
+		try {
+			int size = 0;
+			for (Shard shard : locked) {
+				size += shard.tree.size();
+			}
+			return size;
+		} finally {
+			unlock(locked, locked.length);
+		}
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * complexity: O(n)
+	 * Returns a sorted array which contains all keys in the tree, or an empty array if the tree is empty.
+	 * Every shard copies its keys directly into the result.
+	 */
+	public int[] keysToArray() {
+		Shard[] locked = lockAll();
+		try {
+			int size = 0;
+			for (Shard shard : locked) {
+				size += shard.tree.size();
+			}
+			int[] arr = new int[size];
+			int off = 0;
+			for (Shard shard : locked) {
+				off += shard.tree.keysInto(arr, off);
+			}
+			return arr;
+		} finally {
+			unlock(locked, locked.length);
+		}
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 * <p>
+	 * complexity: O(n)
+	 * Returns an array which contains all info in the tree, sorted by their respective keys.
+	 */
+	public String[] infoToArray() {
+		Shard[] locked = lockAll();
+		try {
+			int size = 0;
+			for (Shard shard : locked) {
+				size += shard.tree.size();
+			}
+			String[] arr = new String[size];
+			int off = 0;
+			for (Shard shard : locked) {
+				off += shard.tree.infoInto(arr, off);
+			}
+			return arr;
+		} finally {
+			unlock(locked, locked.length);
+		}
+	}
+
+	/**
+	 * A tree of the keys from a lower bound up to the next shard's lower bound
+	 */
+	private static final class Shard {
+		final int lowerBound;
+		final AVLTree tree;
+		final ReentrantLock lock = new ReentrantLock();
+		/**
+		 * Set when the shard is replaced by a split or a join, under its lock
+		 */
+		volatile boolean retired;
+		/**
+		 * The amount of updates since the last rebalanceShards, counted under the lock
+		 */
+		int writes;
+
+		Shard(int lowerBound, AVLTree tree) {
+			this.lowerBound = lowerBound;
+			this.tree = tree;
+		}
+
+		/**
+		 * The shard's size under its lock
+		 */
+		int size() {
+			lock.lock();
+			try {
+				return tree.size();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+}
@@ -0,0 +1,332 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * StampedAVLTree
+ * <p>
+ * A thread-safe facade over {@link AVLTree} for read-mostly use.
+ * search, min, max, size and getHeight run as {@link StampedLock} optimistic reads, which take no lock
+ * and are retried only when a write overlapped them. insert, delete, split and join take the write lock.
+ * <p>
+ * An optimistic read may see the tree in the middle of a rotation, with a null child or even a cycle,
+ * so search bounds its traversal and gives up on any inconsistency, and every read falls back to the read lock
+ * after {@link #OPTIMISTIC_ATTEMPTS} overlapped attempts.
+ */
+public class StampedAVLTree {
+	/**
+	 * The amount of optimistic attempts of a read before it takes the read lock
+	 */
+	static final int OPTIMISTIC_ATTEMPTS = 3;
+	/**
+	 * An AVL tree with 2^31 items is at most 45 high, so a longer search path is a cycle seen mid-rotation
+	 */
+	private static final int MAX_DEPTH = 64;
+	/**
+	 * Returned by an optimistic search that saw an inconsistent tree
+	 */
+	private static final String INCONSISTENT = new String("inconsistent");
+	/**
+	 * Orders the locks of two trees that are joined
+	 */
+	private static final AtomicLong SEQUENCE = new AtomicLong();
+
+	private final StampedLock lock = new StampedLock();
+	private final long id = SEQUENCE.getAndIncrement();
+	/**
+	 * The tree, replaced under the write lock when its nodes are moved by split or join
+	 */
+	private AVLTree tree;
+
+	public StampedAVLTree() {
+		this(new AVLTree());
+	}
+
+	private StampedAVLTree(AVLTree tree) {
+		this.tree = tree;
+	}
+
+	//region reads
+
+	/**
+	 * Search a key without trusting the tree to be consistent
+	 * complexity: O(log n)
+	 *
+	 * @return the info, null if the key isn't in the tree, or INCONSISTENT
+	 */
+	private String optimisticSearch(int k) {
+		AVLTree.IAVLNode node = tree.getRoot();
+		if (node == null) {
+			return null;
+		}
+		for (int depth = 0; depth < MAX_DEPTH; depth++) {
+			if (!node.isRealNode()) {
+				return null;
+			}
+			int key = node.getKey();
+			if (k == key) {
+				return node.getValue();
+			}
+			node = k < key ? node.getLeft() : node.getRight();
+			if (node == null) {
+				//a child pointer in the middle of a rotation
+				return INCONSISTENT;
+			}
+		}
+		return INCONSISTENT;
+	}
+
+	/**
+	 * Run a read optimistically, and under the read lock if writes keep overlapping it
+	 *
+	 * @param read a read of the tree, which may throw a RuntimeException if it sees an inconsistent tree
+	 * @return the read's result
+	 */
+	private <T> T read(Supplier<T> read) {
+		for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+			long stamp = lock.tryOptimisticRead();
+			if (stamp == 0) {
+				break;
+			}
+			try {
+				T result = read.get();
+				if (lock.validate(stamp)) {
+					return result;
+				}
+			} catch (RuntimeException e) {
+				if (lock.validate(stamp)) {
+					throw e;
+				}
+			}
+		}
+		long stamp = lock.readLock();
+		try {
+			return read.get();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Run an int read optimistically, and under the read lock if writes keep overlapping it
+	 */
+	private int readInt(IntSupplier read) {
+		for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+			long stamp = lock.tryOptimisticRead();
+			if (stamp == 0) {
+				break;
+			}
+			try {
+				int result = read.getAsInt();
+				if (lock.validate(stamp)) {
+					return result;
+				}
+			} catch (RuntimeException e) {
+				if (lock.validate(stamp)) {
+					throw e;
+				}
+			}
+		}
+		long stamp = lock.readLock();
+		try {
+			return read.getAsInt();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	//endregion
+
+	/**
+	 * public String search(int k)
+	 * <p>
+	 * complexity: O(log n), without locks unless writes overlap it
+	 * returns the info of an item with key k if it exists in the tree
+	 * otherwise, returns null
+	 */
+	public String search(int k) {
+		for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+			long stamp = lock.tryOptimisticRead();
+			if (stamp == 0) {
+				break;
+			}
+			String result;
+			try {
+				result = optimisticSearch(k);
+			} catch (RuntimeException e) {
+				//an inconsistent node, which fails validation below
+				result = INCONSISTENT;
+			}
+			if (lock.validate(stamp) && result != INCONSISTENT) {
+				return result;
+			}
+		}
+		long stamp = lock.readLock();
+		try {
+			return tree.search(k);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * public boolean empty()
+	 * <p>
+	 * complexity: O(1)
+	 * returns true if and only if the tree is empty
+	 */
+	public boolean empty() {
+		return size() == 0;
+	}
+
+	/**
+	 * public String min()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the info of the item with the smallest key in the tree, or null if the tree is empty
+	 */
+	public String min() {
+		return read(() -> tree.min());
+	}
+
+	/**
+	 * public String max()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the info of the item with the largest key in the tree, or null if the tree is empty
+	 */
+	public String max() {
+		return read(() -> tree.max());
+	}
+
+	/**
+	 * public int size()
+	 * <p>
+	 * complexity: O(1)
+	 * Returns the number of items in the tree.
+	 */
+	public int size() {
+		return readInt(() -> tree.size());
+	}
+
+	/**
+	 * Get the height of the tree
+	 * complexity: O(1)
+	 *
+	 * @return height, or -1 if the tree is empty
+	 */
+	public int getHeight() {
+		return readInt(() -> tree.getHeight());
+	}
+
+	/**
+	 * public int[] keysToArray()
+	 * <p>
+	 * complexity: O(n)
+	 * Returns a sorted array which contains all keys in the tree, under the read lock.
+	 */
+	public int[] keysToArray() {
+		long stamp = lock.readLock();
+		try {
+			return tree.keysToArray();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * public String[] infoToArray()
+	 * <p>
+	 * complexity: O(n)
+	 * Returns an array which contains all info in the tree, sorted by their respective keys, under the read lock.
+	 */
+	public String[] infoToArray() {
+		long stamp = lock.readLock();
+		try {
+			return tree.infoToArray();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * public int insert(int k, String i)
+	 * <p>
+	 * complexity: O(log n)
+	 * inserts an item with key k and info i to the tree, under the write lock.
+	 * returns the number of rebalancing operations, or -1 if an item with key k already exists in the tree.
+	 */
+	public int insert(int k, String i) {
+		long stamp = lock.writeLock();
+		try {
+			return tree.insert(k, i);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * public int delete(int k)
+	 * <p>
+	 * complexity: O(log n)
+	 * deletes an item with key k from the tree if it is there, under the write lock.
+	 * returns the number of rebalancing operations, or -1 if an item with key k was not found in the tree.
+	 */
+	public int delete(int k) {
+		long stamp = lock.writeLock();
+		try {
+			return tree.delete(k);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * public StampedAVLTree[] split(int x)
+	 * <p>
+	 * complexity: O(log n)
+	 * splits the tree into 2 trees according to the key x, under the write lock, and leaves this tree empty.
+	 * Returns an array [t1, t2] with two trees. keys(t1) < x < keys(t2).
+	 */
+	public StampedAVLTree[] split(int x) {
+		long stamp = lock.writeLock();
+		try {
+			AVLTree[] parts = tree.split(x);
+			tree = new AVLTree();
+			return new StampedAVLTree[]{new StampedAVLTree(parts[0]), new StampedAVLTree(parts[1])};
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * public int join(int k, String i, StampedAVLTree t)
+	 * <p>
+	 * joins t and a new item (k, i) with the tree under the write locks of both trees, and leaves t empty.
+	 * complexity: O(delta-h) - rank difference between the tree and t
+	 * Returns the complexity of the operation (rank difference between the tree and t, plus 1)
+	 * precondition: keys(t) < k < keys() or keys(t) > k > keys()
+	 */
+	public int join(int k, String i, StampedAVLTree t) {
+		if (t == this) {
+			throw new IllegalArgumentException("A tree can't be joined with itself");
+		}
+		//lock the trees in a fixed order, so concurrent joins of the same trees don't deadlock
+		StampedAVLTree first = id < t.id ? this : t;
+		StampedAVLTree second = id < t.id ? t : this;
+		long firstStamp = first.lock.writeLock();
+		try {
+			long secondStamp = second.lock.writeLock();
+			try {
+				int complexity = tree.join(new AVLTree.AVLNode(k, i), t.tree);
+				t.tree = new AVLTree();
+				return complexity;
+			} finally {
+				second.lock.unlockWrite(secondStamp);
+			}
+		} finally {
+			first.lock.unlockWrite(firstStamp);
+		}
+	}
+}
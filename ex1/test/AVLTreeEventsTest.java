@@ -0,0 +1,113 @@
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AVLTreeEventsTest {
+
+	/**
+	 * Run an action in a recording of the tree's events
+	 *
+	 * @return the recorded events
+	 */
+	private static List<RecordedEvent> record(Runnable action) throws IOException {
+		Path file = Files.createTempFile("avltree", ".jfr");
+		try (Recording recording = new Recording()) {
+			for (String name : new String[]{"Split", "Join", "Bulk", "Rebalance"}) {
+				recording.enable("mavnat.AVLTree" + name);
+			}
+			recording.start();
+			action.run();
+			recording.stop();
+			recording.dump(file);
+			return RecordingFile.readAllEvents(file);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private static List<RecordedEvent> eventsOf(List<RecordedEvent> events, String name) {
+		return events.stream()
+			.filter(event -> event.getEventType().getName().equals("mavnat.AVLTree" + name))
+			.collect(Collectors.toList());
+	}
+
+	@Test
+	void splitAndJoinTest() throws IOException {
+		AVLTree tree = AVLTree.fromSorted(1000, IntStream.range(0, 1000), Stream.generate(() -> "a").limit(1000));
+		int[] complexity = new int[1];
+		List<RecordedEvent> events = record(() -> {
+			AVLTree[] parts = tree.split(300);
+			complexity[0] = parts[0].join(new AVLTree.AVLNode(300, "a"), parts[1]);
+		});
+		assertTrue(AVLTree.EVENTS);
+
+		List<RecordedEvent> splits = eventsOf(events, "Split");
+		assertEquals(1, splits.size());
+		RecordedEvent split = splits.get(0);
+		assertEquals(300, split.getInt("key"));
+		assertEquals(1000, split.getInt("size"));
+		assertEquals(9, split.getInt("height"));
+		assertEquals(9, split.getInt("joins"));
+
+		List<RecordedEvent> joins = eventsOf(events, "Join");
+		assertEquals(1, joins.size());
+		assertEquals(1000, joins.get(0).getInt("size"));
+		assertEquals(complexity[0], joins.get(0).getInt("complexity"));
+		//the joins inside split aren't events of their own
+		assertTrue(eventsOf(events, "Bulk").isEmpty());
+	}
+
+	@Test
+	void bulkTest() throws IOException {
+		int[] keys = new int[5000];
+		String[] values = new String[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = i;
+			values[i] = "a";
+		}
+		List<RecordedEvent> events = record(() -> {
+			AVLTree tree = AVLTree.fromSorted(keys, values);
+			AVLTree.parallelFromSorted(keys, values);
+			tree.applyBatch(new int[]{-1, 0}, new String[]{"b", null}, new byte[]{AVLTree.BATCH_INSERT, AVLTree.BATCH_DELETE});
+		});
+		List<RecordedEvent> bulks = eventsOf(events, "Bulk");
+		assertEquals(3, bulks.size());
+		assertEquals("fromSorted", bulks.get(0).getString("operation"));
+		assertEquals(5000, bulks.get(0).getInt("size"));
+		assertEquals(12, bulks.get(0).getInt("height"));
+		assertEquals("parallelFromSorted", bulks.get(1).getString("operation"));
+		assertEquals("applyBatch", bulks.get(2).getString("operation"));
+		assertEquals(2, bulks.get(2).getInt("items"));
+	}
+
+	@Test
+	void rebalanceTest() throws IOException {
+		//inserting 2^k in ascending order promotes the whole right spine of a perfect tree of height k-1
+		int n = 1 << 17;
+		AVLTree tree = new AVLTree();
+		List<RecordedEvent> events = record(() -> {
+			for (int i = 1; i <= n; i++) {
+				tree.insert(i, "a");
+			}
+		});
+		List<RecordedEvent> cascades = eventsOf(events, "Rebalance");
+		assertFalse(cascades.isEmpty());
+		for (RecordedEvent cascade : cascades) {
+			assertEquals("insert", cascade.getString("operation"));
+			assertTrue(cascade.getInt("rebalances") >= AVLTreeEvents.REBALANCE_THRESHOLD);
+			assertEquals(cascade.getInt("key"), cascade.getInt("size"));
+		}
+		assertEquals(n, cascades.get(cascades.size() - 1).getInt("key"));
+	}
+}
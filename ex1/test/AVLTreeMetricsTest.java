@@ -0,0 +1,142 @@
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AVLTreeMetricsTest {
+
+	private static long structuralOperations(AVLTreeMetrics metrics) {
+		return metrics.getLeftRotations() + metrics.getRightRotations() + metrics.getPromotions() + metrics.getDemotions();
+	}
+
+	@Test
+	void rebalancesTest() {
+		//insert and delete return their amount of rotations, promotions and demotions
+		AVLTree tree = new AVLTree();
+		AVLTreeMetrics metrics = new AVLTreeMetrics();
+		tree.setMetrics(metrics);
+		Random rand = new Random(42);
+		long rebalances = 0;
+		for (int i = 0; i < 10000; i++) {
+			int key = rand.nextInt(3000);
+			int amount = rand.nextInt(3) == 0 ? tree.delete(key) : tree.insert(key, "a");
+			rebalances += Math.max(amount, 0);
+		}
+		assertEquals(rebalances, structuralOperations(metrics));
+		assertTrue(metrics.getLeftRotations() > 0 && metrics.getRightRotations() > 0);
+		for (long count : metrics.getInsertionCases()) {
+			assertTrue(count > 0);
+		}
+		for (long count : metrics.getDeletionCases()) {
+			assertTrue(count > 0);
+		}
+		assertEquals(10000, metrics.operations(AVLTreeMetrics.Operation.INSERT) + metrics.operations("delete"));
+	}
+
+	@Test
+	void casesTest() {
+		AVLTree tree = new AVLTree();
+		AVLTreeMetrics metrics = new AVLTreeMetrics();
+		tree.setMetrics(metrics);
+		tree.insert(1, "a");
+		tree.insert(2, "a");
+		assertArrayEquals(new long[]{1, 0, 0}, metrics.getInsertionCases());
+		tree.insert(3, "a");
+		assertArrayEquals(new long[]{2, 1, 0}, metrics.getInsertionCases());
+		assertEquals(1, metrics.getLeftRotations());
+		assertEquals(0, metrics.getRightRotations());
+		tree.delete(1);
+		tree.delete(3);
+		assertArrayEquals(new long[]{1, 0, 0, 0}, metrics.getDeletionCases());
+
+		metrics.reset();
+		assertArrayEquals(new long[]{0, 0, 0}, metrics.getInsertionCases());
+		assertEquals(0, structuralOperations(metrics));
+		assertEquals(0, metrics.operations(AVLTreeMetrics.Operation.DELETE));
+	}
+
+	@Test
+	void searchDepthTest() {
+		AVLTree tree = AVLTree.fromSorted(new int[]{1, 2, 3, 4, 5, 6, 7}, new String[]{"1", "2", "3", "4", "5", "6", "7"});
+		AVLTreeMetrics metrics = new AVLTreeMetrics();
+		tree.setMetrics(metrics);
+		assertEquals("4", tree.search(4));
+		assertEquals(1, metrics.getAverageSearchDepth());
+		assertEquals("7", tree.search(7));
+		assertNull(tree.search(8));
+		assertEquals(7.0 / 3, metrics.getAverageSearchDepth(), 1e-9);
+		assertEquals(3, metrics.getMaxSearchDepth());
+		assertEquals(3, metrics.getSearches());
+
+		tree.setMetrics(null);
+		tree.search(1);
+		assertEquals(3, metrics.getSearches());
+	}
+
+	@Test
+	void splitAndJoinTest() {
+		AVLTree tree = new AVLTree();
+		AVLTreeMetrics metrics = new AVLTreeMetrics();
+		for (int i = 0; i < 1000; i++) {
+			tree.insert(i, "a");
+		}
+		tree.setMetrics(metrics);
+		AVLTree[] parts = tree.split(300);
+		assertSame(metrics, parts[0].getMetrics());
+		assertSame(metrics, parts[1].getMetrics());
+		assertEquals(1, metrics.operations(AVLTreeMetrics.Operation.SPLIT));
+		int complexity = parts[0].join(new AVLTree.AVLNode(300, "a"), parts[1]);
+		assertEquals(complexity, metrics.getJoinComplexity());
+		assertEquals(1, metrics.operations("join"));
+	}
+
+	@Test
+	void latencyTest() {
+		AVLTree tree = new AVLTree();
+		AVLTreeMetrics metrics = new AVLTreeMetrics();
+		tree.setMetrics(metrics);
+		for (int i = 0; i < 1000; i++) {
+			tree.insert(i, "a");
+		}
+		long[] histogram = metrics.latencyHistogram(AVLTreeMetrics.Operation.INSERT);
+		long count = 0;
+		for (long bucket : histogram) {
+			count += bucket;
+		}
+		assertEquals(1000, count);
+		long median = metrics.latencyPercentile(AVLTreeMetrics.Operation.INSERT, 50);
+		long max = metrics.latencyPercentile(AVLTreeMetrics.Operation.INSERT, 100);
+		assertTrue(median <= max);
+		assertTrue(max > 0);
+		assertEquals(0, metrics.latencyPercentile(AVLTreeMetrics.Operation.SEARCH, 99));
+		assertThrows(IllegalArgumentException.class, () -> metrics.latencyPercentile("insert", 101));
+		assertThrows(IllegalArgumentException.class, () -> metrics.operations("rotate"));
+	}
+
+	@Test
+	void mbeanTest() throws Exception {
+		AVLTree tree = new AVLTree();
+		AVLTreeMetrics metrics = new AVLTreeMetrics();
+		tree.setMetrics(metrics);
+		tree.insert(1, "a");
+		tree.insert(2, "a");
+		tree.search(2);
+		ObjectName name = metrics.register("metrics test");
+		try {
+			assertThrows(IllegalStateException.class, () -> metrics.register("metrics test"));
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			assertEquals(1L, server.getAttribute(name, "Promotions"));
+			assertEquals(2.0, server.getAttribute(name, "AverageSearchDepth"));
+			assertEquals(2L, server.invoke(name, "operations", new Object[]{"insert"}, new String[]{String.class.getName()}));
+			server.invoke(name, "reset", null, null);
+			assertEquals(0L, server.getAttribute(name, "Searches"));
+		} finally {
+			metrics.unregister();
+		}
+		assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+	}
+}
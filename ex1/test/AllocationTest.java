@@ -0,0 +1,101 @@
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that search, insert of an existing key and delete don't allocate,
+ * by measuring the bytes that the test thread allocated.
+ */
+class AllocationTest {
+	private static final int SIZE = 10000;
+	private static final int OPERATIONS = 100000;
+
+	private final com.sun.management.ThreadMXBean threads =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+	private AVLTree tree;
+	private int[] keys;
+
+	@BeforeEach
+	void setUp() {
+		assumeAllocationsMeasured();
+		tree = new AVLTree();
+		keys = new int[OPERATIONS];
+		Random rand = new Random(42);
+		for (int i = 0; i < SIZE; i++) {
+			tree.insert(i * 2, "a");
+		}
+		for (int i = 0; i < OPERATIONS; i++) {
+			keys[i] = rand.nextInt(SIZE * 2);
+		}
+	}
+
+	private void assumeAllocationsMeasured() {
+		org.junit.jupiter.api.Assumptions.assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+	}
+
+	/**
+	 * Get the bytes allocated by an action, after running it a few times to warm up the JIT
+	 */
+	private long allocatedBytes(Runnable action) {
+		for (int i = 0; i < 3; i++) {
+			action.run();
+		}
+		long id = Thread.currentThread().getId();
+		//the measurement itself may allocate, so it is measured first and subtracted
+		long start = threads.getThreadAllocatedBytes(id);
+		long overhead = threads.getThreadAllocatedBytes(id) - start;
+		start = threads.getThreadAllocatedBytes(id);
+		action.run();
+		return threads.getThreadAllocatedBytes(id) - start - overhead;
+	}
+
+	@Test
+	void searchTest() {
+		assertEquals(0, allocatedBytes(() -> {
+			for (int key : keys) {
+				tree.search(key);
+			}
+		}));
+	}
+
+	@Test
+	void insertExistingKeyTest() {
+		assertEquals(0, allocatedBytes(() -> {
+			for (int key : keys) {
+				tree.insert(key & ~1, "b");
+			}
+		}));
+		assertEquals("a", tree.search(keys[0] & ~1));
+	}
+
+	@Test
+	void deleteTest() {
+		AVLTree[] trees = new AVLTree[4];
+		for (int i = 0; i < trees.length; i++) {
+			trees[i] = new AVLTree();
+			for (int j = 0; j < SIZE; j++) {
+				trees[i].insert(j, "a");
+			}
+		}
+		int[] round = {0};
+		//every run deletes all keys of another tree, and missing keys
+		assertEquals(0, allocatedBytes(() -> {
+			AVLTree deleted = trees[round[0]++];
+			for (int j = 0; j < SIZE; j++) {
+				deleted.delete(keys[j] % SIZE);
+				deleted.delete(-1 - j);
+			}
+			for (int j = 0; j < SIZE; j++) {
+				deleted.delete(j);
+			}
+		}));
+		for (AVLTree deleted : trees) {
+			assertTrue(deleted.empty());
+		}
+	}
+}
@@ -0,0 +1,74 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchTest {
+
+	@Test
+	void applyBatchTest() {
+		AVLTree tree = new AVLTree();
+		tree.insert(2, "old");
+		tree.insert(5, "a");
+		tree.insert(9, "a");
+
+		tree.applyBatch(new int[]{1, 2, 5, 7, 8},
+			new String[]{"1", "new", null, "7", null},
+			new byte[]{AVLTree.BATCH_INSERT, AVLTree.BATCH_INSERT, AVLTree.BATCH_DELETE, AVLTree.BATCH_INSERT, AVLTree.BATCH_DELETE});
+
+		TestUtils.testAVL(tree);
+		assertArrayEquals(new int[]{1, 2, 7, 9}, tree.keysToArray());
+		assertArrayEquals(new String[]{"1", "old", "7", "a"}, tree.infoToArray());
+	}
+
+	@Test
+	void applyBatchTest_MatchesSequential() {
+		Random rand = new Random();
+		for (int i = 0; i < 300; i++) {
+			AVLTree tree = new AVLTree();
+			AVLTree sequential = new AVLTree();
+			int size = rand.nextInt(500);
+			for (int j = 0; j < size; j++) {
+				int key = rand.nextInt(2000);
+				tree.insert(key, "a" + key);
+				sequential.insert(key, "a" + key);
+			}
+
+			TreeMap<Integer, Byte> batch = new TreeMap<>();
+			int batchSize = rand.nextInt(i % 2 == 0 ? 20 : 1000);
+			for (int j = 0; j < batchSize; j++) {
+				batch.put(rand.nextInt(2000), rand.nextBoolean() ? AVLTree.BATCH_INSERT : AVLTree.BATCH_DELETE);
+			}
+			int[] keys = batch.keySet().stream().mapToInt(k -> k).toArray();
+			String[] values = new String[keys.length];
+			byte[] ops = new byte[keys.length];
+			for (int j = 0; j < keys.length; j++) {
+				values[j] = "b" + keys[j];
+				ops[j] = batch.get(keys[j]);
+				if (ops[j] == AVLTree.BATCH_INSERT) {
+					sequential.insert(keys[j], values[j]);
+				} else {
+					sequential.delete(keys[j]);
+				}
+			}
+
+			assertTrue(tree.applyBatch(keys, values, ops) >= 0);
+
+			TestUtils.testAVL(tree);
+			assertArrayEquals(sequential.keysToArray(), tree.keysToArray());
+			assertArrayEquals(sequential.infoToArray(), tree.infoToArray());
+		}
+	}
+
+	@Test
+	void applyBatchTest_InvalidBatch() {
+		AVLTree tree = new AVLTree();
+		tree.insert(1, "a");
+		assertThrows(IllegalArgumentException.class, () -> tree.applyBatch(new int[]{2, 1}, new String[2], new byte[2]));
+		assertThrows(IllegalArgumentException.class, () -> tree.applyBatch(new int[]{1, 2}, new String[1], new byte[2]));
+		assertThrows(IllegalArgumentException.class, () -> tree.applyBatch(new int[]{1}, new String[1], new byte[]{7}));
+		assertArrayEquals(new int[]{1}, tree.keysToArray());
+	}
+}
@@ -0,0 +1,64 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkLoadTest {
+
+	private static String[] valuesOf(int[] keys) {
+		return Arrays.stream(keys).mapToObj(Integer::toString).toArray(String[]::new);
+	}
+
+	@Test
+	void fromSortedTest() {
+		for (int n = 0; n < 300; n++) {
+			int[] keys = IntStream.range(0, n).map(i -> i * 3 - 100).toArray();
+			String[] values = valuesOf(keys);
+
+			AVLTree tree = AVLTree.fromSorted(keys, values);
+
+			TestUtils.testAVL(tree);
+			assertEquals(n, tree.size());
+			assertArrayEquals(keys, tree.keysToArray());
+			assertArrayEquals(values, tree.infoToArray());
+			int expectedHeight = n == 0 ? -1 : 31 - Integer.numberOfLeadingZeros(n);
+			assertEquals(expectedHeight, tree.getHeight());
+		}
+	}
+
+	@Test
+	void fromSortedTest_StillMutable() {
+		int[] keys = IntStream.range(0, 1000).map(i -> i * 2).toArray();
+		AVLTree tree = AVLTree.fromSorted(keys, valuesOf(keys));
+
+		for (int i = 0; i < 1000; i += 3) {
+			tree.delete(i * 2);
+			tree.insert(i * 2 + 1, "a");
+			TestUtils.testAVL(tree);
+		}
+		AVLTree[] trees = tree.split(1000);
+		TestUtils.testAVL(trees[0]);
+		TestUtils.testAVL(trees[1]);
+	}
+
+	@Test
+	void fromSortedTest_Streams() {
+		AVLTree tree = AVLTree.fromSorted(1000, IntStream.range(0, 1000), IntStream.range(0, 1000).mapToObj(Integer::toString));
+
+		TestUtils.testAVL(tree);
+		assertEquals("0", tree.min());
+		assertEquals("999", tree.max());
+		assertEquals("500", tree.search(500));
+	}
+
+	@Test
+	void fromSortedTest_InvalidInput() {
+		assertThrows(IllegalArgumentException.class, () -> AVLTree.fromSorted(new int[]{1, 3, 2}, new String[]{"a", "b", "c"}));
+		assertThrows(IllegalArgumentException.class, () -> AVLTree.fromSorted(new int[]{1, 1}, new String[]{"a", "b"}));
+		assertThrows(IllegalArgumentException.class, () -> AVLTree.fromSorted(new int[]{1, 2}, new String[]{"a"}));
+		assertThrows(IllegalArgumentException.class, () -> AVLTree.fromSorted(3, IntStream.range(0, 2), Arrays.asList("a", "b").stream()));
+		assertThrows(IllegalArgumentException.class, () -> AVLTree.fromSorted(1, IntStream.range(0, 2), Arrays.asList("a", "b").stream()));
+	}
+}
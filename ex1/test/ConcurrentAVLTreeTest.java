@@ -0,0 +1,329 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentAVLTreeTest {
+	private static final int THREADS = 8;
+
+	/**
+	 * Run a task on several threads that start together, and rethrow the first failure
+	 */
+	private static void runConcurrently(int threads, ThreadTask task) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		List<Thread> workers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			int id = t;
+			Thread worker = new Thread(() -> {
+				try {
+					start.await();
+					task.run(id);
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			});
+			worker.start();
+			workers.add(worker);
+		}
+		start.countDown();
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+	}
+
+	private interface ThreadTask {
+		void run(int id) throws Exception;
+	}
+
+	private static void assertBalanced(ConcurrentAVLTree tree) {
+		int n = tree.size();
+		assertTrue(tree.getHeight() <= 1.45 * Math.log(n + 2) / Math.log(2), "height " + tree.getHeight() + " for " + n + " keys");
+	}
+
+	@Test
+	void sequentialTest() {
+		Random rand = new Random();
+		TreeMap<Integer, String> expected = new TreeMap<>();
+		ConcurrentAVLTree tree = new ConcurrentAVLTree();
+		assertTrue(tree.empty());
+		for (int i = 0; i < 20000; i++) {
+			int key = rand.nextInt(3000);
+			if (rand.nextInt(3) == 0) {
+				assertEquals(expected.remove(key) != null ? 0 : -1, tree.delete(key));
+			} else {
+				String value = Integer.toString(key);
+				assertEquals(expected.putIfAbsent(key, value) == null ? 0 : -1, tree.insert(key, value));
+			}
+			assertEquals(expected.get(key), tree.search(key));
+		}
+		assertArrayEquals(expected.keySet().stream().mapToInt(Integer::intValue).toArray(), tree.keysToArray());
+		assertEquals(expected.size(), tree.size());
+		assertBalanced(tree);
+	}
+
+	@Test
+	void insertNullInfoTest() {
+		assertThrows(IllegalArgumentException.class, () -> new ConcurrentAVLTree().insert(1, null));
+	}
+
+	@Test
+	void disjointWritersTest() throws InterruptedException {
+		ConcurrentAVLTree tree = new ConcurrentAVLTree();
+		int perThread = 20000;
+		runConcurrently(THREADS, id -> {
+			//interleaved keys make the threads rotate the same nodes
+			for (int i = 0; i < perThread; i++) {
+				assertEquals(0, tree.insert(i * THREADS + id, Integer.toString(id)));
+			}
+			for (int i = 0; i < perThread; i += 2) {
+				assertEquals(0, tree.delete(i * THREADS + id));
+			}
+		});
+		int[] keys = tree.keysToArray();
+		assertEquals(THREADS * perThread / 2, keys.length);
+		assertEquals(keys.length, tree.size());
+		for (int i = 0; i < keys.length; i++) {
+			assertTrue(i == 0 || keys[i - 1] < keys[i]);
+			assertEquals(1, (keys[i] / THREADS) % 2);
+			assertEquals(Integer.toString(keys[i] % THREADS), tree.search(keys[i]));
+		}
+		assertBalanced(tree);
+	}
+
+	@Test
+	void racingUpdatesTest() throws InterruptedException {
+		//every successful insert and delete of a key must alternate, as in some sequential order
+		ConcurrentAVLTree tree = new ConcurrentAVLTree();
+		int keyRange = 64;
+		AtomicInteger[] balance = new AtomicInteger[keyRange];
+		for (int i = 0; i < keyRange; i++) {
+			balance[i] = new AtomicInteger();
+		}
+		runConcurrently(THREADS, id -> {
+			Random rand = new Random(id);
+			for (int i = 0; i < 100000; i++) {
+				int key = rand.nextInt(keyRange);
+				if (rand.nextBoolean()) {
+					if (tree.insert(key, "a") == 0) {
+						balance[key].incrementAndGet();
+					}
+				} else if (tree.delete(key) == 0) {
+					balance[key].decrementAndGet();
+				}
+			}
+		});
+		for (int key = 0; key < keyRange; key++) {
+			int expected = balance[key].get();
+			assertTrue(expected == 0 || expected == 1);
+			assertEquals(expected == 1 ? "a" : null, tree.search(key));
+		}
+		assertEquals(tree.keysToArray().length, tree.size());
+	}
+
+	@Test
+	void concurrentInsertSameKeysTest() throws InterruptedException {
+		ConcurrentAVLTree tree = new ConcurrentAVLTree();
+		AtomicInteger inserted = new AtomicInteger();
+		int keys = 20000;
+		runConcurrently(THREADS, id -> {
+			for (int i = 0; i < keys; i++) {
+				if (tree.insert(i, Integer.toString(id)) == 0) {
+					inserted.incrementAndGet();
+				}
+			}
+		});
+		assertEquals(keys, inserted.get());
+		assertEquals(keys, tree.size());
+		assertBalanced(tree);
+	}
+
+	@Test
+	void readersSeeCompletedInsertsTest() throws InterruptedException {
+		//an insert that completed before a search started must be visible to it, despite concurrent rotations
+		ConcurrentAVLTree tree = new ConcurrentAVLTree();
+		ConcurrentSkipListSet<Integer> completed = new ConcurrentSkipListSet<>();
+		int writers = THREADS / 2;
+		int perThread = 20000;
+		AtomicInteger doneWriters = new AtomicInteger();
+		runConcurrently(THREADS, id -> {
+			if (id < writers) {
+				for (int i = 0; i < perThread; i++) {
+					int key = i * writers + id;
+					tree.insert(key, "a");
+					completed.add(key);
+				}
+				doneWriters.incrementAndGet();
+			} else {
+				Random rand = new Random(id);
+				while (doneWriters.get() < writers) {
+					Integer key = completed.ceiling(rand.nextInt(perThread * writers));
+					if (key != null) {
+						assertEquals("a", tree.search(key));
+					}
+					assertNull(tree.search(-1 - rand.nextInt(100)));
+				}
+			}
+		});
+		assertEquals(writers * perThread, tree.size());
+		assertBalanced(tree);
+	}
+
+	/**
+	 * A completed operation of a history, with the logical times of its invocation and response
+	 */
+	private static final class Operation {
+		static final int INSERT = 0;
+		static final int DELETE = 1;
+		static final int SEARCH = 2;
+
+		final int type;
+		final int key;
+		final String info;
+		final long invoked;
+		Object result;
+		long responded;
+
+		Operation(int type, int key, String info, long invoked) {
+			this.type = type;
+			this.key = key;
+			this.info = info;
+			this.invoked = invoked;
+		}
+
+		/**
+		 * Apply the operation to a sequential model
+		 *
+		 * @return the result the operation should have had
+		 */
+		Object apply(TreeMap<Integer, String> model) {
+			switch (type) {
+				case INSERT:
+					return model.putIfAbsent(key, info) == null ? 0 : -1;
+				case DELETE:
+					return model.remove(key) != null ? 0 : -1;
+				default:
+					return model.get(key);
+			}
+		}
+	}
+
+	/**
+	 * Check that a history is linearizable, in the style of Wing and Gong with Lowe's memoization:
+	 * try to linearize every pending operation that was invoked before all the other pending operations responded,
+	 * and skip states (linearized operations and model) that already failed
+	 *
+	 * @param history    at most 63 operations
+	 * @param model      the sequential model after the linearized operations
+	 * @param linearized a bit mask of the linearized operations
+	 */
+	private static boolean linearizable(List<Operation> history, TreeMap<Integer, String> model, long linearized,
+										Set<String> failed) {
+		if (linearized == (1L << history.size()) - 1) {
+			return true;
+		}
+		String state = linearized + " " + model;
+		if (failed.contains(state)) {
+			return false;
+		}
+		long firstResponse = Long.MAX_VALUE;
+		for (int i = 0; i < history.size(); i++) {
+			if ((linearized & 1L << i) == 0) {
+				firstResponse = Math.min(firstResponse, history.get(i).responded);
+			}
+		}
+		for (int i = 0; i < history.size(); i++) {
+			Operation operation = history.get(i);
+			if ((linearized & 1L << i) != 0 || operation.invoked > firstResponse) {
+				continue;
+			}
+			TreeMap<Integer, String> next = new TreeMap<>(model);
+			if (Objects.equals(operation.apply(next), operation.result)
+				&& linearizable(history, next, linearized | 1L << i, failed)) {
+				return true;
+			}
+		}
+		failed.add(state);
+		return false;
+	}
+
+	@Test
+	void checkerRejectsTest() {
+		//a search that starts after an insert completed can't miss it
+		Operation insert = new Operation(Operation.INSERT, 1, "a", 0);
+		insert.result = 0;
+		insert.responded = 1;
+		Operation search = new Operation(Operation.SEARCH, 1, null, 2);
+		search.result = null;
+		search.responded = 3;
+		List<Operation> history = new ArrayList<>();
+		history.add(insert);
+		history.add(search);
+		assertFalse(linearizable(history, new TreeMap<>(), 0, new HashSet<>()));
+		//but a concurrent one can
+		Operation concurrent = new Operation(Operation.SEARCH, 1, null, 0);
+		concurrent.responded = 3;
+		history.set(1, concurrent);
+		assertTrue(linearizable(history, new TreeMap<>(), 0, new HashSet<>()));
+	}
+
+	@Test
+	void linearizabilityTest() throws InterruptedException {
+		int threads = 4;
+		int perThread = 5;
+		int keys = 6;
+		Random rand = new Random(42);
+		for (int round = 0; round < 400; round++) {
+			//a small tree, so the operations contend for the same nodes and rotate them
+			ConcurrentAVLTree tree = new ConcurrentAVLTree();
+			TreeMap<Integer, String> initial = new TreeMap<>();
+			for (int key = 0; key < keys; key++) {
+				if (rand.nextBoolean()) {
+					tree.insert(key, "initial " + key);
+					initial.put(key, "initial " + key);
+				}
+			}
+			long seed = rand.nextLong();
+			AtomicLong clock = new AtomicLong();
+			List<List<Operation>> histories = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				histories.add(new ArrayList<>());
+			}
+			runConcurrently(threads, id -> {
+				Random threadRand = new Random(seed + id);
+				for (int i = 0; i < perThread; i++) {
+					int type = threadRand.nextInt(3);
+					int key = threadRand.nextInt(keys);
+					Operation operation = new Operation(type, key, id + "-" + i, clock.incrementAndGet());
+					if (type == Operation.INSERT) {
+						operation.result = tree.insert(key, operation.info);
+					} else if (type == Operation.DELETE) {
+						operation.result = tree.delete(key);
+					} else {
+						operation.result = tree.search(key);
+					}
+					operation.responded = clock.incrementAndGet();
+					histories.get(id).add(operation);
+				}
+			});
+			List<Operation> history = new ArrayList<>();
+			histories.forEach(history::addAll);
+			assertTrue(linearizable(history, initial, 0, new HashSet<>()), "history " + round + " isn't linearizable");
+		}
+	}
+}
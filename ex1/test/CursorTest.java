@@ -0,0 +1,73 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CursorTest {
+
+	private static List<Integer> collectKeys(AVLTree.Cursor cursor) {
+		List<Integer> keys = new ArrayList<>();
+		while (cursor.next()) {
+			assertEquals(Integer.toString(cursor.getKey()), cursor.getValue());
+			keys.add(cursor.getKey());
+		}
+		assertFalse(cursor.next());
+		return keys;
+	}
+
+	private static AVLTree randomTree(Random rand, int n, int maxKey) {
+		AVLTree tree = new AVLTree();
+		for (int i = 0; i < n; i++) {
+			int key = rand.nextInt(maxKey);
+			tree.insert(key, Integer.toString(key));
+		}
+		return tree;
+	}
+
+	@Test
+	void cursorFromTest() {
+		AVLTree tree = new AVLTree();
+		for (int key : new int[]{10, 2, 17, 54, 3, 4, 8, 1}) {
+			tree.insert(key, Integer.toString(key));
+		}
+		assertEquals(Arrays.asList(1, 2, 3, 4, 8, 10, 17, 54), collectKeys(tree.cursorFrom(Integer.MIN_VALUE)));
+		assertEquals(Arrays.asList(8, 10, 17, 54), collectKeys(tree.cursorFrom(5)));
+		assertEquals(Arrays.asList(10, 17, 54), collectKeys(tree.cursorFrom(10)));
+		assertEquals(Arrays.asList(), collectKeys(tree.cursorFrom(55)));
+		assertEquals(Arrays.asList(), collectKeys(new AVLTree().cursorFrom(0)));
+	}
+
+	@Test
+	void rangeTest() {
+		Random rand = new Random();
+		AVLTree tree = randomTree(rand, 500, 1000);
+		int[] keys = tree.keysToArray();
+		for (int i = 0; i < 500; i++) {
+			int lo = rand.nextInt(1100) - 50;
+			int hi = rand.nextInt(1100) - 50;
+			List<Integer> expected = new ArrayList<>();
+			Arrays.stream(keys).filter(k -> k >= lo && k <= hi).forEach(expected::add);
+			assertEquals(expected, collectKeys(tree.range(lo, hi)));
+		}
+		assertEquals(keys.length, collectKeys(tree.range(Integer.MIN_VALUE, Integer.MAX_VALUE)).size());
+	}
+
+	@Test
+	void pageTest() {
+		Random rand = new Random();
+		AVLTree tree = randomTree(rand, 500, 1000);
+		int[] keys = tree.keysToArray();
+		for (int i = 0; i < 500; i++) {
+			int offset = rand.nextInt(keys.length + 10);
+			int limit = rand.nextInt(50);
+			List<Integer> expected = new ArrayList<>();
+			Arrays.stream(keys).skip(offset).limit(limit).forEach(expected::add);
+			assertEquals(expected, collectKeys(tree.page(offset, limit)));
+		}
+		assertThrows(IllegalArgumentException.class, () -> tree.page(-1, 1));
+	}
+}
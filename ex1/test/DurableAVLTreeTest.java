@@ -0,0 +1,190 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DurableAVLTreeTest {
+
+	@TempDir
+	Path dir;
+
+	private static void assertItems(TreeMap<Integer, String> expected, DurableAVLTree tree) {
+		TestUtils.assertItems(expected, tree.keysToArray(), tree.infoToArray());
+	}
+
+	@Test
+	void recoveryTest() throws IOException {
+		Random rand = new Random(42);
+		TreeMap<Integer, String> expected = new TreeMap<>();
+		//the tree isn't closed, like after a crash, but every returned mutation is durable
+		DurableAVLTree tree = new DurableAVLTree(dir);
+		for (int i = 0; i < 3000; i++) {
+			int key = rand.nextInt(1000);
+			boolean present = expected.containsKey(key);
+			if (rand.nextInt(3) == 0) {
+				assertEquals(present, tree.delete(key) >= 0);
+				expected.remove(key);
+			} else {
+				String info = rand.nextInt(10) == 0 ? null : "info " + i;
+				assertEquals(!present, tree.insert(key, info) >= 0);
+				if (!present) {
+					expected.put(key, info);
+				}
+			}
+			if (i == 1000 || i == 2000) {
+				tree.checkpoint();
+			}
+		}
+		assertItems(expected, tree);
+
+		DurableAVLTree recovered = new DurableAVLTree(dir);
+		assertItems(expected, recovered);
+		//the checkpoints deleted the older files
+		assertTrue(Files.exists(dir.resolve(DurableAVLTree.SNAPSHOT_PREFIX + 2)));
+		assertFalse(Files.exists(dir.resolve(DurableAVLTree.SNAPSHOT_PREFIX + 1)));
+		assertFalse(Files.exists(dir.resolve(DurableAVLTree.LOG_PREFIX + 1)));
+		recovered.close();
+		assertThrows(IllegalStateException.class, () -> recovered.insert(1, "a"));
+		assertItems(expected, new DurableAVLTree(dir));
+	}
+
+	@Test
+	void splitJoinTest() throws IOException {
+		TreeMap<Integer, String> expected = new TreeMap<>();
+		try (DurableAVLTree tree = new DurableAVLTree(dir)) {
+			for (int i = 0; i < 1000; i++) {
+				tree.insert(i, Integer.toString(i));
+				expected.put(i, Integer.toString(i));
+			}
+			long records = tree.getRecords();
+			AVLTree upper = tree.split(500);
+			assertEquals(499, upper.size());
+			expected.tailMap(500, true).clear();
+			assertItems(expected, tree);
+
+			AVLTree joined = new AVLTree();
+			for (int i = 501; i < 700; i++) {
+				joined.insert(i, "joined " + i);
+				expected.put(i, "joined " + i);
+			}
+			tree.join(500, null, joined);
+			expected.put(500, null);
+			assertItems(expected, tree);
+			//a single record each
+			assertEquals(records + 2, tree.getRecords());
+
+			AVLTree lower = new AVLTree();
+			lower.insert(-5, "lower");
+			assertThrows(IllegalArgumentException.class, () -> tree.join(600, "a", lower));
+			tree.join(-1, "-1", lower);
+			expected.put(-5, "lower");
+			expected.put(-1, "-1");
+		}
+		DurableAVLTree recovered = new DurableAVLTree(dir);
+		assertItems(expected, recovered);
+		assertEquals("lower", recovered.min());
+		assertEquals("joined 699", recovered.max());
+	}
+
+	@Test
+	void joinTallerTreeTest() throws IOException {
+		TreeMap<Integer, String> expected = new TreeMap<>();
+		try (DurableAVLTree tree = new DurableAVLTree(dir)) {
+			tree.insert(-10, "small");
+			expected.put(-10, "small");
+			//t is taller, so the join moves the tree's nodes below t's nodes
+			AVLTree joined = new AVLTree();
+			for (int i = 0; i < 1000; i++) {
+				joined.insert(i, Integer.toString(i));
+				expected.put(i, Integer.toString(i));
+			}
+			tree.join(-1, "middle", joined);
+			expected.put(-1, "middle");
+			tree.insert(5000, "after");
+			expected.put(5000, "after");
+			assertItems(expected, tree);
+		}
+		try (DurableAVLTree recovered = new DurableAVLTree(dir)) {
+			assertItems(expected, recovered);
+		}
+	}
+
+	@Test
+	void tornRecordTest() throws IOException {
+		DurableAVLTree tree = new DurableAVLTree(dir);
+		for (int i = 0; i < 100; i++) {
+			tree.insert(i, Integer.toString(i));
+		}
+		tree.close();
+		Path log = dir.resolve(DurableAVLTree.LOG_PREFIX + 0);
+		long size = Files.size(log);
+		//the beginning of a record whose commit didn't complete
+		Files.write(log, new byte[]{20, 0, 0, 0, 1, 2, 3, 4, DurableAVLTree.INSERT, 7}, StandardOpenOption.APPEND);
+
+		tree = new DurableAVLTree(dir);
+		assertEquals(100, tree.size());
+		assertEquals(size, Files.size(log));
+		tree.insert(1000, "after");
+		tree.close();
+		tree = new DurableAVLTree(dir);
+		assertEquals(101, tree.size());
+		assertEquals("after", tree.max());
+
+		//a corrupt record that isn't in the last log can't be skipped
+		tree.close();
+		byte[] bytes = Files.readAllBytes(log);
+		bytes[bytes.length / 2] ^= 1;
+		Files.write(log, bytes);
+		Files.write(dir.resolve(DurableAVLTree.LOG_PREFIX + 1), new byte[0]);
+		assertThrows(IOException.class, () -> new DurableAVLTree(dir));
+	}
+
+	@Test
+	void groupCommitTest() throws Exception {
+		int threads = 8;
+		int perThread = 200;
+		DurableAVLTree tree = new DurableAVLTree(dir, 1, TimeUnit.MILLISECONDS);
+		List<Thread> writers = new ArrayList<>();
+		List<Throwable> errors = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			int first = t * perThread;
+			Thread writer = new Thread(() -> {
+				for (int key = first; key < first + perThread; key++) {
+					tree.insert(key, Integer.toString(key));
+					assertEquals(Integer.toString(key), tree.search(key));
+				}
+			});
+			writer.setUncaughtExceptionHandler((thread, e) -> {
+				synchronized (errors) {
+					errors.add(e);
+				}
+			});
+			writers.add(writer);
+			writer.start();
+		}
+		for (Thread writer : writers) {
+			writer.join();
+		}
+		assertEquals(new ArrayList<>(), errors);
+		assertEquals(threads * perThread, tree.getRecords());
+		//concurrent writers share syncs
+		assertTrue(tree.getCommits() < tree.getRecords(), tree.getCommits() + " commits");
+		tree.close();
+		assertEquals(threads * perThread, new DurableAVLTree(dir).size());
+	}
+
+	@Test
+	void invalidArgumentsTest() {
+		assertThrows(IllegalArgumentException.class, () -> new DurableAVLTree(dir, -1, TimeUnit.MILLISECONDS));
+	}
+}
@@ -0,0 +1,97 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExportTest {
+
+	private static AVLTree randomTree(Random rand, int n) {
+		AVLTree tree = new AVLTree();
+		for (int i = 0; i < n; i++) {
+			int key = rand.nextInt(n * 5);
+			tree.insert(key, Integer.toString(key));
+		}
+		return tree;
+	}
+
+	@Test
+	void keysIntoTest() {
+		AVLTree tree = randomTree(new Random(), 1000);
+		int[] dst = new int[tree.size() + 3];
+		dst[0] = -7;
+		dst[dst.length - 1] = -7;
+
+		assertEquals(tree.size(), tree.keysInto(dst, 1));
+
+		assertEquals(-7, dst[0]);
+		assertEquals(-7, dst[dst.length - 1]);
+		assertArrayEquals(tree.keysToArray(), Arrays.copyOfRange(dst, 1, tree.size() + 1));
+	}
+
+	@Test
+	void infoIntoTest() {
+		AVLTree tree = randomTree(new Random(), 1000);
+		String[] dst = new String[tree.size()];
+
+		assertEquals(tree.size(), tree.infoInto(dst, 0));
+
+		int[] keys = tree.keysToArray();
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals(Integer.toString(keys[i]), dst[i]);
+		}
+	}
+
+	@Test
+	void intoTest_OutOfBounds() {
+		AVLTree tree = randomTree(new Random(), 10);
+		int[] dst = new int[tree.size()];
+		assertThrows(IndexOutOfBoundsException.class, () -> tree.keysInto(dst, 1));
+		assertThrows(IndexOutOfBoundsException.class, () -> tree.infoInto(new String[tree.size() - 1], 0));
+		assertEquals(0, new AVLTree().keysInto(new int[0], 0));
+	}
+
+	@Test
+	void chunkedExportTest() {
+		AVLTree tree = randomTree(new Random(), 1000);
+		int[] expectedKeys = tree.keysToArray();
+		String[] expectedValues = tree.infoToArray();
+		int[] keys = new int[expectedKeys.length];
+		String[] values = new String[expectedKeys.length];
+		int chunk = 64;
+
+		AVLTree.Cursor cursor = tree.cursorFrom(Integer.MIN_VALUE);
+		int total = 0;
+		int copied;
+		while ((copied = cursor.nextEntries(keys, values, total, Math.min(chunk, keys.length - total))) > 0) {
+			total += copied;
+		}
+
+		assertEquals(expectedKeys.length, total);
+		assertArrayEquals(expectedKeys, keys);
+		assertArrayEquals(expectedValues, values);
+	}
+
+	@Test
+	void chunkedExportTest_Range() {
+		AVLTree tree = new AVLTree();
+		for (int i = 0; i < 100; i++) {
+			tree.insert(i, Integer.toString(i));
+		}
+		int[] chunk = new int[8];
+		AVLTree.Cursor cursor = tree.range(10, 29);
+
+		assertEquals(8, cursor.nextKeys(chunk, 0, 8));
+		assertArrayEquals(new int[]{10, 11, 12, 13, 14, 15, 16, 17}, chunk);
+		assertEquals(17, cursor.getKey());
+		assertEquals(8, cursor.nextKeys(chunk, 0, 8));
+		assertEquals(4, cursor.nextKeys(chunk, 0, 8));
+		assertArrayEquals(new int[]{26, 27, 28, 29}, Arrays.copyOf(chunk, 4));
+		assertEquals(0, cursor.nextKeys(chunk, 0, 8));
+
+		String[] values = new String[2];
+		assertEquals(2, tree.page(50, 2).nextValues(values, 0, 2));
+		assertArrayEquals(new String[]{"50", "51"}, values);
+	}
+}
@@ -0,0 +1,148 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FingerTest {
+
+	@Test
+	void sameAsTreeMapTest() {
+		Random rand = new Random(42);
+		TreeMap<Integer, String> expected = new TreeMap<>();
+		AVLTree tree = new AVLTree();
+		AVLTree.Finger finger = tree.fingerAtMin();
+		int key = 0;
+		for (int i = 0; i < 20000; i++) {
+			//mostly local keys, with some jumps
+			key = rand.nextInt(10) == 0 ? rand.nextInt(4000) : Math.max(0, key + rand.nextInt(21) - 10);
+			String info = Integer.toString(i);
+			switch (rand.nextInt(9)) {
+				case 0:
+				case 1:
+					assertEquals(expected.putIfAbsent(key, info) == null ? 0 : -1, Math.min(0, tree.insert(key, info, finger)));
+					assertEquals(key, finger.getKey());
+					break;
+				case 2:
+					assertEquals(expected.putIfAbsent(key, info) == null ? 0 : -1, Math.min(0, tree.insertFromMax(key, info)));
+					break;
+				case 3:
+					assertEquals(expected.putIfAbsent(key, info) == null ? 0 : -1, Math.min(0, tree.insertFromMin(key, info)));
+					break;
+				case 4:
+					assertEquals(expected.remove(key) == null ? -1 : 0, Math.min(0, tree.delete(key, finger)));
+					break;
+				case 5:
+					assertEquals(expected.remove(key) == null ? -1 : 0, Math.min(0, tree.deleteFromMax(key)));
+					break;
+				case 6:
+					assertEquals(expected.remove(key) == null ? -1 : 0, Math.min(0, tree.deleteFromMin(key)));
+					break;
+				case 7:
+					assertEquals(expected.get(key), tree.search(key, finger));
+					break;
+				default:
+					assertEquals(expected.get(key), tree.searchFromMax(key));
+					assertEquals(expected.get(key), tree.searchFromMin(key));
+			}
+		}
+		assertArrayEquals(expected.keySet().stream().mapToInt(Integer::intValue).toArray(), tree.keysToArray());
+		assertArrayEquals(expected.values().toArray(new String[0]), tree.infoToArray());
+		TestUtils.testBST(tree, true);
+	}
+
+	@Test
+	void appendTest() {
+		AVLTree tree = new AVLTree();
+		for (int i = 0; i < 10000; i++) {
+			assertTrue(tree.insertFromMax(i, Integer.toString(i)) >= 0);
+		}
+		for (int i = 9999; i >= 0; i--) {
+			assertEquals(Integer.toString(i), tree.searchFromMax(i));
+			assertEquals(Integer.toString(i), tree.searchFromMin(i));
+		}
+		assertNull(tree.searchFromMax(10000));
+		assertNull(tree.searchFromMin(-1));
+		assertEquals(-1, tree.insertFromMin(0, "a"));
+		assertEquals("0", tree.min());
+		assertEquals("9999", tree.max());
+		TestUtils.testBST(tree, true);
+	}
+
+	@Test
+	void fingerMovesTest() {
+		AVLTree tree = new AVLTree();
+		for (int i = 0; i < 100; i += 2) {
+			tree.insert(i, Integer.toString(i));
+		}
+		AVLTree.Finger finger = tree.fingerAtMax();
+		assertEquals(98, finger.getKey());
+		assertEquals("10", tree.search(10, finger));
+		assertEquals(10, finger.getKey());
+		//a missing key moves the finger next to where it would be
+		assertNull(tree.search(51, finger));
+		assertTrue(finger.getKey() == 50 || finger.getKey() == 52);
+		assertEquals(0, Math.min(0, tree.insert(51, "51", finger)));
+		assertEquals(51, finger.getKey());
+
+		//a finger whose node was deleted by another operation starts from the root
+		tree.delete(51);
+		assertEquals("52", tree.search(52, finger));
+		assertEquals(-1, tree.delete(51, finger));
+		assertEquals(0, Math.min(0, tree.delete(52, finger)));
+		assertEquals("54", tree.search(54, finger));
+	}
+
+	@Test
+	void movedNodesTest() {
+		AVLTree tree = new AVLTree();
+		for (int i = 0; i < 100; i++) {
+			tree.insert(i, Integer.toString(i));
+		}
+		AVLTree.Finger finger = tree.fingerAtMin();
+		assertEquals("40", tree.search(40, finger));
+		//the finger's node moves to the removed tree, where it's still linked
+		AVLTree removed = tree.deleteRange(30, 60);
+		assertEquals(tree.getRoot().getKey(), finger.getKey());
+		assertEquals(0, Math.min(0, tree.insert(45, "x", finger)));
+		assertEquals("x", tree.search(45));
+		assertEquals(-1, tree.delete(50, finger));
+		assertEquals("50", removed.search(50));
+		assertEquals(31, removed.size());
+		TestUtils.testAVL(tree);
+		TestUtils.testAVL(removed);
+
+		//fingers of the tree's other structural operations start from the root too
+		assertEquals("70", tree.search(70, finger));
+		tree.truncateAbove(65);
+		assertNull(tree.search(70, finger));
+		assertEquals(0, Math.min(0, tree.insert(70, "y", finger)));
+		assertEquals("y", tree.search(70));
+		AVLTree other = new AVLTree();
+		other.insert(200, "z");
+		AVLTree.Finger otherFinger = other.fingerAtMin();
+		tree.union(other);
+		assertTrue(other.empty());
+		assertNull(other.search(200, otherFinger));
+		assertEquals(-1, other.delete(200, otherFinger));
+		assertEquals("z", tree.search(200));
+	}
+
+	@Test
+	void emptyTreeTest() {
+		AVLTree tree = new AVLTree();
+		AVLTree.Finger finger = tree.fingerAtMax();
+		assertThrows(NoSuchElementException.class, finger::getKey);
+		assertNull(tree.search(1, finger));
+		assertNull(tree.searchFromMin(1));
+		assertEquals(-1, tree.deleteFromMax(1));
+		assertEquals(0, tree.insert(1, "a", finger));
+		assertEquals(1, finger.getKey());
+		assertEquals(0, tree.delete(1, finger));
+		assertTrue(tree.empty());
+		assertNull(tree.search(1, finger));
+		assertThrows(IllegalArgumentException.class, () -> new AVLTree().search(1, finger));
+	}
+}
@@ -0,0 +1,252 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the scenarios of InsertionTest, SplitTest and JoinTest against IntAVLTree,
+ * and compares every result with AVLTree, which has the same rebalancing cases.
+ */
+class IntAVLTreeTest {
+
+	private static void assertSameTree(AVLTree expected, IntAVLTree actual) {
+		assertArrayEquals(expected.keysToArray(), actual.keysToArray());
+		assertArrayEquals(expected.infoToArray(), actual.infoToArray());
+		assertEquals(expected.size(), actual.size());
+		assertEquals(expected.getHeight(), actual.getHeight());
+		assertEquals(expected.empty(), actual.empty());
+		assertEquals(expected.min(), actual.min());
+		assertEquals(expected.max(), actual.max());
+	}
+
+	/**
+	 * Check the subtree of a node: its parent index, its height and size from its children's, the AVL rule,
+	 * and the order of its keys
+	 *
+	 * @return the amount of nodes in the subtree
+	 */
+	private static int assertSubtree(IntAVLTree.NodeStore nodes, int node, int parent, long low, long high) {
+		if (node == IntAVLTree.NIL) {
+			return 0;
+		}
+		assertEquals(parent, nodes.parent[node], "parent of " + node);
+		assertTrue(low < nodes.keys[node] && nodes.keys[node] < high, "key order at " + node);
+		int left = nodes.left[node];
+		int right = nodes.right[node];
+		int size = 1 + assertSubtree(nodes, left, node, low, nodes.keys[node])
+			+ assertSubtree(nodes, right, node, nodes.keys[node], high);
+		assertEquals(size, nodes.sizes[node], "size of " + node);
+		assertEquals(1 + Math.max(nodes.heights[left], nodes.heights[right]), nodes.heights[node], "height of " + node);
+		assertTrue(Math.abs(nodes.heights[left] - nodes.heights[right]) <= 1, "balance of " + node);
+		return size;
+	}
+
+	/**
+	 * Check the structure of a tree, and of the virtual leaf in its storage
+	 */
+	private static void assertStructure(IntAVLTree tree) {
+		IntAVLTree.NodeStore nodes = tree.getNodes();
+		assertEquals(-1, nodes.heights[IntAVLTree.NIL]);
+		assertEquals(0, nodes.sizes[IntAVLTree.NIL]);
+		int root = tree.getRootNode();
+		assertEquals(tree.size(), assertSubtree(nodes, root, IntAVLTree.NIL, Long.MIN_VALUE, Long.MAX_VALUE));
+		assertEquals(root == IntAVLTree.NIL ? -1 : nodes.heights[root], tree.getHeight());
+	}
+
+	/**
+	 * Check that every used slot of a tree that doesn't share its storage is either in the tree or free, once
+	 *
+	 * @return the amount of free slots
+	 */
+	private static int assertFreeSlots(IntAVLTree tree) {
+		IntAVLTree.NodeStore nodes = tree.getNodes();
+		int free = 0;
+		for (int slot = nodes.freeHead; slot != IntAVLTree.NIL; slot = nodes.left[slot]) {
+			assertNull(nodes.values[slot], "free slot " + slot);
+			assertTrue(++free < nodes.used, "the free list has a cycle");
+		}
+		assertEquals(nodes.used - 1, tree.size() + free);
+		return free;
+	}
+
+	@Test
+	void insertTest() {
+		AVLTree expected = new AVLTree();
+		IntAVLTree tree = new IntAVLTree();
+		int[] keys = {5, 10, 12, 4, 15, 1, 3, 17, 8, 2, 14, 16, 12};
+		for (int key : keys) {
+			assertEquals(expected.insert(key, Integer.toString(key)), tree.insert(key, Integer.toString(key)));
+			assertSameTree(expected, tree);
+			assertStructure(tree);
+		}
+		assertEquals(0, assertFreeSlots(tree));
+		assertEquals("8", tree.search(8));
+		assertNull(tree.search(9));
+	}
+
+	@Test
+	void manyInsertionsAndDeletionsTest() {
+		Random rand = new Random();
+		AVLTree expected = new AVLTree();
+		IntAVLTree tree = new IntAVLTree();
+		for (int i = 0; i < 5000; i++) {
+			int key = rand.nextInt(2000);
+			if (rand.nextInt(3) == 0) {
+				assertEquals(expected.delete(key), tree.delete(key));
+			} else {
+				assertEquals(expected.insert(key, Integer.toString(key)), tree.insert(key, Integer.toString(key)));
+			}
+			assertEquals(expected.search(key), tree.search(key));
+			if (i % 100 == 0) {
+				assertStructure(tree);
+				assertFreeSlots(tree);
+			}
+		}
+		assertSameTree(expected, tree);
+		assertStructure(tree);
+		assertFreeSlots(tree);
+	}
+
+	@Test
+	void deleteAllTest() {
+		List<Integer> keys = new ArrayList<>();
+		for (int i = 0; i < 3000; i++) {
+			keys.add(i);
+		}
+		Collections.shuffle(keys);
+		AVLTree expected = new AVLTree();
+		IntAVLTree tree = new IntAVLTree();
+		for (int key : keys) {
+			expected.insert(key, "a");
+			tree.insert(key, "a");
+		}
+		Collections.shuffle(keys);
+		for (int key : keys) {
+			assertEquals(expected.delete(key), tree.delete(key));
+		}
+		assertSameTree(expected, tree);
+		assertEquals(-1, tree.delete(keys.get(0)));
+		assertEquals(3000, assertFreeSlots(tree));
+		//freed slots are reused before the storage grows
+		int used = tree.getNodes().used;
+		for (int key : keys) {
+			tree.insert(key, "b");
+		}
+		assertEquals("b", tree.min());
+		assertEquals(used, tree.getNodes().used);
+		assertEquals(0, assertFreeSlots(tree));
+		assertStructure(tree);
+	}
+
+	@Test
+	void splitTest_ManyRandomSplits() {
+		Random rand = new Random();
+		for (int i = 0; i < 300; i++) {
+			AVLTree expected = new AVLTree();
+			IntAVLTree tree = new IntAVLTree();
+			int size = 1 + rand.nextInt(500);
+			List<Integer> keysList = new ArrayList<>();
+			for (int j = 0; j < size; j++) {
+				int key = rand.nextInt(50000);
+				if (expected.insert(key, Integer.toString(key)) != -1) {
+					keysList.add(key);
+				}
+				tree.insert(key, Integer.toString(key));
+			}
+			int splitKey = keysList.get(rand.nextInt(keysList.size()));
+
+			AVLTree[] expectedTrees = expected.split(splitKey);
+			IntAVLTree[] splitTrees = tree.split(splitKey);
+			assertSameTree(expectedTrees[0], splitTrees[0]);
+			assertSameTree(expectedTrees[1], splitTrees[1]);
+			assertStructure(splitTrees[0]);
+			assertStructure(splitTrees[1]);
+			assertTrue(tree.empty());
+
+			//split trees keep working on the shared storage
+			splitTrees[0].insert(-1, "-1");
+			assertEquals("-1", splitTrees[0].min());
+		}
+	}
+
+	@Test
+	void splitTest_MissingKey() {
+		AVLTree expected = new AVLTree();
+		IntAVLTree tree = new IntAVLTree();
+		for (int key = 0; key <= 18; key += 2) {
+			expected.insert(key, Integer.toString(key));
+			tree.insert(key, Integer.toString(key));
+		}
+		AVLTree[] expectedTrees = expected.split(5);
+		IntAVLTree[] splitTrees = tree.split(5);
+		assertArrayEquals(new int[]{0, 2, 4}, splitTrees[0].keysToArray());
+		assertArrayEquals(new int[]{6, 8, 10, 12, 14, 16, 18}, splitTrees[1].keysToArray());
+		assertSameTree(expectedTrees[0], splitTrees[0]);
+		assertSameTree(expectedTrees[1], splitTrees[1]);
+		assertStructure(splitTrees[0]);
+		assertStructure(splitTrees[1]);
+		assertTrue(tree.empty());
+		//no node was removed, so nothing was freed
+		assertEquals(IntAVLTree.NIL, tree.getNodes().freeHead);
+
+		//keys beyond both ends leave one of the trees empty
+		IntAVLTree[] belowTrees = splitTrees[1].split(-1);
+		assertTrue(belowTrees[0].empty());
+		assertArrayEquals(new int[]{6, 8, 10, 12, 14, 16, 18}, belowTrees[1].keysToArray());
+		IntAVLTree[] aboveTrees = belowTrees[1].split(19);
+		assertArrayEquals(new int[]{6, 8, 10, 12, 14, 16, 18}, aboveTrees[0].keysToArray());
+		assertEquals("18", aboveTrees[0].max());
+		assertTrue(aboveTrees[1].empty());
+		assertStructure(aboveTrees[0]);
+	}
+
+	@Test
+	void joinTreesTest_ManyRandJoins() {
+		Random rand = new Random();
+		for (int i = 0; i < 500; i++) {
+			int xKey = 500 + rand.nextInt(50);
+			AVLTree[] expected = {new AVLTree(), new AVLTree()};
+			IntAVLTree[] trees = {new IntAVLTree(), new IntAVLTree()};
+			boolean below = rand.nextBoolean();
+			for (int j = 0; j < 2; j++) {
+				int size = rand.nextInt(100);
+				for (int k = 0; k < size; k++) {
+					int key = below ? rand.nextInt(xKey) : xKey + 1 + rand.nextInt(500);
+					expected[j].insert(key, "a");
+					trees[j].insert(key, "a");
+				}
+				below = !below;
+			}
+
+			int expectedComplexity = expected[0].join(new AVLTree.AVLNode(xKey, "x"), expected[1]);
+			assertEquals(expectedComplexity, trees[0].join(xKey, "x", trees[1]));
+			assertSameTree(expected[0], trees[0]);
+			assertStructure(trees[0]);
+			assertTrue(trees[1].empty());
+			//the joined tree had its own storage, and gets all of its slots back
+			IntAVLTree.NodeStore otherNodes = trees[1].getNodes();
+			assertEquals(otherNodes.used - 1, assertFreeSlots(trees[1]));
+			int used = otherNodes.used;
+			trees[1].insert(xKey, "x");
+			assertEquals(used == 1 ? 2 : used, otherNodes.used);
+		}
+	}
+
+	@Test
+	void splitThenJoinTest() {
+		IntAVLTree tree = new IntAVLTree();
+		for (int i = 0; i < 1000; i++) {
+			tree.insert(i, Integer.toString(i));
+		}
+		IntAVLTree[] trees = tree.split(400);
+		trees[0].join(400, "400", trees[1]);
+		assertEquals(1000, trees[0].size());
+		assertEquals("0", trees[0].min());
+		assertEquals("999", trees[0].max());
+		assertEquals("400", trees[0].search(400));
+	}
+}
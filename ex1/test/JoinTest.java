@@ -1,5 +1,4 @@
 import org.junit.jupiter.api.Test;
-import sun.reflect.generics.tree.Tree;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -26,7 +25,7 @@ public class JoinTest {
 		tree2.insert(10, "a");
 		tree2.insert(13, "a");
 		tree2.insert(35, "a");
-		AVLTree.IAVLNode x = tree2.new AVLNode(9, "a");
+		AVLTree.IAVLNode x = new AVLTree.AVLNode(9, "a");
 
 		int complexity = tree.join(x, tree2);
 
@@ -47,7 +46,7 @@ public class JoinTest {
 		tree2.insert(10, "a");
 		tree2.insert(13, "a");
 		tree2.insert(35, "a");
-		AVLTree.IAVLNode x = tree2.new AVLNode(9, "a");
+		AVLTree.IAVLNode x = new AVLTree.AVLNode(9, "a");
 
 		int complexity = tree.join(x, tree2);
 
@@ -72,7 +71,7 @@ public class JoinTest {
 		tree2.insert(20, "a");
 		tree2.insert(19, "a");
 		tree2.insert(35, "a");
-		AVLTree.IAVLNode x = tree2.new AVLNode(17, "a");
+		AVLTree.IAVLNode x = new AVLTree.AVLNode(17, "a");
 
 		int complexity = tree.join(x, tree2);
 
@@ -92,7 +91,7 @@ public class JoinTest {
 		tree2.insert(13, "a");
 		tree2.insert(10, "a");
 		tree2.insert(15, "a");
-		AVLTree.IAVLNode x = tree2.new AVLNode(17, "a");
+		AVLTree.IAVLNode x = new AVLTree.AVLNode(17, "a");
 
 		int complexity = tree.join(x, tree2);
 
@@ -113,7 +112,7 @@ public class JoinTest {
 		tree.insert(70, "a");
 		tree.insert(100, "a");
 		AVLTree tree2 = new AVLTree();
-		AVLTree.IAVLNode x = tree.new AVLNode(3, "a");
+		AVLTree.IAVLNode x = new AVLTree.AVLNode(3, "a");
 
 		int complexity = tree.join(x, tree2);
 
@@ -126,7 +125,7 @@ public class JoinTest {
 	void joinTreesTest_BothEmpty() {
 		AVLTree tree = new AVLTree();
 		AVLTree tree2 = new AVLTree();
-		AVLTree.IAVLNode x = tree.new AVLNode(15, "a");
+		AVLTree.IAVLNode x = new AVLTree.AVLNode(15, "a");
 
 		int complexity = tree.join(x, tree2);
 
@@ -171,7 +170,7 @@ public class JoinTest {
 				}
 				below = !below;
 			}
-			AVLTree.IAVLNode x = trees[0].new AVLNode(xKey, "a");
+			AVLTree.IAVLNode x = new AVLTree.AVLNode(xKey, "a");
 			trees[0].join(x, trees[1]);
 
 			assertEquals(size[0] + size[1] + 1, trees[0].size());
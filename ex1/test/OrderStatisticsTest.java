@@ -0,0 +1,83 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderStatisticsTest {
+
+	@Test
+	void selectTest() {
+		AVLTree tree = new AVLTree();
+		Random rand = new Random();
+		for (int i = 0; i < 1000; i++) {
+			tree.insert(rand.nextInt(5000), "a");
+		}
+		int[] keys = tree.keysToArray();
+		for (int k = 0; k < keys.length; k++) {
+			assertEquals(keys[k], tree.select(k));
+		}
+	}
+
+	@Test
+	void selectTest_OutOfRange() {
+		AVLTree tree = new AVLTree();
+		assertThrows(IndexOutOfBoundsException.class, () -> tree.select(0));
+		tree.insert(3, "a");
+		assertEquals(3, tree.select(0));
+		assertThrows(IndexOutOfBoundsException.class, () -> tree.select(1));
+		assertThrows(IndexOutOfBoundsException.class, () -> tree.select(-1));
+	}
+
+	@Test
+	void rankTest() {
+		AVLTree tree = new AVLTree();
+		Random rand = new Random();
+		for (int i = 0; i < 1000; i++) {
+			tree.insert(rand.nextInt(5000), "a");
+		}
+		int[] keys = tree.keysToArray();
+		for (int key = -1; key <= 5001; key++) {
+			int expected = Arrays.binarySearch(keys, key);
+			expected = expected >= 0 ? expected : -expected - 1;
+			assertEquals(expected, tree.rank(key));
+		}
+		for (int k = 0; k < keys.length; k++) {
+			assertEquals(k, tree.rank(tree.select(k)));
+		}
+	}
+
+	@Test
+	void rankTest_AfterDeletions() {
+		AVLTree tree = new AVLTree();
+		for (int i = 0; i < 100; i++) {
+			tree.insert(i, "a");
+		}
+		for (int i = 0; i < 100; i += 2) {
+			tree.delete(i);
+		}
+		assertEquals(0, tree.rank(1));
+		assertEquals(25, tree.rank(50));
+		assertEquals(25, tree.rank(51));
+		assertEquals(51, tree.select(25));
+	}
+
+	@Test
+	void countInRangeTest() {
+		AVLTree tree = new AVLTree();
+		Random rand = new Random();
+		for (int i = 0; i < 500; i++) {
+			tree.insert(rand.nextInt(1000), "a");
+		}
+		int[] keys = tree.keysToArray();
+		for (int i = 0; i < 1000; i++) {
+			int lo = rand.nextInt(1100) - 50;
+			int hi = rand.nextInt(1100) - 50;
+			long expected = Arrays.stream(keys).filter(k -> k >= lo && k <= hi).count();
+			assertEquals(expected, tree.countInRange(lo, hi));
+		}
+		assertEquals(keys.length, tree.countInRange(Integer.MIN_VALUE, Integer.MAX_VALUE));
+		assertEquals(0, new AVLTree().countInRange(Integer.MIN_VALUE, Integer.MAX_VALUE));
+	}
+}
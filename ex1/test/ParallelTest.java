@@ -0,0 +1,64 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The trees are larger than AVLTree.PARALLEL_CUTOFF, so the parallel algorithms fork
+ */
+class ParallelTest {
+	private static final int SIZE = AVLTree.PARALLEL_CUTOFF * 6;
+
+	@Test
+	void parallelFromSortedTest() {
+		int[] keys = IntStream.range(0, SIZE).map(i -> i * 2).toArray();
+		String[] values = IntStream.range(0, SIZE).mapToObj(Integer::toString).toArray(String[]::new);
+
+		AVLTree tree = AVLTree.parallelFromSorted(keys, values);
+
+		TestUtils.testAVL(tree);
+		assertArrayEquals(keys, tree.keysToArray());
+		assertArrayEquals(values, tree.infoToArray());
+		assertEquals(AVLTree.fromSorted(keys, values).getHeight(), tree.getHeight());
+	}
+
+	@Test
+	void parallelFromSortedTest_Unsorted() {
+		int[] keys = IntStream.range(0, SIZE).toArray();
+		keys[SIZE - 10] = 0;
+		assertThrows(IllegalArgumentException.class, () -> AVLTree.parallelFromSorted(keys, new String[SIZE]));
+	}
+
+	@Test
+	void parallelSetOperationsTest() {
+		Random rand = new Random();
+		TreeMap<Integer, String> a = TestUtils.randomItems(rand, SIZE, SIZE * 2, "a");
+		TreeMap<Integer, String> b = TestUtils.randomItems(rand, SIZE / 2, SIZE * 2, "b");
+
+		AVLTree union = TestUtils.treeOf(a);
+		union.parallelUnion(TestUtils.treeOf(b));
+		TreeMap<Integer, String> expected = new TreeMap<>(b);
+		expected.putAll(a);
+		TestUtils.testAVL(union);
+		TestUtils.assertItems(expected, union);
+
+		AVLTree intersection = TestUtils.treeOf(a);
+		intersection.parallelIntersect(TestUtils.treeOf(b));
+		expected = new TreeMap<>(a);
+		expected.keySet().retainAll(b.keySet());
+		TestUtils.testAVL(intersection);
+		TestUtils.assertItems(expected, intersection);
+
+		AVLTree difference = TestUtils.treeOf(a);
+		AVLTree other = TestUtils.treeOf(b);
+		difference.parallelDifference(other);
+		expected = new TreeMap<>(a);
+		expected.keySet().removeAll(b.keySet());
+		TestUtils.testAVL(difference);
+		TestUtils.assertItems(expected, difference);
+		assertTrue(other.empty());
+	}
+}
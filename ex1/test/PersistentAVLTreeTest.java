@@ -0,0 +1,228 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentAVLTreeTest {
+
+	private static void assertSameItems(TreeMap<Integer, String> expected, PersistentAVLTree tree) {
+		TestUtils.assertItems(expected, tree.keysToArray(), tree.infoToArray());
+		assertEquals(expected.size(), tree.size());
+		assertEquals(expected.isEmpty(), tree.empty());
+		assertEquals(expected.isEmpty() ? null : expected.firstEntry().getValue(), tree.min());
+		assertEquals(expected.isEmpty() ? null : expected.lastEntry().getValue(), tree.max());
+		assertBalanced(tree.getRootNode());
+	}
+
+	/**
+	 * Check the AVL invariants, heights and sizes of a subtree
+	 *
+	 * @return the subtree's height
+	 */
+	private static int assertBalanced(PersistentAVLTree.Node node) {
+		if (node == null) {
+			return -1;
+		}
+		int leftHeight = assertBalanced(node.left);
+		int rightHeight = assertBalanced(node.right);
+		assertTrue(Math.abs(leftHeight - rightHeight) <= 1);
+		assertEquals(1 + Math.max(leftHeight, rightHeight), node.height);
+		assertEquals(1 + (node.left == null ? 0 : node.left.size) + (node.right == null ? 0 : node.right.size), node.size);
+		return node.height;
+	}
+
+	private static void collectNodes(PersistentAVLTree.Node node, Map<PersistentAVLTree.Node, Boolean> nodes) {
+		if (node != null) {
+			nodes.put(node, true);
+			collectNodes(node.left, nodes);
+			collectNodes(node.right, nodes);
+		}
+	}
+
+	@Test
+	void insertAndDeleteTest() {
+		Random rand = new Random();
+		TreeMap<Integer, String> expected = new TreeMap<>();
+		PersistentAVLTree tree = new PersistentAVLTree();
+		for (int i = 0; i < 5000; i++) {
+			int key = rand.nextInt(2000);
+			if (rand.nextInt(3) == 0) {
+				assertEquals(expected.remove(key) == null ? -1 : 0, tree.delete(key));
+			} else {
+				String value = Integer.toString(key);
+				assertEquals(expected.putIfAbsent(key, value) == null ? 0 : -1, tree.insert(key, value));
+			}
+			assertEquals(expected.get(key), tree.search(key));
+		}
+		assertSameItems(expected, tree);
+	}
+
+	@Test
+	void snapshotTest() {
+		Random rand = new Random();
+		TreeMap<Integer, String> expected = new TreeMap<>();
+		PersistentAVLTree tree = new PersistentAVLTree();
+		List<PersistentAVLTree> snapshots = new ArrayList<>();
+		List<TreeMap<Integer, String>> expectedSnapshots = new ArrayList<>();
+		for (int i = 0; i < 3000; i++) {
+			int key = rand.nextInt(1000);
+			if (rand.nextInt(3) == 0) {
+				tree.delete(key);
+				expected.remove(key);
+			} else {
+				tree.insert(key, Integer.toString(i));
+				expected.putIfAbsent(key, Integer.toString(i));
+			}
+			if (i % 300 == 0) {
+				snapshots.add(tree.snapshot());
+				expectedSnapshots.add(new TreeMap<>(expected));
+			}
+		}
+		//later updates don't change the snapshots
+		for (int i = 0; i < snapshots.size(); i++) {
+			assertSameItems(expectedSnapshots.get(i), snapshots.get(i));
+		}
+		assertSameItems(expected, tree);
+	}
+
+	@Test
+	void snapshotIsReadOnlyTest() {
+		PersistentAVLTree tree = new PersistentAVLTree();
+		tree.insert(1, "a");
+		PersistentAVLTree snapshot = tree.snapshot();
+		assertTrue(snapshot.isReadOnly());
+		assertFalse(tree.isReadOnly());
+		assertSame(snapshot, snapshot.snapshot());
+		assertThrows(UnsupportedOperationException.class, () -> snapshot.insert(2, "b"));
+		assertThrows(UnsupportedOperationException.class, () -> snapshot.delete(1));
+		assertThrows(UnsupportedOperationException.class, () -> snapshot.join(5, "c", new PersistentAVLTree()));
+		//split doesn't change the tree, so it works on a snapshot
+		PersistentAVLTree[] parts = snapshot.split(1);
+		assertTrue(parts[0].empty() && parts[1].empty());
+		assertEquals("a", snapshot.search(1));
+	}
+
+	@Test
+	void pathCopyingTest() {
+		PersistentAVLTree tree = new PersistentAVLTree();
+		List<Integer> keys = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			keys.add(i * 2);
+		}
+		Collections.shuffle(keys);
+		for (int key : keys) {
+			tree.insert(key, "a");
+		}
+		Random rand = new Random();
+		for (int i = 0; i < 100; i++) {
+			PersistentAVLTree snapshot = tree.snapshot();
+			Map<PersistentAVLTree.Node, Boolean> before = new IdentityHashMap<>();
+			collectNodes(snapshot.getRootNode(), before);
+			if (rand.nextBoolean()) {
+				tree.insert(rand.nextInt(10000) * 2 + 1, "b");
+			} else {
+				tree.delete(rand.nextInt(10000) * 2);
+			}
+			Map<PersistentAVLTree.Node, Boolean> after = new IdentityHashMap<>();
+			collectNodes(tree.getRootNode(), after);
+			after.keySet().removeAll(before.keySet());
+			//only the nodes on the path, and the ones rotated next to it, are new
+			assertTrue(after.size() <= 2 * (tree.getHeight() + 2), "copied nodes: " + after.size());
+		}
+		//a failed update copies nothing
+		PersistentAVLTree.Node root = tree.getRootNode();
+		assertEquals(-1, tree.insert(tree.keysToArray()[0], "c"));
+		assertEquals(-1, tree.delete(-5));
+		assertSame(root, tree.getRootNode());
+	}
+
+	@Test
+	void splitTest() {
+		Random rand = new Random();
+		for (int i = 0; i < 200; i++) {
+			TreeMap<Integer, String> expected = new TreeMap<>();
+			PersistentAVLTree tree = new PersistentAVLTree();
+			int size = rand.nextInt(300);
+			for (int j = 0; j < size; j++) {
+				int key = rand.nextInt(1000);
+				tree.insert(key, Integer.toString(key));
+				expected.putIfAbsent(key, Integer.toString(key));
+			}
+			int x = rand.nextInt(1100) - 50;
+			PersistentAVLTree[] parts = tree.split(x);
+			assertSameItems(new TreeMap<>(expected.headMap(x, false)), parts[0]);
+			assertSameItems(new TreeMap<>(expected.tailMap(x, false)), parts[1]);
+			//the split tree doesn't change
+			assertSameItems(expected, tree);
+		}
+	}
+
+	@Test
+	void joinTest() {
+		Random rand = new Random();
+		for (int i = 0; i < 300; i++) {
+			int xKey = 500 + rand.nextInt(50);
+			TreeMap<Integer, String> expected = new TreeMap<>();
+			PersistentAVLTree[] trees = {new PersistentAVLTree(), new PersistentAVLTree()};
+			boolean below = rand.nextBoolean();
+			for (int j = 0; j < 2; j++) {
+				int size = rand.nextInt(100);
+				for (int k = 0; k < size; k++) {
+					int key = below ? rand.nextInt(xKey) : xKey + 1 + rand.nextInt(500);
+					trees[j].insert(key, "a");
+					expected.put(key, "a");
+				}
+				below = !below;
+			}
+			TreeMap<Integer, String> expectedOther = new TreeMap<>(expected);
+			expectedOther.keySet().retainAll(toList(trees[1].keysToArray()));
+			expected.put(xKey, "x");
+
+			int complexity = Math.abs(trees[0].getHeight() - trees[1].getHeight()) + 1;
+			assertEquals(complexity, trees[0].join(xKey, "x", trees[1]));
+			assertSameItems(expected, trees[0]);
+			//the joined tree doesn't change
+			assertSameItems(expectedOther, trees[1]);
+		}
+	}
+
+	private static List<Integer> toList(int[] keys) {
+		List<Integer> list = new ArrayList<>();
+		for (int key : keys) {
+			list.add(key);
+		}
+		return list;
+	}
+
+	@Test
+	void concurrentReadersTest() throws InterruptedException {
+		//readers see a consistent tree while a writer keeps updating it
+		PersistentAVLTree tree = new PersistentAVLTree();
+		Thread writer = new Thread(() -> {
+			for (int i = 0; i < 20000; i++) {
+				tree.insert(i, "a");
+				if (i % 2 == 1) {
+					tree.delete(i - 1);
+				}
+			}
+		});
+		writer.start();
+		while (writer.isAlive()) {
+			PersistentAVLTree snapshot = tree.snapshot();
+			int[] keys = snapshot.keysToArray();
+			assertEquals(snapshot.size(), keys.length);
+			for (int j = 1; j < keys.length; j++) {
+				assertTrue(keys[j - 1] < keys[j]);
+			}
+		}
+		writer.join();
+		assertEquals(10000, tree.size());
+	}
+}
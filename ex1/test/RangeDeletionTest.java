@@ -0,0 +1,102 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RangeDeletionTest {
+
+	/**
+	 * Check that the tree and the removed part are valid AVL trees with the expected items
+	 */
+	private static void assertCut(TreeMap<Integer, String> expected, NavigableMap<Integer, String> removed,
+								  AVLTree tree, AVLTree removedTree) {
+		TestUtils.assertItems(removed, removedTree);
+		TestUtils.assertItems(expected, tree);
+		TestUtils.testAVL(tree);
+		TestUtils.testAVL(removedTree);
+	}
+
+	@Test
+	void randomRangesTest() {
+		Random rand = new Random(42);
+		for (int round = 0; round < 500; round++) {
+			TreeMap<Integer, String> expected = new TreeMap<>();
+			AVLTree tree = new AVLTree();
+			int size = rand.nextInt(300);
+			for (int i = 0; i < size; i++) {
+				int key = rand.nextInt(1000);
+				expected.putIfAbsent(key, Integer.toString(key));
+				tree.insert(key, Integer.toString(key));
+			}
+			//bounds may be in the tree, missing, or beyond its keys
+			int lo = rand.nextInt(1200) - 100;
+			int hi = lo + rand.nextInt(400) - 50;
+			NavigableMap<Integer, String> removed = lo <= hi
+				? new TreeMap<>(expected.subMap(lo, true, hi, true)) : new TreeMap<>();
+			removed.keySet().forEach(expected::remove);
+			assertCut(expected, removed, tree, tree.deleteRange(lo, hi));
+
+			int watermark = rand.nextInt(1000);
+			removed = new TreeMap<>(expected.headMap(watermark, false));
+			removed.keySet().forEach(expected::remove);
+			assertCut(expected, removed, tree, tree.truncateBelow(watermark));
+
+			watermark = rand.nextInt(1000);
+			removed = new TreeMap<>(expected.tailMap(watermark, false));
+			removed.keySet().forEach(expected::remove);
+			assertCut(expected, removed, tree, tree.truncateAbove(watermark));
+
+			//the tree is still usable
+			tree.insert(watermark, "w");
+			expected.putIfAbsent(watermark, "w");
+			TestUtils.assertItems(expected, tree);
+		}
+	}
+
+	@Test
+	void boundsTest() {
+		AVLTree tree = new AVLTree();
+		for (int i = 0; i < 100; i++) {
+			tree.insert(i * 2, Integer.toString(i * 2));
+		}
+		//bounds in the tree are included
+		assertArrayEquals(new int[]{10, 12, 14}, tree.deleteRange(10, 14).keysToArray());
+		//bounds that aren't in the tree
+		assertArrayEquals(new int[]{16, 18}, tree.deleteRange(15, 19).keysToArray());
+		assertArrayEquals(new int[]{20}, tree.deleteRange(20, 20).keysToArray());
+		assertTrue(tree.deleteRange(21, 21).empty());
+		assertTrue(tree.deleteRange(30, 20).empty());
+		assertEquals(94, tree.size());
+
+		assertArrayEquals(new int[]{0, 2, 4, 6, 8}, tree.truncateBelow(22).keysToArray());
+		assertEquals("22", tree.min());
+		assertArrayEquals(new int[]{196, 198}, tree.truncateAbove(195).keysToArray());
+		assertEquals("194", tree.max());
+		assertTrue(tree.truncateBelow(Integer.MIN_VALUE).empty());
+		assertTrue(tree.truncateAbove(Integer.MAX_VALUE).empty());
+
+		AVLTree all = tree.deleteRange(Integer.MIN_VALUE, Integer.MAX_VALUE);
+		assertEquals(87, all.size());
+		assertTrue(tree.empty());
+		assertNull(tree.min());
+		assertTrue(tree.truncateBelow(5).empty());
+		TestUtils.testAVL(all);
+	}
+
+	@Test
+	void searchCacheTest() {
+		AVLTree tree = new AVLTree();
+		tree.enableSearchCache(16);
+		for (int i = 0; i < 100; i++) {
+			tree.insert(i, "a");
+			tree.search(i);
+			tree.search(i);
+		}
+		tree.truncateBelow(50);
+		assertNull(tree.search(10));
+		assertEquals("a", tree.search(50));
+	}
+}
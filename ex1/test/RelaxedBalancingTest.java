@@ -0,0 +1,134 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RelaxedBalancingTest {
+
+	private static int maxHeight(AVLTree tree, double heightFactor) {
+		return (int) (heightFactor * Math.log(tree.size() + 2) / Math.log(2));
+	}
+
+	/**
+	 * Count the nodes whose children's heights differ by 2 or more
+	 */
+	private static int countViolations(AVLTree.IAVLNode node) {
+		if (!node.isRealNode()) {
+			return 0;
+		}
+		int violation = Math.abs(node.getLeft().getHeight() - node.getRight().getHeight()) > 1 ? 1 : 0;
+		return violation + countViolations(node.getLeft()) + countViolations(node.getRight());
+	}
+
+	private static void assertRelaxed(AVLTree tree, TreeMap<Integer, String> expected, double heightFactor) {
+		TestUtils.testBST(tree, true);
+		assertTrue(tree.getHeight() <= maxHeight(tree, heightFactor), "height " + tree.getHeight());
+		if (tree.getRoot() != null) {
+			assertTrue(countViolations(tree.getRoot()) <= tree.pendingViolations());
+		}
+		assertArrayEquals(expected.keySet().stream().mapToInt(Integer::intValue).toArray(), tree.keysToArray());
+		assertArrayEquals(expected.values().toArray(new String[0]), tree.infoToArray());
+	}
+
+	@Test
+	void randomOperationsTest() {
+		Random rand = new Random(42);
+		for (int fixes : new int[]{0, 1, 4}) {
+			double heightFactor = fixes == 0 ? 4 : 2;
+			AVLTree tree = new AVLTree();
+			tree.enableRelaxedBalancing(fixes, heightFactor);
+			TreeMap<Integer, String> expected = new TreeMap<>();
+			for (int i = 0; i < 4000; i++) {
+				int key = rand.nextInt(1000);
+				if (rand.nextInt(3) == 0) {
+					assertEquals(expected.containsKey(key), tree.delete(key) >= 0);
+					expected.remove(key);
+				} else {
+					assertEquals(!expected.containsKey(key), tree.insert(key, "info " + key) >= 0);
+					expected.putIfAbsent(key, "info " + key);
+				}
+				if (i % 100 == 0) {
+					assertRelaxed(tree, expected, heightFactor);
+				}
+			}
+			assertRelaxed(tree, expected, heightFactor);
+			tree.rebalanceNow();
+			assertEquals(0, tree.pendingViolations());
+			TestUtils.testAVL(tree);
+		}
+	}
+
+	@Test
+	void sortedBurstTest() {
+		AVLTree tree = new AVLTree();
+		tree.enableRelaxedBalancing(0, 2);
+		for (int i = 0; i < 10000; i++) {
+			tree.insert(i, "a");
+		}
+		TestUtils.testBST(tree, true);
+		//the height bound still fixes violations
+		assertTrue(tree.getHeight() <= maxHeight(tree, 2));
+		assertTrue(tree.pendingViolations() > 0);
+		assertTrue(tree.rebalanceNow() > 0);
+		TestUtils.testAVL(tree);
+
+		for (int i = 0; i < 10000; i += 2) {
+			tree.delete(i);
+		}
+		TestUtils.testBST(tree, true);
+		assertEquals(5000, tree.size());
+		tree.disableRelaxedBalancing();
+		TestUtils.testAVL(tree);
+		assertEquals(0, tree.pendingViolations());
+		tree.insert(-1, "b");
+		TestUtils.testAVL(tree);
+	}
+
+	@Test
+	void splitJoinTest() {
+		AVLTree tree = new AVLTree();
+		tree.enableRelaxedBalancing(0, 4);
+		for (int i = 0; i < 2000; i++) {
+			tree.insert(i, "a");
+		}
+		assertTrue(tree.pendingViolations() > 0);
+		AVLTree[] parts = tree.split(1000);
+		TestUtils.testAVL(parts[0]);
+		TestUtils.testAVL(parts[1]);
+		assertEquals(1000, parts[0].size());
+		assertEquals(999, parts[1].size());
+
+		AVLTree lower = new AVLTree();
+		lower.enableRelaxedBalancing(0, 4);
+		for (int i = 0; i < 500; i++) {
+			lower.insert(i, "a");
+		}
+		AVLTree upper = new AVLTree();
+		upper.enableRelaxedBalancing(0, 4);
+		for (int i = 501; i < 1500; i++) {
+			upper.insert(i, "a");
+		}
+		lower.join(new AVLTree.AVLNode(500, "b"), upper);
+		TestUtils.testAVL(lower);
+		assertEquals(1500, lower.size());
+		assertEquals("b", lower.search(500));
+
+		AVLTree removed = lower.deleteRange(100, 199);
+		TestUtils.testAVL(lower);
+		TestUtils.testAVL(removed);
+		assertEquals(100, removed.size());
+	}
+
+	@Test
+	void invalidArgumentsTest() {
+		AVLTree tree = new AVLTree();
+		assertThrows(IllegalArgumentException.class, () -> tree.enableRelaxedBalancing(-1, 2));
+		assertThrows(IllegalArgumentException.class, () -> tree.enableRelaxedBalancing(1, 1));
+		assertThrows(IllegalArgumentException.class, () -> tree.enableRelaxedBalancing(1, 5));
+		assertThrows(IllegalArgumentException.class, () -> tree.enableRelaxedBalancing(1, Double.NaN));
+		assertEquals(0, tree.rebalanceNow());
+		assertEquals(0, tree.pendingViolations());
+	}
+}
@@ -0,0 +1,125 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchCacheTest {
+
+	@Test
+	void sameAsHashMapTest() {
+		//a small cache with many removals exercises the backward shifts of the hash table
+		Random rand = new Random(42);
+		SearchCache cache = new SearchCache(100);
+		Map<Integer, AVLTree.IAVLNode> expected = new HashMap<>();
+		for (int i = 0; i < 100000; i++) {
+			int key = rand.nextInt(300) * 1024;
+			AVLTree.IAVLNode cached = cache.get(key);
+			if (cached != null) {
+				assertSame(expected.get(key), cached);
+				if (rand.nextBoolean()) {
+					cache.remove(key);
+					expected.remove(key);
+				}
+			} else {
+				AVLTree.IAVLNode node = new AVLTree.AVLNode(key, "a");
+				cache.put(key, node);
+				expected.put(key, node);
+			}
+			assertTrue(cache.size() <= cache.capacity());
+		}
+		//evicted keys are in expected but not in the cache, and everything cached is expected
+		int found = 0;
+		for (Map.Entry<Integer, AVLTree.IAVLNode> entry : expected.entrySet()) {
+			AVLTree.IAVLNode cached = cache.get(entry.getKey());
+			if (cached != null) {
+				assertSame(entry.getValue(), cached);
+				found++;
+			}
+		}
+		assertEquals(cache.size(), found);
+	}
+
+	@Test
+	void hotKeysTest() {
+		AVLTree tree = new AVLTree();
+		for (int i = 0; i < 10000; i++) {
+			tree.insert(i, Integer.toString(i));
+		}
+		tree.enableSearchCache(100);
+		Random rand = new Random(42);
+		for (int i = 0; i < 100000; i++) {
+			//90% of the searches go to 50 hot keys
+			int key = rand.nextInt(10) != 0 ? rand.nextInt(50) * 7 : rand.nextInt(10000);
+			assertEquals(Integer.toString(key), tree.search(key));
+		}
+		SearchCache cache = tree.getSearchCache();
+		assertEquals(100000, cache.getHits() + cache.getMisses());
+		assertTrue(cache.getHitRate() > 0.85, "hit rate " + cache.getHitRate());
+		assertEquals(100, cache.size());
+
+		cache.resetStatistics();
+		assertNull(tree.search(-1));
+		assertEquals(1, cache.getMisses());
+		assertEquals(0, cache.getHitRate());
+		tree.disableSearchCache();
+		assertNull(tree.getSearchCache());
+		assertThrows(IllegalArgumentException.class, () -> tree.enableSearchCache(0));
+	}
+
+	@Test
+	void invalidationTest() {
+		Random rand = new Random(42);
+		TreeMap<Integer, String> expected = new TreeMap<>();
+		AVLTree tree = new AVLTree();
+		tree.enableSearchCache(32);
+		for (int i = 0; i < 30000; i++) {
+			int key = rand.nextInt(500);
+			switch (rand.nextInt(4)) {
+				case 0:
+					expected.remove(key);
+					tree.delete(key);
+					break;
+				case 1:
+					String info = Integer.toString(i);
+					expected.putIfAbsent(key, info);
+					tree.insert(key, info);
+					break;
+				default:
+					assertEquals(expected.get(key), tree.search(key));
+			}
+		}
+		assertTrue(tree.getSearchCache().getHits() > 0);
+
+		//split moves the nodes to other trees, and join moves the nodes of the other tree
+		for (int key : expected.keySet()) {
+			tree.search(key);
+		}
+		AVLTree[] parts = tree.split(250);
+		assertEquals(0, tree.getSearchCache().size());
+		parts[1].enableSearchCache(32);
+		for (int key : expected.tailMap(250, false).keySet()) {
+			parts[1].search(key);
+		}
+		parts[0].join(new AVLTree.AVLNode(250, "250"), parts[1]);
+		assertEquals(0, parts[1].getSearchCache().size());
+		expected.put(250, expected.getOrDefault(250, "250"));
+		assertNull(parts[1].search(300));
+
+		//set operations may remove nodes
+		AVLTree other = new AVLTree();
+		parts[0].enableSearchCache(32);
+		for (int key = 0; key < 500; key += 3) {
+			parts[0].search(key);
+			other.insert(key, "other");
+		}
+		parts[0].difference(other);
+		for (int key = 0; key < 500; key++) {
+			String info = key % 3 == 0 ? null : key == 250 ? "250" : expected.get(key);
+			assertEquals(info, parts[0].search(key));
+		}
+	}
+}
@@ -0,0 +1,73 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SetOperationsTest {
+
+	@Test
+	void unionTest() {
+		Random rand = new Random();
+		for (int i = 0; i < 300; i++) {
+			TreeMap<Integer, String> a = TestUtils.randomItems(rand, rand.nextInt(400), 1000, "a");
+			TreeMap<Integer, String> b = TestUtils.randomItems(rand, rand.nextInt(i % 2 == 0 ? 10 : 400), 1000, "b");
+			AVLTree tree = TestUtils.treeOf(a);
+			AVLTree other = TestUtils.treeOf(b);
+
+			tree.union(other);
+
+			TreeMap<Integer, String> expected = new TreeMap<>(b);
+			expected.putAll(a);
+			TestUtils.testAVL(tree);
+			TestUtils.assertItems(expected, tree);
+			assertTrue(other.empty());
+		}
+	}
+
+	@Test
+	void intersectTest() {
+		Random rand = new Random();
+		for (int i = 0; i < 300; i++) {
+			TreeMap<Integer, String> a = TestUtils.randomItems(rand, rand.nextInt(400), 1000, "a");
+			TreeMap<Integer, String> b = TestUtils.randomItems(rand, rand.nextInt(i % 2 == 0 ? 10 : 400), 1000, "b");
+			AVLTree tree = TestUtils.treeOf(a);
+			AVLTree other = TestUtils.treeOf(b);
+
+			tree.intersect(other);
+
+			TreeMap<Integer, String> expected = new TreeMap<>(a);
+			expected.keySet().retainAll(b.keySet());
+			TestUtils.testAVL(tree);
+			TestUtils.assertItems(expected, tree);
+			assertTrue(other.empty());
+		}
+	}
+
+	@Test
+	void differenceTest() {
+		Random rand = new Random();
+		for (int i = 0; i < 300; i++) {
+			TreeMap<Integer, String> a = TestUtils.randomItems(rand, rand.nextInt(400), 1000, "a");
+			TreeMap<Integer, String> b = TestUtils.randomItems(rand, rand.nextInt(i % 2 == 0 ? 10 : 400), 1000, "b");
+			AVLTree tree = TestUtils.treeOf(a);
+			AVLTree other = TestUtils.treeOf(b);
+
+			tree.difference(other);
+
+			TreeMap<Integer, String> expected = new TreeMap<>(a);
+			expected.keySet().removeAll(b.keySet());
+			TestUtils.testAVL(tree);
+			TestUtils.assertItems(expected, tree);
+			assertTrue(other.empty());
+		}
+	}
+
+	@Test
+	void setOperationsTest_Self() {
+		AVLTree tree = new AVLTree();
+		tree.insert(1, "a");
+		assertThrows(IllegalArgumentException.class, () -> tree.union(tree));
+	}
+}
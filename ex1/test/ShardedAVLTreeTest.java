@@ -0,0 +1,147 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedAVLTreeTest {
+
+	private static void assertSameItems(TreeMap<Integer, String> expected, ShardedAVLTree tree) {
+		TestUtils.assertItems(expected, tree.keysToArray(), tree.infoToArray());
+		assertEquals(expected.size(), tree.size());
+		assertEquals(expected.isEmpty(), tree.empty());
+		assertEquals(expected.isEmpty() ? null : expected.firstEntry().getValue(), tree.min());
+		assertEquals(expected.isEmpty() ? null : expected.lastEntry().getValue(), tree.max());
+	}
+
+	@Test
+	void insertAndDeleteTest() {
+		Random rand = new Random();
+		TreeMap<Integer, String> expected = new TreeMap<>();
+		ShardedAVLTree tree = new ShardedAVLTree(16);
+		assertSameItems(expected, tree);
+		for (int i = 0; i < 5000; i++) {
+			int key = rand.nextInt(2000) - 1000;
+			if (rand.nextInt(3) == 0) {
+				assertEquals(expected.remove(key) == null, tree.delete(key) == -1);
+			} else {
+				String value = Integer.toString(key);
+				assertEquals(expected.putIfAbsent(key, value) != null, tree.insert(key, value) == -1);
+			}
+			assertEquals(expected.get(key), tree.search(key));
+		}
+		assertSameItems(expected, tree);
+	}
+
+	@Test
+	void splitLargeShardsTest() {
+		ShardedAVLTree tree = new ShardedAVLTree(100);
+		for (int i = 0; i < 1000; i++) {
+			tree.insert(i, Integer.toString(i));
+		}
+		assertTrue(tree.shardCount() >= 10);
+		assertEquals(1000, tree.size());
+		assertEquals("0", tree.min());
+		assertEquals("999", tree.max());
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(Integer.toString(i), tree.search(i));
+		}
+	}
+
+	@Test
+	void joinSmallShardsTest() {
+		ShardedAVLTree tree = new ShardedAVLTree(100);
+		for (int i = 0; i < 1000; i++) {
+			tree.insert(i, Integer.toString(i));
+		}
+		int shards = tree.shardCount();
+		for (int i = 0; i < 990; i++) {
+			tree.delete(i);
+		}
+		//empty shards are joined right away
+		assertTrue(tree.shardCount() < shards);
+		for (int i = 0; i < 10; i++) {
+			tree.rebalanceShards();
+		}
+		assertEquals(1, tree.shardCount());
+		assertEquals(10, tree.size());
+		assertEquals("990", tree.min());
+		assertEquals("999", tree.max());
+	}
+
+	@Test
+	void rebalanceShardsTest() {
+		ShardedAVLTree tree = new ShardedAVLTree(1000);
+		TreeMap<Integer, String> expected = new TreeMap<>();
+		for (int i = 0; i < 2000; i++) {
+			tree.insert(i, "a");
+			expected.put(i, "a");
+		}
+		int shards = tree.shardCount();
+		//updates to a narrow range make its shard hot
+		for (int round = 0; round < 5; round++) {
+			for (int i = 0; i < 100; i++) {
+				tree.delete(i);
+				tree.insert(i, "b");
+				expected.put(i, "b");
+			}
+			tree.rebalanceShards();
+		}
+		assertTrue(tree.shardCount() > shards);
+		assertSameItems(expected, tree);
+
+		//once the updates spread out, the small shards are joined back
+		int hotShards = tree.shardCount();
+		for (int i = 0; i < 2000; i += 10) {
+			tree.delete(i);
+			expected.remove(i);
+		}
+		tree.rebalanceShards();
+		assertTrue(tree.shardCount() < hotShards);
+		assertSameItems(expected, tree);
+	}
+
+	@Test
+	void concurrentWritersTest() throws InterruptedException {
+		ShardedAVLTree tree = new ShardedAVLTree(64);
+		int threads = 8;
+		int perThread = 5000;
+		List<Thread> workers = new ArrayList<>();
+		List<Throwable> failures = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			int id = t;
+			Thread worker = new Thread(() -> {
+				try {
+					for (int i = 0; i < perThread; i++) {
+						assertNotEquals(-1, tree.insert(i * threads + id, "a"));
+					}
+					for (int i = 0; i < perThread; i += 2) {
+						assertNotEquals(-1, tree.delete(i * threads + id));
+					}
+					if (id == 0) {
+						tree.rebalanceShards();
+					}
+				} catch (Throwable e) {
+					synchronized (failures) {
+						failures.add(e);
+					}
+				}
+			});
+			worker.start();
+			workers.add(worker);
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		assertTrue(failures.isEmpty(), failures.toString());
+		int[] keys = tree.keysToArray();
+		assertEquals(threads * perThread / 2, keys.length);
+		for (int i = 0; i < keys.length; i++) {
+			assertTrue(i == 0 || keys[i - 1] < keys[i]);
+			assertEquals(1, (keys[i] / threads) % 2);
+		}
+	}
+}
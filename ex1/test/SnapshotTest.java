@@ -0,0 +1,113 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotTest {
+
+	@TempDir
+	Path dir;
+
+	private static void assertSameItems(AVLTree expected, AVLTree actual) {
+		assertArrayEquals(expected.keysToArray(), actual.keysToArray());
+		assertArrayEquals(expected.infoToArray(), actual.infoToArray());
+		TestUtils.testAVL(actual);
+	}
+
+	@Test
+	void roundTripTest() throws IOException {
+		Random rand = new Random(42);
+		Path path = dir.resolve("tree.snapshot");
+		for (int n : new int[]{0, 1, 2, 100, 5000}) {
+			AVLTree tree = new AVLTree();
+			for (int i = 0; i < n; i++) {
+				//dense and sparse keys, so differences take 1 to 5 bytes
+				int key = rand.nextBoolean() ? rand.nextInt(2 * n) : rand.nextInt();
+				tree.insert(key, Integer.toString(key));
+			}
+			tree.writeSnapshot(path);
+			AVLTree loaded = AVLTree.openSnapshot(path);
+			assertSameItems(tree, loaded);
+			int expectedHeight = tree.size() == 0 ? -1 : 31 - Integer.numberOfLeadingZeros(tree.size());
+			assertEquals(expectedHeight, loaded.getHeight());
+		}
+		assertFalse(Files.exists(dir.resolve("tree.snapshot.tmp")));
+	}
+
+	@Test
+	void specialItemsTest() throws IOException {
+		char[] large = new char[100000];
+		Arrays.fill(large, 'ש');
+		AVLTree tree = new AVLTree();
+		tree.insert(Integer.MIN_VALUE, null);
+		tree.insert(-1, "");
+		tree.insert(0, "אבג🌳");
+		tree.insert(1, new String(large));
+		tree.insert(Integer.MAX_VALUE, "max");
+		Path path = dir.resolve("special.snapshot");
+		tree.writeSnapshot(path);
+
+		AVLTree loaded = AVLTree.openSnapshot(path);
+		assertSameItems(tree, loaded);
+		assertNull(loaded.search(Integer.MIN_VALUE));
+		assertEquals("", loaded.search(-1));
+		//the loaded tree is a regular tree
+		loaded.insert(2, "2");
+		loaded.delete(Integer.MIN_VALUE);
+		assertEquals("", loaded.min());
+		TestUtils.testAVL(loaded);
+	}
+
+	@Test
+	void compactTest() throws IOException {
+		AVLTree tree = new AVLTree();
+		for (int i = 0; i < 10000; i++) {
+			tree.insert(i * 3, "v");
+		}
+		Path path = dir.resolve("compact.snapshot");
+		tree.writeSnapshot(path);
+		//1 byte per key difference, and 2 bytes per value
+		assertEquals(AVLTreeSnapshot.HEADER_BYTES + 10000 + 20000, Files.size(path));
+	}
+
+	@Test
+	void corruptionTest() throws IOException {
+		AVLTree tree = new AVLTree();
+		for (int i = 0; i < 1000; i++) {
+			tree.insert(i, Integer.toString(i));
+		}
+		Path path = dir.resolve("corrupt.snapshot");
+		tree.writeSnapshot(path);
+		byte[] bytes = Files.readAllBytes(path);
+
+		//a flipped bit in the columns fails the checksum
+		byte[] flipped = bytes.clone();
+		flipped[bytes.length / 2] ^= 0x10;
+		Files.write(path, flipped);
+		IOException e = assertThrows(IOException.class, () -> AVLTree.openSnapshot(path));
+		assertTrue(e.getMessage().contains("Checksum"), e.getMessage());
+
+		//a truncated file
+		Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+		assertThrows(IOException.class, () -> AVLTree.openSnapshot(path));
+		Files.write(path, Arrays.copyOf(bytes, 10));
+		assertThrows(IOException.class, () -> AVLTree.openSnapshot(path));
+
+		//a wrong size in the header
+		byte[] wrongSize = bytes.clone();
+		wrongSize[8]++;
+		Files.write(path, wrongSize);
+		assertThrows(IOException.class, () -> AVLTree.openSnapshot(path));
+
+		//not a snapshot
+		Files.write(path, new byte[64]);
+		assertThrows(IOException.class, () -> AVLTree.openSnapshot(path));
+		assertThrows(IOException.class, () -> AVLTree.openSnapshot(dir.resolve("missing.snapshot")));
+	}
+}
@@ -104,4 +104,26 @@ public class SplitTest {
 		TestUtils.testAVL(splitTrees[0]);
 		TestUtils.testAVL(splitTrees[1]);
 	}
+
+	@Test
+	void splitTest_MissingKey() {
+		Random rand = new Random();
+		for (int i = 0; i < 300; i++) {
+			AVLTree tree = new AVLTree();
+			int size = rand.nextInt(300);
+			for (int j = 0; j < size; j++) {
+				tree.insert(rand.nextInt(1000) * 2, "a");
+			}
+			int splitKey = rand.nextInt(2002) * 2 - 1001;
+			int[] keys = tree.keysToArray();
+			int[] lowerKeys = Arrays.stream(keys).filter(k -> k < splitKey).toArray();
+			int[] higherKeys = Arrays.stream(keys).filter(k -> k > splitKey).toArray();
+
+			AVLTree[] splitTrees = tree.split(splitKey);
+			assertArrayEquals(lowerKeys, splitTrees[0].keysToArray());
+			assertArrayEquals(higherKeys, splitTrees[1].keysToArray());
+			TestUtils.testAVL(splitTrees[0]);
+			TestUtils.testAVL(splitTrees[1]);
+		}
+	}
 }
@@ -0,0 +1,109 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StampedAVLTreeTest {
+
+	@Test
+	void sameAsAVLTreeTest() {
+		Random rand = new Random();
+		AVLTree expected = new AVLTree();
+		StampedAVLTree tree = new StampedAVLTree();
+		for (int i = 0; i < 5000; i++) {
+			int key = rand.nextInt(2000);
+			if (rand.nextInt(3) == 0) {
+				assertEquals(expected.delete(key), tree.delete(key));
+			} else {
+				assertEquals(expected.insert(key, Integer.toString(key)), tree.insert(key, Integer.toString(key)));
+			}
+			assertEquals(expected.search(key), tree.search(key));
+		}
+		assertArrayEquals(expected.keysToArray(), tree.keysToArray());
+		assertArrayEquals(expected.infoToArray(), tree.infoToArray());
+		assertEquals(expected.size(), tree.size());
+		assertEquals(expected.getHeight(), tree.getHeight());
+		assertEquals(expected.min(), tree.min());
+		assertEquals(expected.max(), tree.max());
+		assertEquals(expected.empty(), tree.empty());
+	}
+
+	@Test
+	void emptyTreeTest() {
+		StampedAVLTree tree = new StampedAVLTree();
+		assertTrue(tree.empty());
+		assertNull(tree.search(1));
+		assertNull(tree.min());
+		assertNull(tree.max());
+		assertEquals(-1, tree.getHeight());
+	}
+
+	@Test
+	void splitAndJoinTest() {
+		StampedAVLTree tree = new StampedAVLTree();
+		for (int i = 0; i < 1000; i++) {
+			tree.insert(i, Integer.toString(i));
+		}
+		StampedAVLTree[] parts = tree.split(400);
+		assertTrue(tree.empty());
+		assertEquals(400, parts[0].size());
+		assertEquals(599, parts[1].size());
+		assertTrue(parts[0].join(400, "400", parts[1]) > 0);
+		assertTrue(parts[1].empty());
+		assertEquals(1000, parts[0].size());
+		assertEquals("400", parts[0].search(400));
+		assertThrows(IllegalArgumentException.class, () -> parts[0].join(2000, "a", parts[0]));
+	}
+
+	@Test
+	void optimisticReadersTest() throws InterruptedException {
+		//even keys stay in the tree while a writer rotates it by inserting and deleting odd keys
+		StampedAVLTree tree = new StampedAVLTree();
+		int range = 4000;
+		for (int i = 0; i < range; i += 2) {
+			tree.insert(i, Integer.toString(i));
+		}
+		AtomicBoolean done = new AtomicBoolean();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		List<Thread> readers = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			int id = t;
+			Thread reader = new Thread(() -> {
+				Random rand = new Random(id);
+				try {
+					while (!done.get()) {
+						int key = rand.nextInt(range / 2) * 2;
+						assertEquals(Integer.toString(key), tree.search(key));
+						assertNull(tree.search(-1 - key));
+						assertEquals("0", tree.min());
+						int size = tree.size();
+						assertTrue(size >= range / 2 && size <= range);
+					}
+				} catch (Throwable e) {
+					failure.compareAndSet(null, e);
+				}
+			});
+			reader.start();
+			readers.add(reader);
+		}
+		Random rand = new Random();
+		for (int i = 0; i < 200000; i++) {
+			int key = rand.nextInt(range / 2) * 2 + 1;
+			if (tree.insert(key, "odd") == -1) {
+				tree.delete(key);
+			}
+		}
+		done.set(true);
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+	}
+}
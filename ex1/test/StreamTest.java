@@ -0,0 +1,98 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamTest {
+
+	private static AVLTree randomTree(Random rand, int size) {
+		AVLTree tree = new AVLTree();
+		while (tree.size() < size) {
+			int key = rand.nextInt(4 * size) - size;
+			tree.insert(key, Integer.toString(key));
+		}
+		return tree;
+	}
+
+	/**
+	 * Split a spliterator recursively, and collect its keys from the leaves in order
+	 */
+	private static void splitAll(Spliterator.OfInt spliterator, List<Integer> keys) {
+		long size = spliterator.estimateSize();
+		Spliterator.OfInt prefix = spliterator.trySplit();
+		if (prefix == null) {
+			assertTrue(size < 2);
+			spliterator.forEachRemaining((int key) -> keys.add(key));
+			return;
+		}
+		//exact halves
+		assertEquals(size / 2, prefix.estimateSize());
+		assertEquals(size - size / 2, spliterator.estimateSize());
+		assertEquals(prefix.estimateSize(), prefix.getExactSizeIfKnown());
+		splitAll(prefix, keys);
+		splitAll(spliterator, keys);
+	}
+
+	@Test
+	void sameAsArraysTest() {
+		Random rand = new Random(42);
+		for (int size : new int[]{0, 1, 2, 3, 10, 1000, 5000}) {
+			AVLTree tree = randomTree(rand, size);
+			int[] keys = tree.keysToArray();
+			String[] info = tree.infoToArray();
+
+			assertArrayEquals(keys, tree.stream().toArray());
+			assertArrayEquals(keys, tree.stream().parallel().toArray());
+			assertEquals(size, tree.stream().count());
+			assertEquals(tree.stream().asLongStream().sum(), tree.stream().parallel().asLongStream().sum());
+
+			List<Map.Entry<Integer, String>> entries = tree.entryStream().parallel().collect(Collectors.toList());
+			assertEquals(size, entries.size());
+			for (int i = 0; i < size; i++) {
+				assertEquals(keys[i], entries.get(i).getKey());
+				assertEquals(info[i], entries.get(i).getValue());
+			}
+
+			List<Integer> split = new ArrayList<>();
+			splitAll(tree.stream().spliterator(), split);
+			assertArrayEquals(keys, split.stream().mapToInt(Integer::intValue).toArray());
+		}
+	}
+
+	@Test
+	void characteristicsTest() {
+		AVLTree tree = randomTree(new Random(42), 100);
+		Spliterator.OfInt keys = tree.stream().spliterator();
+		int expected = Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT
+			| Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+		assertEquals(expected, keys.characteristics() & expected);
+		assertNull(keys.getComparator());
+		Spliterator<Map.Entry<Integer, String>> entries = tree.entryStream().spliterator();
+		assertEquals(expected, entries.characteristics() & expected);
+		assertNotNull(entries.getComparator());
+		assertEquals(100, entries.getExactSizeIfKnown());
+
+		//sorted and distinct streams skip the work of sorted() and distinct()
+		assertArrayEquals(tree.keysToArray(), tree.stream().parallel().sorted().distinct().toArray());
+		assertEquals(tree.select(10), tree.stream().skip(10).findFirst().getAsInt());
+	}
+
+	@Test
+	void tryAdvanceTest() {
+		AVLTree tree = randomTree(new Random(42), 50);
+		Spliterator.OfInt keys = tree.stream().spliterator();
+		int[] expected = tree.keysToArray();
+		for (int key : expected) {
+			assertTrue(keys.tryAdvance((int k) -> assertEquals(key, k)));
+		}
+		assertFalse(keys.tryAdvance((int k) -> fail()));
+		assertEquals(0, keys.estimateSize());
+		assertNull(keys.trySplit());
+	}
+}
@@ -2,6 +2,9 @@ import org.junit.jupiter.api.Assertions;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 public class TestUtils {
 	/**
@@ -42,6 +45,32 @@ public class TestUtils {
 		testMinMax(tree);
 	}
 
+	/**
+	 * Tests the attributes of a WAVL tree: a binary search tree whose rank differences are 1 or 2,
+	 * and whose leaves have rank 0
+	 */
+	public static void testWAVL(AVLTree tree) {
+		testBST(tree, false);
+		if (tree.getRoot() != null) {
+			testRanksRec(tree.getRoot());
+		}
+	}
+
+	private static void testRanksRec(AVLTree.IAVLNode node) {
+		if (!node.isRealNode()) {
+			Assertions.assertEquals(-1, node.getHeight(), "An unreal node has a wrong rank");
+			return;
+		}
+		int difLeft = node.getHeight() - node.getLeft().getHeight();
+		int difRight = node.getHeight() - node.getRight().getHeight();
+		Assertions.assertTrue((difLeft == 1 || difLeft == 2) && (difRight == 1 || difRight == 2), String.format("Wrong rank difference in node %d", node.getKey()));
+		if (!node.getLeft().isRealNode() && !node.getRight().isRealNode()) {
+			Assertions.assertEquals(0, node.getHeight(), String.format("Leaf %d has a wrong rank", node.getKey()));
+		}
+		testRanksRec(node.getLeft());
+		testRanksRec(node.getRight());
+	}
+
 	public static void testHeights(AVLTree tree, boolean testAVLdif) {
 		if (tree.getRoot() != null) {
 			testHeightRec(tree.getRoot(), testAVLdif);
@@ -88,10 +117,13 @@ public class TestUtils {
 	}
 
 	public static void testParentsRec(AVLTree.IAVLNode node, AVLTree.IAVLNode parent) {
-		if (node != null) {
+		if (node != null && node.isRealNode()) {
 			Assertions.assertSame(parent, node.getParent(), String.format("Node %d has incorrect parent field", node.getKey()));
 			testParentsRec(node.getLeft(), node);
 			testParentsRec(node.getRight(), node);
+		} else if (node != null) {
+			//virtual leaves are shared, so they don't point to a parent
+			Assertions.assertSame(AVLTree.VIRTUAL_NODE, node, String.format("Node %d has a non-shared virtual child", parent.getKey()));
 		}
 	}
 
@@ -126,7 +158,7 @@ public class TestUtils {
 
 	public static AVLTree generateTree(List<Integer> preorder) {
 		AVLTree tree = new AVLTree();
-		AVLTree.IAVLNode root = tree.new AVLNode(preorder.get(0), "a");
+		AVLTree.IAVLNode root = new AVLTree.AVLNode(preorder.get(0), "a");
 		tree.root = root;
 		generateTreeNode(tree, root, preorder, 1, preorder.size());
 		updateHeightRec(root);
@@ -165,14 +197,14 @@ public class TestUtils {
 			}
 		}
 		if (firstRightIndex > startRange) {
-			AVLTree.IAVLNode leftChild = tree.new AVLNode(preorder.get(startRange), "a", node, true);
+			AVLTree.IAVLNode leftChild = new AVLTree.AVLNode(preorder.get(startRange), "a", node);
 			node.setLeft(leftChild);
 			generateTreeNode(tree, leftChild, preorder, startRange + 1, firstRightIndex);
 		} else {
 			node.setFakeLeft();
 		}
 		if (firstRightIndex < endRange) {
-			AVLTree.IAVLNode rightChild = tree.new AVLNode(preorder.get(firstRightIndex), "a", node, true);
+			AVLTree.IAVLNode rightChild = new AVLTree.AVLNode(preorder.get(firstRightIndex), "a", node);
 			node.setRight(rightChild);
 			generateTreeNode(tree, rightChild, preorder, firstRightIndex + 1, endRange);
 		} else {
@@ -192,6 +224,44 @@ public class TestUtils {
 		}
 	}
 
+	/**
+	 * Returns the items of size random keys in [0, maxKey), without repetitions, each with the prefix and its key as info
+	 */
+	public static TreeMap<Integer, String> randomItems(Random rand, int size, int maxKey, String prefix) {
+		TreeMap<Integer, String> items = new TreeMap<>();
+		for (int i = 0; i < size; i++) {
+			int key = rand.nextInt(maxKey);
+			items.put(key, prefix + key);
+		}
+		return items;
+	}
+
+	/**
+	 * Returns an AVL tree built by inserting the items
+	 */
+	public static AVLTree treeOf(SortedMap<Integer, String> items) {
+		AVLTree tree = new AVLTree();
+		items.forEach(tree::insert);
+		return tree;
+	}
+
+	public static int[] keys(SortedMap<Integer, String> items) {
+		return items.keySet().stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * Tests that the keys and info of a tree, in order, are those of the expected items.
+	 * Works for any tree kind, given its keysToArray and infoToArray.
+	 */
+	public static void assertItems(SortedMap<Integer, String> expected, int[] keys, String[] info) {
+		Assertions.assertArrayEquals(keys(expected), keys);
+		Assertions.assertArrayEquals(expected.values().toArray(new String[0]), info);
+	}
+
+	public static void assertItems(SortedMap<Integer, String> expected, AVLTree tree) {
+		assertItems(expected, tree.keysToArray(), tree.infoToArray());
+	}
+
 	public static AVLTree.IAVLNode getNodeByKey(AVLTree tree, int k) {
 		AVLTree.IAVLNode node = tree.getRoot();
 		while (node != null && node.isRealNode()) {
@@ -0,0 +1,183 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WAVLTest {
+
+	private static AVLTree wavlTree() {
+		AVLTree tree = new AVLTree();
+		tree.setBalancing(AVLTree.Balancing.WAVL);
+		return tree;
+	}
+
+	@Test
+	void randomOperationsTest() {
+		Random rand = new Random(42);
+		AVLTree tree = wavlTree();
+		TreeMap<Integer, String> expected = new TreeMap<>();
+		for (int i = 0; i < 20000; i++) {
+			int key = rand.nextInt(2000);
+			if (rand.nextInt(5) < 2) {
+				assertEquals(expected.containsKey(key), tree.delete(key) >= 0);
+				expected.remove(key);
+			} else {
+				assertEquals(!expected.containsKey(key), tree.insert(key, "info " + key) >= 0);
+				expected.putIfAbsent(key, "info " + key);
+			}
+			if (i % 500 == 0) {
+				TestUtils.testWAVL(tree);
+			}
+		}
+		TestUtils.testWAVL(tree);
+		TestUtils.assertItems(expected, tree);
+		//the rank bounds the height by 2 log n
+		assertTrue(tree.getHeight() <= 2 * Math.log(tree.size() + 1) / Math.log(2));
+		assertTrue(AVLSanitizer.calcHeight(tree.getRoot()) <= tree.getHeight());
+		while (!tree.empty()) {
+			tree.delete(tree.select(tree.size() / 2));
+			TestUtils.testWAVL(tree);
+		}
+	}
+
+	@Test
+	void insertionsOnlyTest() {
+		//without deletions, a WAVL tree is an AVL tree
+		Random rand = new Random(42);
+		AVLTree tree = wavlTree();
+		for (int i = 0; i < 5000; i++) {
+			tree.insert(rand.nextInt(), "a");
+		}
+		TestUtils.testAVL(tree);
+	}
+
+	@Test
+	void deletionRotationsTest() {
+		AVLTreeMetrics metrics = new AVLTreeMetrics();
+		AVLTree tree = wavlTree();
+		for (int i = 0; i < 10000; i++) {
+			tree.insert(i, "a");
+		}
+		tree.setMetrics(metrics);
+		Random rand = new Random(42);
+		for (int i = 0; i < 9000; i++) {
+			long rotations = metrics.getLeftRotations() + metrics.getRightRotations();
+			long demotions = metrics.getDemotions();
+			tree.delete(tree.select(rand.nextInt(tree.size())));
+			assertTrue(metrics.getLeftRotations() + metrics.getRightRotations() - rotations <= 2);
+			assertTrue(metrics.getDemotions() - demotions <= 2 * (tree.getHeight() + 1) + 3);
+		}
+		TestUtils.testWAVL(tree);
+		//O(1) amortized demotions and promotions
+		assertTrue(metrics.getDemotions() + metrics.getPromotions() < 4 * 9000, metrics.getDemotions() + " demotions");
+	}
+
+	@Test
+	void splitJoinTest() {
+		Random rand = new Random(42);
+		AVLTree tree = wavlTree();
+		TreeMap<Integer, String> expected = new TreeMap<>();
+		for (int i = 0; i < 3000; i++) {
+			tree.insert(i, Integer.toString(i));
+			expected.put(i, Integer.toString(i));
+		}
+		for (int i = 0; i < 2000; i++) {
+			int key = rand.nextInt(3000);
+			tree.delete(key);
+			expected.remove(key);
+		}
+		AVLTree[] parts = tree.split(1500);
+		for (AVLTree part : parts) {
+			assertEquals(AVLTree.Balancing.WAVL, part.getBalancing());
+			TestUtils.testWAVL(part);
+		}
+		expected.remove(1500);
+		//deletions keep working in the parts
+		for (int i = 0; i < 500; i++) {
+			int key = rand.nextInt(3000);
+			parts[key < 1500 ? 0 : 1].delete(key);
+			expected.remove(key);
+		}
+		TestUtils.testWAVL(parts[0]);
+		TestUtils.testWAVL(parts[1]);
+
+		//an AVL tree that joins a WAVL tree becomes a WAVL tree
+		AVLTree upper = new AVLTree();
+		upper.insert(4000, "4000");
+		upper.join(new AVLTree.AVLNode(3500, "3500"), parts[1]);
+		assertEquals(AVLTree.Balancing.WAVL, upper.getBalancing());
+		TestUtils.testWAVL(upper);
+		parts[0].join(new AVLTree.AVLNode(1500, "1500"), upper);
+		expected.put(1500, "1500");
+		expected.put(3500, "3500");
+		expected.put(4000, "4000");
+		TestUtils.testWAVL(parts[0]);
+		TestUtils.assertItems(expected, parts[0]);
+	}
+
+	@Test
+	void rangeAndSetOperationsTest() {
+		Random rand = new Random(42);
+		AVLTree tree = wavlTree();
+		TreeMap<Integer, String> expected = new TreeMap<>();
+		for (int i = 0; i < 4000; i++) {
+			int key = rand.nextInt(10000);
+			if (rand.nextBoolean() && tree.delete(key) >= 0) {
+				expected.remove(key);
+			} else if (tree.insert(key, "a") >= 0) {
+				expected.put(key, "a");
+			}
+		}
+		AVLTree removed = tree.deleteRange(2000, 3000);
+		expected.subMap(2000, true, 3000, true).clear();
+		assertEquals(AVLTree.Balancing.WAVL, removed.getBalancing());
+		TestUtils.testWAVL(removed);
+		TestUtils.testWAVL(tree);
+		TestUtils.assertItems(expected, tree);
+
+		AVLTree other = new AVLTree();
+		for (int i = 0; i < 10000; i += 3) {
+			other.insert(i, "b");
+		}
+		other.difference(tree);
+		assertEquals(AVLTree.Balancing.WAVL, other.getBalancing());
+		TestUtils.testWAVL(other);
+		for (int key : other.keysToArray()) {
+			assertFalse(expected.containsKey(key));
+			other.delete(key);
+		}
+		assertTrue(other.empty());
+	}
+
+	@Test
+	void switchBalancingTest() {
+		Random rand = new Random(42);
+		AVLTree tree = wavlTree();
+		for (int i = 0; i < 3000; i++) {
+			tree.insert(i, "a");
+		}
+		for (int i = 0; i < 2000; i++) {
+			tree.delete(rand.nextInt(3000));
+		}
+		int[] keys = tree.keysToArray();
+		AVLTree.IAVLNode root = tree.getRoot();
+		tree.setBalancing(AVLTree.Balancing.AVL);
+		assertEquals(AVLTree.Balancing.AVL, tree.getBalancing());
+		TestUtils.testAVL(tree);
+		assertArrayEquals(keys, tree.keysToArray());
+		//the nodes are kept
+		assertSame(root, tree.findNodeByKey(root.getKey()));
+		for (int key : keys) {
+			tree.delete(key);
+			TestUtils.testAVL(tree);
+		}
+
+		assertThrows(IllegalArgumentException.class, () -> tree.setBalancing(null));
+		tree.enableRelaxedBalancing(1, 2);
+		assertThrows(IllegalStateException.class, () -> tree.setBalancing(AVLTree.Balancing.WAVL));
+		assertThrows(IllegalArgumentException.class, () -> tree.join(new AVLTree.AVLNode(1, "a"), wavlTree()));
+		assertThrows(IllegalStateException.class, () -> wavlTree().enableRelaxedBalancing(1, 2));
+	}
+}